@@ -0,0 +1,93 @@
+package com.pdfprinting.benchmark;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import com.pdfprinting.config.EmailTemplateConfig;
+import com.pdfprinting.model.User;
+import com.pdfprinting.service.OtpEmailRenderer;
+
+/**
+ * Email renders per second: the prerendered OTP email against a full Thymeleaf pass over the same
+ * template, and a regular email template with and without the template cache.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class EmailRenderBenchmark {
+
+    private SpringTemplateEngine cachedEngine;
+    private SpringTemplateEngine uncachedEngine;
+    private OtpEmailRenderer otpRenderer;
+    private User user;
+
+    @Setup
+    public void setUp() {
+        cachedEngine = engine(true);
+        uncachedEngine = engine(false);
+        otpRenderer = new OtpEmailRenderer(Optional.of(cachedEngine));
+        user = new User();
+        user.setName("Benchmark Student");
+        user.setEmail("student@example.com");
+        user.setBatch("Batch 1");
+    }
+
+    private static SpringTemplateEngine engine(boolean cacheable) {
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(new EmailTemplateConfig().emailTemplateResolver(cacheable));
+        return engine;
+    }
+
+    private static String otp() {
+        return String.format("%06d", ThreadLocalRandom.current().nextInt(1_000_000));
+    }
+
+    @Benchmark
+    public String otpPrerendered() {
+        return otpRenderer.renderHtml(otp());
+    }
+
+    @Benchmark
+    public String otpThymeleaf() {
+        Context context = new Context();
+        context.setVariable("otp", otp());
+        context.setVariable("validityMinutes", 10);
+        return cachedEngine.process("email/otp", context);
+    }
+
+    @Benchmark
+    public String welcomeCachedTemplate() {
+        return welcome(cachedEngine);
+    }
+
+    @Benchmark
+    public String welcomeUncachedTemplate() {
+        return welcome(uncachedEngine);
+    }
+
+    private String welcome(SpringTemplateEngine engine) {
+        Context context = new Context();
+        context.setVariable("user", user);
+        context.setVariable("loginUrl", "http://localhost:8080/login");
+        return engine.process("email/welcome", context);
+    }
+}
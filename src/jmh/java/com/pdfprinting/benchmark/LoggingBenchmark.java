@@ -0,0 +1,166 @@
+package com.pdfprinting.benchmark;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.slf4j.MDC;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.JsonEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.OutputStreamAppender;
+
+/**
+ * Logging cost per payment callback with 8 request threads: the removed System.out version (twelve
+ * autoflushed printlns under the stream's lock), against the single JSON log line now written
+ * synchronously and through the async appender of logback-spring.xml. Blocking shows what the
+ * writer thread sustains; neverBlock, as configured, also counts events dropped while the queue is full.
+ * All write to /dev/null where it exists, so each line still costs a write call but nothing fills the disk.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(8)
+@State(Scope.Benchmark)
+public class LoggingBenchmark {
+
+    private static final String PAYMENT_ID = "pay_NXs9LhRk3Cq5Tb";
+    private static final String ORDER_ID = "order_NXs8mVQ2Yy4Z1a";
+    private static final String SIGNATURE = "9f2c4e51b0d8a7c36e1f5b92d04a8c7e3b6f1d25a9c08e47b3d6f2a15c9e80d4";
+    private static final BigDecimal AMOUNT = new BigDecimal("250.00");
+    private static final Long USER_ID = 42L;
+
+    private PrintStream console;
+    private LoggerContext context;
+    private Logger syncLogger;
+    private Logger asyncLogger;
+    private Logger blockingAsyncLogger;
+
+    @Setup
+    public void setUp() throws IOException {
+        console = new PrintStream(sink(), true, StandardCharsets.UTF_8);
+        context = new LoggerContext();
+        syncLogger = logger("sync", jsonAppender());
+        asyncLogger = logger("async", async(jsonAppender(), true));
+        blockingAsyncLogger = logger("async-blocking", async(jsonAppender(), false));
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.stop();
+        console.close();
+    }
+
+    /** The MDC a request thread carries (RequestLoggingFilter, JwtAuthenticationFilter). */
+    @State(Scope.Thread)
+    public static class RequestContext {
+
+        @Setup
+        public void enter() {
+            MDC.put("requestId", Long.toHexString(Thread.currentThread().getId() * 0x9E3779B97F4A7C15L));
+            MDC.put("userId", String.valueOf(USER_ID));
+        }
+
+        @TearDown
+        public void leave() {
+            MDC.clear();
+        }
+    }
+
+    @Benchmark
+    public void systemOut() {
+        // The removed PaymentController.paymentCallback output, every parameter printed twice
+        console.println("Payment callback received!");
+        console.println("Payment ID: " + PAYMENT_ID);
+        console.println("Order ID: " + ORDER_ID);
+        console.println("Signature: " + SIGNATURE);
+        console.println("Wallet Amount: " + AMOUNT);
+        console.println("User ID: " + USER_ID);
+        console.println("Payment callback received:");
+        console.println("Payment ID: " + PAYMENT_ID);
+        console.println("Order ID: " + ORDER_ID);
+        console.println("Signature: " + SIGNATURE);
+        console.println("Wallet Amount: " + AMOUNT);
+        console.println("User ID: " + USER_ID);
+    }
+
+    @Benchmark
+    public void syncJson(RequestContext request) {
+        callback(syncLogger);
+    }
+
+    @Benchmark
+    public void asyncJson(RequestContext request) {
+        callback(asyncLogger);
+    }
+
+    @Benchmark
+    public void asyncJsonBlocking(RequestContext request) {
+        callback(blockingAsyncLogger);
+    }
+
+    private static void callback(Logger logger) {
+        logger.info("Payment callback: payment {}, order {}, wallet amount {}, user {}, signature valid {}",
+            PAYMENT_ID, ORDER_ID, AMOUNT, USER_ID, true);
+    }
+
+    private Logger logger(String name, Appender<ILoggingEvent> appender) {
+        Logger logger = context.getLogger(name);
+        logger.setLevel(Level.INFO);
+        logger.setAdditive(false);
+        logger.addAppender(appender);
+        return logger;
+    }
+
+    private OutputStreamAppender<ILoggingEvent> jsonAppender() throws IOException {
+        JsonEncoder encoder = new JsonEncoder();
+        encoder.setContext(context);
+        encoder.start();
+        OutputStreamAppender<ILoggingEvent> appender = new OutputStreamAppender<>();
+        appender.setContext(context);
+        appender.setEncoder(encoder);
+        appender.setOutputStream(sink());
+        appender.start();
+        return appender;
+    }
+
+    private AsyncAppender async(Appender<ILoggingEvent> delegate, boolean neverBlock) {
+        AsyncAppender appender = new AsyncAppender();
+        appender.setContext(context);
+        appender.setQueueSize(8192);
+        appender.setDiscardingThreshold(0);
+        appender.setNeverBlock(neverBlock);
+        appender.addAppender(delegate);
+        appender.start();
+        return appender;
+    }
+
+    private static OutputStream sink() throws IOException {
+        File devNull = new File("/dev/null");
+        return devNull.exists() ? new FileOutputStream(devNull) : OutputStream.nullOutputStream();
+    }
+}
@@ -0,0 +1,108 @@
+package com.pdfprinting.benchmark;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.pdfprinting.model.PdfUpload;
+import com.pdfprinting.model.PdfUpload.PrintType;
+import com.pdfprinting.service.GitHubStorageService;
+import com.pdfprinting.service.PdfMergeService;
+import com.pdfprinting.service.PdfUploadService;
+import com.pdfprinting.service.Spans;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.micrometer.tracing.Tracer;
+
+/**
+ * A whole container merge through PdfMergeService (parallel download, validation, merge with copies,
+ * write) over a synthetic corpus, with the database and GitHub replaced by in-memory stubs so only
+ * the PDF work is measured. Scales with the number of files and the copies of each.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PdfMergeBenchmark {
+
+    @Param({"10", "50"})
+    private int files;
+
+    @Param({"1", "3"})
+    private int copies;
+
+    private PdfMergeService mergeService;
+
+    @Setup
+    public void generateContainer() {
+        List<byte[]> corpus = SyntheticPdfs.corpus(42, files, 20);
+        List<PdfUpload> uploads = new ArrayList<>(files);
+        Map<String, byte[]> stored = new HashMap<>();
+        for (int i = 0; i < files; i++) {
+            PdfUpload upload = new PdfUpload();
+            upload.setId((long) i);
+            upload.setGithubPath("synthetic/" + i + ".pdf");
+            upload.setCopyCount(copies);
+            upload.setPrintType(PrintType.SINGLE_SIDE);
+            uploads.add(upload);
+            stored.put(upload.getGithubPath(), corpus.get(i));
+        }
+
+        mergeService = new PdfMergeService();
+        ReflectionTestUtils.setField(mergeService, "pdfUploadService", new StoredUploads(uploads));
+        ReflectionTestUtils.setField(mergeService, "gitHubStorageService", new StoredFiles(stored));
+        ReflectionTestUtils.setField(mergeService, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(mergeService, "spans", new Spans(Tracer.NOOP));
+    }
+
+    @Benchmark
+    public PdfMergeService.MergeResult mergeContainer() throws Exception {
+        return mergeService.mergeContainerPdfsWithReport("2025-26", "CSE", "A", "5", "B1");
+    }
+
+    private static class StoredUploads extends PdfUploadService {
+
+        private final List<PdfUpload> uploads;
+
+        StoredUploads(List<PdfUpload> uploads) {
+            this.uploads = uploads;
+        }
+
+        @Override
+        public List<PdfUpload> getContainerUploads(String academicYear, String branch, String division,
+                                                   String semester, String batch) {
+            return uploads;
+        }
+    }
+
+    private static class StoredFiles extends GitHubStorageService {
+
+        private final Map<String, byte[]> files;
+
+        StoredFiles(Map<String, byte[]> files) {
+            this.files = files;
+        }
+
+        @Override
+        public byte[] downloadFile(String path) {
+            return files.get(path);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package com.pdfprinting.benchmark;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pdfprinting.model.PdfUpload.PrintType;
+import com.pdfprinting.service.PricingEngine;
+
+/**
+ * Prices a fixed batch of random files with PricingEngine and with the per-call BigDecimal
+ * formula it replaced. Run with -prof gc to compare allocation rates.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PricingBenchmark {
+
+    private static final int FILES = 1024;
+
+    private final PricingEngine engine = PricingEngine.defaults();
+    private final PricingEngine tieredEngine = new PricingEngine("200,100:180,1000:150", "100,500:90", "700,200:650");
+
+    private int[] pages;
+    private int[] copies;
+    private PrintType[] types;
+
+    @Setup
+    public void generateFiles() {
+        Random random = new Random(42);
+        pages = new int[FILES];
+        copies = new int[FILES];
+        types = new PrintType[FILES];
+        for (int i = 0; i < FILES; i++) {
+            pages[i] = 1 + random.nextInt(200);
+            copies[i] = 1 + random.nextInt(10);
+            types[i] = PrintType.values()[random.nextInt(PrintType.values().length)];
+        }
+    }
+
+    @Benchmark
+    public long engineFlatTariff() {
+        long total = 0;
+        for (int i = 0; i < FILES; i++) {
+            total += engine.pricePaise(pages[i], copies[i], types[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long engineTieredTariff() {
+        long total = 0;
+        for (int i = 0; i < FILES; i++) {
+            total += tieredEngine.pricePaise(pages[i], copies[i], types[i]);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public BigDecimal legacyBigDecimal() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (int i = 0; i < FILES; i++) {
+            total = total.add(legacyCost(pages[i], copies[i], types[i]));
+        }
+        return total;
+    }
+
+    // The removed WalletService.calculateCost(pageCount, copyCount, printType)
+    private static BigDecimal legacyCost(int pageCount, int copyCount, PrintType printType) {
+        BigDecimal pricePerPage;
+        int billedPages = pageCount;
+        switch (printType) {
+            case DOUBLE_SIDE:
+                if (pageCount % 2 != 0) {
+                    billedPages = pageCount + 1;
+                }
+                pricePerPage = new BigDecimal("1.00");
+                break;
+            case COLOUR:
+                pricePerPage = new BigDecimal("7.00");
+                break;
+            default:
+                pricePerPage = new BigDecimal("2.00");
+                break;
+        }
+        return pricePerPage.multiply(new BigDecimal(billedPages)).multiply(new BigDecimal(copyCount));
+    }
+}
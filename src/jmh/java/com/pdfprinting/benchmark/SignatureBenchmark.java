@@ -0,0 +1,69 @@
+package com.pdfprinting.benchmark;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pdfprinting.security.HmacSha256Verifier;
+
+/**
+ * Razorpay callback signature check: the per-thread Mac and constant-time compare against the
+ * previous new-Mac-per-call, hex-string-equals version.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class SignatureBenchmark {
+
+    private static final String SECRET = "benchmark-key-secret";
+    private static final String DATA = "order_NXs8mVQ2Yy4Z1a|pay_NXs9LhRk3Cq5Tb";
+
+    private HmacSha256Verifier verifier;
+    private String signature;
+
+    @Setup
+    public void setUp() throws Exception {
+        verifier = new HmacSha256Verifier(SECRET);
+        signature = verifier.signHex(DATA);
+    }
+
+    @Benchmark
+    public boolean threadLocalMac() {
+        return verifier.matches(DATA, signature);
+    }
+
+    @Benchmark
+    public boolean macPerCall() throws Exception {
+        // The removed PaymentController.calculateHMACSHA256 + String.equals
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(SECRET.getBytes(), "HmacSHA256"));
+        byte[] hash = mac.doFinal(DATA.getBytes());
+        StringBuilder hexString = new StringBuilder();
+        for (byte b : hash) {
+            String hex = Integer.toHexString(0xff & b);
+            if (hex.length() == 1) {
+                hexString.append('0');
+            }
+            hexString.append(hex);
+        }
+        return signature.equals(hexString.toString());
+    }
+}
@@ -0,0 +1,106 @@
+package com.pdfprinting.benchmark;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.apache.pdfbox.pdmodel.font.PDFont;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.graphics.image.LosslessFactory;
+import org.apache.pdfbox.pdmodel.graphics.image.PDImageXObject;
+
+/**
+ * Student-upload-like PDFs built with PDFBox from a seed, so the PDF benchmarks run offline and every
+ * run sees the same bytes: A4 or Letter pages of text in the standard fonts, optionally with a
+ * generated image on each page standing in for scanned diagrams.
+ */
+public final class SyntheticPdfs {
+
+    private static final PDFont[] FONTS = {
+        PDType1Font.HELVETICA, PDType1Font.TIMES_ROMAN, PDType1Font.COURIER, PDType1Font.HELVETICA_BOLD
+    };
+    private static final PDRectangle[] SIZES = { PDRectangle.A4, PDRectangle.LETTER };
+    private static final String[] WORDS = {
+        "experiment", "aim", "theory", "procedure", "observation", "result", "conclusion", "circuit",
+        "voltage", "algorithm", "complexity", "input", "output", "table", "graph", "figure"
+    };
+    private static final int LINES_PER_PAGE = 40;
+
+    private SyntheticPdfs() {
+    }
+
+    /**
+     * A corpus of files with 1 to maxPages pages each; every third file has images.
+     */
+    public static List<byte[]> corpus(long seed, int files, int maxPages) {
+        Random random = new Random(seed);
+        List<byte[]> corpus = new ArrayList<>(files);
+        for (int i = 0; i < files; i++) {
+            corpus.add(generate(random, 1 + random.nextInt(maxPages), i % 3 == 0));
+        }
+        return corpus;
+    }
+
+    public static byte[] generate(Random random, int pages, boolean images) {
+        try (PDDocument document = new PDDocument();
+             ByteArrayOutputStream out = new ByteArrayOutputStream()) {
+            PDRectangle size = SIZES[random.nextInt(SIZES.length)];
+            for (int p = 0; p < pages; p++) {
+                PDPage page = new PDPage(size);
+                document.addPage(page);
+                PDImageXObject image = images ? LosslessFactory.createFromImage(document, image(random)) : null;
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    writeText(content, random, size);
+                    if (image != null) {
+                        content.drawImage(image, 72, 72, 200, 150);
+                    }
+                }
+            }
+            document.save(out);
+            return out.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeText(PDPageContentStream content, Random random, PDRectangle size) throws IOException {
+        PDFont font = FONTS[random.nextInt(FONTS.length)];
+        content.beginText();
+        content.setFont(font, 10);
+        content.setLeading(14);
+        content.newLineAtOffset(72, size.getHeight() - 72);
+        for (int line = 0; line < LINES_PER_PAGE; line++) {
+            StringBuilder text = new StringBuilder();
+            for (int word = 0; word < 10; word++) {
+                text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+            }
+            content.showText(text.toString());
+            content.newLine();
+        }
+        content.endText();
+    }
+
+    // Coloured blocks with some noise, so the image neither vanishes under compression nor is pure noise
+    private static BufferedImage image(Random random) {
+        BufferedImage image = new BufferedImage(400, 300, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                int block = ((x / 40) * 31 + (y / 30) * 17) & 0xFF;
+                int noise = random.nextInt(16);
+                int red = (block + noise) & 0xFF;
+                int green = 255 - block;
+                int blue = (block * 3 + noise) & 0xFF;
+                image.setRGB(x, y, red << 16 | green << 8 | blue);
+            }
+        }
+        return image;
+    }
+}
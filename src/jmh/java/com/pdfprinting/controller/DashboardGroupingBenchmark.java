@@ -0,0 +1,131 @@
+package com.pdfprinting.controller;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.pdfprinting.controller.AdminController.ContainerInfo;
+import com.pdfprinting.model.PdfUpload;
+import com.pdfprinting.model.PdfUpload.PrintType;
+
+/**
+ * Admin dashboard grouping of the pending uploads into container cards: the single pass of
+ * AdminController.containers against the join/split key and three filter passes per container it
+ * replaced. Uploads are spread over a realistic number of containers, some with missing fields.
+ * Lives in the controller package because the grouping is package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DashboardGroupingBenchmark {
+
+    private static final String[] YEARS = { "2023-24", "2024-25", "2025-26" };
+    private static final String[] BRANCHES = { "CSE", "IT", "ENTC", "MECH", "CIVIL" };
+    private static final String[] DIVISIONS = { "A", "B", "C", null };
+    private static final String[] SEMESTERS = { "1", "3", "5", "7" };
+    private static final String[] BATCHES = { "B1", "B2", "B3", "" };
+
+    @Param({"1000", "20000"})
+    private int uploads;
+
+    private List<PdfUpload> pending;
+
+    @Setup
+    public void generateUploads() {
+        Random random = new Random(42);
+        pending = new ArrayList<>(uploads);
+        for (int i = 0; i < uploads; i++) {
+            PdfUpload upload = new PdfUpload();
+            upload.setId((long) i);
+            upload.setAcademicYear(YEARS[random.nextInt(YEARS.length)]);
+            upload.setBranch(BRANCHES[random.nextInt(BRANCHES.length)]);
+            upload.setDivision(DIVISIONS[random.nextInt(DIVISIONS.length)]);
+            upload.setSemester(SEMESTERS[random.nextInt(SEMESTERS.length)]);
+            upload.setBatch(BATCHES[random.nextInt(BATCHES.length)]);
+            upload.setPrintType(PrintType.values()[random.nextInt(PrintType.values().length)]);
+            pending.add(upload);
+        }
+    }
+
+    @Benchmark
+    public List<ContainerInfo> singlePass() {
+        return AdminController.containers(pending);
+    }
+
+    // The grouping formerly inlined in AdminController.dashboard
+    @Benchmark
+    public List<ContainerInfo> legacyJoinSplit() {
+        Map<String, List<PdfUpload>> containerGroups = pending.stream()
+            .collect(Collectors.groupingBy(
+                upload -> String.join("|",
+                    safe(upload.getAcademicYear()),
+                    safe(upload.getBranch()),
+                    safe(upload.getDivision()),
+                    safe(upload.getSemester()),
+                    safe(upload.getBatch())
+                )
+            ));
+
+        List<ContainerInfo> containers = new ArrayList<>();
+        for (Map.Entry<String, List<PdfUpload>> entry : containerGroups.entrySet()) {
+            String[] parts = entry.getKey().split("\\|", -1);
+            if (parts.length == 5) {
+                List<PdfUpload> group = entry.getValue();
+                long singleSideCount = group.stream()
+                    .filter(u -> u.getPrintType() == PrintType.SINGLE_SIDE)
+                    .count();
+                long doubleSideCount = group.stream()
+                    .filter(u -> u.getPrintType() == PrintType.DOUBLE_SIDE)
+                    .count();
+                long colourCount = group.stream()
+                    .filter(u -> u.getPrintType() == PrintType.COLOUR)
+                    .count();
+
+                containers.add(new ContainerInfo(
+                    parts[0].isEmpty() ? "Unknown Year" : parts[0],
+                    parts[1].isEmpty() ? "Unknown Branch" : parts[1],
+                    parts[2].isEmpty() ? "Unknown Division" : parts[2],
+                    parts[3].isEmpty() ? "Unknown Semester" : parts[3],
+                    parts[4].isEmpty() ? "Unknown Batch" : parts[4],
+                    group.size(),
+                    singleSideCount,
+                    doubleSideCount,
+                    colourCount
+                ));
+            }
+        }
+
+        containers.sort((a, b) -> {
+            int c = a.getAcademicYear().compareTo(b.getAcademicYear());
+            if (c != 0) return c;
+            c = a.getBranch().compareTo(b.getBranch());
+            if (c != 0) return c;
+            c = a.getDivision().compareTo(b.getDivision());
+            if (c != 0) return c;
+            c = a.getSemester().compareTo(b.getSemester());
+            if (c != 0) return c;
+            return a.getBatch().compareTo(b.getBatch());
+        });
+        return containers;
+    }
+
+    private static String safe(String v) { return v == null ? "" : v; }
+}
@@ -0,0 +1,58 @@
+package com.pdfprinting.service;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import com.pdfprinting.benchmark.SyntheticPdfs;
+
+/**
+ * The per-file PDF work of an upload: counting pages (done for every file, and again for the
+ * page and cost totals) and appending a blank page to odd-length double-sided files, by page count
+ * and with or without images. Run with -prof gc: both parse the whole document. Lives in the
+ * service package because PdfPages is package-private.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PdfPageBenchmark {
+
+    @Param({"1", "25", "200"})
+    private int pages;
+
+    @Param({"false", "true"})
+    private boolean images;
+
+    private MockMultipartFile file;
+
+    @Setup
+    public void generateFile() {
+        byte[] pdf = SyntheticPdfs.generate(new Random(42), pages, images);
+        file = new MockMultipartFile("files", "synthetic.pdf", "application/pdf", pdf);
+    }
+
+    @Benchmark
+    public int countPages() throws Exception {
+        return PdfPages.countPages(file);
+    }
+
+    @Benchmark
+    public byte[] addBlankPage() throws Exception {
+        return PdfPages.addBlankPage(file);
+    }
+}
@@ -1,8 +1,5 @@
 package com.pdfprinting;
 
-import com.pdfprinting.service.UserService;
-import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 
@@ -10,17 +7,9 @@ import org.springframework.scheduling.annotation.EnableAsync;
 
 @SpringBootApplication
 @EnableAsync
-public class PdfPrintingApplication implements CommandLineRunner {
-
-    @Autowired
-    private UserService userService;
+public class PdfPrintingApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(PdfPrintingApplication.class, args);
     }
-
-    @Override
-    public void run(String... args) throws Exception {
-        userService.initializeAdmin();
-    }
 }
@@ -0,0 +1,36 @@
+package com.pdfprinting.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Set;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+import org.thymeleaf.templateresolver.ITemplateResolver;
+
+/**
+ * Resolver for the email/ templates, ahead of Boot's default page resolver. Email templates are
+ * parsed once and kept in Thymeleaf's template cache whatever spring.thymeleaf.cache says (dev
+ * setups turn that off for pages); only the Context is built per email.
+ */
+@Configuration
+public class EmailTemplateConfig {
+
+    @Bean
+    public ITemplateResolver emailTemplateResolver(
+            @Value("${email.templates.cache:true}") boolean cacheable) {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix("templates/");
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        resolver.setResolvablePatterns(Set.of("email/*"));
+        resolver.setCacheable(cacheable);
+        resolver.setCacheTTLMs(null); // no expiry: templates only change with a deploy
+        resolver.setCheckExistence(true);
+        resolver.setOrder(0);
+        return resolver;
+    }
+}
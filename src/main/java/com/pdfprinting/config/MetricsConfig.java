@@ -0,0 +1,131 @@
+package com.pdfprinting.config;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.function.ToDoubleFunction;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.pdfprinting.resilience.CircuitBreaker;
+import com.pdfprinting.resilience.ResilientDependency;
+import com.pdfprinting.security.AttemptLimiter;
+import com.pdfprinting.security.JwtUtil;
+import com.pdfprinting.security.PrincipalCache;
+import com.pdfprinting.service.BatchNotifier;
+import com.pdfprinting.service.EmailDispatcher;
+import com.pdfprinting.service.PasswordHashingService;
+import com.pdfprinting.service.PaymentReconciler;
+import com.pdfprinting.service.PendingRegistrationService;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+/**
+ * Publishes the counters and levels the services already keep as meters, read on each scrape.
+ * Latencies are timed where they happen (github.operation, pdf.merge.phase, pdf.upload.stage,
+ * wallet.debit, email.dispatch, jwt.filter). Cache hit ratios come from cache.gets by result.
+ */
+@Configuration
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder applicationMetrics(PrincipalCache principalCache, JwtUtil jwtUtil,
+                                          PaymentReconciler paymentReconciler,
+                                          PendingRegistrationService pendingRegistrations,
+                                          PasswordHashingService passwordHashing,
+                                          AttemptLimiter attemptLimiter,
+                                          EmailDispatcher emailDispatcher, BatchNotifier batchNotifier,
+                                          List<ResilientDependency> dependencies) {
+        return registry -> {
+            cache(registry, "principal", principalCache, PrincipalCache::getHits, PrincipalCache::getMisses,
+                    PrincipalCache::size);
+            cache(registry, "jwt-claims", jwtUtil, JwtUtil::getClaimsCacheHits, JwtUtil::getClaimsCacheMisses,
+                    JwtUtil::getClaimsCacheSize);
+
+            Gauge.builder("payment.orders.pending", paymentReconciler, PaymentReconciler::getPendingOrders)
+                    .register(registry);
+            Gauge.builder("payment.orders.oldest.pending.age", paymentReconciler,
+                    PaymentReconciler::getOldestPendingAgeSeconds).baseUnit("seconds").register(registry);
+            Gauge.builder("payment.credit.lag", paymentReconciler, PaymentReconciler::getLastCreditLagSeconds)
+                    .baseUnit("seconds").register(registry);
+            FunctionCounter.builder("payment.credited", paymentReconciler, PaymentReconciler::getCreditedBySweep)
+                    .tag("source", "sweep").register(registry);
+            FunctionCounter.builder("payment.credited", paymentReconciler, PaymentReconciler::getCreditedByWebhook)
+                    .tag("source", "webhook").register(registry);
+            FunctionCounter.builder("payment.orders.expired", paymentReconciler, PaymentReconciler::getExpiredOrders)
+                    .register(registry);
+
+            Gauge.builder("registration.pending", pendingRegistrations,
+                    PendingRegistrationService::getPendingRegistrationCount).register(registry);
+            FunctionCounter.builder("registration.pending.expired", pendingRegistrations,
+                    PendingRegistrationService::getExpiredEvictions).register(registry);
+            FunctionCounter.builder("registration.pending.rejected", pendingRegistrations,
+                    PendingRegistrationService::getRejectedWhenFull).register(registry);
+            FunctionCounter.builder("registration.hash", passwordHashing, PasswordHashingService::getHashed)
+                    .tag("result", "hashed").register(registry);
+            FunctionCounter.builder("registration.hash", passwordHashing, PasswordHashingService::getRejected)
+                    .tag("result", "rejected").register(registry);
+            Gauge.builder("registration.hash.queued", passwordHashing, PasswordHashingService::getQueued)
+                    .register(registry);
+            Gauge.builder("registration.hash.active", passwordHashing, PasswordHashingService::getActive)
+                    .register(registry);
+
+            for (AttemptLimiter.Action action : AttemptLimiter.Action.values()) {
+                FunctionCounter.builder("auth.attempts", attemptLimiter, l -> l.getAllowed(action))
+                        .tags("action", action.getCode(), "result", "allowed").register(registry);
+                FunctionCounter.builder("auth.attempts", attemptLimiter, l -> l.getBlocked(action))
+                        .tags("action", action.getCode(), "result", "blocked").register(registry);
+            }
+            Gauge.builder("auth.attempts.tracked.keys", attemptLimiter, AttemptLimiter::getTrackedKeys)
+                    .register(registry);
+
+            Gauge.builder("email.outbox.in.flight", emailDispatcher, EmailDispatcher::getInFlight)
+                    .register(registry);
+            FunctionCounter.builder("email.batch.requests", batchNotifier, BatchNotifier::getRequests)
+                    .register(registry);
+            FunctionCounter.builder("email.batch.recipients", batchNotifier, BatchNotifier::getRecipientsSent)
+                    .tag("result", "sent").register(registry);
+            FunctionCounter.builder("email.batch.recipients", batchNotifier, BatchNotifier::getRecipientsFailed)
+                    .tag("result", "failed").register(registry);
+
+            for (ResilientDependency dependency : dependencies) {
+                dependency(registry, dependency);
+            }
+        };
+    }
+
+    private static <T> void cache(MeterRegistry registry, String name, T cache, ToDoubleFunction<T> hits,
+                                  ToDoubleFunction<T> misses, ToDoubleFunction<T> size) {
+        FunctionCounter.builder("cache.gets", cache, hits).tags("cache", name, "result", "hit").register(registry);
+        FunctionCounter.builder("cache.gets", cache, misses).tags("cache", name, "result", "miss").register(registry);
+        Gauge.builder("cache.size", cache, size).tag("cache", name).register(registry);
+    }
+
+    private static void dependency(MeterRegistry registry, ResilientDependency dependency) {
+        String name = dependency.getName();
+        FunctionCounter.builder("resilience.calls", dependency, ResilientDependency::getCalls)
+                .tag("dependency", name).register(registry);
+        FunctionCounter.builder("resilience.failures", dependency, ResilientDependency::getFailures)
+                .tag("dependency", name).register(registry);
+        FunctionCounter.builder("resilience.rejected", dependency, ResilientDependency::getRejectedOpen)
+                .tags("dependency", name, "reason", "circuit-open").register(registry);
+        FunctionCounter.builder("resilience.rejected", dependency, ResilientDependency::getRejectedRateLimited)
+                .tags("dependency", name, "reason", "rate-limited").register(registry);
+        FunctionCounter.builder("resilience.rejected", dependency, ResilientDependency::getRejectedBulkheadFull)
+                .tags("dependency", name, "reason", "bulkhead-full").register(registry);
+        FunctionCounter.builder("resilience.circuit.opened", dependency, ResilientDependency::getTimesOpened)
+                .tag("dependency", name).register(registry);
+        Gauge.builder("resilience.in.flight", dependency, ResilientDependency::getInFlight)
+                .tag("dependency", name).register(registry);
+        Gauge.builder("resilience.tokens.available", dependency, ResilientDependency::getAvailableTokens)
+                .tag("dependency", name).register(registry);
+        // One series per state, 1 for the current one
+        for (CircuitBreaker.State state : CircuitBreaker.State.values()) {
+            Gauge.builder("resilience.circuit.state", dependency, d -> d.getState() == state ? 1 : 0)
+                    .tags("dependency", name, "state", state.name().toLowerCase(Locale.ROOT)).register(registry);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.pdfprinting.config;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+import org.slf4j.MDC;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Tags every log line written while serving a request with a request id: the caller's X-Request-Id
+ * when it is a plain token, otherwise a new one, echoed back in the response. JwtAuthenticationFilter
+ * adds the user id once the caller is known; the upload and merge paths add the container key.
+ */
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestLoggingFilter extends OncePerRequestFilter {
+
+    // MDC keys, written out as fields by the JSON layout (logback-spring.xml)
+    public static final String REQUEST_ID = "requestId";
+    public static final String USER_ID = "userId";
+    public static final String CONTAINER_KEY = "containerKey";
+
+    static final String HEADER = "X-Request-Id";
+
+    // Anything else (line breaks, quotes, very long values) is replaced rather than logged
+    private static final Pattern ACCEPTED_ID = Pattern.compile("[A-Za-z0-9._-]{1,64}");
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String requestId = request.getHeader(HEADER);
+        if (requestId == null || !ACCEPTED_ID.matcher(requestId).matches()) {
+            // Only needs to be unique enough to group one request's lines; no SecureRandom on this path
+            requestId = Long.toHexString(ThreadLocalRandom.current().nextLong());
+        }
+        MDC.put(REQUEST_ID, requestId);
+        response.setHeader(HEADER, requestId);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            // Worker threads are pooled: nothing from this request may leak into the next one
+            MDC.clear();
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.pdfprinting.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.pdfprinting.resilience.ResilientDependency;
+
+/**
+ * One resilience guard per remote dependency. GitHub's REST quota is 5000 requests an hour
+ * (about 1.4/s) for a token, with short bursts allowed; Brevo's transactional API allows far more.
+ */
+@Configuration
+public class ResilienceConfig {
+
+    @Bean
+    public ResilientDependency githubDependency(
+            @Value("${resilience.github.failure-threshold:5}") int failureThreshold,
+            @Value("${resilience.github.open-ms:30000}") long openMs,
+            @Value("${resilience.github.permits-per-second:1.4}") double permitsPerSecond,
+            @Value("${resilience.github.burst:50}") int burst,
+            @Value("${resilience.github.max-concurrent:8}") int maxConcurrent,
+            @Value("${resilience.github.max-wait-ms:2000}") long maxWaitMs) {
+        return new ResilientDependency("github", failureThreshold, openMs, permitsPerSecond, burst,
+                maxConcurrent, maxWaitMs);
+    }
+
+    @Bean
+    public ResilientDependency brevoDependency(
+            @Value("${resilience.brevo.failure-threshold:5}") int failureThreshold,
+            @Value("${resilience.brevo.open-ms:30000}") long openMs,
+            @Value("${resilience.brevo.permits-per-second:10}") double permitsPerSecond,
+            @Value("${resilience.brevo.burst:20}") int burst,
+            @Value("${resilience.brevo.max-concurrent:8}") int maxConcurrent,
+            @Value("${resilience.brevo.max-wait-ms:2000}") long maxWaitMs) {
+        return new ResilientDependency("brevo", failureThreshold, openMs, permitsPerSecond, burst,
+                maxConcurrent, maxWaitMs);
+    }
+}
@@ -0,0 +1,15 @@
+package com.pdfprinting.config;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+/**
+ * Runs the background jobs (report rollups, outbox dispatch, reconciliation, hold and registration
+ * sweeps). Set scheduling.enabled=false to run the application, or a test, without them.
+ */
+@Configuration
+@EnableScheduling
+@ConditionalOnProperty(name = "scheduling.enabled", havingValue = "true", matchIfMissing = true)
+public class SchedulingConfig {
+}
@@ -12,6 +12,8 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+import com.pdfprinting.security.AttemptLimiter;
+import com.pdfprinting.security.AuthRateLimitFilter;
 import com.pdfprinting.security.JwtAuthenticationFilter;
 import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.web.authentication.AuthenticationSuccessHandler;
@@ -27,6 +29,9 @@ public class SecurityConfig {
     @Autowired
     private CustomUserDetailsService userDetailsService;
 
+    @Autowired
+    private AttemptLimiter attemptLimiter;
+
     @Bean
     public PasswordEncoder passwordEncoder() {
         return new BCryptPasswordEncoder();
@@ -53,8 +58,11 @@ public class SecurityConfig {
                 // Debug endpoints (remove in production)
                 .requestMatchers("/debug-admin", "/admin-emergency-login").permitAll()
                 // Payment routes - callback must be public, initiate requires student role
-                .requestMatchers("/payment/callback").permitAll()
+                .requestMatchers("/payment/callback", "/payment/webhook").permitAll()
                 .requestMatchers("/payment/**").hasRole("STUDENT")
+                // Actuator: health is public (details for admins only), metrics scrapes need an admin token
+                .requestMatchers("/actuator/health").permitAll()
+                .requestMatchers("/actuator/**").hasRole("ADMIN")
                 // Role protected areas
                 .requestMatchers("/admin/**").hasRole("ADMIN")
                 .requestMatchers("/student/**").hasRole("STUDENT")
@@ -84,6 +92,8 @@ public class SecurityConfig {
                 .accessDeniedPage("/login?error=access-denied")
             );
 
+    // Throttle login and OTP attempts before any credential is checked
+    http.addFilterBefore(new AuthRateLimitFilter(attemptLimiter), UsernamePasswordAuthenticationFilter.class);
     // Add JWT filter before the username/password authentication filter
     http.addFilterBefore(jwtAuthenticationFilter(), UsernamePasswordAuthenticationFilter.class);
 
@@ -100,6 +110,7 @@ public class SecurityConfig {
         return new AuthenticationSuccessHandler() {
             @Override
             public void onAuthenticationSuccess(HttpServletRequest request, HttpServletResponse response, Authentication authentication) throws IOException {
+                attemptLimiter.reset(AttemptLimiter.Action.LOGIN, authentication.getName());
                 boolean isAdmin = authentication.getAuthorities().stream()
                         .anyMatch(a -> "ROLE_ADMIN".equals(a.getAuthority()));
                 if (isAdmin) {
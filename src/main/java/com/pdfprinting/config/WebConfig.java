@@ -0,0 +1,21 @@
+package com.pdfprinting.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebConfig implements WebMvcConfigurer {
+
+    // StreamingResponseBody has no per-handler timeout, so this is the default for all async requests.
+    // The only async handlers are the admin CSV exports, which can run for minutes on large ranges
+    // (the servlet container default of ~30s would cut them off mid-file).
+    @Value("${export.async-timeout-ms:1800000}")
+    private long asyncTimeoutMs;
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(asyncTimeoutMs);
+    }
+}
@@ -2,13 +2,21 @@ package com.pdfprinting.controller;
 
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.ByteArrayResource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
@@ -20,9 +28,15 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import com.pdfprinting.model.OutboxEmail;
 import com.pdfprinting.model.PdfUpload;
 import com.pdfprinting.model.PdfUpload.PrintType;
 import com.pdfprinting.model.User;
+import com.pdfprinting.resilience.ResilientDependency;
+import com.pdfprinting.security.AttemptLimiter;
+import com.pdfprinting.service.EmailService;
+import com.pdfprinting.service.KeysetPage;
+import com.pdfprinting.service.PaymentReconciler;
 import com.pdfprinting.service.PdfMergeService;
 import com.pdfprinting.service.PdfUploadService;
 import com.pdfprinting.service.UserService;
@@ -31,6 +45,8 @@ import com.pdfprinting.service.UserService;
 @RequestMapping("/admin")
 public class AdminController {
 
+    private static final Logger logger = LoggerFactory.getLogger(AdminController.class);
+
     @Autowired
     private PdfUploadService pdfUploadService;
 
@@ -40,6 +56,21 @@ public class AdminController {
     @Autowired
     private UserService userService;
 
+    @Autowired
+    private PaymentReconciler paymentReconciler;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private AttemptLimiter attemptLimiter;
+
+    @Autowired
+    private List<ResilientDependency> dependencies;
+
+    @Value("${admin.page-size:" + KeysetPage.DEFAULT_PAGE_SIZE + "}")
+    private int defaultPageSize;
+
     // Departments mapping is derived from pending uploads at runtime.
 
     /**
@@ -93,62 +124,7 @@ public class AdminController {
         // Build flat list of containers with counts for simple card display
         List<PdfUpload> pending = pdfUploadService.getPendingUploads();
 
-        // Group by container key and count files, also track print type counts
-        Map<String, List<PdfUpload>> containerGroups = pending.stream()
-            .collect(Collectors.groupingBy(
-                upload -> String.join("|",
-                    safe(upload.getAcademicYear()),
-                    safe(upload.getBranch()),
-                    safe(upload.getDivision()),
-                    safe(upload.getSemester()),
-                    safe(upload.getBatch())
-                )
-            ));
-        
-        // Convert to flat list of ContainerInfo with print type counts
-        List<ContainerInfo> containers = new ArrayList<>();
-        for (Map.Entry<String, List<PdfUpload>> entry : containerGroups.entrySet()) {
-            String[] parts = entry.getKey().split("\\|", -1);
-            if (parts.length == 5) {
-                List<PdfUpload> uploads = entry.getValue();
-                
-                // Count by print type
-                long singleSideCount = uploads.stream()
-                    .filter(u -> u.getPrintType() == PrintType.SINGLE_SIDE)
-                    .count();
-                long doubleSideCount = uploads.stream()
-                    .filter(u -> u.getPrintType() == PrintType.DOUBLE_SIDE)
-                    .count();
-                long colourCount = uploads.stream()
-                    .filter(u -> u.getPrintType() == PrintType.COLOUR)
-                    .count();
-                
-                containers.add(new ContainerInfo(
-                    parts[0].isEmpty() ? "Unknown Year" : parts[0],
-                    parts[1].isEmpty() ? "Unknown Branch" : parts[1],
-                    parts[2].isEmpty() ? "Unknown Division" : parts[2],
-                    parts[3].isEmpty() ? "Unknown Semester" : parts[3],
-                    parts[4].isEmpty() ? "Unknown Batch" : parts[4],
-                    uploads.size(),
-                    singleSideCount,
-                    doubleSideCount,
-                    colourCount
-                ));
-            }
-        }
-        
-        // Sort by year, branch, division, semester, batch
-        containers.sort((a, b) -> {
-            int c = a.getAcademicYear().compareTo(b.getAcademicYear());
-            if (c != 0) return c;
-            c = a.getBranch().compareTo(b.getBranch());
-            if (c != 0) return c;
-            c = a.getDivision().compareTo(b.getDivision());
-            if (c != 0) return c;
-            c = a.getSemester().compareTo(b.getSemester());
-            if (c != 0) return c;
-            return a.getBatch().compareTo(b.getBatch());
-        });
+        List<ContainerInfo> containers = containers(pending);
 
         long totalPending = pending.size();
 
@@ -159,7 +135,54 @@ public class AdminController {
         return "admin/dashboard";
     }
     
-    private String safe(String v) { return v == null ? "" : v; }
+    /**
+     * Group pending uploads into one ContainerInfo per (year, branch, division, semester, batch) with
+     * per print type counts, in one pass over the list, sorted for display.
+     */
+    static List<ContainerInfo> containers(List<PdfUpload> pending) {
+        Map<List<String>, long[]> counts = new HashMap<>();
+        for (PdfUpload upload : pending) {
+            List<String> key = List.of(
+                safe(upload.getAcademicYear()),
+                safe(upload.getBranch()),
+                safe(upload.getDivision()),
+                safe(upload.getSemester()),
+                safe(upload.getBatch()));
+            // Slot 0 is the file count, then one per print type
+            long[] count = counts.computeIfAbsent(key, k -> new long[1 + PrintType.values().length]);
+            count[0]++;
+            if (upload.getPrintType() != null) {
+                count[1 + upload.getPrintType().ordinal()]++;
+            }
+        }
+
+        List<ContainerInfo> containers = new ArrayList<>(counts.size());
+        for (Map.Entry<List<String>, long[]> entry : counts.entrySet()) {
+            List<String> key = entry.getKey();
+            long[] count = entry.getValue();
+            containers.add(new ContainerInfo(
+                key.get(0).isEmpty() ? "Unknown Year" : key.get(0),
+                key.get(1).isEmpty() ? "Unknown Branch" : key.get(1),
+                key.get(2).isEmpty() ? "Unknown Division" : key.get(2),
+                key.get(3).isEmpty() ? "Unknown Semester" : key.get(3),
+                key.get(4).isEmpty() ? "Unknown Batch" : key.get(4),
+                count[0],
+                count[1 + PrintType.SINGLE_SIDE.ordinal()],
+                count[1 + PrintType.DOUBLE_SIDE.ordinal()],
+                count[1 + PrintType.COLOUR.ordinal()]
+            ));
+        }
+
+        // Sort by year, branch, division, semester, batch
+        containers.sort(Comparator.comparing(ContainerInfo::getAcademicYear)
+            .thenComparing(ContainerInfo::getBranch)
+            .thenComparing(ContainerInfo::getDivision)
+            .thenComparing(ContainerInfo::getSemester)
+            .thenComparing(ContainerInfo::getBatch));
+        return containers;
+    }
+
+    private static String safe(String v) { return v == null ? "" : v; }
 
     /**
      * View container details using container key format: year|branch|division|semester|batch
@@ -215,22 +238,28 @@ public class AdminController {
 
     /**
      * Legacy batch view - kept for backward compatibility
+     * Lists pending uploads one keyset page at a time; totals come from an aggregate query
      * @deprecated Use viewContainer instead
      */
     @Deprecated
     @GetMapping("/batch/{batchName}")
-    public String viewBatch(@PathVariable String batchName, Model model) {
-        List<PdfUpload> uploads = pdfUploadService.getBatchUploads(batchName);
-        
-        long totalFiles = uploads.size();
-        double totalSizeMb = uploads.stream().mapToLong(PdfUpload::getFileSize).sum() / 1024.0 / 1024.0;
-        long uniqueStudents = uploads.stream().map(u -> u.getUser().getId()).distinct().count();
+    public String viewBatch(@PathVariable String batchName,
+                            @RequestParam(value = "after", required = false) Long after,
+                            @RequestParam(value = "size", required = false) Integer size,
+                            Model model) {
+        int pageSize = KeysetPage.normalizeSize(size, defaultPageSize);
+        KeysetPage<PdfUpload> page = pdfUploadService.getBatchUploadsPage(batchName, after, pageSize);
+        PdfUploadService.UploadSummary pending = pdfUploadService.getBatchSummaryByStatus(batchName)
+            .getOrDefault(PdfUpload.Status.PENDING, new PdfUploadService.UploadSummary(0, 0, 0));
 
         model.addAttribute("batchName", batchName);
-        model.addAttribute("uploads", uploads);
-        model.addAttribute("totalFiles", totalFiles);
-        model.addAttribute("totalSizeMb", totalSizeMb);
-        model.addAttribute("uniqueStudents", uniqueStudents);
+        model.addAttribute("uploads", page.getItems());
+        model.addAttribute("totalFiles", pending.getFileCount());
+        model.addAttribute("totalSizeMb", pending.getTotalSizeBytes() / 1024.0 / 1024.0);
+        model.addAttribute("uniqueStudents", pending.getUniqueStudents());
+        model.addAttribute("cursor", after);
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("pageSize", pageSize);
         model.addAttribute("title", batchName + " - Admin Dashboard");
         
         return "admin/batch-details";
@@ -260,12 +289,12 @@ public class AdminController {
             // Merge PDFs from container with failure reporting
             PdfMergeService.MergeResult result = pdfMergeService.mergeContainerPdfsWithReport(
                 academicYear, branch, division, semester, batch);
-            System.out.println("Merged PDF size: " + (result.getMergedPdf() == null ? 0 : result.getMergedPdf().length));
             
-            // Mark all uploads in container as PROCESSED
-            pdfUploadService.clearContainerUploads(academicYear, branch, division, semester, batch);
+            // Mark the uploads this merge read as PROCESSED (single UPDATE; later uploads stay PENDING)
+            pdfUploadService.clearUploads(result.getUploadIds());
             
             String containerKey = PdfMergeService.getContainerKey(academicYear, branch, division, semester, batch);
+            notifyStudents(containerKey, result);
             
             // Build success message including failure info
             String message;
@@ -322,10 +351,11 @@ public class AdminController {
             // Merge PDFs from container by print type with failure reporting
             PdfMergeService.MergeResult result = pdfMergeService.mergeContainerPdfsByPrintTypeWithReport(
                 academicYear, branch, division, semester, batch, type);
-            System.out.println("Merged " + type.getDisplayName() + " PDF size: " + (result.getMergedPdf() == null ? 0 : result.getMergedPdf().length));
             
-            // Mark uploads of this print type in container as PROCESSED
-            pdfUploadService.clearContainerUploadsByPrintType(academicYear, branch, division, semester, batch, type);
+            // Mark the uploads of this print type that the merge read as PROCESSED
+            pdfUploadService.clearUploads(result.getUploadIds());
+            notifyStudents(PdfMergeService.getContainerKey(academicYear, branch, division, semester, batch)
+                + " (" + type.getDisplayName() + ")", result);
             
             // Build success message including failure info
             String message;
@@ -357,6 +387,29 @@ public class AdminController {
         return "redirect:/admin/dashboard";
     }
 
+    /**
+     * Notify the students whose files made it into the merge. The fan-out runs asynchronously, so
+     * the admin gets the merge result without waiting for hundreds of emails.
+     */
+    private void notifyStudents(String batchLabel, PdfMergeService.MergeResult result) {
+        if (result.getSuccessCount() == 0) {
+            return;
+        }
+        Set<Long> failedIds = result.getFailedPdfs().stream()
+            .map(PdfMergeService.FailedPdfInfo::getUploadId)
+            .collect(Collectors.toSet());
+        List<Long> mergedIds = result.getUploadIds().stream()
+            .filter(id -> !failedIds.contains(id))
+            .collect(Collectors.toList());
+        try {
+            emailService.sendBatchProcessedNotification(batchLabel, result.getSuccessCount(),
+                pdfUploadService.getUploaderEmails(mergedIds));
+        } catch (Exception e) {
+            // The merge itself succeeded; don't report it as failed over the notification
+            logger.error("Could not start notifications for {}", batchLabel, e);
+        }
+    }
+
     /**
      * Legacy merge by batch name
      * @deprecated Use mergeContainer instead
@@ -375,7 +428,7 @@ public class AdminController {
             }
 
             byte[] mergedPdf = pdfMergeService.mergeBatchPdfs(batchName);
-            System.out.println("Merged PDF size: " + (mergedPdf == null ? 0 : mergedPdf.length));
+            logger.info("Merged batch {}: {} bytes", batchName, mergedPdf == null ? 0 : mergedPdf.length);
             
             pdfUploadService.clearBatchUploads(batchName);
             
@@ -482,7 +535,7 @@ public class AdminController {
                 .body(resource);
                 
         } catch (Exception e) {
-            System.err.println("Failed to download single PDF: " + e.getMessage());
+            logger.warn("Failed to download single PDF {}: {}", uploadId, e.getMessage());
             return ResponseEntity.notFound().build();
         }
     }
@@ -532,30 +585,27 @@ public class AdminController {
     }
 
     @GetMapping("/all-students")
-    public String viewAllStudents(Model model) {
-        // Get all registered students
-        List<User> allStudents = userService.getAllStudents();
-        
-        // Group students by batch
+    public String viewAllStudents(@RequestParam(value = "after", required = false) Long after,
+                                  @RequestParam(value = "size", required = false) Integer size,
+                                  Model model) {
+        // One keyset page of students (ordered by id) instead of the whole table
+        int pageSize = KeysetPage.normalizeSize(size, defaultPageSize);
+        KeysetPage<User> page = userService.getStudentsPage(after, pageSize);
+        List<User> allStudents = page.getItems();
+        
+        // Group students on this page by batch
         Map<String, List<User>> studentsByBatch = allStudents.stream()
             .collect(Collectors.groupingBy(User::getBatch));
         
-        // Get upload count for each student
-        Map<Long, Long> studentUploadCounts = allStudents.stream()
-            .collect(Collectors.toMap(
-                User::getId,
-                student -> pdfUploadService.getUploadCountByUser(student.getId())
-            ));
+        // Upload count for each student on this page, in one grouped query
+        Map<Long, Long> studentUploadCounts = pdfUploadService.getUploadCountsByUsers(
+            allStudents.stream().map(User::getId).toList());
         
-        // Calculate summary statistics
-        long totalStudents = allStudents.size();
-        long verifiedStudents = allStudents.stream()
-            .mapToLong(student -> student.isEmailVerified() ? 1L : 0L)
-            .sum();
+        // Summary statistics cover all students, computed with count queries
+        long totalStudents = userService.countStudents();
+        long verifiedStudents = userService.countVerifiedStudents();
         long unverifiedStudents = totalStudents - verifiedStudents;
-        long totalUploads = studentUploadCounts.values().stream()
-            .mapToLong(count -> count)
-            .sum();
+        long totalUploads = pdfUploadService.countStudentUploads();
         
         model.addAttribute("allStudents", allStudents);
         model.addAttribute("studentsByBatch", studentsByBatch);
@@ -564,6 +614,9 @@ public class AdminController {
         model.addAttribute("verifiedStudents", verifiedStudents);
         model.addAttribute("unverifiedStudents", unverifiedStudents);
         model.addAttribute("totalUploads", totalUploads);
+        model.addAttribute("cursor", after);
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("pageSize", pageSize);
         model.addAttribute("title", "All Registered Students - Admin Dashboard");
         
         return "admin/all-students";
@@ -635,38 +688,83 @@ public class AdminController {
     }
 
     @GetMapping("/reports/{batchName}")
-    public String viewBatchReport(@PathVariable String batchName, Model model) {
-        // Get detailed batch report
-        List<PdfUpload> batchUploads = pdfUploadService.getAllBatchUploads(batchName);
-        
-        // Calculate statistics
-        long totalFiles = batchUploads.size();
-        long processedFiles = batchUploads.stream()
-            .mapToLong(upload -> upload.getStatus() == PdfUpload.Status.PROCESSED ? 1L : 0L)
-            .sum();
+    public String viewBatchReport(@PathVariable String batchName,
+                                  @RequestParam(value = "before", required = false) Long before,
+                                  @RequestParam(value = "size", required = false) Integer size,
+                                  Model model) {
+        // Detailed batch report: one keyset page of uploads, newest first
+        int pageSize = KeysetPage.normalizeSize(size, defaultPageSize);
+        KeysetPage<PdfUpload> page = pdfUploadService.getAllBatchUploadsPage(batchName, before, pageSize);
+        
+        // Calculate statistics in the database across the whole batch
+        Map<PdfUpload.Status, PdfUploadService.UploadSummary> summary = pdfUploadService.getBatchSummaryByStatus(batchName);
+        long totalFiles = summary.values().stream().mapToLong(PdfUploadService.UploadSummary::getFileCount).sum();
+        PdfUploadService.UploadSummary processed = summary.get(PdfUpload.Status.PROCESSED);
+        long processedFiles = processed == null ? 0 : processed.getFileCount();
         long pendingFiles = totalFiles - processedFiles;
-        double totalSizeMb = batchUploads.stream()
-            .mapToLong(PdfUpload::getFileSize)
+        double totalSizeMb = summary.values().stream()
+            .mapToLong(PdfUploadService.UploadSummary::getTotalSizeBytes)
             .sum() / 1024.0 / 1024.0;
         
         // Group by month
-        Map<String, Long> monthlyStats = batchUploads.stream()
-            .collect(Collectors.groupingBy(
-                upload -> upload.getUploadedAt().format(DateTimeFormatter.ofPattern("yyyy-MM")),
-                Collectors.counting()
-            ));
+        Map<String, Long> monthlyStats = pdfUploadService.getMonthlyUploadStatsForBatch(batchName);
         
         model.addAttribute("batchName", batchName);
-        model.addAttribute("batchUploads", batchUploads);
+        model.addAttribute("batchUploads", page.getItems());
         model.addAttribute("totalFiles", totalFiles);
         model.addAttribute("processedFiles", processedFiles);
         model.addAttribute("pendingFiles", pendingFiles);
         model.addAttribute("totalSizeMb", totalSizeMb);
         model.addAttribute("monthlyStats", monthlyStats);
+        model.addAttribute("cursor", before);
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("pageSize", pageSize);
         model.addAttribute("title", batchName + " Report - Admin Dashboard");
         
         return "admin/batch-report";
     }
 
+    @GetMapping("/payments/reconciliation")
+    public ResponseEntity<Map<String, Object>> paymentReconciliationStats() {
+        // Lag of the payment reconciler: unpaid orders, oldest pending age, credits per path
+        return ResponseEntity.ok(paymentReconciler.getStats());
+    }
+
+    @GetMapping("/resilience")
+    public ResponseEntity<Map<String, Object>> resilienceStats() {
+        // Circuit state, rate-limit tokens and bulkhead use per remote dependency
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (ResilientDependency dependency : dependencies) {
+            stats.put(dependency.getName(), dependency.getStats());
+        }
+        boolean healthy = dependencies.stream().allMatch(ResilientDependency::isHealthy);
+        return ResponseEntity.status(healthy ? HttpStatus.OK : HttpStatus.SERVICE_UNAVAILABLE).body(stats);
+    }
 
+    @GetMapping("/auth-throttling")
+    public ResponseEntity<Map<String, Object>> authThrottlingStats() {
+        // Login and OTP attempts let through and turned away, per action
+        return ResponseEntity.ok(attemptLimiter.getStats());
+    }
+
+    @GetMapping("/emails")
+    public ResponseEntity<List<Map<String, Object>>> emailStatus(@RequestParam("to") String toEmail) {
+        // Delivery status of recent outbox emails to one address, for support
+        List<Map<String, Object>> messages = new ArrayList<>();
+        for (OutboxEmail email : emailService.getOutboxFor(toEmail)) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", email.getId());
+            row.put("kind", email.getKind());
+            row.put("subject", email.getSubject());
+            row.put("status", email.getStatus());
+            row.put("attempts", email.getAttempts());
+            row.put("createdAt", email.getCreatedAt());
+            row.put("nextAttemptAt", email.getNextAttemptAt());
+            row.put("sentAt", email.getSentAt());
+            row.put("providerMessageId", email.getProviderMessageId());
+            row.put("lastError", email.getLastError());
+            messages.add(row);
+        }
+        return ResponseEntity.ok(messages);
+    }
 }
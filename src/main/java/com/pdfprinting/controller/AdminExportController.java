@@ -0,0 +1,86 @@
+package com.pdfprinting.controller;
+
+import com.pdfprinting.model.PdfUpload;
+import com.pdfprinting.model.Transaction;
+import com.pdfprinting.service.ExportService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * CSV exports for admins. Responses are streamed row by row from a database cursor,
+ * so large ranges never sit in memory; the files open directly in Excel.
+ */
+@Controller
+@RequestMapping("/admin/export")
+public class AdminExportController {
+
+    private static final MediaType CSV = new MediaType("text", "csv", StandardCharsets.UTF_8);
+
+    @Autowired
+    private ExportService exportService;
+
+    @GetMapping("/transactions.csv")
+    public ResponseEntity<StreamingResponseBody> exportTransactions(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "academicYear", required = false) String academicYear,
+            @RequestParam(value = "branch", required = false) String branch,
+            @RequestParam(value = "division", required = false) String division,
+            @RequestParam(value = "semester", required = false) String semester,
+            @RequestParam(value = "batch", required = false) String batch,
+            @RequestParam(value = "type", required = false) Transaction.TransactionType type) {
+        ExportService.ExportFilter filter = buildFilter(from, to, academicYear, branch, division, semester, batch);
+        filter.setTransactionType(type);
+        StreamingResponseBody body = out -> exportService.writeTransactionsCsv(filter, out);
+        return csvResponse("transactions", body);
+    }
+
+    @GetMapping("/uploads.csv")
+    public ResponseEntity<StreamingResponseBody> exportUploads(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+            @RequestParam(value = "academicYear", required = false) String academicYear,
+            @RequestParam(value = "branch", required = false) String branch,
+            @RequestParam(value = "division", required = false) String division,
+            @RequestParam(value = "semester", required = false) String semester,
+            @RequestParam(value = "batch", required = false) String batch,
+            @RequestParam(value = "type", required = false) PdfUpload.PrintType type) {
+        ExportService.ExportFilter filter = buildFilter(from, to, academicYear, branch, division, semester, batch);
+        filter.setPrintType(type);
+        StreamingResponseBody body = out -> exportService.writeUploadsCsv(filter, out);
+        return csvResponse("uploads", body);
+    }
+
+    private ExportService.ExportFilter buildFilter(LocalDate from, LocalDate to, String academicYear, String branch,
+                                                   String division, String semester, String batch) {
+        ExportService.ExportFilter filter = new ExportService.ExportFilter();
+        filter.setFrom(from);
+        filter.setTo(to);
+        filter.setAcademicYear(academicYear);
+        filter.setBranch(branch);
+        filter.setDivision(division);
+        filter.setSemester(semester);
+        filter.setBatch(batch);
+        return filter;
+    }
+
+    private ResponseEntity<StreamingResponseBody> csvResponse(String name, StreamingResponseBody body) {
+        String fileName = name + "_" + LocalDate.now().format(DateTimeFormatter.BASIC_ISO_DATE) + ".csv";
+        return ResponseEntity.ok()
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + fileName + "\"")
+                .contentType(CSV)
+                .body(body);
+    }
+}
@@ -1,15 +1,17 @@
 package com.pdfprinting.controller;
 
 import com.pdfprinting.model.Transaction;
+import com.pdfprinting.service.KeysetPage;
 import com.pdfprinting.service.TransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 
 import java.math.BigDecimal;
-import java.util.List;
 import java.util.Map;
 
 @Controller
@@ -19,21 +21,30 @@ public class AdminTransactionController {
     @Autowired
     private TransactionService transactionService;
 
+    @Value("${admin.page-size:" + KeysetPage.DEFAULT_PAGE_SIZE + "}")
+    private int defaultPageSize;
+
     @GetMapping
-    public String viewTransactions(Model model) {
+    public String viewTransactions(@RequestParam(value = "before", required = false) Long before,
+                                   @RequestParam(value = "size", required = false) Integer size,
+                                   Model model) {
         Map<String, BigDecimal> totalsByType = transactionService.getTotalsByType();
         Map<String, Long> monthlyCounts = transactionService.getMonthlyCounts();
         Map<String, BigDecimal> monthlyTopups = transactionService.getMonthlyTotalByType(Transaction.TransactionType.WALLET_TOPUP);
         Map<String, BigDecimal> monthlyBilling = transactionService.getMonthlyTotalByType(Transaction.TransactionType.PDF_BILLING);
         Map<String, BigDecimal> monthlyRefunds = transactionService.getMonthlyTotalByType(Transaction.TransactionType.REFUND);
-        List<Transaction> recent = transactionService.getRecentTransactions(50);
+        int pageSize = KeysetPage.normalizeSize(size, defaultPageSize);
+        KeysetPage<Transaction> page = transactionService.getTransactionsPage(before, pageSize);
 
         model.addAttribute("totals", totalsByType);
         model.addAttribute("monthlyCounts", monthlyCounts);
         model.addAttribute("monthlyTopups", monthlyTopups);
         model.addAttribute("monthlyBilling", monthlyBilling);
         model.addAttribute("monthlyRefunds", monthlyRefunds);
-        model.addAttribute("recentTransactions", recent);
+        model.addAttribute("recentTransactions", page.getItems());
+        model.addAttribute("cursor", before);
+        model.addAttribute("nextCursor", page.getNextCursor());
+        model.addAttribute("pageSize", pageSize);
         model.addAttribute("title", "Transaction Reports - Admin");
         return "admin/transaction-reports";
     }
@@ -7,7 +7,6 @@ import java.time.format.DateTimeFormatter;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationManager;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,8 +16,10 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
 import com.pdfprinting.model.User;
+import com.pdfprinting.security.AttemptLimiter;
+import com.pdfprinting.security.JwtPrincipal;
 import com.pdfprinting.security.JwtUtil;
-import com.pdfprinting.service.CustomUserDetailsService;
+import com.pdfprinting.security.PrincipalCache;
 import com.pdfprinting.service.UserService;
 
 import jakarta.servlet.http.HttpServletResponse;
@@ -30,7 +31,7 @@ public class AuthController {
     private UserService userService;
 
     @Autowired
-    private CustomUserDetailsService customUserDetailsService;
+    private PrincipalCache principalCache;
 
     @Autowired
     private AuthenticationManager authenticationManager;
@@ -38,6 +39,9 @@ public class AuthController {
     @Autowired
     private JwtUtil jwtUtil;
 
+    @Autowired
+    private AttemptLimiter attemptLimiter;
+
     @GetMapping("/")
     public String home() {
         return "redirect:/login";
@@ -47,7 +51,9 @@ public class AuthController {
     public String loginPage(@RequestParam(value = "error", required = false) String error,
                            @RequestParam(value = "logout", required = false) String logout,
                            Model model) {
-        if (error != null) {
+        if ("throttled".equals(error)) {
+            model.addAttribute("error", "Too many login attempts. Please wait a few minutes and try again.");
+        } else if (error != null) {
             model.addAttribute("error", "Invalid email or password. Please make sure your email is verified.");
         }
         if (logout != null) {
@@ -95,11 +101,11 @@ public class AuthController {
     public String verifyOtp(@RequestParam("email") String email, @RequestParam("otp") String otp, Model model, HttpServletResponse response, jakarta.servlet.http.HttpServletRequest request) {
         boolean verified = userService.verifyOtp(email, otp == null ? "" : otp.trim());
         if (verified) {
+            attemptLimiter.reset(AttemptLimiter.Action.OTP_VERIFY, email);
             // Issue JWT cookie for client
             try {
-                UserDetails userDetails = customUserDetailsService.loadUserByUsername(email);
-                String role = userDetails.getAuthorities().stream().findFirst().map(a -> a.getAuthority().replace("ROLE_", "")).orElse("STUDENT");
-                String token = jwtUtil.generateToken(email, role);
+                JwtPrincipal principal = principalCache.resolve(email);
+                String token = jwtUtil.generateToken(email, principal.getRole().name(), principal.getId());
                                 // Build a single Set-Cookie header with Expires and SameSite for reliable browser persistence
                                 long maxAge = 86400L;
                                 long expiryMs = Instant.now().toEpochMilli() + (maxAge * 1000L);
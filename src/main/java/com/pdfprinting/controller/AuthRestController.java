@@ -3,18 +3,22 @@ package com.pdfprinting.controller;
 import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.pdfprinting.security.AttemptLimiter;
+import com.pdfprinting.security.JwtPrincipal;
 import com.pdfprinting.security.JwtUtil;
-import com.pdfprinting.service.CustomUserDetailsService;
+import com.pdfprinting.security.PrincipalCache;
+
+import jakarta.servlet.http.HttpServletRequest;
 
 @RestController
 @RequestMapping("/api/auth")
@@ -27,22 +31,33 @@ public class AuthRestController {
     private JwtUtil jwtUtil;
 
     @Autowired
-    private CustomUserDetailsService userDetailsService;
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private AttemptLimiter attemptLimiter;
 
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody Map<String, String> body) {
+    public ResponseEntity<?> login(@RequestBody Map<String, String> body, HttpServletRequest request) {
         String email = body.get("email");
         String password = body.get("password");
 
+        if (!attemptLimiter.tryAcquire(AttemptLimiter.Action.LOGIN, email, attemptLimiter.clientIp(request))) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                    .header("Retry-After", String.valueOf(attemptLimiter.retryAfterSeconds()))
+                    .body(Map.of("error", "Too many login attempts"));
+        }
+
         Authentication auth = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(email, password)
         );
+        attemptLimiter.reset(AttemptLimiter.Action.LOGIN, email);
 
-        UserDetails userDetails = userDetailsService.loadUserByUsername(email);
-        // extract role from authorities
-        String role = userDetails.getAuthorities().stream().findFirst().map(a -> a.getAuthority().replace("ROLE_", "")).orElse("STUDENT");
+        JwtPrincipal principal = principalCache.resolve(email);
+        if (principal == null) {
+            return ResponseEntity.status(401).build();
+        }
 
-        String token = jwtUtil.generateToken(email, role);
+        String token = jwtUtil.generateToken(email, principal.getRole().name(), principal.getId());
 
         return ResponseEntity.ok(Map.of("token", token));
     }
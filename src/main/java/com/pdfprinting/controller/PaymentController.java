@@ -3,30 +3,33 @@ package com.pdfprinting.controller;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 
-import javax.crypto.Mac;
-import javax.crypto.spec.SecretKeySpec;
-
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import com.pdfprinting.config.RazorpayConfig;
 import com.pdfprinting.model.User;
+import com.pdfprinting.service.PaymentReconciler;
+import com.pdfprinting.service.PaymentService;
+import com.pdfprinting.service.RazorpayGateway;
 import com.pdfprinting.service.UserService;
-import com.pdfprinting.service.WalletService;
-import com.razorpay.RazorpayClient;
-import com.razorpay.Order;
-import org.json.JSONObject;
 
 @Controller
 @RequestMapping("/payment")
 public class PaymentController {
     
+    private static final Logger logger = LoggerFactory.getLogger(PaymentController.class);
+    
     @Autowired
     private RazorpayConfig razorpayConfig;
     
@@ -34,7 +37,13 @@ public class PaymentController {
     private UserService userService;
     
     @Autowired
-    private WalletService walletService;
+    private PaymentService paymentService;
+    
+    @Autowired
+    private RazorpayGateway razorpayGateway;
+    
+    @Autowired
+    private PaymentReconciler paymentReconciler;
     
     @PostMapping("/initiate")
     public String initiatePayment(@RequestParam("amount") BigDecimal walletAmount,
@@ -43,20 +52,15 @@ public class PaymentController {
                                  RedirectAttributes redirectAttributes) {
         
         try {
-            System.out.println("Payment initiation started for amount: " + walletAmount);
-            
             String email = authentication.getName();
-            System.out.println("User email from authentication: " + email);
-            
             User user = userService.findByEmail(email).orElse(null);
             
             if (user == null) {
-                System.out.println("User not found for email: " + email);
+                logger.warn("Payment initiation for unknown user {}", email);
                 redirectAttributes.addFlashAttribute("error", "User not found");
                 return "redirect:/student/wallet";
             }
             
-            System.out.println("User found: " + user.getName());
         
         if (walletAmount.compareTo(BigDecimal.valueOf(10)) < 0 || 
             walletAmount.compareTo(BigDecimal.valueOf(10000)) > 0) {
@@ -66,9 +70,7 @@ public class PaymentController {
         }
         
             // Calculate the total amount user needs to pay (including 2% service fee)
-            System.out.println("Getting service fee percentage...");
             Double serviceFeePercentage = razorpayConfig.getService().getFee().getPercentage();
-            System.out.println("Service fee percentage: " + serviceFeePercentage);
             
             BigDecimal serviceFeeMultiplier = BigDecimal.ONE.add(
                 BigDecimal.valueOf(serviceFeePercentage).divide(BigDecimal.valueOf(100), 4, RoundingMode.HALF_UP)
@@ -76,23 +78,17 @@ public class PaymentController {
             BigDecimal totalPayableAmount = walletAmount.multiply(serviceFeeMultiplier).setScale(2, RoundingMode.HALF_UP);
             BigDecimal serviceFeeAmount = totalPayableAmount.subtract(walletAmount);
             
-            System.out.println("Total payable amount: " + totalPayableAmount);
-            
             // Convert amount to paise (Razorpay expects amount in smallest currency unit)
             long amountInPaise = totalPayableAmount.multiply(BigDecimal.valueOf(100)).longValue();
             
-            // Create Razorpay order using SDK
-            System.out.println("Creating Razorpay order...");
-            RazorpayClient razorpayClient = new RazorpayClient(razorpayConfig.getKey().getId(), razorpayConfig.getKey().getSecret());
+            // Create Razorpay order through the shared gateway client
+            String orderId = razorpayGateway.createOrder(amountInPaise, razorpayConfig.getCurrency(),
+                "receipt_" + System.currentTimeMillis() + "_" + user.getId());
+            logger.info("Created order {} for user {}: wallet amount {}, payable {} ({}% fee)",
+                orderId, user.getId(), walletAmount, totalPayableAmount, serviceFeePercentage);
             
-            JSONObject orderRequest = new JSONObject();
-            orderRequest.put("amount", amountInPaise);
-            orderRequest.put("currency", razorpayConfig.getCurrency());
-            orderRequest.put("receipt", "receipt_" + System.currentTimeMillis() + "_" + user.getId());
-            
-            Order razorpayOrder = razorpayClient.orders.create(orderRequest);
-            String orderId = razorpayOrder.get("id");
-            System.out.println("Razorpay order created with ID: " + orderId);
+            // Record the order so its payment can be credited even if the callback never arrives
+            paymentService.recordOrder(orderId, user, walletAmount, amountInPaise);
             
             // Add to model for the payment form
             model.addAttribute("razorpayKeyId", razorpayConfig.getKey().getId());
@@ -112,8 +108,7 @@ public class PaymentController {
             return "payment/razorpay-form";
             
         } catch (Exception e) {
-            System.out.println("Error in payment initiation: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Payment initiation failed for amount {}", walletAmount, e);
             redirectAttributes.addFlashAttribute("error", 
                 "Payment initiation failed: " + e.getMessage());
             return "redirect:/student/wallet";
@@ -124,66 +119,36 @@ public class PaymentController {
     public String paymentCallback(@RequestParam("razorpay_payment_id") String paymentId,
                                  @RequestParam("razorpay_order_id") String orderId,
                                  @RequestParam("razorpay_signature") String signature,
-                                 @RequestParam("wallet_amount") BigDecimal walletAmount,
-                                 @RequestParam("user_id") Long userId,
                                  RedirectAttributes redirectAttributes) {
         
         try {
-            System.out.println("Payment callback received!");
-            System.out.println("Payment ID: " + paymentId);
-            System.out.println("Order ID: " + orderId);
-            System.out.println("Signature: " + signature);
-            System.out.println("Wallet Amount: " + walletAmount);
-            System.out.println("User ID: " + userId);
-            System.out.println("Payment callback received:");
-            System.out.println("Payment ID: " + paymentId);
-            System.out.println("Order ID: " + orderId);
-            System.out.println("Signature: " + signature);
-            System.out.println("Wallet Amount: " + walletAmount);
-            System.out.println("User ID: " + userId);
-            // Verify signature
-            String data = orderId + "|" + paymentId;
-            String expectedSignature = calculateHMACSHA256(data, razorpayConfig.getKey().getSecret());
-            
-            System.out.println("Signature verification:");
-            System.out.println("Data: " + data);
-            System.out.println("Expected signature: " + expectedSignature);
-            System.out.println("Received signature: " + signature);
-            System.out.println("Signatures match: " + signature.equals(expectedSignature));
-            
-            // Handle test signatures (from mock payment)
-            boolean isTestPayment = signature.startsWith("test_signature_");
-            boolean signatureValid = signature.equals(expectedSignature) || isTestPayment;
+            // Verify signature (constant-time)
+            boolean signatureValid = razorpayGateway.verifyPaymentSignature(orderId, paymentId, signature);
+            logger.info("Payment callback: payment {}, order {}, signature valid {}", paymentId, orderId, signatureValid);
             
             if (signatureValid) {
-                if (isTestPayment) {
-                    System.out.println("Test payment detected - bypassing signature verification");
-                }
-                // Payment verified successfully
-                User user = userService.findById(userId).orElse(null);
-                
-                if (user != null) {
-                    System.out.println("Adding money to wallet for user: " + user.getName());
-                    // Add the requested amount to wallet (not the total paid amount)
-                    walletService.addMoney(user, walletAmount, "RAZORPAY_PAYMENT", 
-                        "Razorpay payment - Order: " + orderId + ", Payment: " + paymentId);
-                    
-                    System.out.println("Money added successfully to wallet!");
+                // Payment verified successfully - credit the recorded order once; replays get the original outcome.
+                // The user and amount come from the order, not from this unauthenticated request.
+                PaymentService.CreditOutcome outcome = paymentService.creditOrder(orderId, paymentId);
+                if (outcome.isReplay()) {
+                    logger.info("Payment {} was already processed", paymentId);
                     redirectAttributes.addFlashAttribute("message", 
-                        "Payment successful! ₹" + walletAmount + " added to your wallet.");
-                    // Redirect to student dashboard on success
-                    return "redirect:/student/dashboard";
+                        "This payment was already processed. ₹" + outcome.getAmount() + " was added to your wallet.");
                 } else {
-                    System.out.println("User not found with ID: " + userId);
-                    redirectAttributes.addFlashAttribute("error", "User not found");
+                    logger.info("Payment {} credited {} for order {}", paymentId, outcome.getAmount(), orderId);
+                    redirectAttributes.addFlashAttribute("message", 
+                        "Payment successful! ₹" + outcome.getAmount() + " added to your wallet.");
                 }
+                // Redirect to student dashboard on success
+                return "redirect:/student/dashboard";
             } else {
-                System.out.println("Signature verification failed!");
+                logger.warn("Signature verification failed for payment {} (order {})", paymentId, orderId);
                 redirectAttributes.addFlashAttribute("error", 
                     "Payment verification failed. Invalid signature.");
             }
             
         } catch (Exception e) {
+            logger.error("Payment callback failed for payment {} (order {})", paymentId, orderId, e);
             redirectAttributes.addFlashAttribute("error", 
                 "Payment processing failed: " + e.getMessage());
         }
@@ -192,32 +157,31 @@ public class PaymentController {
         return "redirect:/student/wallet";
     }
     
+    /**
+     * Razorpay webhook. The raw body is verified against X-Razorpay-Signature before it is parsed;
+     * events we ignore are acknowledged, failed credits are not, so Razorpay redelivers them.
+     */
+    @PostMapping("/webhook")
+    public ResponseEntity<String> webhook(@RequestBody byte[] payload,
+                                          @RequestHeader(value = "X-Razorpay-Signature", required = false) String signature) {
+        PaymentReconciler.WebhookResult result = paymentReconciler.handleWebhook(payload, signature);
+        if (result == PaymentReconciler.WebhookResult.INVALID_SIGNATURE) {
+            return ResponseEntity.badRequest().body("invalid signature");
+        }
+        if (result == PaymentReconciler.WebhookResult.FAILED) {
+            return ResponseEntity.internalServerError().body("failed");
+        }
+        return ResponseEntity.ok(result.name().toLowerCase());
+    }
+    
     @PostMapping("/failed")
     public String paymentFailed(@RequestParam(value = "error_description", required = false) String errorDescription,
                                RedirectAttributes redirectAttributes) {
         
-        System.out.println("Payment failed callback received:");
-        System.out.println("Error description: " + errorDescription);
+        logger.info("Payment failed callback: {}", errorDescription);
         
         redirectAttributes.addFlashAttribute("error", 
             "Payment failed: " + (errorDescription != null ? errorDescription : "Unknown error"));
         return "redirect:/student/wallet";
     }
-    
-    private String calculateHMACSHA256(String data, String key) throws Exception {
-        Mac mac = Mac.getInstance("HmacSHA256");
-        SecretKeySpec secretKeySpec = new SecretKeySpec(key.getBytes(), "HmacSHA256");
-        mac.init(secretKeySpec);
-        byte[] hash = mac.doFinal(data.getBytes());
-        
-        StringBuilder hexString = new StringBuilder();
-        for (byte b : hash) {
-            String hex = Integer.toHexString(0xff & b);
-            if (hex.length() == 1) {
-                hexString.append('0');
-            }
-            hexString.append(hex);
-        }
-        return hexString.toString();
-    }
 }
\ No newline at end of file
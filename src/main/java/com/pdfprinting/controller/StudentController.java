@@ -1,8 +1,11 @@
 package com.pdfprinting.controller;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 import java.util.List;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
@@ -20,6 +23,7 @@ import com.pdfprinting.model.PdfUpload.PrintType;
 import com.pdfprinting.model.RefundRequest;
 import com.pdfprinting.model.Transaction;
 import com.pdfprinting.model.User;
+import com.pdfprinting.model.WalletHold;
 import com.pdfprinting.service.PdfUploadService;
 import com.pdfprinting.service.RefundService;
 import com.pdfprinting.service.UserService;
@@ -29,6 +33,8 @@ import com.pdfprinting.service.WalletService;
 @RequestMapping("/student")
 public class StudentController {
 
+    private static final Logger logger = LoggerFactory.getLogger(StudentController.class);
+
     @Autowired
     private UserService userService;
 
@@ -133,24 +139,52 @@ public class StudentController {
             // Calculate total cost based on print type
             BigDecimal totalCost = pdfUploadService.calculateTotalCost(files, copyCount, printType);
             
-            // Check wallet balance
-            if (!walletService.hasAmountRequired(user, totalCost)) {
-                redirectAttributes.addFlashAttribute("error", 
-                    "Insufficient wallet balance. Required: ₹" + totalCost + ", Available: ₹" + 
+            // Reserve first - the hold is an atomic debit, so parallel uploads cannot both spend the same balance
+            long fileCount = Arrays.stream(files).filter(f -> !f.isEmpty()).count();
+            WalletHold hold = walletService.reserve(user, totalCost, printType.getDisplayName() + " printing cost for " + fileCount + " files");
+            if (hold == null) {
+                redirectAttributes.addFlashAttribute("error",
+                    "Insufficient wallet balance. Required: ₹" + totalCost + ", Available: ₹" +
                     walletService.getWalletBalance(user));
                 return "redirect:/student/dashboard";
             }
-            
-            // Process upload and deduct amount
+
+            // Store the files outside any DB transaction; the hold keeps the money aside meanwhile
             String batch = user.getBatch();
-            int uploadedCount = pdfUploadService.uploadPdfs(files, batch, user, copyCount, printType);
-            walletService.deductMoney(user, totalCost, printType.getDisplayName() + " printing cost for " + uploadedCount + " files");
-            
+            PdfUploadService.UploadResult result;
+            try {
+                result = pdfUploadService.uploadPdfs(files, batch, user, copyCount, printType, hold.getId());
+            } catch (Exception e) {
+                if (!walletService.release(hold)) {
+                    logger.error("Hold {} of {} could not be released after failed upload for user {}", hold.getId(), totalCost, user.getId(), e);
+                    throw new Exception(e.getMessage() + " The ₹" + totalCost +
+                        " reserved could not be returned automatically - please contact support.");
+                }
+                throw e;
+            }
+
+            // Bill exactly the files that were stored; the rest of the hold goes back to the wallet.
+            // Should this fail, the expiry sweep captures the same amount from the stored uploads.
+            BigDecimal charged = result.getBilledAmount();
+            if (!walletService.capture(hold, charged)) {
+                logger.error("Hold {} could not be captured for {} after upload for user {}", hold.getId(), charged, user.getId());
+                throw new Exception("Your files were stored. ₹" + charged + " of the ₹" + totalCost +
+                    " reserved will be charged for them and the rest returned to your wallet shortly.");
+            }
+
+            if (result.getFailure() != null) {
+                String stored = result.getUploadedCount() == 0 ? "No files were uploaded and nothing was charged."
+                    : result.getUploadedCount() + " PDF(s) were uploaded before it and ₹" + charged + " was charged for them.";
+                redirectAttributes.addFlashAttribute("error",
+                    "Upload failed: " + result.getFailure().getMessage() + " " + stored);
+                return "redirect:/student/dashboard";
+            }
+
             String containerInfo = String.format("Container: %s / %s / %s / Sem %s / %s", 
                 user.getAcademicYear(), user.getBranch(), user.getDivision(), user.getSemester(), batch);
             redirectAttributes.addFlashAttribute("message", 
-                uploadedCount + " PDF(s) uploaded successfully as " + printType.getDisplayName() + " with " + 
-                copyCount + " copies each! ₹" + totalCost + " deducted. " + containerInfo);
+                result.getUploadedCount() + " PDF(s) uploaded successfully as " + printType.getDisplayName() + " with " + 
+                copyCount + " copies each! ₹" + charged + " deducted. " + containerInfo);
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("error", 
                 "Upload failed: " + e.getMessage());
@@ -177,10 +211,21 @@ public class StudentController {
             PdfUpload pdf = pdfUploadService.getPdfById(id);
             if (pdf != null && pdf.getUser().equals(user) && 
                 pdf.getStatus() == PdfUpload.Status.PENDING) {
+
+                // Until its hold is settled the upload is not charged yet, so there is nothing to refund
+                if (pdf.getWalletHoldId() != null && walletService.isUnsettled(pdf.getWalletHoldId())) {
+                    redirectAttributes.addFlashAttribute("error",
+                        "This PDF is still being billed. Please try deleting it again later.");
+                    return "redirect:/student/dashboard";
+                }
                 
                 // Refund money to wallet
                 BigDecimal refundAmount = pdf.getTotalCost();
-                walletService.refundMoney(user, refundAmount, "Refund for deleted PDF: " + pdf.getOriginalFileName());
+                if (!walletService.refundMoney(user, refundAmount, "Refund for deleted PDF: " + pdf.getOriginalFileName())) {
+                    logger.error("Refund of {} for upload {} could not be recorded for user {}", refundAmount, id, user.getId());
+                    redirectAttributes.addFlashAttribute("error", "Refund failed, so the PDF was not deleted. Please try again.");
+                    return "redirect:/student/dashboard";
+                }
                 
                 pdfUploadService.deletePdf(id, user);
                 redirectAttributes.addFlashAttribute("message", 
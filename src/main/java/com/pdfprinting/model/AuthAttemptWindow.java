@@ -0,0 +1,47 @@
+package com.pdfprinting.model;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+/**
+ * Attempts counted against one throttling key (an email or client address for one action) in
+ * one fixed window, for the shared tier of the auth attempt limiter. The key is stored hashed.
+ */
+@Entity
+@Table(name = "auth_attempt_windows", indexes = {
+    // Expiry sweep
+    @Index(name = "idx_auth_attempt_window_start", columnList = "windowStart")
+})
+public class AuthAttemptWindow {
+    @Id
+    @Column(length = 96)
+    private String id; // key hash + ":" + window number
+
+    @Column(nullable = false)
+    private long windowStart; // epoch millis
+
+    @Column(nullable = false)
+    private int hits;
+
+    // Constructors
+    public AuthAttemptWindow() {}
+
+    public AuthAttemptWindow(String id, long windowStart, int hits) {
+        this.id = id;
+        this.windowStart = windowStart;
+        this.hits = hits;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public long getWindowStart() { return windowStart; }
+    public void setWindowStart(long windowStart) { this.windowStart = windowStart; }
+
+    public int getHits() { return hits; }
+    public void setHits(int hits) { this.hits = hits; }
+}
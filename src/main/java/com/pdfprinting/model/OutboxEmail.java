@@ -0,0 +1,138 @@
+package com.pdfprinting.model;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Lob;
+import jakarta.persistence.Table;
+
+/**
+ * An email waiting in (or delivered from) the outbox. Rows are written in the caller's
+ * transaction and sent by EmailDispatcher; status, attempts and the last error are kept so
+ * support can see what happened to a message.
+ */
+@Entity
+@Table(name = "email_outbox", indexes = {
+    // Dispatcher: due messages
+    @Index(name = "idx_outbox_status_next", columnList = "status, nextAttemptAt"),
+    // Support lookups by recipient
+    @Index(name = "idx_outbox_to_created", columnList = "toEmail, createdAt")
+})
+public class OutboxEmail {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 40)
+    private String kind; // OTP, WELCOME, VERIFICATION, ...
+
+    @Column(nullable = false)
+    private String toEmail;
+
+    @Column(nullable = false, length = 500)
+    private String subject;
+
+    @Lob
+    @Column(length = 16777215)
+    private String htmlContent;
+
+    @Lob
+    @Column(length = 16777215)
+    private String textContent;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private Status status = Status.PENDING;
+
+    private int attempts;
+
+    @Column(nullable = false)
+    private LocalDateTime nextAttemptAt = LocalDateTime.now();
+
+    private LocalDateTime claimedAt;
+
+    @Column(length = 1000)
+    private String lastError;
+
+    private String providerMessageId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime sentAt;
+
+    // Rows of one fan-out (same message, many recipients) share a key and go out through Brevo's batch API
+    @Column(length = 36)
+    private String batchKey;
+
+    // Constructors
+    public OutboxEmail() {}
+
+    public OutboxEmail(String kind, String toEmail, String subject, String htmlContent, String textContent) {
+        this.kind = kind;
+        this.toEmail = toEmail;
+        this.subject = subject;
+        this.htmlContent = htmlContent;
+        this.textContent = textContent;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getKind() { return kind; }
+    public void setKind(String kind) { this.kind = kind; }
+
+    public String getToEmail() { return toEmail; }
+    public void setToEmail(String toEmail) { this.toEmail = toEmail; }
+
+    public String getSubject() { return subject; }
+    public void setSubject(String subject) { this.subject = subject; }
+
+    public String getHtmlContent() { return htmlContent; }
+    public void setHtmlContent(String htmlContent) { this.htmlContent = htmlContent; }
+
+    public String getTextContent() { return textContent; }
+    public void setTextContent(String textContent) { this.textContent = textContent; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public int getAttempts() { return attempts; }
+    public void setAttempts(int attempts) { this.attempts = attempts; }
+
+    public LocalDateTime getNextAttemptAt() { return nextAttemptAt; }
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) { this.nextAttemptAt = nextAttemptAt; }
+
+    public LocalDateTime getClaimedAt() { return claimedAt; }
+    public void setClaimedAt(LocalDateTime claimedAt) { this.claimedAt = claimedAt; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public String getProviderMessageId() { return providerMessageId; }
+    public void setProviderMessageId(String providerMessageId) { this.providerMessageId = providerMessageId; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getSentAt() { return sentAt; }
+    public void setSentAt(LocalDateTime sentAt) { this.sentAt = sentAt; }
+
+    public String getBatchKey() { return batchKey; }
+    public void setBatchKey(String batchKey) { this.batchKey = batchKey; }
+
+    public enum Status {
+        PENDING,  // Waiting for its next attempt
+        SENDING,  // Claimed by a dispatcher
+        SENT,
+        FAILED    // Rejected, or out of attempts
+    }
+}
@@ -0,0 +1,107 @@
+package com.pdfprinting.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+/**
+ * A Razorpay order created for a wallet top-up. It records who pays and how much they get,
+ * so crediting never depends on the browser's callback form, and lets the reconciler find
+ * orders whose callback never arrived.
+ */
+@Entity
+@Table(name = "payment_orders", indexes = {
+    // Reconciler: unpaid orders by age
+    @Index(name = "idx_payment_order_status_created", columnList = "status, createdAt")
+})
+public class PaymentOrder {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String orderId;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal walletAmount; // Credited on payment (excludes the service fee)
+
+    @Column(nullable = false)
+    private long amountInPaise; // Charged by the gateway
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.CREATED;
+
+    @Column(length = 64)
+    private String paymentId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime paidAt;
+
+    private LocalDateTime lastCheckedAt;
+
+    // Constructors
+    public PaymentOrder() {}
+
+    public PaymentOrder(String orderId, User user, BigDecimal walletAmount, long amountInPaise) {
+        this.orderId = orderId;
+        this.user = user;
+        this.walletAmount = walletAmount;
+        this.amountInPaise = amountInPaise;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getOrderId() { return orderId; }
+    public void setOrderId(String orderId) { this.orderId = orderId; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public BigDecimal getWalletAmount() { return walletAmount; }
+    public void setWalletAmount(BigDecimal walletAmount) { this.walletAmount = walletAmount; }
+
+    public long getAmountInPaise() { return amountInPaise; }
+    public void setAmountInPaise(long amountInPaise) { this.amountInPaise = amountInPaise; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public String getPaymentId() { return paymentId; }
+    public void setPaymentId(String paymentId) { this.paymentId = paymentId; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getPaidAt() { return paidAt; }
+    public void setPaidAt(LocalDateTime paidAt) { this.paidAt = paidAt; }
+
+    public LocalDateTime getLastCheckedAt() { return lastCheckedAt; }
+    public void setLastCheckedAt(LocalDateTime lastCheckedAt) { this.lastCheckedAt = lastCheckedAt; }
+
+    public enum Status {
+        CREATED,  // Awaiting payment
+        PAID,     // Payment captured and credited
+        EXPIRED   // Never paid within the reconciliation window
+    }
+}
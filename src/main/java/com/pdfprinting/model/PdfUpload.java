@@ -11,12 +11,31 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
 
 @Entity
-@Table(name = "pdf_uploads")
+@Table(name = "pdf_uploads", indexes = {
+    // Container queue: every container finder filters on these + status and orders by uploadedAt
+    @Index(name = "idx_upload_container_status",
+        columnList = "academicYear, branch, division, semester, batch, status, uploadedAt"),
+    @Index(name = "idx_upload_container_type_status",
+        columnList = "academicYear, branch, division, semester, batch, printType, status, uploadedAt"),
+    // Student dashboard: pending uploads of one user, newest first
+    @Index(name = "idx_upload_user_status", columnList = "user_id, status, uploadedAt"),
+    // Admin dashboard pending scan and legacy batch queries
+    @Index(name = "idx_upload_status", columnList = "status"),
+    @Index(name = "idx_upload_batch_status", columnList = "batch, status, uploadedAt"),
+    // Recent uploads and monthly report grouping
+    @Index(name = "idx_upload_uploaded_at", columnList = "uploadedAt"),
+    // Admin keyset pages walk one batch in id order
+    @Index(name = "idx_upload_batch_id", columnList = "batch, id"),
+    @Index(name = "idx_upload_batch_status_id", columnList = "batch, status, id"),
+    // Expired wallet holds are settled from the uploads stored under them
+    @Index(name = "idx_upload_wallet_hold", columnList = "walletHoldId")
+})
 public class PdfUpload {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -31,19 +50,19 @@ public class PdfUpload {
     @Column(nullable = false)
     private String githubPath;
 
-    @Column(nullable = false)
+    @Column(nullable = false, length = 50)
     private String batch;
 
-    @Column(nullable = false)
+    @Column(nullable = false, length = 100)
     private String branch;
 
-    @Column(nullable = false)
+    @Column(nullable = false, length = 20)
     private String division;
 
-    @Column(nullable = false)
+    @Column(nullable = false, length = 20)
     private String academicYear; // Year of the student at upload time (denormalized, required for org)
 
-    @Column(nullable = false)
+    @Column(nullable = false, length = 20)
     private String semester; // Semester at upload time (e.g., "1", "2", etc.)
 
     @Column(nullable = false)
@@ -61,6 +80,8 @@ public class PdfUpload {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal totalCost = BigDecimal.ZERO; // Total cost for this upload
 
+    private Long walletHoldId; // The hold that reserved totalCost, if the upload was paid through one
+
     @Column(nullable = false)
     private LocalDateTime uploadedAt = LocalDateTime.now();
 
@@ -182,6 +203,9 @@ public class PdfUpload {
 
     public BigDecimal getTotalCost() { return totalCost; }
     public void setTotalCost(BigDecimal totalCost) { this.totalCost = totalCost; }
+
+    public Long getWalletHoldId() { return walletHoldId; }
+    public void setWalletHoldId(Long walletHoldId) { this.walletHoldId = walletHoldId; }
     
     public int getBilledPageCount() { return billedPageCount; }
     public void setBilledPageCount(int billedPageCount) { this.billedPageCount = billedPageCount; }
@@ -194,22 +218,19 @@ public class PdfUpload {
     }
     
     /**
-     * Print type enum for different printing modes with associated pricing
+     * Print type enum for different printing modes (prices live in PricingEngine)
      */
     public enum PrintType {
-        SINGLE_SIDE("Single Side (B&W)", 2),      // ₹2 per page
-        DOUBLE_SIDE("Double Side (Duplex)", 1),    // ₹1 per page (even pages only)
-        COLOUR("Colour (Single Side)", 7);         // ₹7 per page
+        SINGLE_SIDE("Single Side (B&W)"),
+        DOUBLE_SIDE("Double Side (Duplex)"),    // even pages only
+        COLOUR("Colour (Single Side)");
         
         private final String displayName;
-        private final int pricePerPage;
         
-        PrintType(String displayName, int pricePerPage) {
+        PrintType(String displayName) {
             this.displayName = displayName;
-            this.pricePerPage = pricePerPage;
         }
         
         public String getDisplayName() { return displayName; }
-        public int getPricePerPage() { return pricePerPage; }
     }
 }
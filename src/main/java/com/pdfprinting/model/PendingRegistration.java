@@ -2,12 +2,26 @@ package com.pdfprinting.model;
 
 import java.time.LocalDateTime;
 
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
 /**
  * Temporary registration data holder for users during the OTP verification process.
  * This stores registration details before they are saved to the database.
- * Data is kept in cache/session and removed after successful OTP verification or expiration.
+ * Data is kept in memory, or in the pending_registrations table when instances share it
+ * (registration.pending.store=jdbc), and removed after successful OTP verification or expiration.
  */
+@Entity
+@Table(name = "pending_registrations", indexes = {
+    // Expiry sweep
+    @Index(name = "idx_pending_registration_expiry", columnList = "otpExpiry")
+})
 public class PendingRegistration {
+    @Id
+    @Column(length = 191)
     private String email;
     private String name;
     private String branch;
@@ -18,6 +32,10 @@ public class PendingRegistration {
     private String phoneNumber;
     private String batch;
     private String password; // Already encoded
+
+    // The hash job allowed to fill in password; a late hash from an earlier registration is dropped
+    @Column(length = 36)
+    private String hashToken;
     private String otp;
     private LocalDateTime otpExpiry;
     private LocalDateTime createdAt;
@@ -93,6 +111,9 @@ public class PendingRegistration {
     public String getPassword() { return password; }
     public void setPassword(String password) { this.password = password; }
 
+    public String getHashToken() { return hashToken; }
+    public void setHashToken(String hashToken) { this.hashToken = hashToken; }
+
     public String getOtp() { return otp; }
     public void setOtp(String otp) { this.otp = otp; }
 
@@ -0,0 +1,38 @@
+package com.pdfprinting.model;
+
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+
+/**
+ * Progress marker for a background aggregation: every day up to and including
+ * {@code processedThrough} has been handled, whether or not it produced any rows.
+ */
+@Entity
+@Table(name = "report_watermarks")
+public class ReportWatermark {
+    @Id
+    @Column(length = 64)
+    private String name;
+
+    @Column(nullable = false)
+    private LocalDate processedThrough;
+
+    // Constructors
+    public ReportWatermark() {}
+
+    public ReportWatermark(String name, LocalDate processedThrough) {
+        this.name = name;
+        this.processedThrough = processedThrough;
+    }
+
+    // Getters and Setters
+    public String getName() { return name; }
+    public void setName(String name) { this.name = name; }
+
+    public LocalDate getProcessedThrough() { return processedThrough; }
+    public void setProcessedThrough(LocalDate processedThrough) { this.processedThrough = processedThrough; }
+}
@@ -11,12 +11,21 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
 @Entity
-@Table(name = "transactions")
+@Table(name = "transactions", indexes = {
+    // Covers the report GROUP BYs over a createdAt range without touching the table rows
+    @Index(name = "idx_tx_created_type_status_amount", columnList = "createdAt, type, status, amount"),
+    // Covers the balance read: SUM(amount) over a user's ledger tail after their latest snapshot
+    @Index(name = "idx_tx_user_ledger", columnList = "user_id, id, status, amount")
+}, uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"user_id", "debitSeq"}, name = "uk_tx_user_debit_seq")
+})
 public class Transaction {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -33,9 +42,14 @@ public class Transaction {
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal amount;
 
-    @Column(nullable = false, precision = 10, scale = 2)
+    // Exact for debits; credits are appended without reading the balance and leave it null
+    @Column(precision = 10, scale = 2)
     private BigDecimal balanceAfter;
 
+    // Per-user debit sequence, null for credits. Two debits checked against the same ledger state
+    // claim the same number, so the unique key rejects the second (see WalletService)
+    private Long debitSeq;
+
     @Column(length = 500)
     private String description;
 
@@ -81,6 +95,9 @@ public class Transaction {
     public BigDecimal getBalanceAfter() { return balanceAfter; }
     public void setBalanceAfter(BigDecimal balanceAfter) { this.balanceAfter = balanceAfter; }
 
+    public Long getDebitSeq() { return debitSeq; }
+    public void setDebitSeq(Long debitSeq) { this.debitSeq = debitSeq; }
+
     public String getDescription() { return description; }
     public void setDescription(String description) { this.description = description; }
 
@@ -0,0 +1,78 @@
+package com.pdfprinting.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * Pre-aggregated transaction totals for one closed day, type and status.
+ * Rows are written once by TransactionService.refreshDailyRollups and never updated,
+ * so report queries only scan the rollups plus the transactions of the still-open days.
+ */
+@Entity
+@Table(name = "transaction_daily_rollups", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"rollupDate", "type", "status"},
+        name = "uk_rollup_date_type_status")
+})
+public class TransactionDailyRollup {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false)
+    private LocalDate rollupDate;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Transaction.TransactionType type;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Transaction.TransactionStatus status;
+
+    @Column(nullable = false)
+    private long txCount;
+
+    @Column(nullable = false, precision = 14, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    // Constructors
+    public TransactionDailyRollup() {}
+
+    public TransactionDailyRollup(LocalDate rollupDate, Transaction.TransactionType type,
+                                  Transaction.TransactionStatus status, long txCount, BigDecimal totalAmount) {
+        this.rollupDate = rollupDate;
+        this.type = type;
+        this.status = status;
+        this.txCount = txCount;
+        this.totalAmount = totalAmount;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public LocalDate getRollupDate() { return rollupDate; }
+    public void setRollupDate(LocalDate rollupDate) { this.rollupDate = rollupDate; }
+
+    public Transaction.TransactionType getType() { return type; }
+    public void setType(Transaction.TransactionType type) { this.type = type; }
+
+    public Transaction.TransactionStatus getStatus() { return status; }
+    public void setStatus(Transaction.TransactionStatus status) { this.status = status; }
+
+    public long getTxCount() { return txCount; }
+    public void setTxCount(long txCount) { this.txCount = txCount; }
+
+    public BigDecimal getTotalAmount() { return totalAmount; }
+    public void setTotalAmount(BigDecimal totalAmount) { this.totalAmount = totalAmount; }
+}
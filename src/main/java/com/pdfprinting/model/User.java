@@ -13,6 +13,7 @@ import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToMany;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
@@ -26,6 +27,9 @@ import jakarta.validation.constraints.Size;
         name = "uk_container_rollnumber"),
     @UniqueConstraint(columnNames = {"email"}, 
         name = "uk_user_email")
+}, indexes = {
+    // Admin student list: keyset pages by role in id order
+    @Index(name = "idx_user_role_id", columnList = "role, id")
 })
 public class User {
     @Id
@@ -41,16 +45,25 @@ public class User {
     @Column(unique = true)
     private String email;
 
+    // Container fields are copied onto every upload; lengths match the indexed pdf_uploads columns
     @NotBlank(message = "Branch is required")
+    @Size(max = 100, message = "Branch must be at most 100 characters")
+    @Column(length = 100)
     private String branch;
 
     @NotBlank(message = "Division is required")
+    @Size(max = 20, message = "Division must be at most 20 characters")
+    @Column(length = 20)
     private String division;
 
     @NotBlank(message = "Academic year is required")
+    @Size(max = 20, message = "Academic year must be at most 20 characters")
+    @Column(length = 20)
     private String academicYear;
 
     @NotBlank(message = "Semester is required")
+    @Size(max = 20, message = "Semester must be at most 20 characters")
+    @Column(length = 20)
     private String semester;
 
     @NotBlank(message = "Roll number is required")
@@ -60,6 +73,8 @@ public class User {
     private String phoneNumber;
 
     @NotBlank(message = "Batch is required")
+    @Size(max = 50, message = "Batch must be at most 50 characters")
+    @Column(length = 50)
     private String batch;
 
     @NotBlank(message = "Password is required")
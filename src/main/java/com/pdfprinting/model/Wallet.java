@@ -12,6 +12,7 @@ import jakarta.persistence.Id;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.Version;
 
 @Entity
 @Table(name = "wallets")
@@ -24,9 +25,15 @@ public class Wallet {
     @JoinColumn(name = "user_id", nullable = false, unique = true)
     private User user;
 
+    // Opening balance only: it seeds the user's first WalletSnapshot and is never changed after.
+    // The live balance comes from the transaction ledger (WalletService.getWalletBalance)
     @Column(nullable = false, precision = 10, scale = 2)
     private BigDecimal balance = BigDecimal.ZERO;
 
+    @Version
+    @Column(nullable = false)
+    private long version;
+
     @Column(nullable = false)
     private LocalDateTime createdAt = LocalDateTime.now();
 
@@ -54,28 +61,11 @@ public class Wallet {
         this.updatedAt = LocalDateTime.now();
     }
 
+    public long getVersion() { return version; }
+
     public LocalDateTime getCreatedAt() { return createdAt; }
     public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
 
     public LocalDateTime getUpdatedAt() { return updatedAt; }
     public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
-
-    // Helper methods
-    public void addAmount(BigDecimal amount) {
-        this.balance = this.balance.add(amount);
-        this.updatedAt = LocalDateTime.now();
-    }
-
-    public boolean deductAmount(BigDecimal amount) {
-        if (this.balance.compareTo(amount) >= 0) {
-            this.balance = this.balance.subtract(amount);
-            this.updatedAt = LocalDateTime.now();
-            return true;
-        }
-        return false;
-    }
-
-    public boolean hasAmount(BigDecimal amount) {
-        return this.balance.compareTo(amount) >= 0;
-    }
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.pdfprinting.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+
+/**
+ * Money reserved for work that has not finished yet (e.g. an upload still being stored).
+ * The full amount is debited from the ledger when the hold is placed; settling it captures
+ * what was actually used and credits the remainder back.
+ */
+@Entity
+@Table(name = "wallet_holds", indexes = {
+    // Expiry sweep: oldest unsettled holds first
+    @Index(name = "idx_hold_status_created", columnList = "status, createdAt")
+})
+public class WalletHold {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false, precision = 10, scale = 2)
+    private BigDecimal amount;
+
+    @Column(precision = 10, scale = 2)
+    private BigDecimal capturedAmount;
+
+    // The ledger debit that reserved the amount
+    @Column(nullable = false)
+    private Long debitTransactionId;
+
+    @Column(length = 500)
+    private String description;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private Status status = Status.HELD;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    private LocalDateTime settledAt;
+
+    // Constructors
+    public WalletHold() {}
+
+    public WalletHold(User user, BigDecimal amount, Long debitTransactionId, String description) {
+        this.user = user;
+        this.amount = amount;
+        this.debitTransactionId = debitTransactionId;
+        this.description = description;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public BigDecimal getAmount() { return amount; }
+    public void setAmount(BigDecimal amount) { this.amount = amount; }
+
+    public BigDecimal getCapturedAmount() { return capturedAmount; }
+    public void setCapturedAmount(BigDecimal capturedAmount) { this.capturedAmount = capturedAmount; }
+
+    public Long getDebitTransactionId() { return debitTransactionId; }
+    public void setDebitTransactionId(Long debitTransactionId) { this.debitTransactionId = debitTransactionId; }
+
+    public String getDescription() { return description; }
+    public void setDescription(String description) { this.description = description; }
+
+    public Status getStatus() { return status; }
+    public void setStatus(Status status) { this.status = status; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+
+    public LocalDateTime getSettledAt() { return settledAt; }
+    public void setSettledAt(LocalDateTime settledAt) { this.settledAt = settledAt; }
+
+    public enum Status {
+        HELD,      // Amount debited, work in progress
+        CAPTURED,  // Settled; capturedAmount charged, remainder credited back
+        RELEASED   // Settled with nothing charged; full amount credited back
+    }
+}
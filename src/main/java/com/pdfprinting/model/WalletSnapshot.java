@@ -0,0 +1,69 @@
+package com.pdfprinting.model;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * A user's wallet balance as of one point in the transaction ledger: the sum of every
+ * COMPLETED transaction with id <= throughTransactionId (plus the opening balance).
+ * Snapshots are append-only; the current balance is the latest snapshot plus the ledger tail after it.
+ */
+@Entity
+@Table(name = "wallet_snapshots", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"user_id", "throughTransactionId"},
+        name = "uk_snapshot_user_through")
+})
+public class WalletSnapshot {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false, precision = 12, scale = 2)
+    private BigDecimal balance;
+
+    @Column(nullable = false)
+    private long throughTransactionId;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt = LocalDateTime.now();
+
+    // Constructors
+    public WalletSnapshot() {}
+
+    public WalletSnapshot(User user, BigDecimal balance, long throughTransactionId) {
+        this.user = user;
+        this.balance = balance;
+        this.throughTransactionId = throughTransactionId;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+
+    public BigDecimal getBalance() { return balance; }
+    public void setBalance(BigDecimal balance) { this.balance = balance; }
+
+    public long getThroughTransactionId() { return throughTransactionId; }
+    public void setThroughTransactionId(long throughTransactionId) { this.throughTransactionId = throughTransactionId; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
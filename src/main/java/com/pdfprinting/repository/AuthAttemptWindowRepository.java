@@ -0,0 +1,42 @@
+package com.pdfprinting.repository;
+
+import java.util.Collection;
+import java.util.List;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pdfprinting.model.AuthAttemptWindow;
+
+@Repository
+public interface AuthAttemptWindowRepository extends JpaRepository<AuthAttemptWindow, String> {
+
+    @Modifying
+    @Transactional
+    @Query("update AuthAttemptWindow w set w.hits = w.hits + 1 where w.id = :id")
+    int increment(@Param("id") String id);
+
+    // Plain insert: a merge could overwrite a row another instance has just created
+    @Modifying
+    @Transactional
+    @Query(value = "insert into auth_attempt_windows (id, window_start, hits) values (:id, :windowStart, 1)",
+           nativeQuery = true)
+    int insertFirst(@Param("id") String id, @Param("windowStart") long windowStart);
+
+    @Query("select w from AuthAttemptWindow w where w.id in :ids")
+    List<AuthAttemptWindow> findByIds(@Param("ids") Collection<String> ids);
+
+    @Modifying
+    @Transactional
+    @Query("delete from AuthAttemptWindow w where w.id in :ids")
+    int deleteByIds(@Param("ids") Collection<String> ids);
+
+    @Modifying
+    @Transactional
+    @Query("delete from AuthAttemptWindow w where w.windowStart < :before")
+    int deleteStartedBefore(@Param("before") long before);
+}
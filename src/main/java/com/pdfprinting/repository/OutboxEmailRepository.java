@@ -0,0 +1,44 @@
+package com.pdfprinting.repository;
+
+import com.pdfprinting.model.OutboxEmail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboxEmailRepository extends JpaRepository<OutboxEmail, Long> {
+
+    @Query("select e.id from OutboxEmail e where e.status = :status and e.nextAttemptAt <= :now order by e.nextAttemptAt asc")
+    List<Long> findDueIds(@Param("status") OutboxEmail.Status status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    // Exactly one dispatcher (across instances) wins a message
+    @Modifying
+    @Transactional
+    @Query("update OutboxEmail e set e.status = :sending, e.claimedAt = :now " +
+           "where e.id = :id and e.status = :pending and e.nextAttemptAt <= :now")
+    int claim(@Param("id") Long id, @Param("pending") OutboxEmail.Status pending,
+              @Param("sending") OutboxEmail.Status sending, @Param("now") LocalDateTime now);
+
+    // Messages whose dispatcher died mid-send go back to the queue
+    @Modifying
+    @Transactional
+    @Query("update OutboxEmail e set e.status = :pending where e.status = :sending and e.claimedAt < :before")
+    int requeueStale(@Param("sending") OutboxEmail.Status sending, @Param("pending") OutboxEmail.Status pending,
+                     @Param("before") LocalDateTime before);
+
+    @Modifying
+    @Transactional
+    @Query("delete from OutboxEmail e where e.status = :status and e.sentAt < :before")
+    int deleteSentBefore(@Param("status") OutboxEmail.Status status, @Param("before") LocalDateTime before);
+
+    List<OutboxEmail> findTop50ByToEmailOrderByCreatedAtDesc(String toEmail);
+
+    long countByStatus(OutboxEmail.Status status);
+}
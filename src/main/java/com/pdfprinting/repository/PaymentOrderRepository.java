@@ -0,0 +1,42 @@
+package com.pdfprinting.repository;
+
+import com.pdfprinting.model.PaymentOrder;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface PaymentOrderRepository extends JpaRepository<PaymentOrder, Long> {
+    Optional<PaymentOrder> findByOrderId(String orderId);
+
+    long countByStatus(PaymentOrder.Status status);
+
+    @Query("select min(o.createdAt) from PaymentOrder o where o.status = :status")
+    LocalDateTime findOldestCreatedAt(@Param("status") PaymentOrder.Status status);
+
+    // Least recently checked first, so orders that never match do not starve newer ones
+    @Query("select o from PaymentOrder o where o.status = :status and o.createdAt < :before " +
+           "order by o.lastCheckedAt asc nulls first, o.createdAt asc")
+    List<PaymentOrder> findUnpaidCreatedBefore(@Param("status") PaymentOrder.Status status,
+                                               @Param("before") LocalDateTime before, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("update PaymentOrder o set o.lastCheckedAt = :now where o.id in :ids")
+    int markChecked(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("update PaymentOrder o set o.status = :expired where o.status = :created and o.createdAt < :before")
+    int expireCreatedBefore(@Param("created") PaymentOrder.Status created, @Param("expired") PaymentOrder.Status expired,
+                            @Param("before") LocalDateTime before);
+}
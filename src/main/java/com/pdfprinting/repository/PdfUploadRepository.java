@@ -1,8 +1,15 @@
 package com.pdfprinting.repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import com.pdfprinting.model.PdfUpload;
@@ -56,4 +63,85 @@ public interface PdfUploadRepository extends JpaRepository<PdfUpload, Long> {
     // Container-based count
     long countByAcademicYearAndBranchAndDivisionAndSemesterAndBatchAndStatus(
         String academicYear, String branch, String division, String semester, String batch, PdfUpload.Status status);
+    
+    // Reporting aggregates - grouped in the database so report views never load the whole table
+    // Rows: [year, month, count]
+    @Query("select year(u.uploadedAt), month(u.uploadedAt), count(u) from PdfUpload u " +
+           "group by year(u.uploadedAt), month(u.uploadedAt)")
+    List<Object[]> countByUploadMonth();
+    
+    // Rows: [academicYear, branch, division, semester, batch, status, count]
+    @Query("select u.academicYear, u.branch, u.division, u.semester, u.batch, u.status, count(u) from PdfUpload u " +
+           "group by u.academicYear, u.branch, u.division, u.semester, u.batch, u.status")
+    List<Object[]> countByContainerAndStatus();
+    
+    // Keyset pagination for admin listings (ordered by id, served by idx_upload_batch_id / idx_upload_batch_status_id);
+    // the uploader is rendered per row, so fetch it in the same query
+    @EntityGraph(attributePaths = "user")
+    List<PdfUpload> findByBatchAndIdLessThanOrderByIdDesc(String batch, Long beforeId, Pageable pageable);
+    @EntityGraph(attributePaths = "user")
+    List<PdfUpload> findByBatchAndStatusAndIdGreaterThanOrderByIdAsc(
+        String batch, PdfUpload.Status status, Long afterId, Pageable pageable);
+    long countByUserRole(User.Role role);
+    
+    // Rows: [userId, count] - upload counts for the students on one page
+    @Query("select u.user.id, count(u) from PdfUpload u where u.user.id in :userIds group by u.user.id")
+    List<Object[]> countByUserIds(@Param("userIds") Collection<Long> userIds);
+    
+    @Query("select distinct u.user.email from PdfUpload u where u.id in :ids")
+    List<String> findDistinctUserEmailsByIdIn(@Param("ids") Collection<Long> ids);
+    
+    // Rows: [status, count, sum(fileSize), count(distinct user)] for one batch
+    @Query("select u.status, count(u), coalesce(sum(u.fileSize), 0), count(distinct u.user.id) from PdfUpload u " +
+           "where u.batch = :batch group by u.status")
+    List<Object[]> summarizeBatchByStatus(@Param("batch") String batch);
+    
+    // Rows: [year, month, count] for one batch
+    @Query("select year(u.uploadedAt), month(u.uploadedAt), count(u) from PdfUpload u where u.batch = :batch " +
+           "group by year(u.uploadedAt), month(u.uploadedAt)")
+    List<Object[]> countByUploadMonthForBatch(@Param("batch") String batch);
+    
+    // What was stored under a wallet hold, so an unsettled hold can still be captured correctly
+    @Query("select coalesce(sum(u.totalCost), 0) from PdfUpload u where u.walletHoldId = :holdId")
+    BigDecimal sumTotalCostByWalletHoldId(@Param("holdId") Long holdId);
+    
+    // Bulk status transitions - a single UPDATE per call, returns the number of rows changed
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update PdfUpload u set u.status = :newStatus " +
+           "where u.academicYear = :academicYear and u.branch = :branch and u.division = :division " +
+           "and u.semester = :semester and u.batch = :batch and u.status = :currentStatus")
+    int updateContainerStatus(@Param("academicYear") String academicYear, @Param("branch") String branch,
+                              @Param("division") String division, @Param("semester") String semester,
+                              @Param("batch") String batch, @Param("currentStatus") PdfUpload.Status currentStatus,
+                              @Param("newStatus") PdfUpload.Status newStatus);
+    
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update PdfUpload u set u.status = :newStatus " +
+           "where u.academicYear = :academicYear and u.branch = :branch and u.division = :division " +
+           "and u.semester = :semester and u.batch = :batch and u.printType = :printType " +
+           "and u.status = :currentStatus")
+    int updateContainerStatusByPrintType(@Param("academicYear") String academicYear, @Param("branch") String branch,
+                                         @Param("division") String division, @Param("semester") String semester,
+                                         @Param("batch") String batch, @Param("printType") PdfUpload.PrintType printType,
+                                         @Param("currentStatus") PdfUpload.Status currentStatus,
+                                         @Param("newStatus") PdfUpload.Status newStatus);
+    
+    // Restricted to the given ids (e.g. the uploads a merge actually read) so late uploads stay PENDING
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update PdfUpload u set u.status = :newStatus where u.id in :ids and u.status = :currentStatus")
+    int updateStatusByIds(@Param("ids") Collection<Long> ids, @Param("currentStatus") PdfUpload.Status currentStatus,
+                          @Param("newStatus") PdfUpload.Status newStatus);
+    
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update PdfUpload u set u.status = :newStatus " +
+           "where u.branch = :branch and u.division = :division and u.batch = :batch and u.status = :currentStatus")
+    int updateStatusByBranchAndDivisionAndBatch(@Param("branch") String branch, @Param("division") String division,
+                                                @Param("batch") String batch,
+                                                @Param("currentStatus") PdfUpload.Status currentStatus,
+                                                @Param("newStatus") PdfUpload.Status newStatus);
+    
+    @Modifying(clearAutomatically = true, flushAutomatically = true)
+    @Query("update PdfUpload u set u.status = :newStatus where u.batch = :batch and u.status = :currentStatus")
+    int updateStatusByBatch(@Param("batch") String batch, @Param("currentStatus") PdfUpload.Status currentStatus,
+                            @Param("newStatus") PdfUpload.Status newStatus);
 }
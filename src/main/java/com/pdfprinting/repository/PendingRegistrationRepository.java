@@ -0,0 +1,37 @@
+package com.pdfprinting.repository;
+
+import com.pdfprinting.model.PendingRegistration;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface PendingRegistrationRepository extends JpaRepository<PendingRegistration, String> {
+
+    @Modifying
+    @Transactional
+    @Query("delete from PendingRegistration p where p.otpExpiry < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+
+    @Modifying
+    @Transactional
+    @Query("update PendingRegistration p set p.password = :password " +
+           "where p.email = :email and p.hashToken = :hashToken and p.password is null")
+    int setPasswordIfMissing(@Param("email") String email, @Param("hashToken") String hashToken,
+                             @Param("password") String password);
+
+    @Modifying
+    @Transactional
+    @Query("delete from PendingRegistration p where p.email = :email and p.hashToken = :hashToken")
+    int deleteByEmailAndHashToken(@Param("email") String email, @Param("hashToken") String hashToken);
+
+    @Modifying
+    @Transactional
+    @Query("update PendingRegistration p set p.otp = :otp, p.otpExpiry = :otpExpiry where p.email = :email")
+    int updateOtp(@Param("email") String email, @Param("otp") String otp, @Param("otpExpiry") LocalDateTime otpExpiry);
+}
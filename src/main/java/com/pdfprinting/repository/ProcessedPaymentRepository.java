@@ -0,0 +1,12 @@
+package com.pdfprinting.repository;
+
+import com.pdfprinting.model.ProcessedPayment;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface ProcessedPaymentRepository extends JpaRepository<ProcessedPayment, Long> {
+    Optional<ProcessedPayment> findByPaymentId(String paymentId);
+}
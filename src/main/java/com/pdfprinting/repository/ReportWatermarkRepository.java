@@ -0,0 +1,9 @@
+package com.pdfprinting.repository;
+
+import com.pdfprinting.model.ReportWatermark;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface ReportWatermarkRepository extends JpaRepository<ReportWatermark, String> {
+}
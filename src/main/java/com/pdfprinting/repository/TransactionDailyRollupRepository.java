@@ -0,0 +1,23 @@
+package com.pdfprinting.repository;
+
+import com.pdfprinting.model.TransactionDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface TransactionDailyRollupRepository extends JpaRepository<TransactionDailyRollup, Long> {
+
+    // Latest day with rollup rows (watermark fallback for databases rolled up before report_watermarks)
+    @Query("select max(r.rollupDate) from TransactionDailyRollup r")
+    LocalDate findLatestRollupDate();
+
+    // Rows: [year, month, type, status, count, sum(amount)]
+    @Query("select year(r.rollupDate), month(r.rollupDate), r.type, r.status, sum(r.txCount), sum(r.totalAmount) " +
+           "from TransactionDailyRollup r " +
+           "group by year(r.rollupDate), month(r.rollupDate), r.type, r.status")
+    List<Object[]> summarizeByMonth();
+}
@@ -2,9 +2,15 @@ package com.pdfprinting.repository;
 
 import com.pdfprinting.model.Transaction;
 import com.pdfprinting.model.User;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -13,4 +19,40 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     List<Transaction> findByUserIdOrderByCreatedAtDesc(Long userId);
     List<Transaction> findTop20ByUserOrderByCreatedAtDesc(User user);
     List<Transaction> findTop50ByOrderByCreatedAtDesc();
-}
\ No newline at end of file
+
+    // Keyset pagination for the admin ledger (newest first by id); user is rendered per row
+    @EntityGraph(attributePaths = "user")
+    List<Transaction> findByIdLessThanOrderByIdDesc(Long beforeId, Pageable pageable);
+
+    // Wallet ledger reads (see WalletService): balance = latest snapshot + SUM over the tail after it
+    @Query("select coalesce(sum(t.amount), 0) from Transaction t " +
+           "where t.user.id = :userId and t.id > :afterId and t.status = :status")
+    BigDecimal sumAmountAfter(@Param("userId") Long userId, @Param("afterId") long afterId,
+                              @Param("status") Transaction.TransactionStatus status);
+
+    @Query("select max(t.debitSeq) from Transaction t where t.user.id = :userId")
+    Long findLastDebitSeq(@Param("userId") Long userId);
+
+    @Query("select max(t.id) from Transaction t where t.user.id = :userId")
+    Long findLastIdByUserId(@Param("userId") Long userId);
+
+    // Newest-created first, so page 0 of size 1 is a backward scan of the createdAt index
+    @Query("select t.id from Transaction t where t.createdAt < :before order by t.createdAt desc")
+    List<Long> findIdsCreatedBefore(@Param("before") LocalDateTime before, Pageable pageable);
+
+    // Reporting aggregates - computed by the database instead of streaming findAll()
+    @Query("select min(t.createdAt) from Transaction t")
+    LocalDateTime findEarliestCreatedAt();
+
+    // Rows: [type, status, count, sum(amount)] for one day window
+    @Query("select t.type, t.status, count(t), sum(t.amount) from Transaction t " +
+           "where t.createdAt >= :from and t.createdAt < :to " +
+           "group by t.type, t.status")
+    List<Object[]> summarizeBetween(@Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    // Rows: [year, month, type, status, count, sum(amount)] for everything not yet rolled up
+    @Query("select year(t.createdAt), month(t.createdAt), t.type, t.status, count(t), sum(t.amount) " +
+           "from Transaction t where t.createdAt >= :since " +
+           "group by year(t.createdAt), month(t.createdAt), t.type, t.status")
+    List<Object[]> summarizeByMonthSince(@Param("since") LocalDateTime since);
+}
@@ -1,6 +1,7 @@
 package com.pdfprinting.repository;
 
 import com.pdfprinting.model.User;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
@@ -26,4 +27,9 @@ public interface UserRepository extends JpaRepository<User, Long> {
     // Find users by batch and role
     List<User> findByBatchAndRole(String batch, User.Role role);
     List<User> findByRole(User.Role role);
+    
+    // Keyset pagination for the admin student list (ordered by id)
+    List<User> findByRoleAndIdGreaterThanOrderByIdAsc(User.Role role, Long afterId, Pageable pageable);
+    long countByRole(User.Role role);
+    long countByRoleAndEmailVerified(User.Role role, boolean emailVerified);
 }
@@ -0,0 +1,27 @@
+package com.pdfprinting.repository;
+
+import com.pdfprinting.model.WalletHold;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WalletHoldRepository extends JpaRepository<WalletHold, Long> {
+
+    // Settling locks the hold so a capture and the expiry sweep cannot both settle it
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select h from WalletHold h where h.id = :id")
+    Optional<WalletHold> findForUpdateById(@Param("id") Long id);
+
+    @Query("select h.id from WalletHold h where h.status = :status and h.createdAt < :before order by h.createdAt")
+    List<Long> findIdsByStatusCreatedBefore(@Param("status") WalletHold.Status status,
+                                            @Param("before") LocalDateTime before, Pageable pageable);
+}
@@ -2,8 +2,13 @@ package com.pdfprinting.repository;
 
 import com.pdfprinting.model.User;
 import com.pdfprinting.model.Wallet;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.Optional;
 
@@ -11,4 +16,10 @@ import java.util.Optional;
 public interface WalletRepository extends JpaRepository<Wallet, Long> {
     Optional<Wallet> findByUser(User user);
     Optional<Wallet> findByUserId(Long userId);
-}
\ No newline at end of file
+
+    // Exclusive locking read: serializes opening a user's ledger (see WalletService.openLedger)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Transactional
+    @Query("select w from Wallet w where w.user.id = :userId")
+    Optional<Wallet> findForUpdateByUserId(@Param("userId") Long userId);
+}
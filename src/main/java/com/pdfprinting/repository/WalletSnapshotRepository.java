@@ -0,0 +1,32 @@
+package com.pdfprinting.repository;
+
+import com.pdfprinting.model.Transaction;
+import com.pdfprinting.model.WalletSnapshot;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface WalletSnapshotRepository extends JpaRepository<WalletSnapshot, Long> {
+    Optional<WalletSnapshot> findTopByUserIdOrderByThroughTransactionIdDesc(Long userId);
+    boolean existsByUserId(Long userId);
+
+    // Rows: [userId, snapshot balance, sum(tail amount), max(tail id)] for users whose ledger tail after
+    // their latest snapshot has at least :minEntries settled transactions, longest tails first
+    @Query("select s.user.id, s.balance, coalesce(sum(t.amount), 0), max(t.id) " +
+           "from WalletSnapshot s join Transaction t on t.user.id = s.user.id " +
+           "where s.throughTransactionId = (select max(s2.throughTransactionId) from WalletSnapshot s2 where s2.user.id = s.user.id) " +
+           "and t.id > s.throughTransactionId and t.id <= :cutoffId and t.status = :status " +
+           "group by s.user.id, s.balance " +
+           "having count(t) >= :minEntries " +
+           "order by count(t) desc")
+    List<Object[]> summarizeTails(@Param("cutoffId") Long cutoffId,
+                                  @Param("status") Transaction.TransactionStatus status,
+                                  @Param("minEntries") long minEntries,
+                                  Pageable pageable);
+}
@@ -0,0 +1,17 @@
+package com.pdfprinting.resilience;
+
+/**
+ * A call was refused without reaching the dependency: its circuit is open, its rate limit is
+ * spent, or all of its bulkhead slots are busy. Retrying straight away will not help.
+ */
+public class DependencyUnavailableException extends Exception {
+
+    private final long retryAfterMs;
+
+    public DependencyUnavailableException(String message, long retryAfterMs) {
+        super(message);
+        this.retryAfterMs = retryAfterMs;
+    }
+
+    public long getRetryAfterMs() { return retryAfterMs; }
+}
@@ -0,0 +1,29 @@
+package com.pdfprinting.resilience;
+
+import java.util.List;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.stereotype.Component;
+
+/**
+ * Down while any remote dependency's circuit is open, with each dependency's stats as details
+ * (shown to admins only), the same view as GET /admin/resilience.
+ */
+@Component("resilience")
+public class ResilienceHealthIndicator implements HealthIndicator {
+
+    @Autowired
+    private List<ResilientDependency> dependencies;
+
+    @Override
+    public Health health() {
+        Health.Builder health = dependencies.stream().allMatch(ResilientDependency::isHealthy)
+                ? Health.up() : Health.down();
+        for (ResilientDependency dependency : dependencies) {
+            health.withDetail(dependency.getName(), dependency.getStats());
+        }
+        return health.build();
+    }
+}
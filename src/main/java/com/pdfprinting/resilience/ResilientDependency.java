@@ -0,0 +1,152 @@
+package com.pdfprinting.resilience;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Guards calls to one remote dependency (GitHub, Brevo) with a bulkhead, a token-bucket rate
+ * limiter and a circuit breaker. A call that cannot get through any of them fails at once with
+ * DependencyUnavailableException instead of sleeping, so a degraded dependency ties up at most
+ * the bulkhead's threads and only for as long as its own timeouts.
+ */
+public class ResilientDependency {
+
+    private final String name;
+    private final CircuitBreaker circuitBreaker;
+    private final TokenBucket rateLimiter;
+    private final Semaphore bulkhead;
+    private final int maxConcurrent;
+    private final long maxWaitMs;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rejectedOpen = new AtomicLong();
+    private final AtomicLong rejectedRateLimited = new AtomicLong();
+    private final AtomicLong rejectedBulkheadFull = new AtomicLong();
+
+    /**
+     * @param maxWaitMs how long a caller may wait for a rate-limit token or a bulkhead slot
+     */
+    public ResilientDependency(String name, int failureThreshold, long openMs, double permitsPerSecond,
+                               int burst, int maxConcurrent, long maxWaitMs) {
+        this.name = name;
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openMs);
+        this.rateLimiter = new TokenBucket(permitsPerSecond, burst);
+        this.maxConcurrent = Math.max(1, maxConcurrent);
+        this.bulkhead = new Semaphore(this.maxConcurrent, true);
+        this.maxWaitMs = maxWaitMs;
+    }
+
+    /**
+     * Run a call that signals failure by throwing; every exception counts against the circuit.
+     */
+    public <T> T call(Callable<T> action) throws Exception {
+        return call(action, result -> false, e -> true);
+    }
+
+    /**
+     * Run a call through the bulkhead, rate limiter and circuit breaker.
+     * @param failedResult results that mean the dependency is unhealthy (e.g. an HTTP 5xx)
+     * @param failedException exceptions that mean the dependency is unhealthy; others (a 404, a
+     *                        validation error) pass through without affecting the circuit
+     */
+    public <T> T call(Callable<T> action, Predicate<? super T> failedResult,
+                      Predicate<? super Exception> failedException) throws Exception {
+        long retryAfterMs = circuitBreaker.getRetryAfterMs();
+        if (retryAfterMs > 0) {
+            rejectedOpen.incrementAndGet();
+            throw new DependencyUnavailableException(name + " circuit is open", retryAfterMs);
+        }
+        if (!rateLimiter.tryAcquire(maxWaitMs)) {
+            rejectedRateLimited.incrementAndGet();
+            throw new DependencyUnavailableException(name + " rate limit reached",
+                    Math.max(rateLimiter.getPausedForMs(), 1000));
+        }
+        if (!bulkhead.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS)) {
+            rejectedBulkheadFull.incrementAndGet();
+            throw new DependencyUnavailableException(name + " has " + maxConcurrent + " calls in flight", maxWaitMs);
+        }
+        try {
+            if (!circuitBreaker.tryAcquire()) {
+                rejectedOpen.incrementAndGet();
+                throw new DependencyUnavailableException(name + " circuit is open",
+                        Math.max(circuitBreaker.getRetryAfterMs(), 1));
+            }
+            calls.incrementAndGet();
+            T result;
+            try {
+                result = action.call();
+            } catch (Exception e) {
+                if (failedException.test(e)) {
+                    failures.incrementAndGet();
+                    circuitBreaker.onFailure();
+                } else {
+                    circuitBreaker.onSuccess();
+                }
+                throw e;
+            }
+            if (failedResult.test(result)) {
+                failures.incrementAndGet();
+                circuitBreaker.onFailure();
+            } else {
+                circuitBreaker.onSuccess();
+            }
+            return result;
+        } finally {
+            bulkhead.release();
+        }
+    }
+
+    /**
+     * The dependency asked us to back off (HTTP 429 / Retry-After).
+     */
+    public void pauseFor(long millis) {
+        rateLimiter.pauseUntil(System.currentTimeMillis() + millis);
+    }
+
+    /**
+     * The dependency reported its remaining quota (e.g. GitHub's X-RateLimit-Remaining).
+     */
+    public void observeRemaining(long remaining, long resetAtEpochMillis) {
+        rateLimiter.observeRemaining(remaining, resetAtEpochMillis);
+    }
+
+    public String getName() { return name; }
+    public CircuitBreaker.State getState() { return circuitBreaker.getState(); }
+    /** Open circuits are unhealthy; half-open ones are probing and count as degraded but up */
+    public boolean isHealthy() { return circuitBreaker.getState() != CircuitBreaker.State.OPEN; }
+    public long getCalls() { return calls.get(); }
+    public long getFailures() { return failures.get(); }
+    public long getRejectedOpen() { return rejectedOpen.get(); }
+    public long getRejectedRateLimited() { return rejectedRateLimited.get(); }
+    public long getRejectedBulkheadFull() { return rejectedBulkheadFull.get(); }
+    public int getInFlight() { return maxConcurrent - bulkhead.availablePermits(); }
+    public double getAvailableTokens() { return rateLimiter.getAvailableTokens(); }
+    public long getTimesOpened() { return circuitBreaker.getTimesOpened(); }
+
+    /**
+     * Snapshot for the admin endpoint.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("state", getState().name());
+        stats.put("healthy", isHealthy());
+        stats.put("consecutiveFailures", circuitBreaker.getConsecutiveFailures());
+        stats.put("timesOpened", getTimesOpened());
+        stats.put("openForMs", circuitBreaker.getRetryAfterMs());
+        stats.put("calls", getCalls());
+        stats.put("failures", getFailures());
+        stats.put("rejectedOpen", getRejectedOpen());
+        stats.put("rejectedRateLimited", getRejectedRateLimited());
+        stats.put("rejectedBulkheadFull", getRejectedBulkheadFull());
+        stats.put("inFlight", getInFlight());
+        stats.put("availableTokens", Math.floor(getAvailableTokens()));
+        stats.put("pausedForMs", rateLimiter.getPausedForMs());
+        return stats;
+    }
+}
@@ -0,0 +1,83 @@
+package com.pdfprinting.resilience;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token-bucket rate limiter: permitsPerSecond refill up to a burst of capacity. Callers wait for a
+ * token only as long as they are willing to (maxWaitMs); otherwise they are refused at once.
+ * The dependency's own signals adjust it: pauseUntil honours Retry-After, and
+ * observeRemaining caps local tokens at the server's remaining quota, pausing until the reset
+ * once that quota is spent.
+ */
+public class TokenBucket {
+
+    private final double capacity;
+    private final double permitsPerNano;
+
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+    // Server-imposed pause (epoch millis), from Retry-After or an exhausted quota
+    private long pausedUntil;
+
+    public TokenBucket(double permitsPerSecond, int capacity) {
+        this.capacity = Math.max(1, capacity);
+        this.permitsPerNano = permitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokens = this.capacity;
+    }
+
+    /**
+     * Take a token, waiting at most maxWaitMs for one. Returns false straight away when the wait
+     * would be longer, including while the server has asked us to pause.
+     */
+    public boolean tryAcquire(long maxWaitMs) throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long pauseMs = pausedUntil - System.currentTimeMillis();
+            if (pauseMs > maxWaitMs) {
+                return false;
+            }
+            refill();
+            // Reserve the token now (tokens may go negative) so concurrent waiters queue up
+            waitNanos = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / permitsPerNano);
+            waitNanos = Math.max(waitNanos, TimeUnit.MILLISECONDS.toNanos(Math.max(0, pauseMs)));
+            if (waitNanos > TimeUnit.MILLISECONDS.toNanos(maxWaitMs)) {
+                return false;
+            }
+            tokens -= 1;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+        return true;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - refilledAt) * permitsPerNano);
+        refilledAt = now;
+    }
+
+    public synchronized void pauseUntil(long epochMillis) {
+        pausedUntil = Math.max(pausedUntil, epochMillis);
+    }
+
+    /**
+     * The server reported how many calls are left until its window resets.
+     */
+    public synchronized void observeRemaining(long remaining, long resetAtEpochMillis) {
+        refill();
+        tokens = Math.min(tokens, remaining);
+        if (remaining <= 0) {
+            pauseUntil(resetAtEpochMillis);
+        }
+    }
+
+    public synchronized double getAvailableTokens() {
+        refill();
+        return Math.max(0, tokens);
+    }
+
+    public synchronized long getPausedForMs() {
+        return Math.max(0, pausedUntil - System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,379 @@
+package com.pdfprinting.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.pdfprinting.model.AuthAttemptWindow;
+import com.pdfprinting.repository.AuthAttemptWindowRepository;
+
+import jakarta.servlet.http.HttpServletRequest;
+
+/**
+ * Sliding-window limit on login, OTP verification and OTP resend attempts, counted per email and
+ * per client address, so scripted guessing is turned away before it reaches BCrypt or the
+ * database. The window is approximated from two fixed windows: the previous window's count,
+ * weighted by how much of it still overlaps the sliding window, plus the current count.
+ *
+ * Counters live in a fixed number of shards, each a small map under its own lock, and are swept
+ * once both of their windows have passed. With auth.rate-limit.store=jdbc every attempt the local
+ * counters allow is also counted in the auth_attempt_windows table, so the limit holds across
+ * instances; the local counters still turn away a local attacker without a database round trip.
+ */
+@Component
+public class AttemptLimiter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AttemptLimiter.class);
+
+    private static final int SHARDS = 16;
+
+    public enum Action {
+        LOGIN("login"),
+        OTP_VERIFY("otp-verify"),
+        OTP_RESEND("otp-resend");
+
+        private final String code;
+
+        Action(String code) {
+            this.code = code;
+        }
+
+        public String getCode() { return code; }
+    }
+
+    @Autowired
+    private AuthAttemptWindowRepository windowRepository;
+
+    @Value("${auth.rate-limit.enabled:true}")
+    private boolean enabled;
+
+    @Value("${auth.rate-limit.store:memory}")
+    private String store;
+
+    @Value("${auth.rate-limit.window-ms:900000}")
+    private long windowMs;
+
+    @Value("${auth.rate-limit.max-keys:100000}")
+    private int maxKeys;
+
+    // Only behind a proxy that sets X-Forwarded-For itself; otherwise clients pick their own address
+    @Value("${auth.rate-limit.trust-forwarded-for:false}")
+    private boolean trustForwardedFor;
+
+    @Value("${auth.rate-limit.login.per-email:10}")
+    private int loginPerEmail;
+
+    @Value("${auth.rate-limit.login.per-ip:50}")
+    private int loginPerIp;
+
+    @Value("${auth.rate-limit.otp-verify.per-email:5}")
+    private int otpVerifyPerEmail;
+
+    @Value("${auth.rate-limit.otp-verify.per-ip:30}")
+    private int otpVerifyPerIp;
+
+    @Value("${auth.rate-limit.otp-resend.per-email:3}")
+    private int otpResendPerEmail;
+
+    @Value("${auth.rate-limit.otp-resend.per-ip:10}")
+    private int otpResendPerIp;
+
+    private final Shard[] shards = new Shard[SHARDS];
+
+    private final Map<Action, AtomicLong> allowed = new EnumMap<>(Action.class);
+    private final Map<Action, AtomicLong> blocked = new EnumMap<>(Action.class);
+    private final AtomicLong untracked = new AtomicLong();
+    private final AtomicLong sharedErrors = new AtomicLong();
+
+    public AttemptLimiter() {
+        for (int i = 0; i < SHARDS; i++) {
+            shards[i] = new Shard();
+        }
+        for (Action action : Action.values()) {
+            allowed.put(action, new AtomicLong());
+            blocked.put(action, new AtomicLong());
+        }
+    }
+
+    private static final class Shard {
+        final Map<String, Window> windows = new HashMap<>();
+    }
+
+    // Attempts for one key in the current and the previous fixed window; guarded by its shard
+    private static final class Window {
+        long number;
+        int current;
+        int previous;
+
+        void roll(long now) {
+            if (now == number) {
+                return;
+            }
+            previous = now == number + 1 ? current : 0;
+            current = 0;
+            number = now;
+        }
+    }
+
+    private boolean shared() {
+        return "jdbc".equalsIgnoreCase(store);
+    }
+
+    /**
+     * Count an attempt at an action by this email from this client address.
+     * @return false if either has used up its attempts for the window
+     */
+    public boolean tryAcquire(Action action, String email, String clientIp) {
+        return tryAcquire(action, email, clientIp, System.currentTimeMillis());
+    }
+
+    boolean tryAcquire(Action action, String email, String clientIp, long now) {
+        if (!enabled) {
+            return true;
+        }
+        // Address first: a sprayed list of emails from one client stops there
+        boolean ok = (clientIp == null || acquire(key(action, "ip", clientIp), perIp(action), now))
+                && (email == null || acquire(key(action, "email", normalize(email)), perEmail(action), now));
+        (ok ? allowed : blocked).get(action).incrementAndGet();
+        if (!ok) {
+            logger.debug("Throttled {} attempt for {} from {}", action.code, email, clientIp);
+        }
+        return ok;
+    }
+
+    /**
+     * Forget an email's attempts at an action, after it succeeded.
+     */
+    public void reset(Action action, String email) {
+        if (email == null) {
+            return;
+        }
+        String key = key(action, "email", normalize(email));
+        Shard shard = shardFor(key);
+        synchronized (shard) {
+            shard.windows.remove(key);
+        }
+        if (shared()) {
+            long number = System.currentTimeMillis() / windowMs;
+            String hash = hash(key);
+            try {
+                windowRepository.deleteByIds(List.of(rowId(hash, number), rowId(hash, number - 1)));
+            } catch (DataAccessException e) {
+                sharedErrors.incrementAndGet();
+                logger.warn("Could not clear shared attempt counts: {}", e.getMessage());
+            }
+        }
+    }
+
+    private boolean acquire(String key, int limit, long now) {
+        long number = now / windowMs;
+        double overlap = 1.0 - (double) (now % windowMs) / windowMs;
+        Shard shard = shardFor(key);
+        synchronized (shard) {
+            Window window = shard.windows.get(key);
+            if (window == null && shard.windows.size() >= maxKeys / SHARDS) {
+                sweep(shard, number);
+            }
+            if (window == null && shard.windows.size() >= maxKeys / SHARDS) {
+                // Full of live keys: not counted locally rather than evicting a live count
+                untracked.incrementAndGet();
+            } else {
+                if (window == null) {
+                    window = new Window();
+                    window.number = number;
+                    shard.windows.put(key, window);
+                }
+                window.roll(number);
+                if (window.previous * overlap + window.current >= limit) {
+                    return false;
+                }
+                window.current++;
+            }
+        }
+        return !shared() || acquireShared(key, limit, number, overlap);
+    }
+
+    // Counts the attempt in the shared table, then checks what it was counted on top of
+    private boolean acquireShared(String key, int limit, long number, double overlap) {
+        String hash = hash(key);
+        String currentId = rowId(hash, number);
+        try {
+            if (windowRepository.increment(currentId) == 0) {
+                try {
+                    windowRepository.insertFirst(currentId, number * windowMs);
+                } catch (DataIntegrityViolationException e) {
+                    // Another instance created the row first
+                    windowRepository.increment(currentId);
+                }
+            }
+            int current = 0;
+            int previous = 0;
+            for (AuthAttemptWindow row : windowRepository.findByIds(List.of(currentId, rowId(hash, number - 1)))) {
+                if (row.getId().equals(currentId)) {
+                    current = row.getHits();
+                } else {
+                    previous = row.getHits();
+                }
+            }
+            return previous * overlap + current - 1 < limit;
+        } catch (DataAccessException e) {
+            // The local counters still apply; an unreachable table must not lock everyone out
+            sharedErrors.incrementAndGet();
+            logger.warn("Shared attempt counts unavailable, using local counts only: {}", e.getMessage());
+            return true;
+        }
+    }
+
+    /**
+     * Drop counters whose windows have both passed.
+     */
+    @Scheduled(fixedDelayString = "${auth.rate-limit.sweep-interval-ms:60000}")
+    public int sweep() {
+        long number = System.currentTimeMillis() / windowMs;
+        int removed = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                removed += sweep(shard, number);
+            }
+        }
+        if (shared()) {
+            try {
+                removed += windowRepository.deleteStartedBefore((number - 1) * windowMs);
+            } catch (DataAccessException e) {
+                sharedErrors.incrementAndGet();
+                logger.warn("Could not sweep shared attempt counts: {}", e.getMessage());
+            }
+        }
+        return removed;
+    }
+
+    private static int sweep(Shard shard, long number) {
+        int removed = 0;
+        Iterator<Window> windows = shard.windows.values().iterator();
+        while (windows.hasNext()) {
+            if (windows.next().number < number - 1) {
+                windows.remove();
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Seconds until the current window ends, for a Retry-After header.
+     */
+    public long retryAfterSeconds() {
+        long remaining = windowMs - System.currentTimeMillis() % windowMs;
+        return Math.max(1, (remaining + 999) / 1000);
+    }
+
+    /**
+     * The address attempts are counted against: when the proxy in front is trusted, the last
+     * X-Forwarded-For hop, which that proxy appended for the connection it accepted; otherwise the
+     * connection's address. Earlier hops come from the client and could be anything it likes.
+     */
+    public String clientIp(HttpServletRequest request) {
+        if (trustForwardedFor) {
+            String forwarded = request.getHeader("X-Forwarded-For");
+            if (forwarded != null) {
+                String hop = forwarded.substring(forwarded.lastIndexOf(',') + 1).trim();
+                if (!hop.isEmpty()) {
+                    return hop;
+                }
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private int perEmail(Action action) {
+        switch (action) {
+            case LOGIN: return loginPerEmail;
+            case OTP_VERIFY: return otpVerifyPerEmail;
+            default: return otpResendPerEmail;
+        }
+    }
+
+    private int perIp(Action action) {
+        switch (action) {
+            case LOGIN: return loginPerIp;
+            case OTP_VERIFY: return otpVerifyPerIp;
+            default: return otpResendPerIp;
+        }
+    }
+
+    private Shard shardFor(String key) {
+        return shards[(key.hashCode() & 0x7fffffff) % SHARDS];
+    }
+
+    private static String key(Action action, String kind, String value) {
+        return action.code + ":" + kind + ":" + value;
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String rowId(String hash, long number) {
+        return hash + ":" + number;
+    }
+
+    // Emails and addresses are not stored in the shared table as such
+    private static String hash(String key) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public int getTrackedKeys() {
+        int tracked = 0;
+        for (Shard shard : shards) {
+            synchronized (shard) {
+                tracked += shard.windows.size();
+            }
+        }
+        return tracked;
+    }
+
+    public long getAllowed(Action action) { return allowed.get(action).get(); }
+    public long getBlocked(Action action) { return blocked.get(action).get(); }
+    public long getUntracked() { return untracked.get(); }
+    public long getSharedErrors() { return sharedErrors.get(); }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("store", shared() ? "jdbc" : "memory");
+        stats.put("windowMs", windowMs);
+        for (Action action : Action.values()) {
+            Map<String, Object> counts = new LinkedHashMap<>();
+            counts.put("allowed", getAllowed(action));
+            counts.put("blocked", getBlocked(action));
+            stats.put(action.code, counts);
+        }
+        stats.put("trackedKeys", getTrackedKeys());
+        stats.put("untracked", getUntracked());
+        stats.put("sharedErrors", getSharedErrors());
+        return stats;
+    }
+}
@@ -0,0 +1,67 @@
+package com.pdfprinting.security;
+
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+/**
+ * Applies the attempt limiter to the login form post and the OTP pages before Spring Security or
+ * the controllers do any work on them. A throttled form post is sent back to its page with a
+ * message, like any other failed attempt.
+ */
+public class AuthRateLimitFilter extends OncePerRequestFilter {
+
+    private static final Map<String, AttemptLimiter.Action> ACTIONS = Map.of(
+        "/perform_login", AttemptLimiter.Action.LOGIN,
+        "/verify-otp", AttemptLimiter.Action.OTP_VERIFY,
+        "/resend-otp", AttemptLimiter.Action.OTP_RESEND
+    );
+
+    static final String THROTTLED_MESSAGE = "Too many attempts. Please wait a few minutes and try again.";
+
+    private final AttemptLimiter attemptLimiter;
+
+    public AuthRateLimitFilter(AttemptLimiter attemptLimiter) {
+        this.attemptLimiter = attemptLimiter;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
+        return !"POST".equals(request.getMethod()) || !ACTIONS.containsKey(request.getServletPath());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        AttemptLimiter.Action action = ACTIONS.get(request.getServletPath());
+        // formLogin posts the email as "username"
+        String email = request.getParameter(action == AttemptLimiter.Action.LOGIN ? "username" : "email");
+        if (email != null && email.isBlank()) {
+            email = null;
+        }
+
+        if (attemptLimiter.tryAcquire(action, email, attemptLimiter.clientIp(request))) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        response.setHeader("Retry-After", String.valueOf(attemptLimiter.retryAfterSeconds()));
+        if (action == AttemptLimiter.Action.LOGIN) {
+            response.sendRedirect("/login?error=throttled");
+        } else {
+            String target = "/verify-otp?otpError=" + URLEncoder.encode(THROTTLED_MESSAGE, StandardCharsets.UTF_8);
+            if (email != null) {
+                target += "&email=" + URLEncoder.encode(email, StandardCharsets.UTF_8);
+            }
+            response.sendRedirect(target);
+        }
+    }
+}
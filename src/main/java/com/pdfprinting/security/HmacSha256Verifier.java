@@ -0,0 +1,76 @@
+package com.pdfprinting.security;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Checks hex-encoded HMAC-SHA256 signatures (Razorpay payment and webhook signatures) against one
+ * secret. Each thread keeps its own initialised Mac, so verifying allocates no key material, and
+ * the comparison is constant-time.
+ */
+public class HmacSha256Verifier {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final ThreadLocal<Mac> mac;
+
+    public HmacSha256Verifier(String secret) {
+        if (secret == null || secret.isEmpty()) {
+            throw new IllegalArgumentException("HMAC secret must not be empty");
+        }
+        SecretKeySpec key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), ALGORITHM);
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                Mac m = Mac.getInstance(ALGORITHM);
+                m.init(key);
+                return m;
+            } catch (Exception e) {
+                throw new IllegalStateException("HmacSHA256 unavailable", e);
+            }
+        });
+        this.mac.get(); // fail at startup rather than on the first payment
+    }
+
+    public byte[] sign(byte[] data) {
+        // doFinal resets the Mac, so the thread's instance is ready for the next call
+        return mac.get().doFinal(data);
+    }
+
+    public String signHex(String data) {
+        byte[] hash = sign(data.getBytes(StandardCharsets.UTF_8));
+        StringBuilder hex = new StringBuilder(hash.length * 2);
+        for (byte b : hash) {
+            hex.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return hex.toString();
+    }
+
+    public boolean matches(String data, String hexSignature) {
+        return matches(data.getBytes(StandardCharsets.UTF_8), hexSignature);
+    }
+
+    public boolean matches(byte[] data, String hexSignature) {
+        byte[] expected = sign(data);
+        byte[] actual = decodeHex(hexSignature, expected.length);
+        return actual != null && MessageDigest.isEqual(expected, actual);
+    }
+
+    private static byte[] decodeHex(String hex, int length) {
+        if (hex == null || hex.length() != length * 2) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            int hi = Character.digit(hex.charAt(2 * i), 16);
+            int lo = Character.digit(hex.charAt(2 * i + 1), 16);
+            if (hi < 0 || lo < 0) {
+                return null;
+            }
+            bytes[i] = (byte) ((hi << 4) | lo);
+        }
+        return bytes;
+    }
+}
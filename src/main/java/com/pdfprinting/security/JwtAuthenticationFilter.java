@@ -2,17 +2,22 @@ package com.pdfprinting.security;
 
 import java.io.IOException;
 import java.util.Collections;
-import java.util.List;
+import java.util.concurrent.TimeUnit;
 
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.stereotype.Component;
 import org.springframework.web.filter.OncePerRequestFilter;
 
+import com.pdfprinting.config.RequestLoggingFilter;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -25,34 +30,58 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     private JwtUtil jwtUtil;
 
     @Autowired
-    private UserDetailsService userDetailsService;
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    // Time spent authenticating the request, not the rest of the chain, by outcome
+    private Timer noToken;
+    private Timer authenticated;
+    private Timer rejected;
+
+    @PostConstruct
+    void registerTimers() {
+        noToken = meterRegistry.timer("jwt.filter", "outcome", "no-token");
+        authenticated = meterRegistry.timer("jwt.filter", "outcome", "authenticated");
+        rejected = meterRegistry.timer("jwt.filter", "outcome", "rejected");
+    }
+
+    // ✅ Skip JWT filtering for public endpoints (exact matches and prefixes like /css/, /js/)
+    private static final String[] EXCLUDED_PATHS = {
+        "/ping",
+        "/login",
+        "/register",
+
+        "/terms",
+        "/contact",
+        "/css/",
+        "/js/",
+        "/images/",
+        "/webjars/",
+        "/favicon.ico"
+    };
 
-    // ✅ Skip JWT filtering for public endpoints
     @Override
     protected boolean shouldNotFilter(HttpServletRequest request) throws ServletException {
-        String path = request.getServletPath();
-        List<String> excludedPaths = List.of(
-            "/ping",
-            "/login",
-            "/register",
-            
-            "/terms",
-            "/contact",
-            "/css/",
-            "/js/",
-            "/images/",
-            "/webjars/",
-            "/favicon.ico"
-        );
-
-        // Skip exact matches and prefixes like /css/, /js/, etc.
-        return excludedPaths.stream().anyMatch(path::startsWith);
+        return isExcludedPath(request.getServletPath());
+    }
+
+    public static boolean isExcludedPath(String path) {
+        for (String excluded : EXCLUDED_PATHS) {
+            if (path.startsWith(excluded)) {
+                return true;
+            }
+        }
+        return false;
     }
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
 
+        long started = System.nanoTime();
+        Timer outcome = noToken;
         String token = null;
         String header = request.getHeader("Authorization");
 
@@ -68,25 +97,46 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         }
 
         if (token != null) {
+            outcome = rejected;
             try {
                 var claims = jwtUtil.parseClaims(token);
                 String username = claims.getSubject();
                 String role = claims.get("role", String.class);
 
-                if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                    var auth = new UsernamePasswordAuthenticationToken(
-                            userDetails,
-                            null,
-                            Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role))
-                    );
-                    SecurityContextHolder.getContext().setAuthentication(auth);
+                if (username != null && role != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+                    // Claims are verified; the cache only confirms the account is still active and unchanged
+                    JwtPrincipal principal = principalCache.resolve(username);
+                    Number userId = claims.get(JwtUtil.USER_ID_CLAIM, Number.class);
+                    if (principal != null
+                            && principal.getRole().name().equals(role)
+                            && (userId == null || principal.getId().equals(userId.longValue()))) {
+                        var auth = new UsernamePasswordAuthenticationToken(
+                                principal,
+                                null,
+                                Collections.singletonList(new SimpleGrantedAuthority("ROLE_" + role))
+                        );
+                        SecurityContextHolder.getContext().setAuthentication(auth);
+                        outcome = authenticated;
+                    }
                 }
             } catch (Exception e) {
                 // Invalid token — ignore, request will continue unauthenticated
             }
         }
+        outcome.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        putUserId(SecurityContextHolder.getContext().getAuthentication());
 
         filterChain.doFilter(request, response);
     }
+
+    // Log lines for the rest of the request carry the user id; form-login sessions only hold the email
+    private void putUserId(Authentication auth) {
+        if (auth == null || !auth.isAuthenticated()) {
+            return;
+        }
+        JwtPrincipal principal = auth.getPrincipal() instanceof JwtPrincipal p ? p : principalCache.resolve(auth.getName());
+        if (principal != null) {
+            MDC.put(RequestLoggingFilter.USER_ID, String.valueOf(principal.getId()));
+        }
+    }
 }
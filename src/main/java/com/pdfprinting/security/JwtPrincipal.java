@@ -0,0 +1,37 @@
+package com.pdfprinting.security;
+
+import java.io.Serializable;
+import java.security.Principal;
+
+import com.pdfprinting.model.User;
+
+/**
+ * The authenticated user as the JWT filter sees it: id, email and role, without the entity or
+ * its password hash. getName() is the email, so authentication.getName() keeps working.
+ */
+public class JwtPrincipal implements Principal, Serializable {
+
+    private final Long id;
+    private final String email;
+    private final User.Role role;
+
+    public JwtPrincipal(Long id, String email, User.Role role) {
+        this.id = id;
+        this.email = email;
+        this.role = role;
+    }
+
+    public Long getId() { return id; }
+    public String getEmail() { return email; }
+    public User.Role getRole() { return role; }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+
+    @Override
+    public String toString() {
+        return email;
+    }
+}
@@ -1,12 +1,17 @@
 package com.pdfprinting.security;
 
 import java.security.Key;
+import java.util.Collections;
 import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
@@ -14,11 +19,32 @@ import io.jsonwebtoken.security.Keys;
 @Component
 public class JwtUtil {
 
+    public static final String USER_ID_CLAIM = "uid";
+
     private final Key key;
     private final long jwtExpirationMs;
+    // Immutable and thread-safe, so one parser serves every request
+    private final JwtParser parser;
+
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong cacheMisses = new AtomicLong();
+
+    private static class VerifiedClaims {
+        final Claims claims;
+        final long expiresAt;
+
+        VerifiedClaims(Claims claims, long expiresAt) {
+            this.claims = claims;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // token -> claims whose signature was already verified, least recently used evicted first
+    private final Map<String, VerifiedClaims> verified;
 
     public JwtUtil(@Value("${jwt.secret:Amankumar}") String secret,
-                   @Value("${jwt.expiration-ms:86400000}") long jwtExpirationMs) {
+                   @Value("${jwt.expiration-ms:86400000}") long jwtExpirationMs,
+                   @Value("${jwt.claims-cache.max-size:10000}") int claimsCacheSize) {
         // Use the provided secret bytes as key material; fallback to random key if too short
         this.jwtExpirationMs = jwtExpirationMs;
         byte[] keyBytes = secret.getBytes();
@@ -27,23 +53,59 @@ public class JwtUtil {
         } else {
             this.key = Keys.hmacShaKeyFor(keyBytes);
         }
+        this.parser = Jwts.parserBuilder().setSigningKey(key).build();
+        this.verified = Collections.synchronizedMap(new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, VerifiedClaims> eldest) {
+                return size() > claimsCacheSize;
+            }
+        });
     }
 
     public String generateToken(String username, String role) {
+        return generateToken(username, role, null);
+    }
+
+    public String generateToken(String username, String role, Long userId) {
         Date now = new Date();
         Date expiry = new Date(now.getTime() + jwtExpirationMs);
 
-        return Jwts.builder()
+        var builder = Jwts.builder()
                 .setSubject(username)
-                .claim("role", role)
+                .claim("role", role);
+        if (userId != null) {
+            builder.claim(USER_ID_CLAIM, userId);
+        }
+        return builder
                 .setIssuedAt(now)
                 .setExpiration(expiry)
                 .signWith(key)
                 .compact();
     }
 
+    /**
+     * Verified claims of a token. A token seen recently is answered from the cache until its own
+     * expiry, skipping the HMAC check; callers must treat the returned claims as read-only.
+     */
     public Claims parseClaims(String token) {
-        return Jwts.parserBuilder().setSigningKey(key).build().parseClaimsJws(token).getBody();
+        VerifiedClaims cached = verified.get(token);
+        if (cached != null) {
+            if (cached.expiresAt > System.currentTimeMillis()) {
+                cacheHits.incrementAndGet();
+                return cached.claims;
+            }
+            verified.remove(token);
+        }
+        cacheMisses.incrementAndGet();
+        Claims claims = parser.parseClaimsJws(token).getBody();
+        if (claims.getExpiration() != null) {
+            verified.put(token, new VerifiedClaims(claims, claims.getExpiration().getTime()));
+        }
+        return claims;
     }
 
+    public long getClaimsCacheHits() { return cacheHits.get(); }
+    public long getClaimsCacheMisses() { return cacheMisses.get(); }
+    public int getClaimsCacheSize() { return verified.size(); }
+
 }
@@ -0,0 +1,87 @@
+package com.pdfprinting.security;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.pdfprinting.model.User;
+import com.pdfprinting.repository.UserRepository;
+
+/**
+ * Short-lived, size-bounded cache of who a token's subject is, so the JWT filter only reads the
+ * users table on a miss. Users that are missing or unverified are cached too (as null), so a
+ * stream of requests with a dead account's token does not hit the database either. Anything that
+ * changes a user's standing must call invalidate(email).
+ */
+@Component
+public class PrincipalCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Value("${jwt.principal-cache.ttl-ms:60000}")
+    private long ttlMs;
+
+    @Value("${jwt.principal-cache.max-size:10000}")
+    private int maxSize;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    private static class Entry {
+        final JwtPrincipal principal; // null: no such active user
+        final long expiresAt;
+
+        Entry(JwtPrincipal principal, long expiresAt) {
+            this.principal = principal;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    // email -> principal, least recently used evicted first
+    private final Map<String, Entry> entries = Collections.synchronizedMap(
+        new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxSize;
+            }
+        });
+
+    /**
+     * The active user with this email, or null if there is none (unknown or not verified).
+     */
+    public JwtPrincipal resolve(String email) {
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(email);
+        if (entry != null && entry.expiresAt > now) {
+            hits.incrementAndGet();
+            return entry.principal;
+        }
+        misses.incrementAndGet();
+        JwtPrincipal principal = userRepository.findByEmail(email)
+                .filter(User::isEmailVerified)
+                .map(u -> new JwtPrincipal(u.getId(), u.getEmail(), u.getRole()))
+                .orElse(null);
+        entries.put(email, new Entry(principal, now + ttlMs));
+        return principal;
+    }
+
+    public void invalidate(String email) {
+        if (email != null) {
+            entries.remove(email);
+        }
+    }
+
+    public void invalidateAll() {
+        entries.clear();
+    }
+
+    public int size() { return entries.size(); }
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+}
@@ -0,0 +1,219 @@
+package com.pdfprinting.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Sends one message to many recipients through Brevo's batch API. Recipients are grouped into
+ * requests of email.batch.size message versions; requests go out on a small pool, no faster than
+ * email.batch.requests-per-second. A request that keeps failing fails only its own recipients,
+ * and the report says which ones and whether trying them again later could help.
+ */
+@Service
+public class BatchNotifier {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchNotifier.class);
+    static final String INVALID_ADDRESS = "Invalid email address";
+
+    private final BrevoClient brevoClient;
+    private final int batchSize;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long intervalNanos;
+    private final ThreadPoolExecutor senders;
+
+    // Earliest start of the next request (System.nanoTime), shared by all senders
+    private long nextRequestAt = System.nanoTime();
+
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong recipientsSent = new AtomicLong();
+    private final AtomicLong recipientsFailed = new AtomicLong();
+
+    public BatchNotifier(BrevoClient brevoClient,
+                         @Value("${email.batch.size:100}") int batchSize,
+                         @Value("${email.batch.concurrency:4}") int concurrency,
+                         @Value("${email.batch.requests-per-second:5}") double requestsPerSecond,
+                         @Value("${email.batch.max-attempts:3}") int maxAttempts,
+                         @Value("${email.batch.backoff-ms:1000}") long backoffMs) {
+        this.brevoClient = brevoClient;
+        this.batchSize = Math.max(1, Math.min(batchSize, BrevoClient.MAX_BATCH_VERSIONS));
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = backoffMs;
+        this.intervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = new ThreadPoolExecutor(concurrency, concurrency, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "email-batch-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    @PreDestroy
+    void stop() {
+        senders.shutdownNow();
+    }
+
+    /**
+     * Outcome of a fan-out: how many recipients Brevo accepted, and why each of the others was not
+     * sent to. Accepted means queued by Brevo; bounces still show up in Brevo's own logs.
+     */
+    public static class Report {
+        private final int recipients;
+        private final int sent;
+        private final int requests;
+        private final Map<String, String> failures;
+        private final Set<String> retryable;
+
+        Report(int recipients, int sent, int requests, Map<String, String> failures, Set<String> retryable) {
+            this.recipients = recipients;
+            this.sent = sent;
+            this.requests = requests;
+            this.failures = failures;
+            this.retryable = retryable;
+        }
+
+        public int getRecipients() { return recipients; }
+        public int getSent() { return sent; }
+        public int getRequests() { return requests; }
+        /** Recipient email to the reason it was not sent */
+        public Map<String, String> getFailures() { return failures; }
+        public boolean hasFailures() { return !failures.isEmpty(); }
+        /** Whether the recipient failed on a transient error (timeout, 429, 5xx) rather than a rejection */
+        public boolean isRetryable(String email) { return retryable.contains(email); }
+    }
+
+    /**
+     * Send the message to every recipient and wait until each batch has been accepted or has
+     * failed for good. Duplicate addresses are sent to once; malformed ones are reported, not sent.
+     */
+    public Report send(Collection<String> toEmails, String subject, String htmlContent, String textContent) {
+        Map<String, String> failures = new LinkedHashMap<>();
+        Set<String> retryable = new LinkedHashSet<>();
+        Set<String> unique = new LinkedHashSet<>();
+        for (String email : toEmails) {
+            String normalized = normalize(email);
+            if (isPlausibleAddress(normalized)) {
+                unique.add(normalized);
+            } else {
+                failures.put(String.valueOf(email), INVALID_ADDRESS);
+            }
+        }
+
+        List<String> recipients = new ArrayList<>(unique);
+        List<Future<BrevoClient.SendResult>> batches = new ArrayList<>();
+        List<List<String>> chunks = new ArrayList<>();
+        for (int from = 0; from < recipients.size(); from += batchSize) {
+            List<String> chunk = recipients.subList(from, Math.min(from + batchSize, recipients.size()));
+            chunks.add(chunk);
+            batches.add(senders.submit(() -> sendChunk(chunk, subject, htmlContent, textContent)));
+        }
+
+        int sent = 0;
+        for (int i = 0; i < batches.size(); i++) {
+            String error;
+            boolean transientError = true;
+            try {
+                BrevoClient.SendResult result = batches.get(i).get();
+                error = result.isDelivered() ? null : result.getError();
+                transientError = result.isRetryable();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                error = "Interrupted";
+            } catch (Exception e) {
+                error = e.getClass().getSimpleName() + ": " + e.getMessage();
+            }
+            if (error == null) {
+                sent += chunks.get(i).size();
+            } else {
+                for (String email : chunks.get(i)) {
+                    failures.put(email, error);
+                    if (transientError) {
+                        retryable.add(email);
+                    }
+                }
+            }
+        }
+
+        recipientsSent.addAndGet(sent);
+        recipientsFailed.addAndGet(failures.size());
+        if (!failures.isEmpty()) {
+            logger.warn("Batch email '{}': {} of {} recipient(s) not sent", subject, failures.size(),
+                    sent + failures.size());
+        }
+        return new Report(sent + failures.size(), sent, batches.size(), failures, retryable);
+    }
+
+    // The accepting result, or the last failed one
+    private BrevoClient.SendResult sendChunk(List<String> chunk, String subject, String htmlContent, String textContent)
+            throws InterruptedException {
+        BrevoClient.SendResult result = null;
+        for (int attempt = 1; attempt <= maxAttempts; attempt++) {
+            awaitRateLimit();
+            requests.incrementAndGet();
+            result = brevoClient.sendBatch(chunk, subject, htmlContent, textContent);
+            if (result.isDelivered()) {
+                return result;
+            }
+            if (!result.isRetryable()) {
+                break;
+            }
+            if (attempt < maxAttempts) {
+                logger.warn("Batch of {} recipient(s) failed (attempt {}/{}): {}", chunk.size(), attempt,
+                        maxAttempts, result.getError());
+                Thread.sleep(backoffMs << (attempt - 1));
+            }
+        }
+        logger.error("Batch of {} recipient(s) failed: {}", chunk.size(), result.getError());
+        return result;
+    }
+
+    /**
+     * Reserve the next request slot and sleep until it comes. Slots are intervalNanos apart, so
+     * concurrent senders together stay under the configured rate.
+     */
+    private void awaitRateLimit() throws InterruptedException {
+        long waitNanos;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(now, nextRequestAt);
+            nextRequestAt = slot + intervalNanos;
+            waitNanos = slot - now;
+        }
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    static String normalize(String email) {
+        return email == null ? "" : email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    static boolean isPlausibleAddress(String email) {
+        int at = email.indexOf('@');
+        return at > 0 && at == email.lastIndexOf('@') && at < email.length() - 1 && email.indexOf(' ') < 0;
+    }
+
+    public long getRequests() { return requests.get(); }
+    public long getRecipientsSent() { return recipientsSent.get(); }
+    public long getRecipientsFailed() { return recipientsFailed.get(); }
+}
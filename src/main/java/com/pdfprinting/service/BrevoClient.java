@@ -0,0 +1,219 @@
+package com.pdfprinting.service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.StringUtils;
+
+import com.pdfprinting.resilience.DependencyUnavailableException;
+import com.pdfprinting.resilience.ResilientDependency;
+
+/**
+ * Thin client for Brevo's transactional email API. It makes exactly one HTTP call per send and
+ * reports what happened; retrying is the caller's job (the outbox dispatcher, or BatchNotifier for
+ * batch sends). Calls go through the brevo ResilientDependency, so while Brevo is failing or
+ * throttling us a send fails at once as retryable instead of holding a thread. The URL is
+ * configurable so tests can point it at a local stub.
+ */
+@Service
+public class BrevoClient {
+
+    public static final int MAX_BATCH_VERSIONS = 1000;
+
+    private final String apiUrl;
+    private final String apiKey;
+    private final String fromEmail;
+    private final String fromName;
+    private final Duration requestTimeout;
+    private final HttpClient httpClient;
+    private final ResilientDependency brevo;
+    private final Spans spans;
+
+    public BrevoClient(@Value("${brevo.api-url:https://api.brevo.com/v3/smtp/email}") String apiUrl,
+                       @Value("${brevo.api.key:}") String apiKey,
+                       @Value("${app.mail.from-address:noreply@printforyou.com}") String fromEmail,
+                       @Value("${app.mail.from-name:Print For You}") String fromName,
+                       @Value("${brevo.timeout-ms:30000}") long timeoutMs,
+                       @Qualifier("brevoDependency") ResilientDependency brevo,
+                       Spans spans) {
+        this.brevo = brevo;
+        this.spans = spans;
+        this.apiUrl = apiUrl;
+        this.apiKey = apiKey;
+        this.fromEmail = fromEmail == null ? "" : fromEmail.trim();
+        this.fromName = fromName;
+        this.requestTimeout = Duration.ofMillis(timeoutMs);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+    }
+
+    /**
+     * Outcome of one API call. Retryable failures are network errors, 429 and 5xx; any other
+     * rejection will not succeed on a retry.
+     */
+    public static class SendResult {
+        private final boolean delivered;
+        private final boolean retryable;
+        private final boolean throttled;
+        private final List<String> messageIds;
+        private final String error;
+
+        private SendResult(boolean delivered, boolean retryable, boolean throttled, List<String> messageIds,
+                           String error) {
+            this.delivered = delivered;
+            this.retryable = retryable;
+            this.throttled = throttled;
+            this.messageIds = messageIds;
+            this.error = error;
+        }
+
+        public static SendResult delivered(String messageId) {
+            return new SendResult(true, false, false, messageId == null ? List.of() : List.of(messageId), null);
+        }
+        public static SendResult delivered(List<String> messageIds) { return new SendResult(true, false, false, messageIds, null); }
+        public static SendResult retryable(String error) { return new SendResult(false, true, false, List.of(), error); }
+        /** Refused by a rate limit (Brevo's or ours); Brevo itself is healthy */
+        public static SendResult throttled(String error) { return new SendResult(false, true, true, List.of(), error); }
+        public static SendResult rejected(String error) { return new SendResult(false, false, false, List.of(), error); }
+
+        public boolean isDelivered() { return delivered; }
+        public boolean isRetryable() { return retryable; }
+        public boolean isThrottled() { return throttled; }
+        public String getMessageId() { return messageIds.isEmpty() ? null : messageIds.get(0); }
+        /** For batch sends, one id per message version, in request order */
+        public List<String> getMessageIds() { return messageIds; }
+        public String getError() { return error; }
+    }
+
+    public SendResult send(String toEmail, String subject, String htmlContent, String textContent) {
+        JSONObject payload = message(subject, htmlContent, textContent);
+        payload.put("to", new JSONArray().put(new JSONObject().put("email", toEmail)));
+        return post(payload, 1);
+    }
+
+    /**
+     * Send the same message to many recipients in one call: each recipient gets its own message
+     * version, so nobody sees the others' addresses. Brevo accepts up to MAX_BATCH_VERSIONS
+     * versions per request and either accepts or rejects the call as a whole.
+     */
+    public SendResult sendBatch(List<String> toEmails, String subject, String htmlContent, String textContent) {
+        if (toEmails.size() > MAX_BATCH_VERSIONS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_VERSIONS + " recipients per batch");
+        }
+        JSONObject payload = message(subject, htmlContent, textContent);
+        JSONArray versions = new JSONArray();
+        for (String toEmail : toEmails) {
+            versions.put(new JSONObject().put("to", new JSONArray().put(new JSONObject().put("email", toEmail))));
+        }
+        payload.put("messageVersions", versions);
+        return post(payload, toEmails.size());
+    }
+
+    private JSONObject message(String subject, String htmlContent, String textContent) {
+        JSONObject payload = new JSONObject();
+        payload.put("sender", new JSONObject().put("email", fromEmail).put("name", fromName));
+        payload.put("subject", subject);
+        if (StringUtils.hasText(htmlContent)) {
+            payload.put("htmlContent", htmlContent);
+        }
+        if (StringUtils.hasText(textContent)) {
+            payload.put("textContent", textContent);
+        }
+        return payload;
+    }
+
+    // Traced as brevo.send, tagged with the recipient count, the HTTP status and the outcome
+    private SendResult post(JSONObject payload, int recipients) {
+        try (Spans.Scope span = spans.start("brevo.send")) {
+            span.tag("recipients", recipients);
+            SendResult result = post(payload);
+            span.tag("outcome", result.isDelivered() ? "delivered" : result.isThrottled() ? "throttled"
+                    : result.isRetryable() ? "retryable" : "rejected");
+            return result;
+        }
+    }
+
+    private SendResult post(JSONObject payload) {
+        try {
+            // Network errors and 5xx count against the circuit; 4xx (including 429) do not
+            return brevo.call(() -> exchange(payload), result -> result.isRetryable() && !result.isThrottled(),
+                    e -> true);
+        } catch (DependencyUnavailableException e) {
+            return SendResult.throttled(e.getMessage());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return SendResult.retryable("Interrupted");
+        } catch (Exception e) {
+            return SendResult.retryable(e.getClass().getSimpleName() + ": " + e.getMessage());
+        }
+    }
+
+    private SendResult exchange(JSONObject payload) throws Exception {
+        HttpResponse<String> response = httpClient.send(request(payload), HttpResponse.BodyHandlers.ofString());
+        int status = response.statusCode();
+        spans.tag("http.status", status);
+        // Brevo reports its remaining quota and the seconds until it resets on every response
+        response.headers().firstValue("x-sib-ratelimit-remaining").ifPresent(remaining ->
+                brevo.observeRemaining(headerValue(remaining), System.currentTimeMillis()
+                        + 1000 * response.headers().firstValue("x-sib-ratelimit-reset").map(BrevoClient::headerValue).orElse(1L)));
+        if (status / 100 == 2) {
+            return SendResult.delivered(messageIds(response.body()));
+        }
+        String error = "Brevo API error " + status + ": " + response.body();
+        if (status == 429) {
+            // Retry-After is in seconds; without one, back off for a second
+            long retryAfterSeconds = response.headers().firstValue("retry-after")
+                    .map(BrevoClient::headerValue).orElse(1L);
+            brevo.pauseFor(retryAfterSeconds * 1000);
+            return SendResult.throttled(error);
+        }
+        return status >= 500 ? SendResult.retryable(error) : SendResult.rejected(error);
+    }
+
+    // Non-negative integer header value; unparseable values are treated as 1
+    private static long headerValue(String value) {
+        try {
+            return Math.max(0, Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            return 1;
+        }
+    }
+
+    // {"messageId": "..."} for a single send, {"messageIds": [...]} for a batch
+    private static List<String> messageIds(String body) {
+        JSONObject json = new JSONObject(body);
+        JSONArray ids = json.optJSONArray("messageIds");
+        if (ids == null) {
+            String id = json.optString("messageId", null);
+            return id == null ? List.of() : List.of(id);
+        }
+        List<String> result = new ArrayList<>(ids.length());
+        for (int i = 0; i < ids.length(); i++) {
+            result.add(ids.optString(i));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    private HttpRequest request(JSONObject payload) {
+        return HttpRequest.newBuilder()
+                .uri(URI.create(apiUrl))
+                .header("accept", "application/json")
+                .header("api-key", apiKey)
+                .header("content-type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(payload.toString()))
+                .timeout(requestTimeout)
+                .build();
+    }
+}
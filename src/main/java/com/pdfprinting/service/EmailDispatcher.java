@@ -0,0 +1,345 @@
+package com.pdfprinting.service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.pdfprinting.model.OutboxEmail;
+import com.pdfprinting.repository.OutboxEmailRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Sends outbox emails off the request path. A drain claims due messages (one winner per message,
+ * even across instances) and hands them to a small pool of sender threads. Drains run when a
+ * message is committed, when a retry comes due and, as a safety net, on a fixed poll. Failed
+ * sends are retried with exponential backoff and jitter until email.outbox.max-attempts.
+ * Claimed rows of one fan-out are sent together through BatchNotifier, but each keeps its own
+ * status and retries. Each send is timed as email.dispatch by kind and outcome (sent, retry,
+ * failed, and partial for a fan-out that was only partly accepted).
+ */
+@Service
+public class EmailDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailDispatcher.class);
+    private static final long RETRY_WAKE_MARGIN_MS = 10;
+
+    @Autowired
+    private OutboxEmailRepository outboxRepository;
+
+    @Autowired
+    private BrevoClient brevoClient;
+
+    @Autowired
+    private BatchNotifier batchNotifier;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${email.outbox.dispatcher-threads:4}")
+    private int dispatcherThreads;
+
+    @Value("${email.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${email.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.backoff-base-ms:2000}")
+    private long backoffBaseMs;
+
+    @Value("${email.outbox.backoff-max-ms:600000}")
+    private long backoffMaxMs;
+
+    // A SENDING claim older than this belonged to a dispatcher that died
+    @Value("${email.outbox.claim-timeout-ms:300000}")
+    private long claimTimeoutMs;
+
+    @Value("${email.outbox.retention-days:30}")
+    private int retentionDays;
+
+    private ThreadPoolExecutor senders;
+    private ScheduledExecutorService timer;
+    private final AtomicBoolean drainQueued = new AtomicBoolean();
+
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadNumber = new AtomicInteger();
+        senders = new ThreadPoolExecutor(dispatcherThreads, dispatcherThreads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+                    Thread t = new Thread(r, "email-sender-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "email-dispatcher");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    void stop() {
+        timer.shutdownNow();
+        senders.shutdown();
+    }
+
+    /**
+     * Ask for a drain once the caller's transaction commits (immediately if there is none), so a
+     * freshly enqueued message goes out within milliseconds without waiting for the poll.
+     */
+    public void wakeUpAfterCommit() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wakeUp();
+                }
+            });
+        } else {
+            wakeUp();
+        }
+    }
+
+    public void wakeUp() {
+        // Coalesce bursts: one queued drain picks up everything that is due
+        if (drainQueued.compareAndSet(false, true)) {
+            timer.execute(() -> {
+                drainQueued.set(false);
+                drain();
+            });
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:5000}")
+    public void poll() {
+        LocalDateTime staleBefore = LocalDateTime.now().minus(Duration.ofMillis(claimTimeoutMs));
+        int requeued = outboxRepository.requeueStale(OutboxEmail.Status.SENDING, OutboxEmail.Status.PENDING, staleBefore);
+        if (requeued > 0) {
+            logger.warn("Requeued {} outbox email(s) abandoned mid-send", requeued);
+        }
+        drain();
+    }
+
+    /**
+     * Claim due messages and hand them to the senders; returns the number claimed.
+     */
+    public synchronized int drain() {
+        int claimed = 0;
+        try {
+            while (senders.getQueue().size() < batchSize) {
+                LocalDateTime now = LocalDateTime.now();
+                List<Long> due = outboxRepository.findDueIds(OutboxEmail.Status.PENDING, now, PageRequest.of(0, batchSize));
+                List<Long> claimedIds = new ArrayList<>();
+                for (Long id : due) {
+                    if (outboxRepository.claim(id, OutboxEmail.Status.PENDING, OutboxEmail.Status.SENDING, now) == 1) {
+                        inFlight.incrementAndGet();
+                        claimedIds.add(id);
+                    }
+                }
+                int claimedThisRound = claimedIds.size();
+                dispatch(claimedIds);
+                claimed += claimedThisRound;
+                if (due.size() < batchSize || claimedThisRound == 0) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            logger.error("Outbox drain failed", e);
+        }
+        return claimed;
+    }
+
+    // Fan-out rows are grouped by batch key so each group costs one Brevo request per batch
+    private void dispatch(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        List<OutboxEmail> emails;
+        try {
+            emails = outboxRepository.findAllById(ids);
+        } catch (RuntimeException e) {
+            // Left SENDING; the poll requeues them after the claim timeout
+            inFlight.addAndGet(-ids.size());
+            throw e;
+        }
+        inFlight.addAndGet(emails.size() - ids.size());
+        Map<String, List<OutboxEmail>> fanOuts = new LinkedHashMap<>();
+        for (OutboxEmail email : emails) {
+            if (email.getBatchKey() == null) {
+                senders.execute(() -> deliver(email));
+            } else {
+                fanOuts.computeIfAbsent(email.getBatchKey(), key -> new ArrayList<>()).add(email);
+            }
+        }
+        for (List<OutboxEmail> fanOut : fanOuts.values()) {
+            senders.execute(() -> deliverFanOut(fanOut));
+        }
+    }
+
+    private void deliver(OutboxEmail email) {
+        Long id = email.getId();
+        try {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            BrevoClient.SendResult result = brevoClient.send(
+                    email.getToEmail(), email.getSubject(), email.getHtmlContent(), email.getTextContent());
+            email.setAttempts(email.getAttempts() + 1);
+            long retryInMs = -1;
+            String outcome;
+
+            if (result.isDelivered()) {
+                email.setStatus(OutboxEmail.Status.SENT);
+                email.setSentAt(LocalDateTime.now());
+                email.setProviderMessageId(result.getMessageId());
+                email.setLastError(null);
+                sent.incrementAndGet();
+                outcome = "sent";
+                logger.info("{} email {} sent to {}", email.getKind(), id, email.getToEmail());
+            } else if (result.isRetryable() && email.getAttempts() < maxAttempts) {
+                long delayMs = backoffMs(email.getAttempts());
+                email.setStatus(OutboxEmail.Status.PENDING);
+                email.setNextAttemptAt(LocalDateTime.now().plus(Duration.ofMillis(delayMs)));
+                email.setLastError(truncate(result.getError()));
+                retried.incrementAndGet();
+                outcome = "retry";
+                logger.warn("{} email {} to {} failed (attempt {}/{}), retrying in {} ms: {}", email.getKind(), id,
+                        email.getToEmail(), email.getAttempts(), maxAttempts, delayMs, result.getError());
+                retryInMs = delayMs;
+            } else {
+                email.setStatus(OutboxEmail.Status.FAILED);
+                email.setLastError(truncate(result.getError()));
+                failed.incrementAndGet();
+                outcome = "failed";
+                logger.error("{} email {} to {} failed permanently after {} attempt(s): {}", email.getKind(), id,
+                        email.getToEmail(), email.getAttempts(), result.getError());
+            }
+            sample.stop(meterRegistry.timer("email.dispatch", "kind", String.valueOf(email.getKind()), "outcome", outcome));
+            outboxRepository.save(email);
+            if (retryInMs >= 0) {
+                // Once the row is back to PENDING; the margin keeps the wake-up from beating nextAttemptAt
+                timer.schedule(this::wakeUp, retryInMs + RETRY_WAKE_MARGIN_MS, TimeUnit.MILLISECONDS);
+            }
+        } catch (Exception e) {
+            // Left SENDING; the poll requeues it after the claim timeout
+            logger.error("Could not record delivery of outbox email {}", id, e);
+        } finally {
+            inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * Send one message to the recipients of a fan-out's claimed rows (they share subject and
+     * content) and settle each row from the report: accepted rows are sent, rejected ones failed,
+     * and transient failures go back to the queue together, to be retried as a group.
+     */
+    private void deliverFanOut(List<OutboxEmail> emails) {
+        OutboxEmail first = emails.get(0);
+        try {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            List<String> recipients = new ArrayList<>(emails.size());
+            for (OutboxEmail email : emails) {
+                recipients.add(email.getToEmail());
+            }
+            BatchNotifier.Report report = batchNotifier.send(
+                    recipients, first.getSubject(), first.getHtmlContent(), first.getTextContent());
+
+            int attempts = emails.stream().mapToInt(OutboxEmail::getAttempts).max().orElse(0) + 1;
+            long retryInMs = backoffMs(attempts);
+            LocalDateTime retryAt = LocalDateTime.now().plus(Duration.ofMillis(retryInMs));
+            boolean retrying = false;
+            for (OutboxEmail email : emails) {
+                email.setAttempts(email.getAttempts() + 1);
+                String error = report.getFailures().get(email.getToEmail());
+                if (error == null) {
+                    email.setStatus(OutboxEmail.Status.SENT);
+                    email.setSentAt(LocalDateTime.now());
+                    email.setLastError(null);
+                    sent.incrementAndGet();
+                } else if (report.isRetryable(email.getToEmail()) && email.getAttempts() < maxAttempts) {
+                    email.setStatus(OutboxEmail.Status.PENDING);
+                    email.setNextAttemptAt(retryAt);
+                    email.setLastError(truncate(error));
+                    retried.incrementAndGet();
+                    retrying = true;
+                } else {
+                    email.setStatus(OutboxEmail.Status.FAILED);
+                    email.setLastError(truncate(error));
+                    failed.incrementAndGet();
+                }
+            }
+            String outcome = !report.hasFailures() ? "sent" : report.getSent() > 0 ? "partial" : retrying ? "retry" : "failed";
+            sample.stop(meterRegistry.timer("email.dispatch", "kind", String.valueOf(first.getKind()), "outcome", outcome));
+            outboxRepository.saveAll(emails);
+            logger.info("{} fan-out {}: {} of {} sent in {} request(s)", first.getKind(), first.getBatchKey(),
+                    report.getSent(), emails.size(), report.getRequests());
+            if (retrying) {
+                timer.schedule(this::wakeUp, retryInMs + RETRY_WAKE_MARGIN_MS, TimeUnit.MILLISECONDS);
+            }
+        } catch (Exception e) {
+            // Left SENDING; the poll requeues them after the claim timeout
+            logger.error("Could not record delivery of {} outbox email(s) of fan-out {}", emails.size(),
+                    first.getBatchKey(), e);
+        } finally {
+            inFlight.addAndGet(-emails.size());
+        }
+    }
+
+    /**
+     * Exponential backoff with equal jitter: half the capped delay, plus a random share of the
+     * other half, so retries from a burst of failures spread out instead of arriving together.
+     */
+    long backoffMs(int attempts) {
+        long exponential = backoffBaseMs << Math.min(attempts - 1, 30);
+        long capped = Math.min(exponential < 0 ? backoffMaxMs : exponential, backoffMaxMs);
+        long half = capped / 2;
+        return half + ThreadLocalRandom.current().nextLong(half + 1);
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+
+    @Scheduled(cron = "${email.outbox.purge-cron:0 30 3 * * *}")
+    public void purgeSent() {
+        int purged = outboxRepository.deleteSentBefore(OutboxEmail.Status.SENT, LocalDateTime.now().minusDays(retentionDays));
+        if (purged > 0) {
+            logger.info("Purged {} sent outbox email(s) older than {} days", purged, retentionDays);
+        }
+    }
+
+    public long getSent() { return sent.get(); }
+    public long getRetried() { return retried.get(); }
+    public long getFailed() { return failed.get(); }
+    public int getInFlight() { return inFlight.get(); }
+}
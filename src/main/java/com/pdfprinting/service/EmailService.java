@@ -1,37 +1,52 @@
 package com.pdfprinting.service;
 
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 import org.thymeleaf.TemplateEngine;
 import org.thymeleaf.context.Context;
 
+import com.pdfprinting.model.OutboxEmail;
 import com.pdfprinting.model.User;
+import com.pdfprinting.repository.OutboxEmailRepository;
+
+/**
+ * Renders application emails and queues them in the outbox. Sending happens on EmailDispatcher's
+ * threads, so callers return as soon as the outbox row is written (in their own transaction, if
+ * they have one: a rolled-back registration sends nothing).
+ */
 @Service
 public class EmailService {
 
     private static final Logger logger = LoggerFactory.getLogger(EmailService.class);
-    private static final int MAX_RETRIES = 3;
-    private static final long RETRY_DELAY_MS = 2000;
-    private static final String BREVO_API_URL = "https://api.brevo.com/v3/smtp/email";
 
     @Autowired(required = false)
     private TemplateEngine templateEngine;
 
+    @Autowired
+    private OutboxEmailRepository outboxRepository;
+
+    @Autowired
+    private EmailDispatcher emailDispatcher;
+
+    @Autowired
+    private BrevoClient brevoClient;
+
+    @Autowired
+    private OtpEmailRenderer otpEmailRenderer;
+
     @Value("${app.base-url}")
     private String baseUrl;
 
@@ -41,16 +56,9 @@ public class EmailService {
     @Value("${app.mail.from-address:noreply@printforyou.com}")
     private String configuredFromEmail;
 
-    @Value("${app.mail.from-name:Print For You}")
-    private String fromName;
-
     @Value("${email.enabled:false}")
     private boolean emailEnabled;
 
-    private final HttpClient httpClient = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(30))
-            .build();
-
     public void logEmailConfiguration() {
         if (!logger.isInfoEnabled()) {
             return;
@@ -117,59 +125,27 @@ public class EmailService {
     }
 
     /**
-     * Send email using Brevo REST API directly
+     * Queue an email in the outbox; the dispatcher sends it after the caller's transaction commits.
      */
-    private boolean sendEmailViaBrevo(String toEmail, String subject, String htmlContent, String textContent) {
-        try {
-            JSONObject payload = new JSONObject();
-            
-            // Set sender
-            JSONObject sender = new JSONObject();
-            sender.put("email", resolveFromEmail());
-            sender.put("name", fromName);
-            payload.put("sender", sender);
-            
-            // Set recipient
-            JSONArray toArray = new JSONArray();
-            JSONObject recipient = new JSONObject();
-            recipient.put("email", toEmail);
-            toArray.put(recipient);
-            payload.put("to", toArray);
-            
-            // Set subject
-            payload.put("subject", subject);
-            
-            // Set content
-            if (StringUtils.hasText(htmlContent)) {
-                payload.put("htmlContent", htmlContent);
-            }
-            if (StringUtils.hasText(textContent)) {
-                payload.put("textContent", textContent);
-            }
-            
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(URI.create(BREVO_API_URL))
-                    .header("accept", "application/json")
-                    .header("api-key", brevoApiKey)
-                    .header("content-type", "application/json")
-                    .POST(HttpRequest.BodyPublishers.ofString(payload.toString()))
-                    .timeout(Duration.ofSeconds(30))
-                    .build();
-            
-            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
-            
-            if (response.statusCode() >= 200 && response.statusCode() < 300) {
-                logger.info("Email sent successfully via Brevo to {} - response: {}", toEmail, response.body());
-                return true;
-            } else {
-                logger.error("Brevo API error sending email to {}: {} - {}", toEmail, response.statusCode(), response.body());
-                return false;
-            }
-            
-        } catch (Exception e) {
-            logger.error("Error sending email via Brevo to {}: {}", toEmail, e.getMessage());
-            return false;
-        }
+    private OutboxEmail enqueue(String kind, String toEmail, String subject, String htmlContent, String textContent) {
+        return enqueue(kind, toEmail, subject, htmlContent, textContent, null);
+    }
+
+    private OutboxEmail enqueue(String kind, String toEmail, String subject, String htmlContent, String textContent,
+                                String batchKey) {
+        OutboxEmail email = new OutboxEmail(kind, toEmail, subject, htmlContent, textContent);
+        email.setBatchKey(batchKey);
+        email = outboxRepository.save(email);
+        emailDispatcher.wakeUpAfterCommit();
+        logger.info("Queued {} email {} for {}", kind, email.getId(), toEmail);
+        return email;
+    }
+
+    /**
+     * Recent outbox messages for an address, newest first (support view).
+     */
+    public List<OutboxEmail> getOutboxFor(String toEmail) {
+        return outboxRepository.findTop50ByToEmailOrderByCreatedAtDesc(toEmail);
     }
 
     public void sendVerificationEmail(User user) {
@@ -180,106 +156,104 @@ public class EmailService {
             return;
         }
 
-        Exception lastException = null;
-        
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-            try {
-                logger.info("Sending verification email to {} (attempt {}/{})", user.getEmail(), attempt, MAX_RETRIES);
-                
-                String htmlContent = null;
-                String textContent = null;
-                
-                if (templateEngine != null) {
-                    Context context = new Context();
-                    context.setVariable("user", user);
-                    context.setVariable("verificationUrl", baseUrl + "/verify-email?token=" + user.getVerificationToken());
-                    context.setVariable("baseUrl", baseUrl);
-                    htmlContent = templateEngine.process("email/verification", context);
-                } else {
-                    textContent = "Welcome to Print For You!\n\n" +
-                                "Please verify your email by clicking the following link:\n" +
-                                baseUrl + "/verify-email?token=" + user.getVerificationToken() + "\n\n" +
-                                "Thank you!";
-                }
-                
-                boolean success = sendEmailViaBrevo(
-                    user.getEmail(),
-                    "Welcome to Print For You - Please Verify Your Email",
-                    htmlContent,
-                    textContent
-                );
-                
-                if (success) {
-                    logger.info("Verification email sent successfully to {}", user.getEmail());
-                    return;
-                }
-                throw new RuntimeException("Brevo API returned failure");
-                
-            } catch (Exception e) {
-                lastException = e;
-                logger.warn("Failed to send verification email to {} (attempt {}/{}): {}", 
-                          user.getEmail(), attempt, MAX_RETRIES, e.getMessage());
-                
-                if (attempt < MAX_RETRIES) {
-                    try {
-                        Thread.sleep(RETRY_DELAY_MS * attempt);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        logger.error("Email sending interrupted for {}", user.getEmail());
-                        return;
-                    }
-                }
-            }
+        String htmlContent = null;
+        String textContent = null;
+
+        if (templateEngine != null) {
+            Context context = new Context();
+            context.setVariable("user", user);
+            context.setVariable("verificationUrl", baseUrl + "/verify-email?token=" + user.getVerificationToken());
+            context.setVariable("baseUrl", baseUrl);
+            htmlContent = templateEngine.process("email/verification", context);
+        } else {
+            textContent = "Welcome to Print For You!\n\n" +
+                        "Please verify your email by clicking the following link:\n" +
+                        baseUrl + "/verify-email?token=" + user.getVerificationToken() + "\n\n" +
+                        "Thank you!";
         }
-        
-        logger.error("Failed to send verification email to {} after {} attempts: {}", 
-                    user.getEmail(), MAX_RETRIES, 
-                    lastException != null ? lastException.getMessage() : "Unknown error");
+
+        enqueue("VERIFICATION", user.getEmail(),
+            "Welcome to Print For You - Please Verify Your Email",
+            htmlContent,
+            textContent);
     }
 
-    public void sendBatchProcessedNotification(String batchName, int fileCount, List<String> studentEmails) {
+    /**
+     * Queue the "files processed" email for every student in a processed batch, and a summary for
+     * the admin, in one transaction. The student rows share a batch key, so the dispatcher sends
+     * them through Brevo's batch API (see BatchNotifier) while each row keeps its own status and
+     * retries. Duplicate addresses are queued once; malformed ones are listed in the summary.
+     * Returns the number of students queued.
+     */
+    @Transactional
+    public int sendBatchProcessedNotification(String batchName, int fileCount, List<String> studentEmails) {
         Optional<String> validationError = validateEmailConfiguration();
         if (validationError.isPresent()) {
             logger.warn("Email not configured ({}). Skipping batch notification for: {}",
                     validationError.get(), batchName);
-            return;
+            return 0;
         }
 
-        try {
-            logger.info("Sending batch processed notification for {} with {} files", batchName, fileCount);
-            
-            String htmlContent = null;
-            String textContent = null;
-            
-            if (templateEngine != null) {
-                Context context = new Context();
-                context.setVariable("batchName", batchName);
-                context.setVariable("fileCount", fileCount);
-                context.setVariable("studentEmails", studentEmails);
-                context.setVariable("processedAt", java.time.LocalDateTime.now());
-                htmlContent = templateEngine.process("email/batch-processed", context);
+        Set<String> recipients = new LinkedHashSet<>();
+        Map<String, String> invalid = new LinkedHashMap<>();
+        for (String email : studentEmails) {
+            String normalized = BatchNotifier.normalize(email);
+            if (BatchNotifier.isPlausibleAddress(normalized)) {
+                recipients.add(normalized);
             } else {
-                textContent = "Batch Processed: " + batchName + "\n\n" +
-                            "Files processed: " + fileCount + "\n" +
-                            "Student emails: " + String.join(", ", studentEmails) + "\n" +
-                            "Processed at: " + java.time.LocalDateTime.now();
-            }
-            
-            String fromEmail = resolveFromEmail();
-            boolean success = sendEmailViaBrevo(
-                fromEmail, // Send to admin
-                "Batch Processed: " + batchName + " (" + fileCount + " files)",
-                htmlContent,
-                textContent
-            );
-            
-            if (success) {
-                logger.info("Batch processed notification sent successfully for {}", batchName);
+                invalid.put(String.valueOf(email), BatchNotifier.INVALID_ADDRESS);
             }
-            
-        } catch (Exception e) {
-            logger.error("Failed to send batch processed notification for {}: {}", batchName, e.getMessage());
         }
+
+        java.time.LocalDateTime processedAt = java.time.LocalDateTime.now();
+        String studentHtml = null;
+        String studentText = null;
+        if (templateEngine != null) {
+            Context context = new Context();
+            context.setVariable("batchName", batchName);
+            context.setVariable("processedAt", processedAt);
+            context.setVariable("baseUrl", baseUrl);
+            studentHtml = templateEngine.process("email/files-processed", context);
+        } else {
+            studentText = "Your files for " + batchName + " have been merged and sent for printing.\n\n" +
+                        "Processed at: " + processedAt + "\n" +
+                        "Dashboard: " + baseUrl + "/student/dashboard";
+        }
+        String batchKey = UUID.randomUUID().toString();
+        for (String recipient : recipients) {
+            enqueue("FILES_PROCESSED", recipient, "Your files have been processed - " + batchName,
+                    studentHtml, studentText, batchKey);
+        }
+        logger.info("Batch {}: queued notifications for {} of {} student(s)", batchName, recipients.size(),
+                studentEmails.size());
+
+        String htmlContent = null;
+        String textContent = null;
+
+        if (templateEngine != null) {
+            Context context = new Context();
+            context.setVariable("batchName", batchName);
+            context.setVariable("fileCount", fileCount);
+            context.setVariable("studentEmails", studentEmails);
+            context.setVariable("notifiedCount", recipients.size());
+            context.setVariable("notificationFailures", invalid);
+            context.setVariable("processedAt", processedAt);
+            context.setVariable("baseUrl", baseUrl);
+            htmlContent = templateEngine.process("email/batch-processed", context);
+        } else {
+            textContent = "Batch Processed: " + batchName + "\n\n" +
+                        "Files processed: " + fileCount + "\n" +
+                        "Student emails: " + String.join(", ", studentEmails) + "\n" +
+                        "Notifications queued: " + recipients.size() + " of " + studentEmails.size() + "\n" +
+                        (invalid.isEmpty() ? "" : "Not notified: " + invalid + "\n") +
+                        "Processed at: " + processedAt;
+        }
+
+        enqueue("BATCH_PROCESSED", resolveFromEmail(), // Send to admin
+            "Batch Processed: " + batchName + " (" + fileCount + " files)",
+            htmlContent,
+            textContent);
+        return recipients.size();
     }
 
     public void sendWelcomeEmail(User user) {
@@ -291,8 +265,6 @@ public class EmailService {
         }
 
         try {
-            logger.info("Sending welcome email to {}", user.getEmail());
-            
             String htmlContent = null;
             String textContent = null;
             
@@ -310,19 +282,13 @@ public class EmailService {
                             "Thank you!";
             }
             
-            boolean success = sendEmailViaBrevo(
-                user.getEmail(),
+            enqueue("WELCOME", user.getEmail(),
                 "Welcome to Print For You - Account Activated!",
                 htmlContent,
-                textContent
-            );
-            
-            if (success) {
-                logger.info("Welcome email sent successfully to {}", user.getEmail());
-            }
+                textContent);
             
         } catch (Exception e) {
-            logger.error("Failed to send welcome email to {}: {}", user.getEmail(), e.getMessage());
+            logger.error("Failed to queue welcome email to {}: {}", user.getEmail(), e.getMessage());
         }
     }
 
@@ -335,8 +301,6 @@ public class EmailService {
         }
 
         try {
-            logger.info("Sending password reset email to {}", user.getEmail());
-            
             String htmlContent = null;
             String textContent = null;
             
@@ -354,22 +318,20 @@ public class EmailService {
                             "Thank you!";
             }
             
-            boolean success = sendEmailViaBrevo(
-                user.getEmail(),
+            enqueue("PASSWORD_RESET", user.getEmail(),
                 "Print For You - Password Reset Request",
                 htmlContent,
-                textContent
-            );
-            
-            if (success) {
-                logger.info("Password reset email sent successfully to {}", user.getEmail());
-            }
+                textContent);
             
         } catch (Exception e) {
-            logger.error("Failed to send password reset email to {}: {}", user.getEmail(), e.getMessage());
+            logger.error("Failed to queue password reset email to {}: {}", user.getEmail(), e.getMessage());
         }
     }
 
+    /**
+     * Sends a test email synchronously (startup check and the email test endpoint), bypassing the
+     * outbox so the caller learns whether Brevo accepted it.
+     */
     public boolean testEmailConfiguration() {
         Optional<String> validationError = validateEmailConfiguration();
         if (validationError.isPresent()) {
@@ -378,87 +340,35 @@ public class EmailService {
             return false;
         }
 
-        try {
-            logger.info("Testing email configuration with Brevo API...");
-            
-            String fromEmail = resolveFromEmail();
-            String textContent = "This is a test email to verify that the Brevo email configuration is working correctly.\n\n" +
-                               "If you receive this email, the email system is properly configured.\n\n" +
-                               "Timestamp: " + java.time.LocalDateTime.now();
-            
-            boolean success = sendEmailViaBrevo(
-                fromEmail, // Send test email to self
-                "Print For You - Email Configuration Test",
-                null,
-                textContent
-            );
-            
-            if (success) {
-                logger.info("Test email sent successfully via Brevo");
-            }
-            return success;
-            
-        } catch (Exception e) {
-            logger.error("Email configuration test failed: {}", e.getMessage());
-            return false;
+        logger.info("Testing email configuration with Brevo API...");
+
+        String fromEmail = resolveFromEmail();
+        String textContent = "This is a test email to verify that the Brevo email configuration is working correctly.\n\n" +
+                           "If you receive this email, the email system is properly configured.\n\n" +
+                           "Timestamp: " + java.time.LocalDateTime.now();
+
+        BrevoClient.SendResult result = brevoClient.send(
+            fromEmail, // Send test email to self
+            "Print For You - Email Configuration Test",
+            null,
+            textContent
+        );
+
+        if (result.isDelivered()) {
+            logger.info("Test email sent successfully via Brevo");
+        } else {
+            logger.error("Email configuration test failed: {}", result.getError());
         }
+        return result.isDelivered();
     }
 
-    @Async
     public void sendOtpEmail(User user) {
-        Optional<String> validationError = validateEmailConfiguration();
-        if (validationError.isPresent()) {
-            logger.warn("Email not configured ({}). Skipping OTP email for user: {}",
-                    validationError.get(), user.getEmail());
-            return;
-        }
-
-        Exception lastException = null;
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-            try {
-                logger.info("Sending OTP email to {} via Brevo (attempt {}/{})", user.getEmail(), attempt, MAX_RETRIES);
-                
-                String htmlContent = "<html><body>" +
-                    "<h2>Your OTP for Print For You Registration</h2>" +
-                    "<p>Your One-Time Password (OTP) is:</p>" +
-                    "<h1 style='color: #4CAF50; font-size: 32px; letter-spacing: 5px;'>" + user.getOtp() + "</h1>" +
-                    "<p>This OTP is valid for <strong>10 minutes</strong>.</p>" +
-                    "<p>If you did not request this OTP, please ignore this email.</p>" +
-                    "<br><p>Thank you,<br>Print For You Team</p>" +
-                    "</body></html>";
-                
-                String textContent = "Your OTP for Print For You Registration\n\n" +
-                    "Your One-Time Password (OTP) is: " + user.getOtp() + "\n\n" +
-                    "This OTP is valid for 10 minutes.\n\n" +
-                    "If you did not request this OTP, please ignore this email.\n\n" +
-                    "Thank you,\nPrint For You Team";
-                
-                boolean success = sendEmailViaBrevo(
-                    user.getEmail(),
-                    "Your OTP for Print For You Registration",
-                    htmlContent,
-                    textContent
-                );
-                
-                if (success) {
-                    logger.info("OTP email sent successfully to {} via Brevo", user.getEmail());
-                    return;
-                }
-                throw new RuntimeException("Brevo API returned failure");
-                
-            } catch (Exception e) {
-                lastException = e;
-                logger.error("Failed to send OTP email to {}: {}", user.getEmail(), e.getMessage());
-                try { Thread.sleep(RETRY_DELAY_MS); } catch (InterruptedException ignored) { Thread.currentThread().interrupt(); }
-            }
-        }
-        if (lastException != null) {
-            logger.error("Giving up on sending OTP email to {} after {} attempts", user.getEmail(), MAX_RETRIES);
-        }
+        sendOtpEmailForRegistration(user.getEmail(), user.getOtp());
     }
 
     /**
      * Send OTP email for pending registration (before user is created)
+     * @return whether the email was queued
      */
     public boolean sendOtpEmailForRegistration(String email, String otp) {
         Optional<String> validationError = validateEmailConfiguration();
@@ -468,47 +378,16 @@ public class EmailService {
             return false;
         }
 
-        Exception lastException = null;
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-            try {
-                logger.info("Sending registration OTP email to {} via Brevo (attempt {}/{})", email, attempt, MAX_RETRIES);
-                
-                String htmlContent = "<html><body>" +
-                    "<h2>Your OTP for Print For You Registration</h2>" +
-                    "<p>Your One-Time Password (OTP) is:</p>" +
-                    "<h1 style='color: #4CAF50; font-size: 32px; letter-spacing: 5px;'>" + otp + "</h1>" +
-                    "<p>This OTP is valid for <strong>10 minutes</strong>.</p>" +
-                    "<p>If you did not request this OTP, please ignore this email.</p>" +
-                    "<br><p>Thank you,<br>Print For You Team</p>" +
-                    "</body></html>";
-                
-                String textContent = "Your OTP for Print For You Registration\n\n" +
-                    "Your One-Time Password (OTP) is: " + otp + "\n\n" +
-                    "This OTP is valid for 10 minutes.\n\n" +
-                    "If you did not request this OTP, please ignore this email.\n\n" +
-                    "Thank you,\nPrint For You Team";
-                
-                boolean success = sendEmailViaBrevo(
-                    email,
-                    "Your OTP for Print For You Registration",
-                    htmlContent,
-                    textContent
-                );
-                
-                if (success) {
-                    logger.info("Registration OTP email sent successfully to {} via Brevo", email);
-                    return true;
-                }
-                throw new RuntimeException("Brevo API returned failure");
-                
-            } catch (Exception e) {
-                lastException = e;
-                logger.error("Failed to send registration OTP email to {}: {}", email, e.getMessage());
-                try { Thread.sleep(RETRY_DELAY_MS); } catch (InterruptedException ignored) { Thread.currentThread().interrupt(); }
-            }
+        String htmlContent = otpEmailRenderer.renderHtml(otp);
+        String textContent = otpEmailRenderer.renderText(otp);
+
+        try {
+            enqueue("OTP", email, "Your OTP for Print For You Registration", htmlContent, textContent);
+            return true;
+        } catch (Exception e) {
+            logger.error("Failed to queue OTP email to {}: {}", email, e.getMessage());
+            return false;
         }
-        logger.error("Giving up on sending registration OTP email to {} after {} attempts", email, MAX_RETRIES);
-        return false;
     }
 
     public void sendSystemNotification(String subject, String content) {
@@ -520,24 +399,15 @@ public class EmailService {
         }
 
         try {
-            logger.info("Sending system notification: {}", subject);
-            
-            String fromEmail = resolveFromEmail();
             String textContent = content + "\n\nTimestamp: " + java.time.LocalDateTime.now();
             
-            boolean success = sendEmailViaBrevo(
-                fromEmail, // Send to admin
+            enqueue("SYSTEM", resolveFromEmail(), // Send to admin
                 "Print For You - " + subject,
                 null,
-                textContent
-            );
-            
-            if (success) {
-                logger.info("System notification sent successfully via Brevo");
-            }
+                textContent);
             
         } catch (Exception e) {
-            logger.error("Failed to send system notification: {}", e.getMessage());
+            logger.error("Failed to queue system notification: {}", e.getMessage());
         }
     }
 }
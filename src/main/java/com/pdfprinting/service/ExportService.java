@@ -0,0 +1,230 @@
+package com.pdfprinting.service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.hibernate.jpa.HibernateHints;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+import com.pdfprinting.model.PdfUpload;
+import com.pdfprinting.model.Transaction;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+
+/**
+ * Streams transactions and uploads as CSV straight from a database cursor.
+ * Rows are read as scalar projections (no managed entities), so the persistence
+ * context does not grow; with a cursor-fetching datasource (useCursorFetch=true on MySQL)
+ * memory stays flat regardless of the number of rows.
+ */
+@Service
+public class ExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportService.class);
+
+    private static final DateTimeFormatter TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    // JDBC fetch size for export cursors. MySQL Connector/J only honours it with useCursorFetch=true
+    // in the datasource URL; without it the driver buffers the whole result set in memory.
+    @Value("${export.fetch-size:500}")
+    private int fetchSize;
+
+    @Value("${spring.datasource.url:}")
+    private String datasourceUrl;
+
+    @PostConstruct
+    void checkCursorFetch() {
+        if (datasourceUrl.startsWith("jdbc:mysql:") && !datasourceUrl.contains("useCursorFetch=true")) {
+            logger.warn("spring.datasource.url has no useCursorFetch=true: CSV exports will be buffered in memory by the MySQL driver");
+        }
+    }
+
+    /**
+     * Export filters - every field is optional
+     */
+    public static class ExportFilter {
+        private LocalDate from;
+        private LocalDate to;
+        private String academicYear;
+        private String branch;
+        private String division;
+        private String semester;
+        private String batch;
+        private Transaction.TransactionType transactionType;
+        private PdfUpload.PrintType printType;
+
+        public LocalDate getFrom() { return from; }
+        public void setFrom(LocalDate from) { this.from = from; }
+
+        public LocalDate getTo() { return to; }
+        public void setTo(LocalDate to) { this.to = to; }
+
+        public String getAcademicYear() { return academicYear; }
+        public void setAcademicYear(String academicYear) { this.academicYear = academicYear; }
+
+        public String getBranch() { return branch; }
+        public void setBranch(String branch) { this.branch = branch; }
+
+        public String getDivision() { return division; }
+        public void setDivision(String division) { this.division = division; }
+
+        public String getSemester() { return semester; }
+        public void setSemester(String semester) { this.semester = semester; }
+
+        public String getBatch() { return batch; }
+        public void setBatch(String batch) { this.batch = batch; }
+
+        public Transaction.TransactionType getTransactionType() { return transactionType; }
+        public void setTransactionType(Transaction.TransactionType transactionType) { this.transactionType = transactionType; }
+
+        public PdfUpload.PrintType getPrintType() { return printType; }
+        public void setPrintType(PdfUpload.PrintType printType) { this.printType = printType; }
+    }
+
+    /**
+     * Write all matching transactions as CSV. Container filters apply to the transaction's user.
+     */
+    @Transactional(readOnly = true)
+    public void writeTransactionsCsv(ExportFilter filter, OutputStream out) throws IOException {
+        StringBuilder jpql = new StringBuilder(
+            "select t.id, t.createdAt, u.email, u.name, u.academicYear, u.branch, u.division, u.semester, u.batch, " +
+            "t.type, t.status, t.amount, t.balanceAfter, t.referenceId, t.description " +
+            "from Transaction t join t.user u where 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        appendDateRange(jpql, params, "t.createdAt", filter);
+        appendContainer(jpql, params, "u", filter);
+        if (filter.getTransactionType() != null) {
+            jpql.append(" and t.type = :type");
+            params.put("type", filter.getTransactionType());
+        }
+        jpql.append(" order by t.id");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("id,created_at,email,name,academic_year,branch,division,semester,batch," +
+                     "type,status,amount,balance_after,reference_id,description\n");
+        try (Stream<Object[]> rows = stream(jpql.toString(), params)) {
+            rows.forEach(row -> writeRow(writer, row));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    /**
+     * Write all matching uploads as CSV.
+     */
+    @Transactional(readOnly = true)
+    public void writeUploadsCsv(ExportFilter filter, OutputStream out) throws IOException {
+        StringBuilder jpql = new StringBuilder(
+            "select p.id, p.uploadedAt, u.email, u.name, u.rollNumber, p.academicYear, p.branch, p.division, " +
+            "p.semester, p.batch, p.originalFileName, p.printType, p.status, p.pageCount, p.billedPageCount, " +
+            "p.copyCount, p.totalCost, p.fileSize " +
+            "from PdfUpload p join p.user u where 1 = 1");
+        Map<String, Object> params = new HashMap<>();
+        appendDateRange(jpql, params, "p.uploadedAt", filter);
+        appendContainer(jpql, params, "p", filter);
+        if (filter.getPrintType() != null) {
+            jpql.append(" and p.printType = :type");
+            params.put("type", filter.getPrintType());
+        }
+        jpql.append(" order by p.id");
+
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writer.write("id,uploaded_at,email,name,roll_number,academic_year,branch,division,semester,batch," +
+                     "file_name,print_type,status,page_count,billed_page_count,copy_count,total_cost,file_size\n");
+        try (Stream<Object[]> rows = stream(jpql.toString(), params)) {
+            rows.forEach(row -> writeRow(writer, row));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.flush();
+    }
+
+    private Stream<Object[]> stream(String jpql, Map<String, Object> params) {
+        TypedQuery<Object[]> query = entityManager.createQuery(jpql, Object[].class);
+        params.forEach(query::setParameter);
+        query.setHint(HibernateHints.HINT_FETCH_SIZE, fetchSize);
+        query.setHint(HibernateHints.HINT_READ_ONLY, true);
+        return query.getResultStream();
+    }
+
+    private void appendDateRange(StringBuilder jpql, Map<String, Object> params, String column, ExportFilter filter) {
+        if (filter.getFrom() != null) {
+            jpql.append(" and ").append(column).append(" >= :fromDate");
+            params.put("fromDate", filter.getFrom().atStartOfDay());
+        }
+        if (filter.getTo() != null) {
+            // Inclusive end date
+            jpql.append(" and ").append(column).append(" < :toDate");
+            params.put("toDate", filter.getTo().plusDays(1).atStartOfDay());
+        }
+    }
+
+    private void appendContainer(StringBuilder jpql, Map<String, Object> params, String alias, ExportFilter filter) {
+        appendEquals(jpql, params, alias + ".academicYear", "academicYear", filter.getAcademicYear());
+        appendEquals(jpql, params, alias + ".branch", "branch", filter.getBranch());
+        appendEquals(jpql, params, alias + ".division", "division", filter.getDivision());
+        appendEquals(jpql, params, alias + ".semester", "semester", filter.getSemester());
+        appendEquals(jpql, params, alias + ".batch", "batch", filter.getBatch());
+    }
+
+    private void appendEquals(StringBuilder jpql, Map<String, Object> params, String column, String name, String value) {
+        if (StringUtils.hasText(value)) {
+            jpql.append(" and ").append(column).append(" = :").append(name);
+            params.put(name, value.trim());
+        }
+    }
+
+    private void writeRow(Writer writer, Object[] row) {
+        try {
+            for (int i = 0; i < row.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(csvValue(row[i]));
+            }
+            writer.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String csvValue(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value instanceof LocalDateTime time
+            ? time.format(TIMESTAMP_FORMAT)
+            : value.toString();
+        // Neutralise spreadsheet formulas in user-supplied text
+        if (!text.isEmpty() && "=+-@".indexOf(text.charAt(0)) >= 0 && !(value instanceof Number)) {
+            text = "'" + text;
+        }
+        if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+            return '"' + text.replace("\"", "\"\"") + '"';
+        }
+        return text;
+    }
+}
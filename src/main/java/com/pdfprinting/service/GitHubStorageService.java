@@ -1,18 +1,38 @@
 package com.pdfprinting.service;
 
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.Base64;
 import java.util.List;
+import java.util.Map;
 
+import org.kohsuke.github.AbuseLimitHandler;
+import org.kohsuke.github.GHRateLimit;
 import org.kohsuke.github.GHRepository;
 import org.kohsuke.github.GitHub;
 import org.kohsuke.github.GitHubBuilder;
+import org.kohsuke.github.HttpException;
+import org.kohsuke.github.RateLimitHandler;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.pdfprinting.resilience.DependencyUnavailableException;
+import com.pdfprinting.resilience.ResilientDependency;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/**
+ * Stores uploaded PDFs in a GitHub repository. Every call goes through the github
+ * ResilientDependency: while GitHub is failing or our quota is spent, calls fail at once rather
+ * than sleeping through retries. The client reports quota problems instead of waiting them out
+ * itself; X-RateLimit-Remaining and Retry-After feed the rate limiter.
+ */
 @Service
 public class GitHubStorageService {
 
@@ -26,6 +46,24 @@ public class GitHubStorageService {
     @Value("${github.repository}")
     private String repositoryName;
 
+    @Autowired
+    @Qualifier("githubDependency")
+    private ResilientDependency github;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Spans spans;
+
+    private volatile GitHub gitHub;
+    private volatile GHRepository repository;
+
+    @FunctionalInterface
+    private interface RepositoryCall<T> {
+        T apply(GHRepository repository) throws Exception;
+    }
+
     private GitHub getGitHub() throws IOException {
         if (githubToken == null || githubToken.trim().isEmpty() || githubToken.equals("your-github-token")) {
             throw new IOException("GitHub token is not configured. Please set GITHUB_TOKEN environment variable.");
@@ -35,211 +73,243 @@ public class GitHubStorageService {
             throw new IOException("GitHub repository is not configured. Please set GITHUB_REPOSITORY environment variable.");
         }
         
-        return new GitHubBuilder().withOAuthToken(githubToken).build();
+        GitHub client = gitHub;
+        if (client == null) {
+            // Fail on rate limits instead of the library's default of sleeping until the reset
+            client = new GitHubBuilder().withOAuthToken(githubToken)
+                .withRateLimitHandler(RateLimitHandler.FAIL)
+                .withAbuseLimitHandler(AbuseLimitHandler.FAIL)
+                .build();
+            gitHub = client;
+        }
+        return client;
     }
 
-    public String uploadFile(MultipartFile file, String filename, String batch) throws Exception {
-        Exception lastException = null;
-        
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
+    private GHRepository getRepository() throws IOException {
+        GHRepository repo = repository;
+        if (repo == null) {
+            repo = getGitHub().getRepository(repositoryName);
+            repository = repo;
+        }
+        return repo;
+    }
+
+    /**
+     * Run one GitHub operation with retries, timed as github.operation with its outcome: success,
+     * failure, or unavailable when the resilience guard refused it. Traced as a github.{operation}
+     * span tagged with the path and file size, with an event per retry.
+     */
+    private <T> T withRetries(String operation, String path, String description, RepositoryCall<T> call)
+            throws Exception {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "failure";
+        try (Spans.Scope span = spans.start("github." + operation).tag("github.path", path)) {
             try {
-                logger.info("Attempting to upload file {} to GitHub (attempt {}/{})", filename, attempt, MAX_RETRIES);
-                
-                GitHub github = getGitHub();
-                GHRepository repository = github.getRepository(repositoryName);
-                
-                // Create path: uploads/batch/filename
-                String path = "uploads/" + sanitizeBatchName(batch) + "/" + filename;
-                
-                // Convert file to base64
-                byte[] fileContent = file.getBytes();
-                String base64Content = Base64.getEncoder().encodeToString(fileContent);
-                
-                // Check if file already exists
-                try {
-                    repository.getFileContent(path);
-                    // File exists, create unique name
-                    String baseName = filename.substring(0, filename.lastIndexOf('.'));
-                    String extension = filename.substring(filename.lastIndexOf('.'));
-                    path = "uploads/" + sanitizeBatchName(batch) + "/" + baseName + "_" + System.currentTimeMillis() + extension;
-                    logger.info("File exists, using unique path: {}", path);
-                } catch (Exception e) {
-                    // File doesn't exist, continue with original path
-                }
-                
-                // Upload to GitHub
-                repository.createContent()
-                    .content(base64Content)
-                    .path(path)
-                    .message("Upload PDF: " + file.getOriginalFilename() + " from " + batch)
-                    .commit();
-                
-                logger.info("Successfully uploaded file {} to GitHub at path {}", filename, path);
-                return path;
-                
+                T result = retrying(operation, description, call);
+                outcome = "success";
+                return result;
             } catch (Exception e) {
-                lastException = e;
-                logger.warn("Upload attempt {}/{} failed for file {}: {}", attempt, MAX_RETRIES, filename, e.getMessage());
-                
-                if (attempt < MAX_RETRIES) {
-                    try {
-                        Thread.sleep(RETRY_DELAY_MS * attempt); // Exponential backoff
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new Exception("Upload interrupted", ie);
-                    }
+                if (e.getCause() instanceof DependencyUnavailableException) {
+                    outcome = "unavailable";
                 }
+                span.tag("outcome", outcome).error(e);
+                throw e;
             }
+        } finally {
+            sample.stop(meterRegistry.timer("github.operation", "operation", operation, "outcome", outcome));
         }
-        
-        throw new Exception("Failed to upload file to GitHub after " + MAX_RETRIES + " attempts: " + 
-                          (lastException != null ? lastException.getMessage() : "Unknown error"));
     }
-    
+
     /**
-     * Upload file from byte array (used for modified PDFs like duplex with added blank page)
+     * Only outages (network errors, 5xx) are retried; a refusal from the resilience guard or a
+     * rate limit fails straight away, and so does a 4xx.
      */
-    public String uploadFileBytes(byte[] fileContent, String filename, String batch) throws Exception {
+    private <T> T retrying(String operation, String description, RepositoryCall<T> call) throws Exception {
         Exception lastException = null;
         
         for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
             try {
-                logger.info("Attempting to upload file bytes {} to GitHub (attempt {}/{})", filename, attempt, MAX_RETRIES);
-                
-                GitHub github = getGitHub();
-                GHRepository repository = github.getRepository(repositoryName);
-                
-                // Create path: uploads/batch/filename
-                String path = "uploads/" + sanitizeBatchName(batch) + "/" + filename;
-                
-                // Convert bytes to base64
-                String base64Content = Base64.getEncoder().encodeToString(fileContent);
-                
-                // Check if file already exists
-                try {
-                    repository.getFileContent(path);
-                    // File exists, create unique name
-                    String baseName = filename.substring(0, filename.lastIndexOf('.'));
-                    String extension = filename.substring(filename.lastIndexOf('.'));
-                    path = "uploads/" + sanitizeBatchName(batch) + "/" + baseName + "_" + System.currentTimeMillis() + extension;
-                    logger.info("File exists, using unique path: {}", path);
-                } catch (Exception e) {
-                    // File doesn't exist, continue with original path
-                }
-                
-                // Upload to GitHub
-                repository.createContent()
-                    .content(base64Content)
-                    .path(path)
-                    .message("Upload PDF: " + filename + " from " + batch)
-                    .commit();
-                
-                logger.info("Successfully uploaded file bytes {} to GitHub at path {}", filename, path);
-                return path;
+                logger.info("Attempting to {} (attempt {}/{})", description, attempt, MAX_RETRIES);
+                GHRepository repo = getRepository();
+                return github.call(() -> {
+                    try {
+                        return call.apply(repo);
+                    } finally {
+                        observeQuota();
+                    }
+                }, result -> false, GitHubStorageService::isOutage);
                 
+            } catch (DependencyUnavailableException e) {
+                throw new Exception("GitHub is unavailable (" + e.getMessage() + "); try again in " +
+                    Math.max(1, e.getRetryAfterMs() / 1000) + "s", e);
             } catch (Exception e) {
                 lastException = e;
-                logger.warn("Upload bytes attempt {}/{} failed for file {}: {}", attempt, MAX_RETRIES, filename, e.getMessage());
+                observeRateLimitResponse(e);
+                logger.warn("Attempt {}/{} to {} failed: {}", attempt, MAX_RETRIES, description, e.getMessage());
                 
+                if (!isOutage(e)) {
+                    break;
+                }
                 if (attempt < MAX_RETRIES) {
+                    meterRegistry.counter("github.retries", "operation", operation).increment();
+                    spans.event("retry");
                     try {
                         Thread.sleep(RETRY_DELAY_MS * attempt);
                     } catch (InterruptedException ie) {
                         Thread.currentThread().interrupt();
-                        throw new Exception("Upload interrupted", ie);
+                        throw new Exception("Interrupted while trying to " + description, ie);
                     }
                 }
             }
         }
         
-        throw new Exception("Failed to upload file bytes to GitHub after " + MAX_RETRIES + " attempts: " + 
+        throw new Exception("Failed to " + description + ": " + 
                           (lastException != null ? lastException.getMessage() : "Unknown error"));
     }
 
-    public void deleteFile(String path) throws Exception {
-        Exception lastException = null;
-        
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-            try {
-                logger.info("Attempting to delete file {} from GitHub (attempt {}/{})", path, attempt, MAX_RETRIES);
-                
-                GitHub github = getGitHub();
-                GHRepository repository = github.getRepository(repositoryName);
-                
-                // Get file content to get SHA
-                var content = repository.getFileContent(path);
-                
-                // Delete file
-                repository.createContent()
-                    .content("")
-                    .path(path)
-                    .sha(content.getSha())
-                    .message("Delete PDF: " + path)
-                    .commit();
-                
-                logger.info("Successfully deleted file {} from GitHub", path);
-                return;
-                
-            } catch (Exception e) {
-                lastException = e;
-                logger.warn("Delete attempt {}/{} failed for file {}: {}", attempt, MAX_RETRIES, path, e.getMessage());
-                
-                if (attempt < MAX_RETRIES) {
-                    try {
-                        Thread.sleep(RETRY_DELAY_MS * attempt);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new Exception("Delete interrupted", ie);
-                    }
-                }
+    /**
+     * Whether a failure says GitHub itself is in trouble. Rate limits and other 4xx responses
+     * (a missing file, a conflict) do not count against the circuit.
+     */
+    private static boolean isOutage(Exception e) {
+        if (e instanceof HttpException) {
+            return ((HttpException) e).getResponseCode() >= 500 || ((HttpException) e).getResponseCode() <= 0;
+        }
+        return e instanceof IOException && !(e instanceof FileNotFoundException);
+    }
+
+    // Quota left after the last call, from its X-RateLimit-* headers
+    private void observeQuota() {
+        GitHub client = gitHub;
+        if (client == null) {
+            return;
+        }
+        GHRateLimit.Record core = client.lastRateLimit().getCore();
+        if (core.getLimit() > 0) {
+            github.observeRemaining(core.getRemaining(), core.getResetEpochSeconds() * 1000);
+        }
+    }
+
+    // A 403/429 from a rate limit carries Retry-After (secondary limits) or X-RateLimit-Reset
+    private void observeRateLimitResponse(Exception e) {
+        if (!(e instanceof HttpException)) {
+            return;
+        }
+        HttpException http = (HttpException) e;
+        if (http.getResponseCode() != 403 && http.getResponseCode() != 429) {
+            return;
+        }
+        String retryAfter = header(http, "Retry-After");
+        String remaining = header(http, "X-RateLimit-Remaining");
+        String reset = header(http, "X-RateLimit-Reset");
+        try {
+            if (retryAfter != null) {
+                github.pauseFor(Long.parseLong(retryAfter.trim()) * 1000);
+            } else if ("0".equals(remaining) && reset != null) {
+                github.observeRemaining(0, Long.parseLong(reset.trim()) * 1000);
             }
+        } catch (NumberFormatException ignored) {
+            // Malformed header; the circuit breaker and local limiter still apply
         }
-        
-        throw new Exception("Failed to delete file from GitHub after " + MAX_RETRIES + " attempts: " + 
-                          (lastException != null ? lastException.getMessage() : "Unknown error"));
     }
 
-    public byte[] downloadFile(String path) throws Exception {
-        Exception lastException = null;
-        
-        for (int attempt = 1; attempt <= MAX_RETRIES; attempt++) {
-            try {
-                logger.info("Attempting to download file {} from GitHub (attempt {}/{})", path, attempt, MAX_RETRIES);
-                
-                GitHub github = getGitHub();
-                GHRepository repository = github.getRepository(repositoryName);
-                
-                var content = repository.getFileContent(path);
-                byte[] fileBytes = Base64.getDecoder().decode(content.getContent());
-                
-                logger.info("Successfully downloaded file {} from GitHub ({} bytes)", path, fileBytes.length);
-                return fileBytes;
-                
-            } catch (Exception e) {
-                lastException = e;
-                logger.warn("Download attempt {}/{} failed for file {}: {}", attempt, MAX_RETRIES, path, e.getMessage());
-                
-                if (attempt < MAX_RETRIES) {
-                    try {
-                        Thread.sleep(RETRY_DELAY_MS * attempt);
-                    } catch (InterruptedException ie) {
-                        Thread.currentThread().interrupt();
-                        throw new Exception("Download interrupted", ie);
-                    }
-                }
+    private static String header(HttpException e, String name) {
+        Map<String, List<String>> headers = e.getResponseHeaderFields();
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (name.equalsIgnoreCase(entry.getKey()) && entry.getValue() != null && !entry.getValue().isEmpty()) {
+                return entry.getValue().get(0);
             }
         }
+        return null;
+    }
+
+    public String uploadFile(MultipartFile file, String filename, String batch) throws Exception {
+        byte[] fileContent = file.getBytes();
+        return withRetries("upload", filename, "upload file " + filename + " to GitHub",
+            repository -> createFile(repository, fileContent, filename, batch,
+                "Upload PDF: " + file.getOriginalFilename() + " from " + batch));
+    }
+    
+    /**
+     * Upload file from byte array (used for modified PDFs like duplex with added blank page)
+     */
+    public String uploadFileBytes(byte[] fileContent, String filename, String batch) throws Exception {
+        return withRetries("upload", filename, "upload file bytes " + filename + " to GitHub",
+            repository -> createFile(repository, fileContent, filename, batch,
+                "Upload PDF: " + filename + " from " + batch));
+    }
+
+    private String createFile(GHRepository repository, byte[] fileContent, String filename, String batch,
+                              String message) throws IOException {
+        // Create path: uploads/batch/filename
+        String path = "uploads/" + sanitizeBatchName(batch) + "/" + filename;
+        
+        // Convert bytes to base64
+        String base64Content = Base64.getEncoder().encodeToString(fileContent);
+        
+        // Check if file already exists
+        try {
+            repository.getFileContent(path);
+            // File exists, create unique name
+            String baseName = filename.substring(0, filename.lastIndexOf('.'));
+            String extension = filename.substring(filename.lastIndexOf('.'));
+            path = "uploads/" + sanitizeBatchName(batch) + "/" + baseName + "_" + System.currentTimeMillis() + extension;
+            logger.info("File exists, using unique path: {}", path);
+        } catch (Exception e) {
+            // File doesn't exist, continue with original path
+        }
         
-        throw new Exception("Failed to download file from GitHub after " + MAX_RETRIES + " attempts: " + 
-                          (lastException != null ? lastException.getMessage() : "Unknown error"));
+        spans.tag("github.path", path);
+        spans.tag("file.size", fileContent.length);
+
+        // Upload to GitHub
+        repository.createContent()
+            .content(base64Content)
+            .path(path)
+            .message(message)
+            .commit();
+        
+        logger.info("Successfully uploaded file {} to GitHub at path {}", filename, path);
+        return path;
+    }
+
+    public void deleteFile(String path) throws Exception {
+        withRetries("delete", path, "delete file " + path + " from GitHub", repository -> {
+            // Get file content to get SHA
+            var content = repository.getFileContent(path);
+            
+            // Delete file
+            repository.createContent()
+                .content("")
+                .path(path)
+                .sha(content.getSha())
+                .message("Delete PDF: " + path)
+                .commit();
+            
+            logger.info("Successfully deleted file {} from GitHub", path);
+            return null;
+        });
+    }
+
+    public byte[] downloadFile(String path) throws Exception {
+        return withRetries("download", path, "download file " + path + " from GitHub", repository -> {
+            var content = repository.getFileContent(path);
+            byte[] fileBytes = Base64.getDecoder().decode(content.getContent());
+            spans.tag("file.size", fileBytes.length);
+            
+            logger.info("Successfully downloaded file {} from GitHub ({} bytes)", path, fileBytes.length);
+            return fileBytes;
+        });
     }
 
     public List<String> listBatchFiles(String batch) throws Exception {
         try {
             logger.info("Listing files for batch: {}", batch);
             
-            GitHub github = getGitHub();
-            GHRepository repository = github.getRepository(repositoryName);
+            GHRepository repository = getRepository();
             
             String batchPath = "uploads/" + sanitizeBatchName(batch);
             
@@ -266,8 +336,7 @@ public class GitHubStorageService {
 
     public boolean testConnection() {
         try {
-            GitHub github = getGitHub();
-            GHRepository repository = github.getRepository(repositoryName);
+            GHRepository repository = getRepository();
             
             // Try to access repository info
             String repoName = repository.getName();
@@ -286,8 +355,7 @@ public class GitHubStorageService {
         try {
             logger.info("Initializing GitHub repository structure");
             
-            GitHub github = getGitHub();
-            GHRepository repository = github.getRepository(repositoryName);
+            GHRepository repository = getRepository();
             
             // Create uploads directory with README
             String readmeContent = "# Print For You - File Storage\n\n" +
@@ -330,8 +398,7 @@ public class GitHubStorageService {
 
     public String getRepositoryInfo() {
         try {
-            GitHub github = getGitHub();
-            GHRepository repository = github.getRepository(repositoryName);
+            GHRepository repository = getRepository();
             
             return String.format("Repository: %s/%s | Private: %s | Size: %d KB", 
                 repository.getOwner().getLogin(),
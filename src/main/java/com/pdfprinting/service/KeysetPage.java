@@ -0,0 +1,50 @@
+package com.pdfprinting.service;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * One page of a keyset (cursor) paginated listing.
+ * The cursor is the id of the last row shown; the next page continues strictly after it,
+ * so each page is an index range scan no matter how deep the admin pages.
+ */
+public class KeysetPage<T> {
+
+    public static final int DEFAULT_PAGE_SIZE = 50;
+    public static final int MAX_PAGE_SIZE = 500;
+
+    private final List<T> items;
+    private final Long nextCursor;
+
+    private KeysetPage(List<T> items, Long nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Build a page from a query that fetched {@code size + 1} rows;
+     * the extra row only signals that another page exists.
+     */
+    public static <T> KeysetPage<T> of(List<T> fetched, int size, Function<T, Long> idOf) {
+        if (fetched.size() > size) {
+            List<T> items = fetched.subList(0, size);
+            return new KeysetPage<>(items, idOf.apply(items.get(size - 1)));
+        }
+        return new KeysetPage<>(fetched, null);
+    }
+
+    /**
+     * Clamp a requested page size to [1, MAX_PAGE_SIZE], falling back to the default.
+     */
+    public static int normalizeSize(Integer requested, int defaultSize) {
+        int size = requested == null ? defaultSize : requested;
+        if (size < 1) {
+            return defaultSize;
+        }
+        return Math.min(size, MAX_PAGE_SIZE);
+    }
+
+    public List<T> getItems() { return items; }
+    public Long getNextCursor() { return nextCursor; }
+    public boolean hasNext() { return nextCursor != null; }
+}
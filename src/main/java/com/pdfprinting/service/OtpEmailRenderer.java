@@ -0,0 +1,89 @@
+package com.pdfprinting.service;
+
+import java.util.Optional;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.util.HtmlUtils;
+import org.thymeleaf.TemplateEngine;
+import org.thymeleaf.context.Context;
+
+/**
+ * Renders the OTP email, the one sent on every registration and resend. The email/otp template
+ * is rendered through Thymeleaf once, at startup, with a placeholder OTP and split into fixed
+ * fragments around it; each email is then the fragments joined with the escaped OTP, without a
+ * template engine pass. Edit the template as usual; changes apply on restart.
+ */
+@Component
+public class OtpEmailRenderer {
+
+    private static final Logger logger = LoggerFactory.getLogger(OtpEmailRenderer.class);
+
+    static final String TEMPLATE = "email/otp";
+    static final int VALIDITY_MINUTES = 10;
+
+    // Survives HTML escaping unchanged and cannot occur in the template itself
+    private static final String PLACEHOLDER = "OTPPLACEHOLDER7f3a9c";
+
+    private static final String FALLBACK_HTML = "<html><body>" +
+        "<h2>Your OTP for Print For You Registration</h2>" +
+        "<p>Your One-Time Password (OTP) is:</p>" +
+        "<h1 style='color: #4CAF50; font-size: 32px; letter-spacing: 5px;'>" + PLACEHOLDER + "</h1>" +
+        "<p>This OTP is valid for <strong>" + VALIDITY_MINUTES + " minutes</strong>.</p>" +
+        "<p>If you did not request this OTP, please ignore this email.</p>" +
+        "<br><p>Thank you,<br>Print For You Team</p>" +
+        "</body></html>";
+
+    private static final String TEXT = "Your OTP for Print For You Registration\n\n" +
+        "Your One-Time Password (OTP) is: " + PLACEHOLDER + "\n\n" +
+        "This OTP is valid for " + VALIDITY_MINUTES + " minutes.\n\n" +
+        "If you did not request this OTP, please ignore this email.\n\n" +
+        "Thank you,\nPrint For You Team";
+
+    private final String[] htmlFragments;
+    private final String[] textFragments;
+
+    public OtpEmailRenderer(Optional<TemplateEngine> templateEngine) {
+        this.htmlFragments = split(templateEngine.isPresent() ? prerender(templateEngine.get()) : FALLBACK_HTML);
+        this.textFragments = split(TEXT);
+    }
+
+    private static String prerender(TemplateEngine templateEngine) {
+        try {
+            Context context = new Context();
+            context.setVariable("otp", PLACEHOLDER);
+            context.setVariable("validityMinutes", VALIDITY_MINUTES);
+            return templateEngine.process(TEMPLATE, context);
+        } catch (Exception e) {
+            logger.warn("Could not prerender {} ({}); using the built-in OTP email", TEMPLATE, e.getMessage());
+            return FALLBACK_HTML;
+        }
+    }
+
+    private static String[] split(String rendered) {
+        return rendered.split(Pattern.quote(PLACEHOLDER), -1);
+    }
+
+    public String renderHtml(String otp) {
+        return join(htmlFragments, HtmlUtils.htmlEscape(otp == null ? "" : otp));
+    }
+
+    public String renderText(String otp) {
+        return join(textFragments, otp == null ? "" : otp);
+    }
+
+    private static String join(String[] fragments, String value) {
+        int length = value.length() * (fragments.length - 1);
+        for (String fragment : fragments) {
+            length += fragment.length();
+        }
+        StringBuilder out = new StringBuilder(length);
+        out.append(fragments[0]);
+        for (int i = 1; i < fragments.length; i++) {
+            out.append(value).append(fragments[i]);
+        }
+        return out.toString();
+    }
+}
@@ -0,0 +1,81 @@
+package com.pdfprinting.service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+
+/**
+ * Hashes registration passwords on a small CPU-bound pool instead of the servlet thread. BCrypt
+ * is deliberately slow (tens of milliseconds per hash), so a burst of registrations would
+ * otherwise hold one request thread per hash. The pool has one thread per core by default and a
+ * bounded queue: when it is full, new work is refused rather than queued without limit.
+ */
+@Service
+public class PasswordHashingService {
+
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+
+    // 0: one thread per available processor
+    @Value("${registration.hash-threads:0}")
+    private int hashThreads;
+
+    @Value("${registration.hash-queue:500}")
+    private int queueCapacity;
+
+    private ThreadPoolExecutor hashers;
+
+    private final AtomicLong hashed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        int threads = hashThreads > 0 ? hashThreads : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        hashers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "password-hasher-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    @PreDestroy
+    void stop() {
+        hashers.shutdown();
+    }
+
+    /**
+     * Encode a raw password on the hashing pool.
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public CompletableFuture<String> encodeAsync(String rawPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                String encoded = passwordEncoder.encode(rawPassword);
+                hashed.incrementAndGet();
+                return encoded;
+            }, hashers);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    public long getHashed() { return hashed.get(); }
+    public long getRejected() { return rejected.get(); }
+    public int getQueued() { return hashers.getQueue().size(); }
+    public int getActive() { return hashers.getActiveCount(); }
+}
@@ -0,0 +1,246 @@
+package com.pdfprinting.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.pdfprinting.model.PaymentOrder;
+import com.pdfprinting.repository.PaymentOrderRepository;
+
+/**
+ * Credits payments whose checkout callback never reached us (closed tab, network drop). Razorpay
+ * webhooks are the fast path; a scheduled sweep is the safety net: it takes a batch of orders
+ * still CREATED after a grace period and matches them against one paginated payments listing,
+ * instead of asking the gateway about each order. All credits go through PaymentService, so the
+ * callback, the webhook and the sweep can race on the same payment without double-crediting.
+ */
+@Service
+public class PaymentReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentReconciler.class);
+
+    private static final int PAGE_SIZE = 100; // Razorpay's maximum count per page
+    private static final long CLOCK_SKEW_SECONDS = 60;
+
+    @Autowired
+    private PaymentOrderRepository paymentOrderRepository;
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private RazorpayGateway razorpayGateway;
+
+    // Give the browser callback this long before the sweep looks at an order
+    @Value("${payment.reconcile.grace-ms:300000}")
+    private long graceMs;
+
+    // Orders still unpaid after this are expired and no longer swept
+    @Value("${payment.reconcile.max-age-ms:86400000}")
+    private long maxAgeMs;
+
+    @Value("${payment.reconcile.batch-size:200}")
+    private int batchSize;
+
+    @Value("${payment.reconcile.max-pages:20}")
+    private int maxPages;
+
+    public enum WebhookResult {
+        INVALID_SIGNATURE,
+        CREDITED,
+        IGNORED,
+        FAILED // Credit failed; answer with an error so Razorpay redelivers
+    }
+
+    // Lag metrics
+    private final AtomicLong pendingOrders = new AtomicLong();
+    private final AtomicLong oldestPendingAgeSeconds = new AtomicLong();
+    private final AtomicLong lastCreditLagSeconds = new AtomicLong();
+    private final AtomicLong creditedBySweep = new AtomicLong();
+    private final AtomicLong creditedByWebhook = new AtomicLong();
+    private final AtomicLong expiredOrders = new AtomicLong();
+    private final AtomicLong lastRunDurationMs = new AtomicLong();
+    private final AtomicReference<LocalDateTime> lastRunAt = new AtomicReference<>();
+    private final AtomicReference<String> lastError = new AtomicReference<>();
+
+    /**
+     * Handle a Razorpay webhook delivery. payment.captured and order.paid both carry the payment
+     * entity; other events, unknown orders and redeliveries are acknowledged without effect.
+     */
+    public WebhookResult handleWebhook(byte[] payload, String signature) {
+        if (!razorpayGateway.verifyWebhookSignature(payload, signature)) {
+            return WebhookResult.INVALID_SIGNATURE;
+        }
+
+        JSONObject event;
+        try {
+            event = new JSONObject(new String(payload, StandardCharsets.UTF_8));
+        } catch (JSONException e) {
+            logger.warn("Ignoring unparseable webhook: {}", e.getMessage());
+            return WebhookResult.IGNORED;
+        }
+        String type = event.optString("event");
+        if (!"payment.captured".equals(type) && !"order.paid".equals(type)) {
+            return WebhookResult.IGNORED;
+        }
+        JSONObject payment = event.optJSONObject("payload") == null ? null
+                : event.getJSONObject("payload").optJSONObject("payment");
+        if (payment == null || payment.optJSONObject("entity") == null) {
+            return WebhookResult.IGNORED;
+        }
+        try {
+            return credit(payment.getJSONObject("entity"), creditedByWebhook) ? WebhookResult.CREDITED : WebhookResult.IGNORED;
+        } catch (Exception e) {
+            logger.error("Webhook credit failed", e);
+            return WebhookResult.FAILED;
+        }
+    }
+
+    /**
+     * One sweep: credit captured payments of stuck orders, then expire orders past the maximum age.
+     * Returns the number of payments newly credited.
+     */
+    @Scheduled(fixedDelayString = "${payment.reconcile.interval-ms:60000}",
+               initialDelayString = "${payment.reconcile.initial-delay-ms:60000}")
+    public int reconcile() {
+        long started = System.currentTimeMillis();
+        LocalDateTime now = LocalDateTime.now();
+        int credited = 0;
+        try {
+            List<PaymentOrder> stuck = paymentOrderRepository.findUnpaidCreatedBefore(PaymentOrder.Status.CREATED,
+                    now.minus(Duration.ofMillis(graceMs)), PageRequest.of(0, batchSize));
+            if (!stuck.isEmpty()) {
+                credited = creditCaptured(stuck, now);
+                paymentOrderRepository.markChecked(stuck.stream().map(PaymentOrder::getId).toList(), now);
+            }
+
+            int expired = paymentOrderRepository.expireCreatedBefore(PaymentOrder.Status.CREATED,
+                    PaymentOrder.Status.EXPIRED, now.minus(Duration.ofMillis(maxAgeMs)));
+            expiredOrders.addAndGet(expired);
+            if (credited > 0 || expired > 0) {
+                logger.info("Payment reconciliation: {} stuck order(s) checked, {} credited, {} expired",
+                        stuck.size(), credited, expired);
+            }
+            lastError.set(null);
+        } catch (Exception e) {
+            logger.error("Payment reconciliation failed", e);
+            lastError.set(e.getMessage());
+        } finally {
+            refreshLag(now);
+            lastRunAt.set(now);
+            lastRunDurationMs.set(System.currentTimeMillis() - started);
+        }
+        return credited;
+    }
+
+    private int creditCaptured(List<PaymentOrder> stuck, LocalDateTime now) throws Exception {
+        Map<String, PaymentOrder> byOrderId = new HashMap<>();
+        LocalDateTime oldest = now;
+        for (PaymentOrder order : stuck) {
+            byOrderId.put(order.getOrderId(), order);
+            if (order.getCreatedAt().isBefore(oldest)) {
+                oldest = order.getCreatedAt();
+            }
+        }
+
+        long from = epochSecond(oldest) - CLOCK_SKEW_SECONDS;
+        long to = epochSecond(now) + CLOCK_SKEW_SECONDS;
+        int credited = 0;
+        for (int page = 0; page < maxPages && !byOrderId.isEmpty(); page++) {
+            JSONArray items = razorpayGateway.fetchPayments(from, to, PAGE_SIZE, page * PAGE_SIZE);
+            for (int i = 0; i < items.length(); i++) {
+                JSONObject payment = items.getJSONObject(i);
+                PaymentOrder order = byOrderId.get(payment.optString("order_id"));
+                if (order != null && creditQuietly(payment)) {
+                    byOrderId.remove(order.getOrderId());
+                    lastCreditLagSeconds.set(Duration.between(order.getCreatedAt(), now).getSeconds());
+                    credited++;
+                }
+            }
+            if (items.length() < PAGE_SIZE) {
+                break;
+            }
+        }
+        return credited;
+    }
+
+    private boolean creditQuietly(JSONObject payment) {
+        try {
+            return credit(payment, creditedBySweep);
+        } catch (Exception e) {
+            // Left CREATED; the next sweep retries it
+            logger.error("Could not credit payment {} for order {}", payment.optString("id"), payment.optString("order_id"), e);
+            return false;
+        }
+    }
+
+    // Credit one Razorpay payment entity if it is captured and belongs to a recorded order
+    private boolean credit(JSONObject payment, AtomicLong counter) throws Exception {
+        String paymentId = payment.optString("id", null);
+        String orderId = payment.optString("order_id", null);
+        if (paymentId == null || orderId == null || !"captured".equals(payment.optString("status"))) {
+            return false;
+        }
+        if (paymentOrderRepository.findByOrderId(orderId).isEmpty()) {
+            return false;
+        }
+        if (paymentService.creditOrder(orderId, paymentId).isReplay()) {
+            return false;
+        }
+        counter.incrementAndGet();
+        logger.info("Reconciled payment {} for order {}", paymentId, orderId);
+        return true;
+    }
+
+    private void refreshLag(LocalDateTime now) {
+        pendingOrders.set(paymentOrderRepository.countByStatus(PaymentOrder.Status.CREATED));
+        LocalDateTime oldest = paymentOrderRepository.findOldestCreatedAt(PaymentOrder.Status.CREATED);
+        oldestPendingAgeSeconds.set(oldest == null ? 0 : Math.max(0, Duration.between(oldest, now).getSeconds()));
+    }
+
+    private static long epochSecond(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    public long getPendingOrders() { return pendingOrders.get(); }
+    public long getOldestPendingAgeSeconds() { return oldestPendingAgeSeconds.get(); }
+    public long getLastCreditLagSeconds() { return lastCreditLagSeconds.get(); }
+    public long getCreditedBySweep() { return creditedBySweep.get(); }
+    public long getCreditedByWebhook() { return creditedByWebhook.get(); }
+    public long getExpiredOrders() { return expiredOrders.get(); }
+
+    /**
+     * Snapshot of the lag metrics for the admin endpoint.
+     */
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("pendingOrders", pendingOrders.get());
+        stats.put("oldestPendingAgeSeconds", oldestPendingAgeSeconds.get());
+        stats.put("lastCreditLagSeconds", lastCreditLagSeconds.get());
+        stats.put("creditedBySweep", creditedBySweep.get());
+        stats.put("creditedByWebhook", creditedByWebhook.get());
+        stats.put("expiredOrders", expiredOrders.get());
+        stats.put("lastRunAt", lastRunAt.get());
+        stats.put("lastRunDurationMs", lastRunDurationMs.get());
+        stats.put("lastError", lastError.get());
+        return stats;
+    }
+}
@@ -0,0 +1,129 @@
+package com.pdfprinting.service;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pdfprinting.model.PaymentOrder;
+import com.pdfprinting.model.ProcessedPayment;
+import com.pdfprinting.model.User;
+import com.pdfprinting.repository.PaymentOrderRepository;
+import com.pdfprinting.repository.ProcessedPaymentRepository;
+import com.pdfprinting.repository.UserRepository;
+
+@Service
+public class PaymentService {
+
+    private static final Logger logger = LoggerFactory.getLogger(PaymentService.class);
+
+    @Autowired
+    private ProcessedPaymentRepository processedPaymentRepository;
+
+    @Autowired
+    private PaymentOrderRepository paymentOrderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Value("${payment.recent-cache-size:1024}")
+    private int recentCacheSize;
+
+    // paymentId -> credited amount for recently processed payments, so hot replays
+    // (refreshes, double submits) are answered without touching the database. LRU-bounded
+    private final Map<String, BigDecimal> recentPayments = Collections.synchronizedMap(
+        new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, BigDecimal> eldest) {
+                return size() > recentCacheSize;
+            }
+        });
+
+    /**
+     * Result of crediting a payment: the amount credited and whether this call was a replay of an
+     * earlier one (in which case nothing new was credited).
+     */
+    public static class CreditOutcome {
+        private final BigDecimal amount;
+        private final boolean replay;
+
+        public CreditOutcome(BigDecimal amount, boolean replay) {
+            this.amount = amount;
+            this.replay = replay;
+        }
+
+        public BigDecimal getAmount() { return amount; }
+        public boolean isReplay() { return replay; }
+    }
+
+    /**
+     * Remember a freshly created gateway order, so its payment can later be credited from the
+     * webhook or the reconciler without the browser's callback.
+     */
+    public PaymentOrder recordOrder(String orderId, User user, BigDecimal walletAmount, long amountInPaise) {
+        return paymentOrderRepository.save(new PaymentOrder(orderId, user, walletAmount, amountInPaise));
+    }
+
+    /**
+     * Credit a verified gateway payment for a recorded order to the order's user, exactly once
+     * (callback, webhook and reconciler path). The user and amount always come from the recorded
+     * order, never from the request; a payment for an order we did not create is refused.
+     * The processed-payment row, the wallet credit and the order's PAID mark commit together; a
+     * concurrent or later call with the same payment id fails on the unique key and gets the
+     * original outcome back.
+     */
+    public CreditOutcome creditOrder(String orderId, String paymentId) throws Exception {
+        BigDecimal recent = recentPayments.get(paymentId);
+        if (recent != null) {
+            return new CreditOutcome(recent, true);
+        }
+
+        PaymentOrder order = paymentOrderRepository.findByOrderId(orderId)
+                .orElseThrow(() -> new Exception("Unknown order " + orderId));
+        BigDecimal creditAmount = order.getWalletAmount();
+        User user = userRepository.findById(order.getUser().getId()).orElseThrow(() -> new Exception("User not found"));
+
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                processedPaymentRepository.saveAndFlush(new ProcessedPayment(paymentId, orderId, user, creditAmount));
+                if (!walletService.addMoney(user, creditAmount, paymentId,
+                        "Razorpay payment - Order: " + orderId + ", Payment: " + paymentId)) {
+                    throw new IllegalStateException("Wallet credit failed for payment " + paymentId);
+                }
+                markPaid(order.getId(), paymentId);
+            });
+        } catch (DataIntegrityViolationException e) {
+            ProcessedPayment original = processedPaymentRepository.findByPaymentId(paymentId)
+                    .orElseThrow(() -> new Exception("Payment " + paymentId + " could not be recorded", e));
+            logger.info("Replayed payment {} (order {}) - already credited", paymentId, original.getOrderId());
+            recentPayments.put(paymentId, original.getAmount());
+            return new CreditOutcome(original.getAmount(), true);
+        }
+
+        recentPayments.put(paymentId, creditAmount);
+        return new CreditOutcome(creditAmount, false);
+    }
+
+    private void markPaid(Long orderId, String paymentId) {
+        PaymentOrder order = paymentOrderRepository.findById(orderId).orElseThrow();
+        order.setStatus(PaymentOrder.Status.PAID);
+        order.setPaymentId(paymentId);
+        order.setPaidAt(LocalDateTime.now());
+    }
+}
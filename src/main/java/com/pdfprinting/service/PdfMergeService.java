@@ -13,21 +13,36 @@ import java.util.concurrent.Executors;
 
 import org.apache.pdfbox.multipdf.PDFMergerUtility;
 import org.apache.pdfbox.pdmodel.PDDocument;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import com.pdfprinting.config.RequestLoggingFilter;
 import com.pdfprinting.model.PdfUpload;
 import com.pdfprinting.model.PdfUpload.PrintType;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 @Service
 public class PdfMergeService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PdfMergeService.class);
+
     @Autowired
     private PdfUploadService pdfUploadService;
 
     @Autowired
     private GitHubStorageService gitHubStorageService;
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Spans spans;
+
     // Temporary storage for merged PDFs (in production, use Redis or database)
     private Map<String, byte[]> mergedPdfCache = new HashMap<>();
     
@@ -45,18 +60,23 @@ public class PdfMergeService {
         private List<FailedPdfInfo> failedPdfs;
         private int successCount;
         private int totalCount;
+        private List<Long> uploadIds;
         
-        public MergeResult(byte[] mergedPdf, List<FailedPdfInfo> failedPdfs, int successCount, int totalCount) {
+        public MergeResult(byte[] mergedPdf, List<FailedPdfInfo> failedPdfs, int successCount, int totalCount,
+                           List<Long> uploadIds) {
             this.mergedPdf = mergedPdf;
             this.failedPdfs = failedPdfs;
             this.successCount = successCount;
             this.totalCount = totalCount;
+            this.uploadIds = uploadIds;
         }
         
         public byte[] getMergedPdf() { return mergedPdf; }
         public List<FailedPdfInfo> getFailedPdfs() { return failedPdfs; }
         public int getSuccessCount() { return successCount; }
         public int getTotalCount() { return totalCount; }
+        /** Ids of every upload this merge read (merged and failed) */
+        public List<Long> getUploadIds() { return uploadIds; }
         public int getFailedCount() { return failedPdfs.size(); }
         public boolean hasFailures() { return !failedPdfs.isEmpty(); }
     }
@@ -125,35 +145,81 @@ public class PdfMergeService {
                 getContainerKey(academicYear, branch, division, semester, batch));
         }
 
+        String containerKey = getContainerKey(academicYear, branch, division, semester, batch);
+        return mergeUploads(uploads, containerKey, containerKey, "ALL",
+            "All PDFs failed to process. Check the failed PDFs list for details.", "Failed to merge PDFs: ");
+    }
+    
+    /**
+     * Legacy method - kept for backward compatibility
+     */
+    public byte[] mergeContainerPdfs(String academicYear, String branch, String division, 
+                                      String semester, String batch) throws Exception {
+        MergeResult result = mergeContainerPdfsWithReport(academicYear, branch, division, semester, batch);
+        return result.getMergedPdf();
+    }
+    
+    /**
+     * Download, validate and merge the uploads in order, each repeated copyCount times, and cache
+     * the result under cacheKey. Continues past files that fail and reports them. Each phase
+     * (download, validate, merge, write) is timed as pdf.merge.phase and traced as a child span of
+     * pdf.merge, which carries the container key, file and page counts and the merged size.
+     */
+    private MergeResult mergeUploads(List<PdfUpload> uploads, String containerKey, String cacheKey, String printType,
+                                     String allFailedMessage, String failurePrefix) throws Exception {
+        try (MDC.MDCCloseable ignored = MDC.putCloseable(RequestLoggingFilter.CONTAINER_KEY, containerKey);
+             Spans.Scope merge = spans.start("pdf.merge")) {
+            merge.tag("container.key", containerKey).tag("print.type", printType).tag("files", uploads.size());
+            try {
+                return mergeInSpan(uploads, cacheKey, printType, allFailedMessage, failurePrefix, merge);
+            } catch (Exception e) {
+                merge.error(e);
+                throw e;
+            }
+        }
+    }
+
+    private MergeResult mergeInSpan(List<PdfUpload> uploads, String cacheKey, String printType,
+                                    String allFailedMessage, String failurePrefix, Spans.Scope merge)
+            throws Exception {
         List<FailedPdfInfo> failedPdfs = new ArrayList<>();
         Map<Long, byte[]> downloadedPdfs = new ConcurrentHashMap<>();
         Map<Long, String> downloadErrors = new ConcurrentHashMap<>();
         List<CompletableFuture<Void>> downloadFutures = new ArrayList<>();
         
-        // Download all PDFs in parallel
-        for (PdfUpload upload : uploads) {
-            CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                try {
-                    byte[] pdfBytes = gitHubStorageService.downloadFile(upload.getGithubPath());
-                    downloadedPdfs.put(upload.getId(), pdfBytes);
-                } catch (Exception e) {
-                    downloadErrors.put(upload.getId(), "Download failed: " + e.getMessage());
-                }
-            }, downloadExecutor);
-            downloadFutures.add(future);
+        // Download all PDFs in parallel; the pool threads log and trace with this request's context
+        Map<String, String> logContext = MDC.getCopyOfContextMap();
+        Timer.Sample phase = Timer.start(meterRegistry);
+        try (Spans.Scope span = spans.start("pdf.merge.download")) {
+            for (PdfUpload upload : uploads) {
+                CompletableFuture<Void> future = CompletableFuture.runAsync(spans.wrap(() -> {
+                    if (logContext != null) {
+                        MDC.setContextMap(logContext);
+                    }
+                    try {
+                        byte[] pdfBytes = gitHubStorageService.downloadFile(upload.getGithubPath());
+                        downloadedPdfs.put(upload.getId(), pdfBytes);
+                    } catch (Exception e) {
+                        downloadErrors.put(upload.getId(), "Download failed: " + e.getMessage());
+                    } finally {
+                        MDC.clear();
+                    }
+                }), downloadExecutor);
+                downloadFutures.add(future);
+            }
+            
+            CompletableFuture.allOf(downloadFutures.toArray(new CompletableFuture[0])).join();
+            span.tag("bytes", downloadedPdfs.values().stream().mapToLong(pdf -> pdf.length).sum())
+                .tag("failed", downloadErrors.size());
         }
-        
-        CompletableFuture.allOf(downloadFutures.toArray(new CompletableFuture[0])).join();
+        phase.stop(phaseTimer("download", printType));
 
-        PDFMergerUtility mergerUtility = new PDFMergerUtility();
-        ByteArrayOutputStream mergedOutputStream = new ByteArrayOutputStream();
-        mergerUtility.setDestinationStream(mergedOutputStream);
-
-        int successCount = 0;
-        
-        try {
+        // Validate every downloaded PDF before adding any
+        phase = Timer.start(meterRegistry);
+        List<PdfUpload> valid = new ArrayList<>();
+        Map<Long, Integer> pageCounts = new HashMap<>();
+        try (Spans.Scope span = spans.start("pdf.merge.validate")) {
             for (PdfUpload upload : uploads) {
-                // Check for download error
                 if (downloadErrors.containsKey(upload.getId())) {
                     failedPdfs.add(new FailedPdfInfo(upload, downloadErrors.get(upload.getId())));
                     continue;
@@ -165,44 +231,81 @@ public class PdfMergeService {
                     continue;
                 }
 
-                // Validate PDF before adding
-                String validationError = validatePdf(pdfBytes, upload.getOriginalFileName());
-                if (validationError != null) {
-                    failedPdfs.add(new FailedPdfInfo(upload, validationError));
-                    continue;
-                }
-
                 try {
-                    int copyCount = upload.getCopyCount();
-                    for (int copy = 1; copy <= copyCount; copy++) {
-                        ByteArrayInputStream inputStream = new ByteArrayInputStream(pdfBytes);
-                        mergerUtility.addSource(inputStream);
-                    }
-                    successCount++;
+                    pageCounts.put(upload.getId(), validatePdf(pdfBytes));
+                    valid.add(upload);
                 } catch (Exception e) {
-                    failedPdfs.add(new FailedPdfInfo(upload, "Failed to add to merge: " + e.getMessage()));
+                    failedPdfs.add(new FailedPdfInfo(upload, e.getMessage()));
                 }
             }
+            span.tag("valid", valid.size()).tag("invalid", uploads.size() - valid.size());
+        }
+        phase.stop(phaseTimer("validate", printType));
+
+        PDFMergerUtility mergerUtility = new PDFMergerUtility();
+        ByteArrayOutputStream mergedOutputStream = new ByteArrayOutputStream();
+        mergerUtility.setDestinationStream(mergedOutputStream);
 
-            // Only merge if we have at least one successful PDF
-            if (successCount == 0) {
-                throw new Exception("All PDFs failed to process. Check the failed PDFs list for details.");
+        int successCount = 0;
+        long pagesMerged = 0;
+        
+        try {
+            phase = Timer.start(meterRegistry);
+            try (Spans.Scope span = spans.start("pdf.merge.merge")) {
+                for (PdfUpload upload : valid) {
+                    byte[] pdfBytes = downloadedPdfs.get(upload.getId());
+                    try {
+                        int copyCount = upload.getCopyCount();
+                        for (int copy = 1; copy <= copyCount; copy++) {
+                            ByteArrayInputStream inputStream = new ByteArrayInputStream(pdfBytes);
+                            mergerUtility.addSource(inputStream);
+                        }
+                        successCount++;
+                        pagesMerged += (long) pageCounts.get(upload.getId()) * copyCount;
+                    } catch (Exception e) {
+                        failedPdfs.add(new FailedPdfInfo(upload, "Failed to add to merge: " + e.getMessage()));
+                    }
+                }
+                span.tag("files", successCount).tag("pages", pagesMerged);
+
+                // Only merge if we have at least one successful PDF
+                if (successCount == 0) {
+                    throw new Exception(allFailedMessage);
+                }
+
+                mergerUtility.mergeDocuments(null);
             }
+            phase.stop(phaseTimer("merge", printType));
 
-            mergerUtility.mergeDocuments(null);
-            byte[] mergedPdfBytes = mergedOutputStream.toByteArray();
+            phase = Timer.start(meterRegistry);
+            byte[] mergedPdfBytes;
+            try (Spans.Scope span = spans.start("pdf.merge.write")) {
+                mergedPdfBytes = mergedOutputStream.toByteArray();
 
-            // Cache the merged PDF and failed info
-            String containerKey = getContainerKey(academicYear, branch, division, semester, batch);
-            mergedPdfCache.put(containerKey, mergedPdfBytes);
-            if (!failedPdfs.isEmpty()) {
-                failedPdfsCache.put(containerKey, failedPdfs);
+                // Cache the merged PDF and failed info
+                mergedPdfCache.put(cacheKey, mergedPdfBytes);
+                if (!failedPdfs.isEmpty()) {
+                    failedPdfsCache.put(cacheKey, failedPdfs);
+                }
+                span.tag("bytes", mergedPdfBytes.length);
+            }
+            phase.stop(phaseTimer("write", printType));
+
+            meterRegistry.counter("pdf.merge.pages", "printType", printType).increment(pagesMerged);
+            meterRegistry.counter("pdf.merge.files", "printType", printType, "result", "merged").increment(successCount);
+            meterRegistry.counter("pdf.merge.files", "printType", printType, "result", "failed").increment(failedPdfs.size());
+            merge.tag("pages", pagesMerged).tag("files.failed", failedPdfs.size()).tag("bytes", mergedPdfBytes.length);
+            logger.info("Merged {} of {} files ({} pages, {} bytes) for {}", successCount, uploads.size(),
+                pagesMerged, mergedPdfBytes.length, printType);
+            for (FailedPdfInfo failed : failedPdfs) {
+                logger.warn("Left out of merge: upload {}: {}", failed.getUploadId(), failed.getReason());
             }
 
-            return new MergeResult(mergedPdfBytes, failedPdfs, successCount, uploads.size());
+            return new MergeResult(mergedPdfBytes, failedPdfs, successCount, uploads.size(),
+                uploads.stream().map(PdfUpload::getId).toList());
 
         } catch (Exception e) {
-            throw new Exception("Failed to merge PDFs: " + e.getMessage(), e);
+            throw new Exception(failurePrefix + e.getMessage(), e);
         } finally {
             try {
                 mergedOutputStream.close();
@@ -210,33 +313,31 @@ public class PdfMergeService {
             }
         }
     }
-    
-    /**
-     * Legacy method - kept for backward compatibility
-     */
-    public byte[] mergeContainerPdfs(String academicYear, String branch, String division, 
-                                      String semester, String batch) throws Exception {
-        MergeResult result = mergeContainerPdfsWithReport(academicYear, branch, division, semester, batch);
-        return result.getMergedPdf();
+
+    private Timer phaseTimer(String phase, String printType) {
+        return meterRegistry.timer("pdf.merge.phase", "phase", phase, "printType", printType);
     }
     
     /**
-     * Validate if a PDF is readable and not corrupt
+     * Check that a PDF is readable and not corrupt
+     * @return its page count
+     * @throws Exception with the reason when it is not
      */
-    private String validatePdf(byte[] pdfBytes, String fileName) {
+    private int validatePdf(byte[] pdfBytes) throws Exception {
         if (pdfBytes == null || pdfBytes.length == 0) {
-            return "Empty PDF file";
+            throw new Exception("Empty PDF file");
         }
         
+        int pages;
         try (PDDocument doc = PDDocument.load(pdfBytes)) {
-            if (doc.getNumberOfPages() == 0) {
-                return "PDF has no pages";
-            }
-            // PDF is valid
-            return null;
+            pages = doc.getNumberOfPages();
         } catch (Exception e) {
-            return "Corrupt or invalid PDF: " + e.getMessage();
+            throw new Exception("Corrupt or invalid PDF: " + e.getMessage());
+        }
+        if (pages == 0) {
+            throw new Exception("PDF has no pages");
         }
+        return pages;
     }
     
     /**
@@ -253,86 +354,10 @@ public class PdfMergeService {
                 getContainerKey(academicYear, branch, division, semester, batch));
         }
 
-        List<FailedPdfInfo> failedPdfs = new ArrayList<>();
-        Map<Long, byte[]> downloadedPdfs = new ConcurrentHashMap<>();
-        Map<Long, String> downloadErrors = new ConcurrentHashMap<>();
-        List<CompletableFuture<Void>> downloadFutures = new ArrayList<>();
-        
-        for (PdfUpload upload : uploads) {
-            CompletableFuture<Void> future = CompletableFuture.runAsync(() -> {
-                try {
-                    byte[] pdfBytes = gitHubStorageService.downloadFile(upload.getGithubPath());
-                    downloadedPdfs.put(upload.getId(), pdfBytes);
-                } catch (Exception e) {
-                    downloadErrors.put(upload.getId(), "Download failed: " + e.getMessage());
-                }
-            }, downloadExecutor);
-            downloadFutures.add(future);
-        }
-        
-        CompletableFuture.allOf(downloadFutures.toArray(new CompletableFuture[0])).join();
-
-        PDFMergerUtility mergerUtility = new PDFMergerUtility();
-        ByteArrayOutputStream mergedOutputStream = new ByteArrayOutputStream();
-        mergerUtility.setDestinationStream(mergedOutputStream);
-
-        int successCount = 0;
-
-        try {
-            for (PdfUpload upload : uploads) {
-                if (downloadErrors.containsKey(upload.getId())) {
-                    failedPdfs.add(new FailedPdfInfo(upload, downloadErrors.get(upload.getId())));
-                    continue;
-                }
-                
-                byte[] pdfBytes = downloadedPdfs.get(upload.getId());
-                if (pdfBytes == null) {
-                    failedPdfs.add(new FailedPdfInfo(upload, "Download returned empty"));
-                    continue;
-                }
-
-                String validationError = validatePdf(pdfBytes, upload.getOriginalFileName());
-                if (validationError != null) {
-                    failedPdfs.add(new FailedPdfInfo(upload, validationError));
-                    continue;
-                }
-
-                try {
-                    int copyCount = upload.getCopyCount();
-                    for (int copy = 1; copy <= copyCount; copy++) {
-                        ByteArrayInputStream inputStream = new ByteArrayInputStream(pdfBytes);
-                        mergerUtility.addSource(inputStream);
-                    }
-                    successCount++;
-                } catch (Exception e) {
-                    failedPdfs.add(new FailedPdfInfo(upload, "Failed to add to merge: " + e.getMessage()));
-                }
-            }
-
-            if (successCount == 0) {
-                throw new Exception("All " + printType.getDisplayName() + " PDFs failed to process.");
-            }
-
-            mergerUtility.mergeDocuments(null);
-            byte[] mergedPdfBytes = mergedOutputStream.toByteArray();
-
-            String containerKeyWithPrintType = getContainerKeyWithPrintType(
-                academicYear, branch, division, semester, batch, printType);
-            mergedPdfCache.put(containerKeyWithPrintType, mergedPdfBytes);
-            if (!failedPdfs.isEmpty()) {
-                failedPdfsCache.put(containerKeyWithPrintType, failedPdfs);
-            }
-
-            return new MergeResult(mergedPdfBytes, failedPdfs, successCount, uploads.size());
-
-        } catch (Exception e) {
-            throw new Exception("Failed to merge " + printType.getDisplayName() + " PDFs: " + e.getMessage(), e);
-        } finally {
-            try {
-                mergedOutputStream.close();
-            } catch (Exception ignore) {
-            }
-        }
+        return mergeUploads(uploads, getContainerKey(academicYear, branch, division, semester, batch),
+            getContainerKeyWithPrintType(academicYear, branch, division, semester, batch, printType), printType.name(),
+            "All " + printType.getDisplayName() + " PDFs failed to process.",
+            "Failed to merge " + printType.getDisplayName() + " PDFs: ");
     }
     
     /**
@@ -375,7 +400,7 @@ public class PdfMergeService {
                     }
 
                 } catch (Exception e) {
-                    System.err.println("Failed to add PDF to merger: " + upload.getOriginalFileName() + " - " + e.getMessage());
+                    logger.warn("Failed to add PDF to merger: {} - {}", upload.getOriginalFileName(), e.getMessage());
                     // Continue with other files
                 }
             }
@@ -0,0 +1,59 @@
+package com.pdfprinting.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.springframework.web.multipart.MultipartFile;
+
+/**
+ * The PDFBox work PdfUploadService does on each uploaded file. Both helpers parse the whole
+ * document, so they are kept free of service state and can be measured on their own.
+ */
+final class PdfPages {
+
+    private PdfPages() {
+    }
+
+    /**
+     * Count the actual number of pages in a PDF file using Apache PDFBox
+     * @param file the PDF file to analyze
+     * @return number of pages in the PDF
+     * @throws Exception if PDF cannot be read or processed
+     */
+    static int countPages(MultipartFile file) throws Exception {
+        try (PDDocument document = PDDocument.load(file.getInputStream())) {
+            int pageCount = document.getNumberOfPages();
+            if (pageCount <= 0) {
+                throw new Exception("Invalid PDF: No pages found in " + file.getOriginalFilename());
+            }
+            return pageCount;
+        } catch (IOException e) {
+            throw new Exception("Failed to read PDF file: " + file.getOriginalFilename() + ". Error: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Add a blank page to the end of a PDF for proper duplex printing alignment
+     */
+    static byte[] addBlankPage(MultipartFile file) throws Exception {
+        try (PDDocument document = PDDocument.load(file.getInputStream());
+             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            
+            // Get the last page's size to match the blank page
+            PDPage lastPage = document.getPage(document.getNumberOfPages() - 1);
+            PDRectangle pageSize = lastPage.getMediaBox();
+            
+            // Add a blank page with the same size
+            PDPage blankPage = new PDPage(pageSize);
+            document.addPage(blankPage);
+            
+            document.save(outputStream);
+            return outputStream.toByteArray();
+        } catch (IOException e) {
+            throw new Exception("Failed to add blank page to PDF: " + e.getMessage());
+        }
+    }
+}
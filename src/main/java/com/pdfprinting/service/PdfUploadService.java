@@ -1,36 +1,91 @@
 package com.pdfprinting.service;
 
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
 import java.math.BigDecimal;
-import java.time.format.DateTimeFormatter;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.pdmodel.PDPage;
-import org.apache.pdfbox.pdmodel.common.PDRectangle;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
+import com.pdfprinting.config.RequestLoggingFilter;
 import com.pdfprinting.model.PdfUpload;
 import com.pdfprinting.model.PdfUpload.PrintType;
 import com.pdfprinting.model.User;
 import com.pdfprinting.repository.PdfUploadRepository;
 
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
 @Service
 public class PdfUploadService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PdfUploadService.class);
+
     @Autowired
     private PdfUploadRepository pdfUploadRepository;
 
     @Autowired
     private GitHubStorageService gitHubStorageService;
 
+    @Autowired
+    private PricingEngine pricingEngine;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Spans spans;
+
+    /**
+     * Aggregated file count, size and distinct students for a group of uploads
+     */
+    public static class UploadSummary {
+        private final long fileCount;
+        private final long totalSizeBytes;
+        private final long uniqueStudents;
+
+        public UploadSummary(long fileCount, long totalSizeBytes, long uniqueStudents) {
+            this.fileCount = fileCount;
+            this.totalSizeBytes = totalSizeBytes;
+            this.uniqueStudents = uniqueStudents;
+        }
+
+        public long getFileCount() { return fileCount; }
+        public long getTotalSizeBytes() { return totalSizeBytes; }
+        public long getUniqueStudents() { return uniqueStudents; }
+    }
+
+    /**
+     * What an upload call actually stored. Files are stored one at a time, so a failure part-way
+     * leaves the earlier files stored; the caller bills billedAmount and reports failure.
+     */
+    public static class UploadResult {
+        private final int uploadedCount;
+        private final BigDecimal billedAmount;
+        private final Exception failure;
+
+        public UploadResult(int uploadedCount, BigDecimal billedAmount, Exception failure) {
+            this.uploadedCount = uploadedCount;
+            this.billedAmount = billedAmount;
+            this.failure = failure;
+        }
+
+        public int getUploadedCount() { return uploadedCount; }
+        public BigDecimal getBilledAmount() { return billedAmount; }
+        public Exception getFailure() { return failure; }
+    }
+
     public List<PdfUpload> getUserUploads(User user) {
         return pdfUploadRepository.findByUserOrderByUploadedAtDesc(user);
     }
@@ -80,15 +135,26 @@ public class PdfUploadService {
         return pdfUploadRepository.findByBatchAndStatusOrderByUploadedAtAsc(batch, PdfUpload.Status.PENDING);
     }
 
-    public int uploadPdfs(MultipartFile[] files, String batch, User user) throws Exception {
+    public UploadResult uploadPdfs(MultipartFile[] files, String batch, User user) throws Exception {
         return uploadPdfs(files, batch, user, 1, PrintType.SINGLE_SIDE);
     }
 
-    public int uploadPdfs(MultipartFile[] files, String batch, User user, int copyCount) throws Exception {
+    public UploadResult uploadPdfs(MultipartFile[] files, String batch, User user, int copyCount) throws Exception {
         return uploadPdfs(files, batch, user, copyCount, PrintType.SINGLE_SIDE);
     }
     
-    public int uploadPdfs(MultipartFile[] files, String batch, User user, int copyCount, PrintType printType) throws Exception {
+    public UploadResult uploadPdfs(MultipartFile[] files, String batch, User user, int copyCount, PrintType printType) throws Exception {
+        return uploadPdfs(files, batch, user, copyCount, printType, null);
+    }
+
+    /**
+     * Store the files one by one. Profile problems throw before anything is stored; a file that
+     * fails stops the loop and is returned in the result alongside the files already stored.
+     * Each stored upload records the wallet hold paying for it, so the hold can be settled from
+     * the stored uploads even if this request never gets to capture it.
+     */
+    public UploadResult uploadPdfs(MultipartFile[] files, String batch, User user, int copyCount, PrintType printType,
+                                   Long walletHoldId) throws Exception {
         // Validate user has all container fields set
         if (user.getAcademicYear() == null || user.getAcademicYear().isBlank()) {
             throw new Exception("Your academic year is not set. Please update your profile before uploading PDFs.");
@@ -104,114 +170,153 @@ public class PdfUploadService {
         }
         
         int uploadedCount = 0;
+        BigDecimal billedAmount = BigDecimal.ZERO;
+        String containerKey = PdfMergeService.getContainerKey(
+            user.getAcademicYear(), user.getBranch(), user.getDivision(), user.getSemester(), batch);
         
-        for (MultipartFile file : files) {
-            if (file.isEmpty()) {
-                continue;
-            }
-            
-            // Validate file type
-            String contentType = file.getContentType();
-            if (contentType == null || !contentType.equals("application/pdf")) {
-                throw new Exception("Only PDF files are allowed");
-            }
-            
-            // Validate file size (10MB limit)
-            if (file.getSize() > 10 * 1024 * 1024) {
-                throw new Exception("File size must be less than 10MB");
-            }
-            
-            // Generate unique filename
-            String originalFilename = file.getOriginalFilename();
-            if (originalFilename == null || originalFilename.isEmpty()) {
-                throw new Exception("Invalid file name");
+        try (MDC.MDCCloseable ignored = MDC.putCloseable(RequestLoggingFilter.CONTAINER_KEY, containerKey);
+             Spans.Scope span = spans.start("pdf.upload")) {
+            span.tag("container.key", containerKey).tag("print.type", printType).tag("files", files.length);
+            for (MultipartFile file : files) {
+                if (file.isEmpty()) {
+                    continue;
+                }
+                try {
+                    billedAmount = billedAmount.add(storePdf(file, batch, user, copyCount, printType, walletHoldId));
+                    uploadedCount++;
+                } catch (Exception e) {
+                    span.tag("files.stored", uploadedCount).error(e);
+                    logger.warn("Upload of {} stopped after {} files: {}", file.getOriginalFilename(), uploadedCount,
+                        e.getMessage());
+                    return new UploadResult(uploadedCount, billedAmount, e);
+                }
             }
-            String fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
-            String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
-            
-            // Count actual PDF pages using PDFBox
-            int pageCount = countPdfPages(file);
-            
-            // Calculate billed pages (for duplex, rounds up odd to even)
-            int billedPageCount = pageCount;
-            if (printType == PrintType.DOUBLE_SIDE && pageCount % 2 != 0) {
-                billedPageCount = pageCount + 1;
+            span.tag("files.stored", uploadedCount);
+            logger.info("Stored {} {} uploads, billed {}", uploadedCount, printType, billedAmount);
+        }
+        
+        return new UploadResult(uploadedCount, billedAmount, null);
+    }
+
+    /**
+     * Validate, store and record one file. Returns its cost. The stages (count-pages, blank-page,
+     * store, record) are timed as pdf.upload.stage and traced as children of a pdf.upload.file span
+     * tagged with the file's size and page counts.
+     */
+    private BigDecimal storePdf(MultipartFile file, String batch, User user, int copyCount, PrintType printType,
+                                Long walletHoldId) throws Exception {
+        try (Spans.Scope span = spans.start("pdf.upload.file")) {
+            span.tag("file.size", file.getSize()).tag("copies", copyCount);
+            try {
+                return storePdf(file, batch, user, copyCount, printType, walletHoldId, span);
+            } catch (Exception e) {
+                span.error(e);
+                throw e;
             }
-            
-            // Process file - add blank page for duplex if needed
-            byte[] pdfBytes;
-            long finalFileSize;
-            if (printType == PrintType.DOUBLE_SIDE && pageCount % 2 != 0) {
-                // Add blank page to end of PDF for proper duplex alignment
-                pdfBytes = addBlankPageToPdf(file);
-                finalFileSize = pdfBytes.length;
-            } else {
-                pdfBytes = file.getBytes();
-                finalFileSize = file.getSize();
+        }
+    }
+
+    private BigDecimal storePdf(MultipartFile file, String batch, User user, int copyCount, PrintType printType,
+                                Long walletHoldId, Spans.Scope span) throws Exception {
+        // Validate file type
+        String contentType = file.getContentType();
+        if (contentType == null || !contentType.equals("application/pdf")) {
+            throw new Exception("Only PDF files are allowed");
+        }
+        
+        // Validate file size (10MB limit)
+        if (file.getSize() > 10 * 1024 * 1024) {
+            throw new Exception("File size must be less than 10MB");
+        }
+        
+        // Generate unique filename
+        String originalFilename = file.getOriginalFilename();
+        if (originalFilename == null || originalFilename.isEmpty()) {
+            throw new Exception("Invalid file name");
+        }
+        String fileExtension = originalFilename.substring(originalFilename.lastIndexOf("."));
+        String uniqueFilename = UUID.randomUUID().toString() + fileExtension;
+        
+        // Count actual PDF pages using PDFBox
+        Timer.Sample stage = Timer.start(meterRegistry);
+        int pageCount;
+        try (Spans.Scope ignored = spans.start("pdf.upload.count-pages")) {
+            pageCount = PdfPages.countPages(file);
+        }
+        stage.stop(stageTimer("count-pages", printType));
+        
+        // Calculate billed pages (for duplex, rounds up odd to even)
+        int billedPageCount = pricingEngine.billedPages(pageCount, printType);
+        span.tag("pages", pageCount).tag("pages.billed", billedPageCount);
+        
+        // Process file - add blank page for duplex if needed
+        byte[] pdfBytes;
+        long finalFileSize;
+        if (printType == PrintType.DOUBLE_SIDE && pageCount % 2 != 0) {
+            // Add blank page to end of PDF for proper duplex alignment
+            stage = Timer.start(meterRegistry);
+            try (Spans.Scope ignored = spans.start("pdf.upload.blank-page")) {
+                pdfBytes = PdfPages.addBlankPage(file);
             }
-            
-            // Upload to GitHub (using byte array if modified)
-            String githubPath;
+            stage.stop(stageTimer("blank-page", printType));
+            finalFileSize = pdfBytes.length;
+        } else {
+            pdfBytes = file.getBytes();
+            finalFileSize = file.getSize();
+        }
+        
+        // Upload to GitHub (using byte array if modified)
+        stage = Timer.start(meterRegistry);
+        span.tag("file.size.stored", finalFileSize);
+        String githubPath;
+        try (Spans.Scope ignored = spans.start("pdf.upload.store")) {
             if (printType == PrintType.DOUBLE_SIDE && pageCount % 2 != 0) {
                 githubPath = gitHubStorageService.uploadFileBytes(pdfBytes, uniqueFilename, batch);
             } else {
                 githubPath = gitHubStorageService.uploadFile(file, uniqueFilename, batch);
             }
-            
-            // Calculate billing info using billed page count and print type pricing
-            BigDecimal pricePerPage = BigDecimal.valueOf(printType.getPricePerPage());
-            BigDecimal totalCost = pricePerPage.multiply(
-                BigDecimal.valueOf(billedPageCount).multiply(BigDecimal.valueOf(copyCount))
-            );
-            
-            // Save to database with copy count, billing info, print type and department info
-            PdfUpload upload = new PdfUpload(
-                uniqueFilename,
-                originalFilename,
-                githubPath,
-                user.getBranch(),
-                user.getDivision(),
-                user.getAcademicYear(),
-                user.getSemester(),
-                batch,
-                finalFileSize,
-                user,
-                copyCount,
-                pageCount,
-                billedPageCount,
-                totalCost,
-                printType
-            );
-            
-            pdfUploadRepository.save(upload);
-            uploadedCount++;
         }
+        stage.stop(stageTimer("store", printType));
         
-        return uploadedCount;
-    }
-    
-    /**
-     * Add a blank page to the end of a PDF for proper duplex printing alignment
-     */
-    private byte[] addBlankPageToPdf(MultipartFile file) throws Exception {
-        try (PDDocument document = PDDocument.load(file.getInputStream());
-             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            
-            // Get the last page's size to match the blank page
-            PDPage lastPage = document.getPage(document.getNumberOfPages() - 1);
-            PDRectangle pageSize = lastPage.getMediaBox();
-            
-            // Add a blank page with the same size
-            PDPage blankPage = new PDPage(pageSize);
-            document.addPage(blankPage);
-            
-            document.save(outputStream);
-            return outputStream.toByteArray();
-        } catch (IOException e) {
-            throw new Exception("Failed to add blank page to PDF: " + e.getMessage());
+        // Calculate billing info using print type pricing
+        BigDecimal totalCost = pricingEngine.price(pageCount, copyCount, printType);
+        
+        // Save to database with copy count, billing info, print type and department info
+        PdfUpload upload = new PdfUpload(
+            uniqueFilename,
+            originalFilename,
+            githubPath,
+            user.getBranch(),
+            user.getDivision(),
+            user.getAcademicYear(),
+            user.getSemester(),
+            batch,
+            finalFileSize,
+            user,
+            copyCount,
+            pageCount,
+            billedPageCount,
+            totalCost,
+            printType
+        );
+        upload.setWalletHoldId(walletHoldId);
+        
+        stage = Timer.start(meterRegistry);
+        try (Spans.Scope ignored = spans.start("pdf.upload.record")) {
+            pdfUploadRepository.save(upload);
         }
+        stage.stop(stageTimer("record", printType));
+
+        DistributionSummary.builder("pdf.upload.size").baseUnit("bytes").tag("printType", printType.name())
+            .register(meterRegistry).record(finalFileSize);
+        meterRegistry.summary("pdf.upload.pages", "printType", printType.name()).record(pageCount);
+        return totalCost;
     }
 
+    private Timer stageTimer(String stage, PrintType printType) {
+        return meterRegistry.timer("pdf.upload.stage", "stage", stage, "printType", printType.name());
+    }
+    
     public void deletePdf(Long id, User user) throws Exception {
         PdfUpload upload = pdfUploadRepository.findById(id)
             .orElseThrow(() -> new Exception("PDF not found"));
@@ -236,58 +341,70 @@ public class PdfUploadService {
     /**
      * Mark all uploads in the container as PROCESSED
      * Container is defined by (academicYear, branch, division, semester, batch)
+     * Prefer clearUploads after a merge: this also clears files uploaded while it ran
+     * @return number of uploads transitioned
      */
     @Transactional
-    public void clearContainerUploads(String academicYear, String branch, String division, 
-                                       String semester, String batch) {
-        List<PdfUpload> uploads = pdfUploadRepository.findByAcademicYearAndBranchAndDivisionAndSemesterAndBatchAndStatusOrderByUploadedAtAsc(
-            academicYear, branch, division, semester, batch, PdfUpload.Status.PENDING);
-        for (PdfUpload upload : uploads) {
-            upload.setStatus(PdfUpload.Status.PROCESSED);
-            pdfUploadRepository.save(upload);
-        }
+    public int clearContainerUploads(String academicYear, String branch, String division, 
+                                      String semester, String batch) {
+        return pdfUploadRepository.updateContainerStatus(
+            academicYear, branch, division, semester, batch, PdfUpload.Status.PENDING, PdfUpload.Status.PROCESSED);
     }
     
     /**
      * Mark uploads in the container with specific print type as PROCESSED
+     * @return number of uploads transitioned
      */
     @Transactional
-    public void clearContainerUploadsByPrintType(String academicYear, String branch, String division, 
-                                                  String semester, String batch, PrintType printType) {
-        List<PdfUpload> uploads = pdfUploadRepository.findByAcademicYearAndBranchAndDivisionAndSemesterAndBatchAndPrintTypeAndStatusOrderByUploadedAtAsc(
-            academicYear, branch, division, semester, batch, printType, PdfUpload.Status.PENDING);
-        for (PdfUpload upload : uploads) {
-            upload.setStatus(PdfUpload.Status.PROCESSED);
-            pdfUploadRepository.save(upload);
+    public int clearContainerUploadsByPrintType(String academicYear, String branch, String division, 
+                                                 String semester, String batch, PrintType printType) {
+        return pdfUploadRepository.updateContainerStatusByPrintType(
+            academicYear, branch, division, semester, batch, printType,
+            PdfUpload.Status.PENDING, PdfUpload.Status.PROCESSED);
+    }
+    
+    /**
+     * Mark only the given PENDING uploads as PROCESSED.
+     * Used after a merge so files uploaded while the merge was running are not skipped.
+     * @return number of uploads transitioned
+     */
+    @Transactional
+    public int clearUploads(Collection<Long> uploadIds) {
+        if (uploadIds == null || uploadIds.isEmpty()) {
+            return 0;
         }
+        return pdfUploadRepository.updateStatusByIds(uploadIds, PdfUpload.Status.PENDING, PdfUpload.Status.PROCESSED);
     }
 
     /**
-     * @deprecated Use clearContainerUploads instead
+     * Distinct email addresses of the students who own the given uploads
      */
-    @Deprecated
-    public void clearBatchUploads(String branch, String division, String batch) {
-        List<PdfUpload> uploads = pdfUploadRepository.findByBranchAndDivisionAndBatchAndStatusOrderByUploadedAtAsc(
-            branch, division, batch, PdfUpload.Status.PENDING);
-        for (PdfUpload upload : uploads) {
-            upload.setStatus(PdfUpload.Status.PROCESSED);
-            pdfUploadRepository.save(upload);
+    public List<String> getUploaderEmails(Collection<Long> uploadIds) {
+        if (uploadIds == null || uploadIds.isEmpty()) {
+            return List.of();
         }
+        return pdfUploadRepository.findDistinctUserEmailsByIdIn(uploadIds);
+    }
+
+    /**
+     * @deprecated Use clearUploads with the ids that were actually merged
+     */
+    @Deprecated
+    @Transactional
+    public int clearBatchUploads(String branch, String division, String batch) {
+        return pdfUploadRepository.updateStatusByBranchAndDivisionAndBatch(
+            branch, division, batch, PdfUpload.Status.PENDING, PdfUpload.Status.PROCESSED);
     }
 
     /**
      * Legacy method - marks all pending uploads with this batch name as processed
-     * @deprecated Use clearContainerUploads instead for proper container-based clearing
+     * @deprecated Use clearUploads with the ids that were actually merged
      */
     @Deprecated
-    public void clearBatchUploads(String batch) {
+    @Transactional
+    public int clearBatchUploads(String batch) {
         // This will process all pending uploads in the batch, regardless of branch/division
-        List<PdfUpload> uploads = pdfUploadRepository.findByBatchAndStatusOrderByUploadedAtAsc(
-            batch, PdfUpload.Status.PENDING);
-        for (PdfUpload upload : uploads) {
-            upload.setStatus(PdfUpload.Status.PROCESSED);
-            pdfUploadRepository.save(upload);
-        }
+        return pdfUploadRepository.updateStatusByBatch(batch, PdfUpload.Status.PENDING, PdfUpload.Status.PROCESSED);
     }
 
     public List<PdfUpload> getPendingUploads() {
@@ -303,12 +420,12 @@ public class PdfUploadService {
     }
 
     public Map<String, Long> getMonthlyUploadStats() {
-        List<PdfUpload> allUploads = pdfUploadRepository.findAll();
-        return allUploads.stream()
-            .collect(Collectors.groupingBy(
-                upload -> upload.getUploadedAt().format(DateTimeFormatter.ofPattern("yyyy-MM")),
-                Collectors.counting()
-            ));
+        Map<String, Long> stats = new TreeMap<>();
+        for (Object[] row : pdfUploadRepository.countByUploadMonth()) {
+            String month = String.format("%04d-%02d", ((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+            stats.put(month, ((Number) row[2]).longValue());
+        }
+        return stats;
     }
 
     /**
@@ -316,18 +433,19 @@ public class PdfUploadService {
      * Container key format: academicYear|branch|division|semester|batch
      */
     public Map<String, Map<String, Long>> getBatchStatistics() {
-        List<PdfUpload> allUploads = pdfUploadRepository.findAll();
-        return allUploads.stream()
-            .collect(Collectors.groupingBy(
-                upload -> String.join("|",
-                    safe(upload.getAcademicYear()),
-                    safe(upload.getBranch()),
-                    safe(upload.getDivision()),
-                    safe(upload.getSemester()),
-                    safe(upload.getBatch())
-                ),
-                Collectors.groupingBy(u -> u.getStatus().toString(), Collectors.counting())
-            ));
+        Map<String, Map<String, Long>> stats = new HashMap<>();
+        for (Object[] row : pdfUploadRepository.countByContainerAndStatus()) {
+            String containerKey = String.join("|",
+                safe((String) row[0]),
+                safe((String) row[1]),
+                safe((String) row[2]),
+                safe((String) row[3]),
+                safe((String) row[4])
+            );
+            stats.computeIfAbsent(containerKey, k -> new HashMap<>())
+                .merge(String.valueOf(row[5]), ((Number) row[6]).longValue(), Long::sum);
+        }
+        return stats;
     }
 
     private String safe(String v) { return v == null ? "" : v; }
@@ -336,8 +454,68 @@ public class PdfUploadService {
         return pdfUploadRepository.findTop50ByOrderByUploadedAtDesc();
     }
 
-    public List<PdfUpload> getAllBatchUploads(String batch) {
-        return pdfUploadRepository.findByBatchOrderByUploadedAtDesc(batch);
+    /**
+     * Keyset page of every upload in a batch (any status), newest first.
+     * @param beforeId id of the last upload already shown, or null for the first page
+     */
+    public KeysetPage<PdfUpload> getAllBatchUploadsPage(String batch, Long beforeId, int size) {
+        List<PdfUpload> fetched = pdfUploadRepository.findByBatchAndIdLessThanOrderByIdDesc(
+            batch, beforeId == null ? Long.MAX_VALUE : beforeId, PageRequest.of(0, size + 1));
+        return KeysetPage.of(fetched, size, PdfUpload::getId);
+    }
+
+    /**
+     * Keyset page of PENDING uploads in a batch, oldest first (merge order).
+     * @param afterId id of the last upload already shown, or null for the first page
+     */
+    public KeysetPage<PdfUpload> getBatchUploadsPage(String batch, Long afterId, int size) {
+        List<PdfUpload> fetched = pdfUploadRepository.findByBatchAndStatusAndIdGreaterThanOrderByIdAsc(
+            batch, PdfUpload.Status.PENDING, afterId == null ? 0L : afterId, PageRequest.of(0, size + 1));
+        return KeysetPage.of(fetched, size, PdfUpload::getId);
+    }
+
+    /**
+     * Per-status file count, total size and distinct students for a batch, aggregated in the database
+     */
+    public Map<PdfUpload.Status, UploadSummary> getBatchSummaryByStatus(String batch) {
+        Map<PdfUpload.Status, UploadSummary> summary = new HashMap<>();
+        for (Object[] row : pdfUploadRepository.summarizeBatchByStatus(batch)) {
+            summary.put((PdfUpload.Status) row[0], new UploadSummary(
+                ((Number) row[1]).longValue(),
+                ((Number) row[2]).longValue(),
+                ((Number) row[3]).longValue()));
+        }
+        return summary;
+    }
+
+    public Map<String, Long> getMonthlyUploadStatsForBatch(String batch) {
+        Map<String, Long> stats = new TreeMap<>();
+        for (Object[] row : pdfUploadRepository.countByUploadMonthForBatch(batch)) {
+            String month = String.format("%04d-%02d", ((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+            stats.put(month, ((Number) row[2]).longValue());
+        }
+        return stats;
+    }
+
+    /**
+     * Upload counts for the given users in one grouped query; users without uploads map to 0
+     */
+    public Map<Long, Long> getUploadCountsByUsers(Collection<Long> userIds) {
+        Map<Long, Long> counts = new HashMap<>();
+        if (userIds.isEmpty()) {
+            return counts;
+        }
+        for (Long userId : userIds) {
+            counts.put(userId, 0L);
+        }
+        for (Object[] row : pdfUploadRepository.countByUserIds(userIds)) {
+            counts.put((Long) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    public long countStudentUploads() {
+        return pdfUploadRepository.countByUserRole(User.Role.STUDENT);
     }
 
     public List<PdfUpload> getAllUploadsByStudent(Long userId) {
@@ -354,7 +532,7 @@ public class PdfUploadService {
             if (!file.isEmpty()) {
                 String contentType = file.getContentType();
                 if (contentType != null && contentType.equals("application/pdf")) {
-                    totalPages += countPdfPages(file);
+                    totalPages += PdfPages.countPages(file);
                 }
             }
         }
@@ -362,52 +540,18 @@ public class PdfUploadService {
     }
     
     /**
-     * Calculate total cost for files based on print type
+     * Calculate total cost for files based on print type - the sum of what storing each file will bill
      */
     public BigDecimal calculateTotalCost(MultipartFile[] files, int copyCount, PrintType printType) throws Exception {
-        int totalPages = calculateTotalPages(files);
-        int billedPages = totalPages;
-        
-        // For duplex, each file's odd pages are rounded up individually
-        // But for pre-calculation, we approximate with total pages
-        if (printType == PrintType.DOUBLE_SIDE) {
-            // For accurate pre-calculation, count each file individually
-            billedPages = 0;
-            for (MultipartFile file : files) {
-                if (!file.isEmpty()) {
-                    String contentType = file.getContentType();
-                    if (contentType != null && contentType.equals("application/pdf")) {
-                        int filePages = countPdfPages(file);
-                        // Round up odd pages to even for each file
-                        if (filePages % 2 != 0) {
-                            filePages += 1;
-                        }
-                        billedPages += filePages;
-                    }
+        long totalPaise = 0;
+        for (MultipartFile file : files) {
+            if (!file.isEmpty()) {
+                String contentType = file.getContentType();
+                if (contentType != null && contentType.equals("application/pdf")) {
+                    totalPaise += pricingEngine.pricePaise(PdfPages.countPages(file), copyCount, printType);
                 }
             }
         }
-        
-        BigDecimal pricePerPage = BigDecimal.valueOf(printType.getPricePerPage());
-        return pricePerPage.multiply(BigDecimal.valueOf(billedPages))
-                          .multiply(BigDecimal.valueOf(copyCount));
-    }
-    
-    /**
-     * Count the actual number of pages in a PDF file using Apache PDFBox
-     * @param file the PDF file to analyze
-     * @return number of pages in the PDF
-     * @throws Exception if PDF cannot be read or processed
-     */
-    private int countPdfPages(MultipartFile file) throws Exception {
-        try (PDDocument document = PDDocument.load(file.getInputStream())) {
-            int pageCount = document.getNumberOfPages();
-            if (pageCount <= 0) {
-                throw new Exception("Invalid PDF: No pages found in " + file.getOriginalFilename());
-            }
-            return pageCount;
-        } catch (IOException e) {
-            throw new Exception("Failed to read PDF file: " + file.getOriginalFilename() + ". Error: " + e.getMessage());
-        }
+        return PricingEngine.toRupees(totalPaise);
     }
 }
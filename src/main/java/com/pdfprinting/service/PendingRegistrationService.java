@@ -1,43 +1,146 @@
 package com.pdfprinting.service;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import com.pdfprinting.model.PendingRegistration;
+import com.pdfprinting.repository.PendingRegistrationRepository;
 
 /**
  * Service to manage temporary pending registrations.
- * Stores user registration data in cache until OTP verification is successful.
- * Automatically cleans up expired registrations.
+ * Stores user registration data until OTP verification is successful, either in memory or, with
+ * registration.pending.store=jdbc, in the pending_registrations table so every instance sees the
+ * same registrations and a restart keeps in-flight OTPs.
+ * The store is capped (registration.pending.max-entries): when it is full of live registrations,
+ * new ones are refused rather than evicting someone's in-flight OTP.
  */
 @Service
 public class PendingRegistrationService {
 
+    private static final Logger logger = LoggerFactory.getLogger(PendingRegistrationService.class);
+
+    @Autowired
+    private PendingRegistrationRepository pendingRegistrationRepository;
+
+    @Value("${registration.pending.store:memory}")
+    private String store;
+
+    @Value("${registration.pending.max-entries:10000}")
+    private int maxEntries;
+
     private final ConcurrentHashMap<String, PendingRegistration> pendingRegistrations = new ConcurrentHashMap<>();
-    private final ScheduledExecutorService cleanupExecutor = Executors.newScheduledThreadPool(1);
 
-    public PendingRegistrationService() {
-        // Schedule cleanup of expired registrations every 5 minutes
-        cleanupExecutor.scheduleAtFixedRate(this::cleanupExpiredRegistrations, 5, 5, TimeUnit.MINUTES);
+    // Expiry index for the in-memory store: the sweep pops only entries that are due
+    private final DelayQueue<Expiry> expiries = new DelayQueue<>();
+
+    private final AtomicLong expiredEvictions = new AtomicLong();
+    private final AtomicLong rejectedWhenFull = new AtomicLong();
+
+    private static class Expiry implements Delayed {
+        final String email;
+        final long expiresAt; // epoch millis
+
+        Expiry(String email, long expiresAt) {
+            this.email = email;
+            this.expiresAt = expiresAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAt - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiresAt, ((Expiry) other).expiresAt);
+        }
+    }
+
+    private boolean persistent() {
+        return "jdbc".equalsIgnoreCase(store);
     }
 
     /**
      * Store a pending registration
+     * @throws IllegalStateException if the store is full of live registrations
      */
     public void savePendingRegistration(PendingRegistration pending) {
-        pendingRegistrations.put(pending.getEmail(), pending);
-        System.out.println("[DEBUG] Saved pending registration for email: " + pending.getEmail() + ", OTP Expiry: " + pending.getOtpExpiry());
+        String email = pending.getEmail();
+        if (persistent()) {
+            if (!pendingRegistrationRepository.existsById(email)
+                    && pendingRegistrationRepository.count() >= maxEntries) {
+                evictExpired();
+                if (pendingRegistrationRepository.count() >= maxEntries) {
+                    rejectFull();
+                }
+            }
+            pendingRegistrationRepository.save(pending);
+        } else {
+            if (!pendingRegistrations.containsKey(email) && pendingRegistrations.size() >= maxEntries) {
+                evictExpired();
+                if (pendingRegistrations.size() >= maxEntries) {
+                    rejectFull();
+                }
+            }
+            pendingRegistrations.put(email, pending);
+            track(pending);
+        }
+        logger.debug("Saved pending registration for {}, OTP expiry {}", email, pending.getOtpExpiry());
+    }
+
+    private void rejectFull() {
+        rejectedWhenFull.incrementAndGet();
+        logger.warn("Pending registration store is full ({} entries); refusing new registrations", maxEntries);
+        throw new IllegalStateException("Too many registrations in progress. Please try again in a few minutes.");
+    }
+
+    private void track(PendingRegistration pending) {
+        if (pending.getOtpExpiry() != null) {
+            // +1: due strictly after the expiry instant, when isExpired() already holds
+            expiries.add(new Expiry(pending.getEmail(), epochMillis(pending.getOtpExpiry()) + 1));
+        }
+    }
+
+    /**
+     * Fill in the password hash of a registration that was recorded before its hash was ready.
+     * Only the hash job named by the registration's hash token may set it, and only once, so a
+     * late hash from an earlier registration for the same email cannot replace the password.
+     * @return whether a registration was updated
+     */
+    public boolean setPasswordHash(String email, String hashToken, String encodedPassword) {
+        if (persistent()) {
+            return pendingRegistrationRepository.setPasswordIfMissing(email, hashToken, encodedPassword) == 1;
+        }
+        boolean[] updated = {false};
+        pendingRegistrations.computeIfPresent(email, (key, pending) -> {
+            if (pending.getPassword() == null && hashToken.equals(pending.getHashToken())) {
+                pending.setPassword(encodedPassword);
+                updated[0] = true;
+            }
+            return pending;
+        });
+        return updated[0];
     }
 
     /**
      * Retrieve a pending registration by email
      */
     public PendingRegistration getPendingRegistration(String email) {
+        if (persistent()) {
+            return pendingRegistrationRepository.findById(email).orElse(null);
+        }
         return pendingRegistrations.get(email);
     }
 
@@ -45,15 +148,33 @@ public class PendingRegistrationService {
      * Remove a pending registration after successful verification
      */
     public void removePendingRegistration(String email) {
-        pendingRegistrations.remove(email);
-        System.out.println("[DEBUG] Removed pending registration for email: " + email);
+        if (persistent()) {
+            pendingRegistrationRepository.deleteById(email);
+        } else {
+            pendingRegistrations.remove(email);
+        }
+        logger.debug("Removed pending registration for {}", email);
+    }
+
+    /**
+     * Withdraw a registration whose password could not be hashed, unless it has since been
+     * replaced by a newer registration for the same email.
+     */
+    public void removePendingRegistration(String email, String hashToken) {
+        if (persistent()) {
+            pendingRegistrationRepository.deleteByEmailAndHashToken(email, hashToken);
+        } else {
+            pendingRegistrations.computeIfPresent(email,
+                    (key, pending) -> hashToken.equals(pending.getHashToken()) ? null : pending);
+        }
+        logger.debug("Withdrew pending registration for {}", email);
     }
 
     /**
      * Check if a pending registration exists and is not expired
      */
     public boolean hasPendingRegistration(String email) {
-        PendingRegistration pending = pendingRegistrations.get(email);
+        PendingRegistration pending = getPendingRegistration(email);
         if (pending == null) {
             return false;
         }
@@ -85,8 +206,7 @@ public class PendingRegistrationService {
         String entered = enteredOtp == null ? "" : enteredOtp.trim();
         boolean isValid = pending.getOtp() != null && pending.getOtp().equals(entered);
 
-        System.out.println("[DEBUG] OTP verification for " + email + ": storedOtp=" + pending.getOtp() + 
-                         ", entered=" + entered + ", isValid=" + isValid + ", expiry=" + pending.getOtpExpiry());
+        logger.debug("OTP verification for {}: valid={}, expiry={}", email, isValid, pending.getOtpExpiry());
 
         return isValid;
     }
@@ -99,26 +219,54 @@ public class PendingRegistrationService {
         if (pending != null && !pending.isExpired()) {
             pending.setOtp(newOtp);
             pending.setOtpExpiry(LocalDateTime.now().plusMinutes(10));
-            System.out.println("[DEBUG] Resent OTP for email: " + email + ", New expiry: " + pending.getOtpExpiry());
+            if (persistent()) {
+                // Only the OTP columns: a full save could race the password hash being filled in
+                pendingRegistrationRepository.updateOtp(email, newOtp, pending.getOtpExpiry());
+            } else {
+                track(pending);
+            }
+            logger.debug("Resent OTP for {}, new expiry {}", email, pending.getOtpExpiry());
         }
     }
 
     /**
-     * Clean up expired registrations from cache
+     * Drop expired registrations. The in-memory store pops due entries off the expiry queue; an
+     * entry whose OTP was resent since is skipped, its newer expiry is queued separately.
      */
-    private void cleanupExpiredRegistrations() {
-        int sizeBefore = pendingRegistrations.size();
-        pendingRegistrations.entrySet().removeIf(entry -> entry.getValue().isExpired());
-        int sizeAfter = pendingRegistrations.size();
-        if (sizeBefore > sizeAfter) {
-            System.out.println("[DEBUG] Cleaned up " + (sizeBefore - sizeAfter) + " expired pending registrations");
+    @Scheduled(fixedDelayString = "${registration.pending.sweep-interval-ms:30000}")
+    public int evictExpired() {
+        int evicted;
+        if (persistent()) {
+            evicted = pendingRegistrationRepository.deleteExpired(LocalDateTime.now());
+        } else {
+            evicted = 0;
+            Expiry due;
+            while ((due = expiries.poll()) != null) {
+                PendingRegistration pending = pendingRegistrations.get(due.email);
+                if (pending != null && pending.isExpired()
+                        && pendingRegistrations.remove(due.email, pending)) {
+                    evicted++;
+                }
+            }
         }
+        if (evicted > 0) {
+            expiredEvictions.addAndGet(evicted);
+            logger.debug("Cleaned up {} expired pending registrations", evicted);
+        }
+        return evicted;
+    }
+
+    private static long epochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
     }
 
     /**
      * Get count of pending registrations (for monitoring)
      */
     public int getPendingRegistrationCount() {
-        return pendingRegistrations.size();
+        return persistent() ? (int) pendingRegistrationRepository.count() : pendingRegistrations.size();
     }
+
+    public long getExpiredEvictions() { return expiredEvictions.get(); }
+    public long getRejectedWhenFull() { return rejectedWhenFull.get(); }
 }
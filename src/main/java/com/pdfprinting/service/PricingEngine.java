@@ -0,0 +1,114 @@
+package com.pdfprinting.service;
+
+import java.math.BigDecimal;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.pdfprinting.model.PdfUpload.PrintType;
+
+/**
+ * Single source of print prices. Works in integer paise; convert with {@link #toRupees} only
+ * where a BigDecimal is stored or shown.
+ *
+ * Each print type's tariff is configured as "basePaise[,minPageCopies:paise...]", e.g.
+ * pricing.tariff.colour=700,200:650,1000:600 charges ₹7/page, ₹6.50/page from 200 page-copies
+ * and ₹6/page from 1000. Volume is counted per file (billed pages x copies), so the price of an
+ * upload is the sum of its files' prices.
+ */
+@Service
+public class PricingEngine {
+
+    // Indexed by PrintType.ordinal(); tiers ascending by minimum quantity
+    private final long[] basePaise;
+    private final long[][] tierMinQuantity;
+    private final long[][] tierPaise;
+
+    @Autowired
+    public PricingEngine(@Value("${pricing.tariff.single-side:200}") String singleSide,
+                         @Value("${pricing.tariff.double-side:100}") String doubleSide,
+                         @Value("${pricing.tariff.colour:700}") String colour) {
+        int types = PrintType.values().length;
+        basePaise = new long[types];
+        tierMinQuantity = new long[types][];
+        tierPaise = new long[types][];
+        parseTariff(PrintType.SINGLE_SIDE, singleSide);
+        parseTariff(PrintType.DOUBLE_SIDE, doubleSide);
+        parseTariff(PrintType.COLOUR, colour);
+    }
+
+    /** The standard tariff: ₹2 single side, ₹1 duplex, ₹7 colour, no volume tiers. */
+    public static PricingEngine defaults() {
+        return new PricingEngine("200", "100", "700");
+    }
+
+    private void parseTariff(PrintType printType, String spec) {
+        String[] parts = spec.split(",");
+        int t = printType.ordinal();
+        try {
+            basePaise[t] = nonNegative(Long.parseLong(parts[0].trim()));
+            tierMinQuantity[t] = new long[parts.length - 1];
+            tierPaise[t] = new long[parts.length - 1];
+            for (int i = 1; i < parts.length; i++) {
+                String[] tier = parts[i].split(":");
+                if (tier.length != 2) {
+                    throw new IllegalArgumentException("expected minPageCopies:paise, got " + parts[i]);
+                }
+                tierMinQuantity[t][i - 1] = nonNegative(Long.parseLong(tier[0].trim()));
+                tierPaise[t][i - 1] = nonNegative(Long.parseLong(tier[1].trim()));
+                if (i > 1 && tierMinQuantity[t][i - 1] <= tierMinQuantity[t][i - 2]) {
+                    throw new IllegalArgumentException("tiers must be in ascending order");
+                }
+            }
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid pricing tariff for " + printType + ": '" + spec + "' (" + e.getMessage() + ")", e);
+        }
+    }
+
+    private static long nonNegative(long value) {
+        if (value < 0) {
+            throw new IllegalArgumentException("negative value " + value);
+        }
+        return value;
+    }
+
+    /**
+     * Pages actually printed: duplex pads odd page counts with a blank page.
+     */
+    public int billedPages(int pageCount, PrintType printType) {
+        if (printType == PrintType.DOUBLE_SIDE && (pageCount & 1) != 0) {
+            return pageCount + 1;
+        }
+        return pageCount;
+    }
+
+    /**
+     * Price of one file in paise. Allocation-free.
+     */
+    public long pricePaise(int pageCount, int copyCount, PrintType printType) {
+        long quantity = (long) billedPages(pageCount, printType) * copyCount;
+        return Math.multiplyExact(quantity, paisePerPage(printType, quantity));
+    }
+
+    /**
+     * Per-page rate for a file of the given billed page-copies: the highest tier it reaches.
+     */
+    public long paisePerPage(PrintType printType, long quantity) {
+        int t = printType.ordinal();
+        long[] minQuantity = tierMinQuantity[t];
+        long rate = basePaise[t];
+        for (int i = 0; i < minQuantity.length && quantity >= minQuantity[i]; i++) {
+            rate = tierPaise[t][i];
+        }
+        return rate;
+    }
+
+    public BigDecimal price(int pageCount, int copyCount, PrintType printType) {
+        return toRupees(pricePaise(pageCount, copyCount, printType));
+    }
+
+    public static BigDecimal toRupees(long paise) {
+        return BigDecimal.valueOf(paise, 2);
+    }
+}
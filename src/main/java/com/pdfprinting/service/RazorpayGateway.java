@@ -0,0 +1,111 @@
+package com.pdfprinting.service;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Base64;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.pdfprinting.config.RazorpayConfig;
+import com.pdfprinting.security.HmacSha256Verifier;
+
+/**
+ * The application's single connection to the Razorpay REST API. One HttpClient is shared by all
+ * requests, so TLS connections to the gateway are pooled and kept alive; the base URL is
+ * configurable so tests can point it at a local stub.
+ */
+@Service
+public class RazorpayGateway {
+
+    private final String apiBaseUrl;
+    private final Duration requestTimeout;
+    private final HttpClient httpClient;
+    private final String authorization;
+    private final HmacSha256Verifier paymentSignatures;
+    private final HmacSha256Verifier webhookSignatures;
+
+    public RazorpayGateway(RazorpayConfig razorpayConfig,
+                           @Value("${razorpay.api-base-url:https://api.razorpay.com}") String apiBaseUrl,
+                           @Value("${razorpay.timeout-ms:10000}") long timeoutMs) {
+        this.apiBaseUrl = apiBaseUrl.endsWith("/") ? apiBaseUrl.substring(0, apiBaseUrl.length() - 1) : apiBaseUrl;
+        this.requestTimeout = Duration.ofMillis(timeoutMs);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofMillis(timeoutMs))
+                .build();
+
+        String keyId = razorpayConfig.getKey().getId();
+        String keySecret = razorpayConfig.getKey().getSecret();
+        boolean configured = keyId != null && keySecret != null && !keySecret.isEmpty();
+        this.authorization = configured
+                ? "Basic " + Base64.getEncoder().encodeToString((keyId + ":" + keySecret).getBytes(StandardCharsets.UTF_8))
+                : null;
+        this.paymentSignatures = configured ? new HmacSha256Verifier(keySecret) : null;
+
+        String webhookSecret = razorpayConfig.getWebhookSecret();
+        this.webhookSignatures = webhookSecret != null && !webhookSecret.isEmpty()
+                ? new HmacSha256Verifier(webhookSecret) : null;
+    }
+
+    /**
+     * Create an order and return its id.
+     */
+    public String createOrder(long amountInPaise, String currency, String receipt) throws Exception {
+        JSONObject orderRequest = new JSONObject();
+        orderRequest.put("amount", amountInPaise);
+        orderRequest.put("currency", currency);
+        orderRequest.put("receipt", receipt);
+        return send(request("/v1/orders")
+                .POST(HttpRequest.BodyPublishers.ofString(orderRequest.toString()))
+                .header("Content-Type", "application/json")
+                .build()).getString("id");
+    }
+
+    /**
+     * Checkout's razorpay_signature: HMAC-SHA256 of "orderId|paymentId" under the key secret.
+     */
+    public boolean verifyPaymentSignature(String orderId, String paymentId, String signature) {
+        return paymentSignatures != null && paymentSignatures.matches(orderId + "|" + paymentId, signature);
+    }
+
+    /**
+     * X-Razorpay-Signature: HMAC-SHA256 of the raw webhook body under the webhook secret.
+     */
+    public boolean verifyWebhookSignature(byte[] payload, String signature) {
+        return webhookSignatures != null && payload != null && webhookSignatures.matches(payload, signature);
+    }
+
+    /**
+     * One page of payments created between two epoch seconds (inclusive), newest first.
+     * A page shorter than count is the last one.
+     */
+    public JSONArray fetchPayments(long fromEpochSecond, long toEpochSecond, int count, int skip) throws Exception {
+        return send(request("/v1/payments?from=" + fromEpochSecond + "&to=" + toEpochSecond
+                + "&count=" + count + "&skip=" + skip)
+                .GET()
+                .build()).getJSONArray("items");
+    }
+
+    private HttpRequest.Builder request(String path) throws Exception {
+        if (authorization == null) {
+            throw new Exception("Razorpay keys are not configured");
+        }
+        return HttpRequest.newBuilder(URI.create(apiBaseUrl + path))
+                .timeout(requestTimeout)
+                .header("Authorization", authorization);
+    }
+
+    private JSONObject send(HttpRequest request) throws Exception {
+        HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() / 100 != 2) {
+            throw new Exception("Razorpay API error " + response.statusCode() + ": " + response.body());
+        }
+        return new JSONObject(response.body());
+    }
+}
@@ -3,7 +3,6 @@ package com.pdfprinting.service;
 import com.pdfprinting.model.RefundRequest;
 import com.pdfprinting.model.Transaction;
 import com.pdfprinting.model.User;
-import com.pdfprinting.model.Wallet;
 import com.pdfprinting.repository.RefundRequestRepository;
 import com.pdfprinting.repository.TransactionRepository;
 import com.pdfprinting.repository.WalletRepository;
@@ -43,7 +42,7 @@ public class RefundService {
 
     @Transactional
     public RefundRequest createRequest(User user, BigDecimal requestedAmount, String upiId, String reason) throws Exception {
-        Wallet wallet = walletService.getOrCreateWallet(user);
+        BigDecimal balance = walletService.getWalletBalance(user);
         // Prevent duplicate PENDING requests
         if (refundRequestRepository.existsByUserAndStatus(user, RefundRequest.Status.PENDING)) {
             throw new Exception("You already have a pending refund request. Please wait for processing (up to 7 working days).");
@@ -51,7 +50,7 @@ public class RefundService {
         if (requestedAmount == null || requestedAmount.compareTo(BigDecimal.ZERO) <= 0) {
             throw new Exception("Invalid amount");
         }
-        if (wallet.getBalance().compareTo(requestedAmount) < 0) {
+        if (balance.compareTo(requestedAmount) < 0) {
             throw new Exception("Requested amount exceeds wallet balance");
         }
         // Compute fee and net payout
@@ -84,10 +83,8 @@ public class RefundService {
         if (rr.getStatus() != RefundRequest.Status.PENDING) throw new Exception("Refund not in PENDING state");
 
         User user = rr.getUser();
-        Wallet wallet = walletService.getOrCreateWallet(user);
-
         // Ensure wallet still has sufficient balance when processing
-        if (wallet.getBalance().compareTo(rr.getAmountRequested()) < 0) {
+        if (walletService.getWalletBalance(user).compareTo(rr.getAmountRequested()) < 0) {
             throw new Exception("Insufficient wallet balance at processing time");
         }
 
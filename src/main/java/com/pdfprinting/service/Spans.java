@@ -0,0 +1,81 @@
+package com.pdfprinting.service;
+
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.tracing.Span;
+import io.micrometer.tracing.Tracer;
+
+/**
+ * Spans around the upload, merge, storage, wallet and email work, reported through Micrometer
+ * Tracing (OTLP, see application.properties). A span is current while open, so the GitHub and Brevo
+ * calls made inside it become its children. Without a tracer, as in the slice tests, spans are no-ops.
+ */
+@Component
+public class Spans {
+
+    private final Tracer tracer;
+
+    @Autowired
+    public Spans(ObjectProvider<Tracer> tracer) {
+        this.tracer = tracer.getIfAvailable(() -> Tracer.NOOP);
+    }
+
+    public Spans(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /** Start a child of the current span and make it current until closed. */
+    public Scope start(String name) {
+        Span span = tracer.nextSpan().name(name).start();
+        return new Scope(span, tracer.withSpan(span));
+    }
+
+    /** Tag the current span, for values only known deep inside it. */
+    public void tag(String key, Object value) {
+        Span span = tracer.currentSpan();
+        if (span != null) {
+            span.tag(key, String.valueOf(value));
+        }
+    }
+
+    /** Record an event (e.g. a retry) on the current span. */
+    public void event(String name) {
+        Span span = tracer.currentSpan();
+        if (span != null) {
+            span.event(name);
+        }
+    }
+
+    /** The task runs in the current span's context on whichever thread executes it. */
+    public Runnable wrap(Runnable task) {
+        return tracer.currentTraceContext().wrap(task);
+    }
+
+    public static final class Scope implements AutoCloseable {
+
+        private final Span span;
+        private final Tracer.SpanInScope inScope;
+
+        private Scope(Span span, Tracer.SpanInScope inScope) {
+            this.span = span;
+            this.inScope = inScope;
+        }
+
+        public Scope tag(String key, Object value) {
+            span.tag(key, String.valueOf(value));
+            return this;
+        }
+
+        public void error(Throwable error) {
+            span.error(error);
+        }
+
+        @Override
+        public void close() {
+            inScope.close();
+            span.end();
+        }
+    }
+}
@@ -1,18 +1,31 @@
 package com.pdfprinting.service;
 
 import java.math.BigDecimal;
-import java.time.format.DateTimeFormatter;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 import java.util.stream.Collectors;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.pdfprinting.model.ReportWatermark;
 import com.pdfprinting.model.Transaction;
+import com.pdfprinting.model.TransactionDailyRollup;
 import com.pdfprinting.model.User;
+import com.pdfprinting.repository.ReportWatermarkRepository;
+import com.pdfprinting.repository.TransactionDailyRollupRepository;
 import com.pdfprinting.repository.TransactionRepository;
 
 @Service
@@ -21,6 +34,21 @@ public class TransactionService {
     @Autowired
     private TransactionRepository transactionRepository;
 
+    @Autowired
+    private TransactionDailyRollupRepository rollupRepository;
+
+    @Autowired
+    private ReportWatermarkRepository watermarkRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private static final String ROLLUP_WATERMARK = "transaction_daily_rollups";
+
+    // Bounds the catch-up work of a single run (e.g. the first run over a long history)
+    @Value("${reports.rollup.max-days-per-run:366}")
+    private int maxDaysPerRun;
+
     public List<Transaction> getRecentTransactions(int limit) {
         // use repository method if exists, else stream limit
         try {
@@ -33,10 +61,14 @@ public class TransactionService {
         }
     }
 
-    public List<Transaction> getAllTransactionsDesc() {
-        return transactionRepository.findAll().stream()
-                .sorted(Comparator.comparing(Transaction::getCreatedAt).reversed())
-                .collect(Collectors.toList());
+    /**
+     * Keyset page of all transactions, newest first.
+     * @param beforeId id of the last transaction already shown, or null for the first page
+     */
+    public KeysetPage<Transaction> getTransactionsPage(Long beforeId, int size) {
+        List<Transaction> fetched = transactionRepository.findByIdLessThanOrderByIdDesc(
+                beforeId == null ? Long.MAX_VALUE : beforeId, PageRequest.of(0, size + 1));
+        return KeysetPage.of(fetched, size, Transaction::getId);
     }
 
     public List<Transaction> getUserTransactions(User user) {
@@ -44,30 +76,35 @@ public class TransactionService {
     }
 
     public Map<String, BigDecimal> getMonthlyTotalByType(Transaction.TransactionType type) {
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM");
-        return transactionRepository.findAll().stream()
-                .filter(t -> t.getStatus() == Transaction.TransactionStatus.COMPLETED)
-                .filter(t -> t.getType() == type)
-                .collect(Collectors.groupingBy(
-                        t -> t.getCreatedAt().format(fmt),
-                        Collectors.reducing(BigDecimal.ZERO, Transaction::getAmount, BigDecimal::add)
-                ));
+        Map<String, BigDecimal> totals = new TreeMap<>();
+        for (Object[] row : monthlySummary()) {
+            if (row[2] == type && row[3] == Transaction.TransactionStatus.COMPLETED) {
+                totals.merge(monthKey(row), amountOf(row), BigDecimal::add);
+            }
+        }
+        return totals;
     }
 
     public Map<String, Long> getMonthlyCounts() {
-        DateTimeFormatter fmt = DateTimeFormatter.ofPattern("yyyy-MM");
-        return transactionRepository.findAll().stream()
-                .collect(Collectors.groupingBy(
-                        t -> t.getCreatedAt().format(fmt),
-                        Collectors.counting()
-                ));
+        Map<String, Long> counts = new TreeMap<>();
+        for (Object[] row : monthlySummary()) {
+            counts.merge(monthKey(row), ((Number) row[4]).longValue(), Long::sum);
+        }
+        return counts;
     }
 
     public Map<String, BigDecimal> getTotalsByType() {
+        Map<Transaction.TransactionType, BigDecimal> sums = new EnumMap<>(Transaction.TransactionType.class);
+        for (Object[] row : monthlySummary()) {
+            if (row[3] == Transaction.TransactionStatus.COMPLETED) {
+                sums.merge((Transaction.TransactionType) row[2], amountOf(row), BigDecimal::add);
+            }
+        }
+
         Map<String, BigDecimal> map = new HashMap<>();
-        BigDecimal topups = sumByType(Transaction.TransactionType.WALLET_TOPUP);
-        BigDecimal billing = sumByType(Transaction.TransactionType.PDF_BILLING); // This is negative in DB
-        BigDecimal refunds = sumByType(Transaction.TransactionType.REFUND);
+        BigDecimal topups = sums.getOrDefault(Transaction.TransactionType.WALLET_TOPUP, BigDecimal.ZERO);
+        BigDecimal billing = sums.getOrDefault(Transaction.TransactionType.PDF_BILLING, BigDecimal.ZERO); // This is negative in DB
+        BigDecimal refunds = sums.getOrDefault(Transaction.TransactionType.REFUND, BigDecimal.ZERO);
         
         // Billing is stored as negative, so abs value for display
         BigDecimal billingAbs = billing.abs();
@@ -82,11 +119,84 @@ public class TransactionService {
         return map;
     }
 
-    private BigDecimal sumByType(Transaction.TransactionType type) {
-        return transactionRepository.findAll().stream()
-                .filter(t -> t.getStatus() == Transaction.TransactionStatus.COMPLETED)
-                .filter(t -> t.getType() == type)
-                .map(Transaction::getAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    /**
+     * Roll up every closed day that has not been rolled up yet.
+     * Each day is aggregated once with a single GROUP BY over its createdAt range (served by
+     * idx_tx_created_type_status_amount) and committed on its own together with the watermark,
+     * so days without transactions are never revisited and a long backfill is not one huge transaction.
+     */
+    @Scheduled(fixedDelayString = "${reports.rollup.refresh-interval-ms:3600000}",
+               initialDelayString = "${reports.rollup.initial-delay-ms:60000}")
+    public void refreshDailyRollups() {
+        LocalDate next = firstUnrolledDate();
+        if (next == null) {
+            return; // no transactions yet
+        }
+        TransactionTemplate perDay = new TransactionTemplate(transactionManager);
+        LocalDate today = LocalDate.now();
+        for (int days = 0; next.isBefore(today) && days < maxDaysPerRun; days++) {
+            LocalDate day = next;
+            perDay.executeWithoutResult(status -> rollUpDay(day));
+            next = next.plusDays(1);
+        }
+    }
+
+    private void rollUpDay(LocalDate day) {
+        List<Object[]> rows = transactionRepository.summarizeBetween(
+                day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+        for (Object[] row : rows) {
+            rollupRepository.save(new TransactionDailyRollup(
+                    day,
+                    (Transaction.TransactionType) row[0],
+                    (Transaction.TransactionStatus) row[1],
+                    ((Number) row[2]).longValue(),
+                    row[3] == null ? BigDecimal.ZERO : (BigDecimal) row[3]));
+        }
+        watermarkRepository.save(new ReportWatermark(ROLLUP_WATERMARK, day));
+    }
+
+    /**
+     * Monthly summary rows [year, month, type, status, count, amount]:
+     * pre-aggregated rollups for closed days plus a live GROUP BY over the open tail.
+     */
+    private List<Object[]> monthlySummary() {
+        LocalDate rolledUpThrough = rolledUpThrough();
+        LocalDateTime tailStart = rolledUpThrough == null
+                ? LocalDateTime.of(1970, 1, 1, 0, 0)
+                : rolledUpThrough.plusDays(1).atStartOfDay();
+
+        List<Object[]> rows = new ArrayList<>();
+        if (rolledUpThrough != null) {
+            rows.addAll(rollupRepository.summarizeByMonth());
+        }
+        rows.addAll(transactionRepository.summarizeByMonthSince(tailStart));
+        return rows;
+    }
+
+    private LocalDate firstUnrolledDate() {
+        LocalDate rolledUpThrough = rolledUpThrough();
+        if (rolledUpThrough != null) {
+            return rolledUpThrough.plusDays(1);
+        }
+        LocalDateTime earliest = transactionRepository.findEarliestCreatedAt();
+        return earliest == null ? null : earliest.toLocalDate();
+    }
+
+    /**
+     * Last day covered by the rollups. Databases rolled up before the watermark table existed
+     * fall back to the latest rollup row.
+     */
+    private LocalDate rolledUpThrough() {
+        return watermarkRepository.findById(ROLLUP_WATERMARK)
+                .map(ReportWatermark::getProcessedThrough)
+                .orElseGet(rollupRepository::findLatestRollupDate);
+    }
+
+    private static String monthKey(Object[] row) {
+        return String.format("%04d-%02d", ((Number) row[0]).intValue(), ((Number) row[1]).intValue());
+    }
+
+    private static BigDecimal amountOf(Object[] row) {
+        return row[5] == null ? BigDecimal.ZERO : (BigDecimal) row[5];
     }
 }
@@ -3,20 +3,33 @@ package com.pdfprinting.service;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
-
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import com.pdfprinting.model.PendingRegistration;
 import com.pdfprinting.model.User;
 import com.pdfprinting.repository.UserRepository;
+import com.pdfprinting.security.PrincipalCache;
 
 @Service
 public class UserService {
 
+    private static final Logger logger = LoggerFactory.getLogger(UserService.class);
+    private static final long HASH_POLL_MS = 50;
+
     @Autowired
     private UserRepository userRepository;
 
@@ -32,6 +45,19 @@ public class UserService {
     @Autowired
     private PendingRegistrationService pendingRegistrationService;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    // How long OTP verification waits for a registration's password hash
+    @Value("${registration.hash-wait-ms:10000}")
+    private long hashWaitMs;
+
+    // Hashes still being computed on this instance, by the registration's hash token
+    private final ConcurrentHashMap<String, CompletableFuture<String>> pendingHashes = new ConcurrentHashMap<>();
+
     @Value("${admin.email}")
     private String adminEmail;
 
@@ -57,7 +83,8 @@ public class UserService {
                 admin.setRole(User.Role.ADMIN);
                 admin.setEmailVerified(true);
                 userRepository.save(admin);
-                System.out.println("Admin user created with email: " + adminEmail);
+                principalCache.invalidate(adminEmail);
+                logger.info("Admin user created with email: {}", adminEmail);
             } else {
                 // Update existing admin - ensure all required fields are set
                 User admin = existingAdmin.get();
@@ -86,16 +113,20 @@ public class UserService {
                     admin.setBatch("Admin");
                 }
                 userRepository.save(admin);
-                System.out.println("Admin user already exists with email: " + adminEmail + " - password updated");
+                principalCache.invalidate(adminEmail);
+                logger.info("Admin user already exists with email: {} - password updated", adminEmail);
             }
         } catch (Exception e) {
-            System.err.println("Error initializing admin user: " + e.getMessage());
-            e.printStackTrace();
+            logger.error("Error initializing admin user", e);
             // Don't rethrow the exception to prevent application startup failure
         }
     }
 
     public User registerUser(User user) throws Exception {
+        if (user.getPassword() == null || user.getPassword().isEmpty()) {
+            throw new Exception("Password is required");
+        }
+
         // Check if email already exists in database
         if (userRepository.existsByEmail(user.getEmail())) {
             throw new Exception("Email already registered");
@@ -117,6 +148,14 @@ public class UserService {
         user.setAcademicYear(academicYear);
         user.setSemester(semester);
         user.setRollNumber(roll);
+        String batch = user.getBatch() == null ? "" : user.getBatch().trim();
+        user.setBatch(batch);
+
+        // Container fields are copied onto uploads, whose columns are bounded for indexing
+        if (branch.length() > 100 || division.length() > 20 || academicYear.length() > 20
+                || semester.length() > 20 || batch.length() > 50) {
+            throw new Exception("Branch, division, academic year, semester or batch is too long.");
+        }
 
         // Check if roll number exists in the same branch and division
         try {
@@ -124,19 +163,17 @@ public class UserService {
                 throw new Exception("Roll number '" + roll + "' already exists in division " + division + " of " + branch + " branch.");
             }
         } catch (Exception e) {
-            System.err.println("Error checking roll number: " + e.getMessage());
+            logger.warn("Error checking roll number: {}", e.getMessage());
             throw new Exception("Error validating roll number. Please try again. If the problem persists, contact support.");
         }
 
-        // Encode password
-        String encodedPassword = passwordEncoder.encode(user.getPassword());
-
         // Generate OTP for email verification
         String otp = String.valueOf(100000 + (int)(Math.random() * 900000)); // 6-digit OTP
         LocalDateTime otpExpiry = LocalDateTime.now().plusMinutes(10);
 
         try {
-            // Create a pending registration (NOT saved to database yet)
+            // Create a pending registration (NOT saved to database yet). The password hash is
+            // filled in by the hashing pool; verifyOtp waits for it if the user is that quick.
             PendingRegistration pending = new PendingRegistration(
                     user.getEmail(),
                     user.getName(),
@@ -147,15 +184,18 @@ public class UserService {
                     roll,
                     user.getPhoneNumber(),
                     user.getBatch(),
-                    encodedPassword,
+                    null,
                     otp,
                     otpExpiry
             );
 
+            pending.setHashToken(UUID.randomUUID().toString());
+
             // Store in cache
             pendingRegistrationService.savePendingRegistration(pending);
+            hashPasswordFor(user.getEmail(), pending.getHashToken(), user.getPassword());
 
-            // Send OTP email
+            // Queue the OTP email (sent by the outbox dispatcher)
             // Create a temporary user object just for email sending
             User tempUser = new User();
             tempUser.setEmail(user.getEmail());
@@ -163,20 +203,81 @@ public class UserService {
             tempUser.setOtp(otp);
             emailService.sendOtpEmail(tempUser);
 
-            System.out.println("[DEBUG] Pending registration created for email: " + user.getEmail() + 
-                             " (NOT saved to database yet). Waiting for OTP verification...");
+            logger.debug("Pending registration created for {}; waiting for OTP verification", user.getEmail());
 
             // Return the user object (not saved to DB, just for controller use)
             user.setOtp(otp);
             user.setOtpExpiry(otpExpiry);
             return user;
 
+        } catch (IllegalStateException e) {
+            // Pending store or hashing pool full
+            throw new Exception(e.getMessage());
         } catch (Exception e) {
-            System.err.println("Error in registration process: " + e.getMessage());
+            logger.error("Error in registration process for {}: {}", user.getEmail(), e.getMessage());
             throw new Exception("Registration failed. Please try again. Error: " + e.getMessage());
         }
     }
 
+    /**
+     * Hash the password off the request thread and store the hash on the pending registration
+     * with this hash token. If the pool is saturated the registration is withdrawn, so the user
+     * can simply retry; a hash that finishes after its registration was replaced is dropped.
+     */
+    private void hashPasswordFor(String email, String hashToken, String rawPassword) {
+        CompletableFuture<String> hash;
+        try {
+            hash = passwordHashingService.encodeAsync(rawPassword);
+        } catch (RejectedExecutionException e) {
+            pendingRegistrationService.removePendingRegistration(email, hashToken);
+            throw new IllegalStateException("Too many registrations in progress. Please try again in a minute.");
+        }
+        pendingHashes.put(hashToken, hash);
+        hash.whenComplete((encoded, error) -> {
+            try {
+                if (error == null) {
+                    if (!pendingRegistrationService.setPasswordHash(email, hashToken, encoded)) {
+                        logger.debug("Dropped stale password hash for pending registration {}", email);
+                    }
+                } else {
+                    logger.error("Password hashing failed for pending registration {}", email, error);
+                    pendingRegistrationService.removePendingRegistration(email, hashToken);
+                }
+            } finally {
+                pendingHashes.remove(hashToken);
+            }
+        });
+    }
+
+    /**
+     * The pending registration once its password hash is in place. The hash normally lands long
+     * before anyone can type an OTP; this waits out the rare race (or, with a shared store, a
+     * hash still being computed on another instance).
+     */
+    private PendingRegistration awaitPasswordHash(String email) throws Exception {
+        long deadline = System.currentTimeMillis() + hashWaitMs;
+        PendingRegistration current = pendingRegistrationService.getPendingRegistration(email);
+        CompletableFuture<String> hash = current == null || current.getHashToken() == null
+                ? null : pendingHashes.get(current.getHashToken());
+        if (hash != null) {
+            try {
+                hash.get(hashWaitMs, TimeUnit.MILLISECONDS);
+            } catch (ExecutionException e) {
+                return null;
+            }
+        }
+        while (true) {
+            PendingRegistration pending = pendingRegistrationService.getPendingRegistration(email);
+            if (pending == null || pending.getPassword() != null) {
+                return pending;
+            }
+            if (System.currentTimeMillis() > deadline) {
+                return null;
+            }
+            Thread.sleep(HASH_POLL_MS);
+        }
+    }
+
 
     public boolean verifyOtp(String email, String otp) {
         // First, check if this is a pending registration
@@ -185,9 +286,14 @@ public class UserService {
             if (isValid) {
                 // OTP is correct, now save the user to database
                 try {
-                    PendingRegistration pending = pendingRegistrationService.getPendingRegistration(email);
+                    PendingRegistration pending = awaitPasswordHash(email);
+                    if (pending == null) {
+                        logger.warn("Pending registration for {} has no password hash; cannot complete it", email);
+                        return false;
+                    }
                     User user = createUserFromPendingRegistration(pending);
                     User savedUser = userRepository.save(user);
+                    principalCache.invalidate(email);
 
                     // Create wallet for the new user
                     walletService.getOrCreateWallet(savedUser);
@@ -200,14 +306,14 @@ public class UserService {
                     // Remove from pending registrations after successful save
                     pendingRegistrationService.removePendingRegistration(email);
 
-                    System.out.println("[DEBUG] User successfully registered and verified: " + email);
+                    logger.info("User successfully registered and verified: {}", email);
                     return true;
                 } catch (DataIntegrityViolationException dive) {
-                    System.err.println("Error saving verified user: " + dive.getMessage());
+                    logger.warn("Error saving verified user {}: {}", email, dive.getMessage());
                     // Don't remove pending registration, let user retry
                     return false;
                 } catch (Exception e) {
-                    System.err.println("Error finalizing registration: " + e.getMessage());
+                    logger.error("Error finalizing registration for {}", email, e);
                     return false;
                 }
             }
@@ -219,7 +325,7 @@ public class UserService {
         if (userOpt.isPresent()) {
             User user = userOpt.get();
             String entered = otp == null ? "" : otp.trim();
-            System.out.println("[DEBUG] Verifying OTP for already-registered user " + email + ": storedOtp=" + user.getOtp() + ", entered=" + entered + ", expiry=" + user.getOtpExpiry());
+            logger.debug("Verifying OTP for already-registered user {}, expiry {}", email, user.getOtpExpiry());
 
             if (user.getOtp() != null && user.getOtpExpiry() != null &&
                 user.getOtp().equals(entered) && user.getOtpExpiry().isAfter(LocalDateTime.now())) {
@@ -227,6 +333,7 @@ public class UserService {
                 user.setOtp(null);
                 user.setOtpExpiry(null);
                 userRepository.save(user);
+                principalCache.invalidate(email);
                 // send welcome email
                 try {
                     emailService.sendWelcomeEmail(user);
@@ -271,12 +378,13 @@ public class UserService {
                 User admin = adminUser.get();
                 admin.setPassword(passwordEncoder.encode(adminPassword));
                 userRepository.save(admin);
-                System.out.println("Admin password reset successfully for: " + adminEmail);
+                principalCache.invalidate(adminEmail);
+                logger.info("Admin password reset successfully for: {}", adminEmail);
             } else {
-                System.out.println("Admin user not found: " + adminEmail);
+                logger.warn("Admin user not found: {}", adminEmail);
             }
         } catch (Exception e) {
-            System.err.println("Error resetting admin password: " + e.getMessage());
+            logger.error("Error resetting admin password", e);
         }
     }
 
@@ -296,7 +404,7 @@ public class UserService {
             tempUser.setOtp(newOtp);
             emailService.sendOtpEmail(tempUser);
             
-            System.out.println("[DEBUG] Resent OTP for pending registration: " + email);
+            logger.debug("Resent OTP for pending registration: {}", email);
             return;
         }
 
@@ -311,7 +419,7 @@ public class UserService {
         user.setOtpExpiry(LocalDateTime.now().plusMinutes(10));
         userRepository.save(user);
         emailService.sendOtpEmail(user);
-        System.out.println("[DEBUG] Resent OTP for registered user: " + email);
+        logger.debug("Resent OTP for registered user: {}", email);
     }
 
     public List<User> getStudentsByBatch(String batch) {
@@ -322,6 +430,24 @@ public class UserService {
         return userRepository.findByRole(User.Role.STUDENT);
     }
 
+    /**
+     * Keyset page of students ordered by id.
+     * @param afterId id of the last student already shown, or null for the first page
+     */
+    public KeysetPage<User> getStudentsPage(Long afterId, int size) {
+        List<User> fetched = userRepository.findByRoleAndIdGreaterThanOrderByIdAsc(
+                User.Role.STUDENT, afterId == null ? 0L : afterId, PageRequest.of(0, size + 1));
+        return KeysetPage.of(fetched, size, User::getId);
+    }
+
+    public long countStudents() {
+        return userRepository.countByRole(User.Role.STUDENT);
+    }
+
+    public long countVerifiedStudents() {
+        return userRepository.countByRoleAndEmailVerified(User.Role.STUDENT, true);
+    }
+
     public User getStudentById(Long studentId) {
         Optional<User> userOpt = userRepository.findById(studentId);
         if (userOpt.isPresent() && userOpt.get().getRole() == User.Role.STUDENT) {
@@ -0,0 +1,12 @@
+package com.pdfprinting.service;
+
+/**
+ * A debit lost every race for the wallet's next debit sequence number, so whether the balance
+ * covers it is unknown. Distinct from an insufficient balance: the operation may simply be retried.
+ */
+public class WalletConflictException extends RuntimeException {
+
+    public WalletConflictException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -1,95 +1,191 @@
 package com.pdfprinting.service;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
-import com.pdfprinting.model.PdfUpload.PrintType;
 import com.pdfprinting.model.Transaction;
 import com.pdfprinting.model.User;
 import com.pdfprinting.model.Wallet;
+import com.pdfprinting.model.WalletHold;
+import com.pdfprinting.model.WalletSnapshot;
+import com.pdfprinting.repository.PdfUploadRepository;
 import com.pdfprinting.repository.TransactionRepository;
+import com.pdfprinting.repository.UserRepository;
+import com.pdfprinting.repository.WalletHoldRepository;
 import com.pdfprinting.repository.WalletRepository;
+import com.pdfprinting.repository.WalletSnapshotRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 
 @Service
 public class WalletService {
 
+    private static final Logger logger = LoggerFactory.getLogger(WalletService.class);
+
     @Autowired
     private WalletRepository walletRepository;
 
     @Autowired
     private TransactionRepository transactionRepository;
 
-    // Price per page for different print types
-    private static final BigDecimal PRICE_SINGLE_SIDE = new BigDecimal("2.00");   // ₹2 per page (B&W single side)
-    private static final BigDecimal PRICE_DOUBLE_SIDE = new BigDecimal("1.00");   // ₹1 per page (duplex)
-    private static final BigDecimal PRICE_COLOUR = new BigDecimal("7.00");        // ₹7 per page (colour single side)
+    @Autowired
+    private WalletSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletHoldRepository holdRepository;
+
+    @Autowired
+    private PdfUploadRepository pdfUploadRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private Spans spans;
+
+    // Users whose ledger is known to be opened (has a snapshot); opening is idempotent, this only skips the check
+    private final Set<Long> openedLedgers = ConcurrentHashMap.newKeySet();
+
+    @Value("${wallet.debit.max-attempts:5}")
+    private int debitMaxAttempts;
+
+    // Transactions younger than this may still be uncommitted, so compaction never folds them into a snapshot
+    @Value("${wallet.ledger.settle-lag-ms:300000}")
+    private long settleLagMs;
+
+    @Value("${wallet.ledger.compact-min-entries:50}")
+    private int compactMinEntries;
+
+    @Value("${wallet.ledger.compact-batch-size:500}")
+    private int compactBatchSize;
+
+    @Value("${wallet.hold.ttl-ms:3600000}")
+    private long holdTtlMs;
 
     public Wallet getOrCreateWallet(User user) {
-        Optional<Wallet> walletOpt = walletRepository.findByUser(user);
+        Optional<Wallet> walletOpt = walletRepository.findByUserId(user.getId());
         if (walletOpt.isPresent()) {
             return walletOpt.get();
         }
-        
-        // Create new wallet for user
-        Wallet wallet = new Wallet(user);
-        return walletRepository.save(wallet);
+
+        createWalletIfAbsent(user);
+        return walletRepository.findForUpdateByUserId(user.getId())
+                .orElseThrow(() -> new IllegalStateException("Wallet missing for user " + user.getId()));
+    }
+
+    /**
+     * Insert the user's wallet in its own transaction, so losing the race on the unique user_id
+     * does not poison the caller's transaction.
+     */
+    private void createWalletIfAbsent(User user) {
+        try {
+            requiresNew().executeWithoutResult(status -> walletRepository.saveAndFlush(new Wallet(user)));
+        } catch (DataIntegrityViolationException e) {
+            // Another request created the wallet first - use theirs
+        }
+    }
+
+    /**
+     * Open the user's ledger: write the first snapshot from the wallet's opening balance and every
+     * transaction recorded so far. Runs once per user; concurrent openers serialize on the wallet row.
+     */
+    private void openLedger(User user) {
+        Long userId = user.getId();
+        if (openedLedgers.contains(userId)) {
+            return;
+        }
+        // Snapshots are never deleted, so a positive answer is safe outside the lock
+        if (!snapshotRepository.existsByUserId(userId)) {
+            if (walletRepository.findByUserId(userId).isEmpty()) {
+                createWalletIfAbsent(user);
+            }
+            requiresNew().executeWithoutResult(status -> {
+                Wallet wallet = walletRepository.findForUpdateByUserId(userId)
+                        .orElseThrow(() -> new IllegalStateException("Wallet missing for user " + userId));
+                // Re-checked under the lock, so only the first opener writes the snapshot
+                // The wallet row was updated alongside every transaction recorded before the ledger,
+                // so its balance already covers all of them
+                if (!snapshotRepository.existsByUserId(userId)) {
+                    Long lastId = transactionRepository.findLastIdByUserId(userId);
+                    snapshotRepository.save(new WalletSnapshot(user, wallet.getBalance(), lastId != null ? lastId : 0L));
+                }
+            });
+        }
+        openedLedgers.add(userId);
+    }
+
+    private TransactionTemplate requiresNew() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        return template;
+    }
+
+    /**
+     * Current balance: the latest snapshot plus the sum of the ledger tail after it.
+     * The snapshot is read first, so a compaction between the two reads only makes the tail shorter.
+     */
+    private BigDecimal ledgerBalance(Long userId) {
+        Optional<WalletSnapshot> snapshot = snapshotRepository.findTopByUserIdOrderByThroughTransactionIdDesc(userId);
+        if (snapshot.isEmpty()) {
+            return BigDecimal.ZERO;
+        }
+        return snapshot.get().getBalance().add(transactionRepository.sumAmountAfter(
+                userId, snapshot.get().getThroughTransactionId(), Transaction.TransactionStatus.COMPLETED));
     }
 
     public BigDecimal getWalletBalance(User user) {
-        Wallet wallet = getOrCreateWallet(user);
-        return wallet.getBalance();
+        openLedger(user);
+        return ledgerBalance(user.getId());
     }
 
-    @Transactional
+    // Credits are not @Transactional themselves: opening the ledger runs its own transactions first,
+    // and the single insert then joins the caller's transaction if there is one
     public boolean addMoney(User user, BigDecimal amount, String referenceId, String description) {
         try {
-            Wallet wallet = getOrCreateWallet(user);
-            wallet.addAmount(amount);
-            walletRepository.save(wallet);
-
-            // Create transaction record
-            Transaction transaction = new Transaction(
-                user, 
-                Transaction.TransactionType.WALLET_TOPUP, 
-                amount, 
-                wallet.getBalance(), 
-                description != null ? description : "Wallet top-up"
-            );
-            transaction.setReferenceId(referenceId);
-            transactionRepository.save(transaction);
-
+            credit(user, Transaction.TransactionType.WALLET_TOPUP, amount,
+                    description != null ? description : "Wallet top-up", referenceId);
             return true;
         } catch (Exception e) {
             return false;
         }
     }
 
-    @Transactional
+    /**
+     * @return false when the balance is insufficient or the debit could not be recorded
+     * @throws WalletConflictException when concurrent debits kept winning the race; retry the operation
+     */
     public boolean deductMoney(User user, BigDecimal amount, String description) {
         try {
-            Wallet wallet = getOrCreateWallet(user);
-            
-            if (wallet.deductAmount(amount)) {
-                walletRepository.save(wallet);
-
-                // Create transaction record
-                Transaction transaction = new Transaction(
-                    user, 
-                    Transaction.TransactionType.PDF_BILLING, 
-                    amount.negate(), // Negative amount for deduction
-                    wallet.getBalance(), 
-                    description != null ? description : "PDF upload billing"
-                );
-                transactionRepository.save(transaction);
-
-                return true;
-            }
-            return false;
+            return debit(user, amount, description != null ? description : "PDF upload billing", null, t -> Boolean.TRUE) != null;
+        } catch (WalletConflictException e) {
+            throw e;
         } catch (Exception e) {
             return false;
         }
@@ -98,105 +194,249 @@ public class WalletService {
     /**
      * Withdraw money from wallet for manual refund/payouts (recorded as a deduction).
      * Uses existing PDF_BILLING type to avoid DB enum compatibility issues; description/reference clarify it's a withdrawal.
+     * @throws WalletConflictException as for {@link #deductMoney}
      */
-    @Transactional
     public boolean withdrawMoney(User user, BigDecimal amount, String description, String referenceId) {
         try {
-            Wallet wallet = getOrCreateWallet(user);
-            if (wallet.deductAmount(amount)) {
-                walletRepository.save(wallet);
-
-                Transaction transaction = new Transaction(
-                        user,
-                        Transaction.TransactionType.PDF_BILLING, // treat as deduction; description marks as withdrawal
-                        amount.negate(),
-                        wallet.getBalance(),
-                        description != null ? description : "Wallet withdrawal"
-                );
-                transaction.setReferenceId(referenceId);
-                transactionRepository.save(transaction);
-                return true;
-            }
-            return false;
+            return debit(user, amount, description != null ? description : "Wallet withdrawal", referenceId, t -> Boolean.TRUE) != null;
+        } catch (WalletConflictException e) {
+            throw e;
         } catch (Exception e) {
             return false;
         }
     }
 
-    @Transactional
     public boolean refundMoney(User user, BigDecimal amount, String description) {
         try {
-            Wallet wallet = getOrCreateWallet(user);
-            wallet.addAmount(amount);
-            walletRepository.save(wallet);
-
-            // Create transaction record
-            Transaction transaction = new Transaction(
-                user, 
-                Transaction.TransactionType.REFUND, 
-                amount, 
-                wallet.getBalance(), 
-                description != null ? description : "PDF deletion refund"
-            );
-            transactionRepository.save(transaction);
-
+            credit(user, Transaction.TransactionType.REFUND, amount,
+                    description != null ? description : "PDF deletion refund", null);
             return true;
         } catch (Exception e) {
             return false;
         }
     }
 
-    public BigDecimal calculateCost(int pageCount, int copyCount) {
-        // Legacy method - uses single side pricing
-        return PRICE_SINGLE_SIDE.multiply(new BigDecimal(pageCount))
-                             .multiply(new BigDecimal(copyCount));
+    private void credit(User user, Transaction.TransactionType type, BigDecimal amount, String description,
+                        String referenceId) {
+        try (Spans.Scope span = spans.start("wallet.credit")) {
+            span.tag("user.id", user.getId()).tag("amount", amount).tag("type", type);
+            try {
+                Transaction transaction = appendCredit(user, type, amount, description);
+                transaction.setReferenceId(referenceId);
+                transactionRepository.save(transaction);
+            } catch (RuntimeException e) {
+                span.error(e);
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Reserve money for work that bills only once it finishes (e.g. storing uploads). The full amount
+     * is debited now, in a short transaction of its own, so parallel reservations cannot spend the
+     * same balance; settle the hold afterwards with {@link #capture} or {@link #release}.
+     * Returns null when the balance is insufficient; throws WalletConflictException when concurrent
+     * debits kept winning the race.
+     */
+    public WalletHold reserve(User user, BigDecimal amount, String description) {
+        return debit(user, amount, description, null,
+                t -> holdRepository.save(new WalletHold(user, amount, t.getId(), description)));
     }
-    
+
     /**
-     * Calculate cost based on print type
-     * - SINGLE_SIDE: ₹2 per page
-     * - DOUBLE_SIDE: ₹1 per page (odd pages rounded up to even)
-     * - COLOUR: ₹7 per page
+     * Charge what was actually used and credit the rest of the hold back, atomically.
+     * Returns false if the hold was already settled or the settlement could not be recorded.
      */
-    public BigDecimal calculateCost(int pageCount, int copyCount, PrintType printType) {
-        BigDecimal pricePerPage;
-        int billedPages = pageCount;
-        
-        switch (printType) {
-            case DOUBLE_SIDE:
-                // For duplex: if odd pages, add 1 blank page to make even
-                if (pageCount % 2 != 0) {
-                    billedPages = pageCount + 1;
+    public boolean capture(WalletHold hold, BigDecimal actualAmount) {
+        try (Spans.Scope span = spans.start("wallet.settle")) {
+            span.tag("hold.id", hold.getId()).tag("amount", actualAmount);
+            try {
+                return Boolean.TRUE.equals(new TransactionTemplate(transactionManager)
+                        .execute(status -> settleHold(hold.getId(), actualAmount)));
+            } catch (Exception e) {
+                span.error(e);
+                logger.error("Could not settle wallet hold {}", hold.getId(), e);
+                return false;
+            }
+        }
+    }
+
+    public boolean release(WalletHold hold) {
+        return capture(hold, BigDecimal.ZERO);
+    }
+
+    /**
+     * Whether the hold is still HELD, i.e. neither captured nor released yet.
+     */
+    public boolean isUnsettled(Long holdId) {
+        return holdRepository.findById(holdId).map(h -> h.getStatus() == WalletHold.Status.HELD).orElse(false);
+    }
+
+    private boolean settleHold(Long holdId, BigDecimal capturedAmount) {
+        WalletHold hold = holdRepository.findForUpdateById(holdId)
+                .orElseThrow(() -> new IllegalStateException("Wallet hold " + holdId + " not found"));
+        if (hold.getStatus() != WalletHold.Status.HELD) {
+            return false;
+        }
+        if (capturedAmount.signum() < 0 || capturedAmount.compareTo(hold.getAmount()) > 0) {
+            throw new IllegalArgumentException("Captured amount " + capturedAmount + " outside hold of " + hold.getAmount());
+        }
+
+        BigDecimal remainder = hold.getAmount().subtract(capturedAmount);
+        if (remainder.signum() > 0) {
+            transactionRepository.save(appendCredit(hold.getUser(), Transaction.TransactionType.REFUND, remainder,
+                    (capturedAmount.signum() == 0 ? "Released hold: " : "Unused part of hold: ") + hold.getDescription()));
+        }
+        hold.setCapturedAmount(capturedAmount);
+        hold.setStatus(capturedAmount.signum() == 0 ? WalletHold.Status.RELEASED : WalletHold.Status.CAPTURED);
+        hold.setSettledAt(LocalDateTime.now());
+        return true;
+    }
+
+    /**
+     * Settle holds left unsettled by a crashed request or a failed capture. The TTL is far longer
+     * than any upload, so a hold that old will not be captured by its request any more. Uploads
+     * record the hold that paid for them: what was stored under it is captured, the rest released.
+     */
+    @Scheduled(fixedDelayString = "${wallet.hold.sweep-interval-ms:300000}")
+    public void settleExpiredHolds() {
+        LocalDateTime expiredBefore = LocalDateTime.now().minus(Duration.ofMillis(holdTtlMs));
+        List<Long> expired = holdRepository.findIdsByStatusCreatedBefore(
+                WalletHold.Status.HELD, expiredBefore, PageRequest.of(0, 200));
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        for (Long holdId : expired) {
+            try {
+                template.execute(status -> {
+                    WalletHold hold = holdRepository.findForUpdateById(holdId)
+                            .orElseThrow(() -> new IllegalStateException("Wallet hold " + holdId + " not found"));
+                    BigDecimal stored = pdfUploadRepository.sumTotalCostByWalletHoldId(holdId);
+                    BigDecimal captured = stored.min(hold.getAmount());
+                    logger.warn("Settling expired wallet hold {}: capturing {} of {} for stored uploads",
+                            holdId, captured, hold.getAmount());
+                    return settleHold(holdId, captured);
+                });
+            } catch (Exception e) {
+                logger.error("Could not settle expired wallet hold {}", holdId, e);
+            }
+        }
+    }
+
+    /**
+     * Credits are plain ledger inserts: nothing is locked, so they never contend. The recorded
+     * balance after is informational, like a debit's; a credit committing alongside is not in it.
+     */
+    private Transaction appendCredit(User user, Transaction.TransactionType type, BigDecimal amount, String description) {
+        if (amount.signum() < 0) {
+            throw new IllegalArgumentException("Credit amount must not be negative");
+        }
+        openLedger(user);
+        return new Transaction(user, type, amount, ledgerBalance(user.getId()).add(amount), description);
+    }
+
+    /**
+     * Append a debit if the balance covers it. Each debit claims the next per-user debit sequence
+     * number, so when two debits race on the same balance the unique key rejects one of them and
+     * it is retried against the new balance. Retries need a fresh transaction, so they only happen
+     * when we own it; inside a caller's transaction a conflict has already doomed that transaction,
+     * so it is reported as a WalletConflictException rather than as an insufficient balance.
+     * onDebited runs in the same transaction as the insert; its result is returned, or null when
+     * the balance is insufficient. Timed and traced as wallet.debit by outcome: debited, insufficient,
+     * conflict (lost every sequence race) or error.
+     */
+    private <T> T debit(User user, BigDecimal amount, String description, String referenceId,
+                        Function<Transaction, T> onDebited) {
+        if (amount.signum() < 0) {
+            throw new IllegalArgumentException("Debit amount must not be negative");
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "error";
+        Spans.Scope span = spans.start("wallet.debit").tag("user.id", user.getId()).tag("amount", amount);
+        try {
+            openLedger(user);
+            int attempts = TransactionSynchronizationManager.isActualTransactionActive() ? 1 : debitMaxAttempts;
+            TransactionTemplate template = new TransactionTemplate(transactionManager);
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    T result = template.execute(status -> {
+                        Transaction debit = appendDebit(user, amount, description, referenceId);
+                        return debit != null ? onDebited.apply(debit) : null;
+                    });
+                    outcome = result != null ? "debited" : "insufficient";
+                    return result;
+                } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+                    if (attempt >= attempts) {
+                        outcome = "conflict";
+                        throw new WalletConflictException("Wallet of user " + user.getId()
+                                + " changed concurrently after " + attempt + " attempt(s)", e);
+                    }
+                    // Another debit claimed this sequence number first - recheck against it
+                    meterRegistry.counter("wallet.debit.retries").increment();
+                    span.tag("attempts", attempt + 1);
                 }
-                pricePerPage = PRICE_DOUBLE_SIDE;
-                break;
-            case COLOUR:
-                pricePerPage = PRICE_COLOUR;
-                break;
-            case SINGLE_SIDE:
-            default:
-                pricePerPage = PRICE_SINGLE_SIDE;
-                break;
-        }
-        
-        return pricePerPage.multiply(new BigDecimal(billedPages))
-                          .multiply(new BigDecimal(copyCount));
-    }
-    
+            }
+        } catch (RuntimeException e) {
+            span.error(e);
+            throw e;
+        } finally {
+            sample.stop(meterRegistry.timer("wallet.debit", "outcome", outcome));
+            span.tag("outcome", outcome).close();
+        }
+    }
+
+    private Transaction appendDebit(User user, BigDecimal amount, String description, String referenceId) {
+        // Sequence before balance: a debit committing between the two reads is then either in the
+        // balance or holds the number we are about to claim - never invisible to both
+        Long lastSeq = transactionRepository.findLastDebitSeq(user.getId());
+        BigDecimal balance = ledgerBalance(user.getId());
+        if (balance.compareTo(amount) < 0) {
+            return null;
+        }
+
+        Transaction transaction = new Transaction(
+            user,
+            Transaction.TransactionType.PDF_BILLING, // withdrawals too; description/reference mark them
+            amount.negate(), // Negative amount for deduction
+            balance.subtract(amount),
+            description
+        );
+        transaction.setReferenceId(referenceId);
+        transaction.setDebitSeq(lastSeq != null ? lastSeq + 1 : 1L);
+        // Flush now so a sequence conflict surfaces inside the retry loop
+        return transactionRepository.saveAndFlush(transaction);
+    }
+
     /**
-     * Calculate billed page count for a print type
-     * For duplex, rounds odd pages up to even
+     * Fold long ledger tails into new snapshots so balance reads stay short. Only transactions
+     * older than the settle lag are folded: any id below the newest of them belongs to a
+     * transaction that was inserted earlier still, so it has committed (or rolled back) by now.
      */
-    public int calculateBilledPages(int pageCount, PrintType printType) {
-        if (printType == PrintType.DOUBLE_SIDE && pageCount % 2 != 0) {
-            return pageCount + 1;
+    @Scheduled(fixedDelayString = "${wallet.ledger.compact-interval-ms:600000}",
+               initialDelayString = "${wallet.ledger.compact-initial-delay-ms:120000}")
+    public int compactLedger() {
+        LocalDateTime settledBefore = LocalDateTime.now().minus(Duration.ofMillis(settleLagMs));
+        List<Long> settled = transactionRepository.findIdsCreatedBefore(settledBefore, PageRequest.of(0, 1));
+        if (settled.isEmpty()) {
+            return 0;
+        }
+
+        List<Object[]> tails = snapshotRepository.summarizeTails(settled.get(0),
+                Transaction.TransactionStatus.COMPLETED, compactMinEntries, PageRequest.of(0, compactBatchSize));
+        int written = 0;
+        for (Object[] row : tails) {
+            Long userId = (Long) row[0];
+            BigDecimal balance = ((BigDecimal) row[1]).add((BigDecimal) row[2]);
+            try {
+                snapshotRepository.save(new WalletSnapshot(userRepository.getReferenceById(userId), balance, (Long) row[3]));
+                written++;
+            } catch (DataIntegrityViolationException e) {
+                // Another instance wrote the same snapshot
+            }
         }
-        return pageCount;
+        return written;
     }
 
     public boolean hasAmountRequired(User user, BigDecimal amount) {
-        Wallet wallet = getOrCreateWallet(user);
-        return wallet.hasAmount(amount);
+        return getWalletBalance(user).compareTo(amount) >= 0;
     }
 
     public List<Transaction> getTransactionHistory(User user) {
@@ -0,0 +1,46 @@
+-- Indexes for the pdf_uploads container queries (MySQL 8).
+--
+-- The project has no migration tool: schema changes come from spring.jpa.hibernate.ddl-auto=update,
+-- which creates these indexes on new databases from the @Table(indexes = ...) declaration on PdfUpload.
+-- Existing databases created before that declaration still have VARCHAR(255) container columns,
+-- which ddl-auto never shrinks and which push the composite keys past InnoDB's 3072-byte limit,
+-- so run this script once, by hand, against them. The users columns are shrunk as well because
+-- uploads copy their container values from the user; the ALTER fails loudly if a row is too long.
+
+ALTER TABLE users
+    MODIFY academic_year VARCHAR(20),
+    MODIFY branch        VARCHAR(100),
+    MODIFY division      VARCHAR(20),
+    MODIFY semester      VARCHAR(20),
+    MODIFY batch         VARCHAR(50);
+
+ALTER TABLE pdf_uploads
+    MODIFY academic_year VARCHAR(20)  NOT NULL,
+    MODIFY branch        VARCHAR(100) NOT NULL,
+    MODIFY division      VARCHAR(20)  NOT NULL,
+    MODIFY semester      VARCHAR(20)  NOT NULL,
+    MODIFY batch         VARCHAR(50)  NOT NULL;
+
+CREATE INDEX idx_upload_container_status
+    ON pdf_uploads (academic_year, branch, division, semester, batch, status, uploaded_at);
+
+CREATE INDEX idx_upload_container_type_status
+    ON pdf_uploads (academic_year, branch, division, semester, batch, print_type, status, uploaded_at);
+
+CREATE INDEX idx_upload_user_status
+    ON pdf_uploads (user_id, status, uploaded_at);
+
+CREATE INDEX idx_upload_status
+    ON pdf_uploads (status);
+
+CREATE INDEX idx_upload_batch_status
+    ON pdf_uploads (batch, status, uploaded_at);
+
+CREATE INDEX idx_upload_uploaded_at
+    ON pdf_uploads (uploaded_at);
+
+CREATE INDEX idx_upload_batch_id
+    ON pdf_uploads (batch, id);
+
+CREATE INDEX idx_upload_batch_status_id
+    ON pdf_uploads (batch, status, id);
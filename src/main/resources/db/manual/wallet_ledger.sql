@@ -0,0 +1,8 @@
+-- Wallet ledger columns on transactions (MySQL 8).
+--
+-- ddl-auto=update adds the debit_seq column, its unique key, the ledger index and the
+-- wallet_snapshots table on its own, but it never relaxes an existing NOT NULL. Ledger rows record
+-- balance_after, but older rows may lack it, so run this once, by hand, on databases created before the ledger.
+
+ALTER TABLE transactions
+    MODIFY balance_after DECIMAL(10,2) NULL;
@@ -0,0 +1,50 @@
+package com.pdfprinting.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.slf4j.MDC;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Log lines written during a request carry its id, a usable caller id is kept, anything else is
+ * replaced, and nothing is left on the pooled thread afterwards.
+ */
+class RequestLoggingFilterTest {
+
+    private final RequestLoggingFilter filter = new RequestLoggingFilter();
+
+    @Test
+    void keepsTheCallersRequestId() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/student/dashboard");
+        request.addHeader("X-Request-Id", "lb-7f3a.12");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<String> seen = new AtomicReference<>();
+
+        filter.doFilter(request, response, (req, res) -> seen.set(MDC.get(RequestLoggingFilter.REQUEST_ID)));
+
+        assertThat(seen.get()).isEqualTo("lb-7f3a.12");
+        assertThat(response.getHeader("X-Request-Id")).isEqualTo("lb-7f3a.12");
+    }
+
+    @Test
+    void replacesUnusableIdsAndClearsTheContext() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/student/dashboard");
+        request.addHeader("X-Request-Id", "forged\n{\"level\":\"ERROR\"}");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        AtomicReference<String> seen = new AtomicReference<>();
+
+        filter.doFilter(request, response, (req, res) -> {
+            MDC.put(RequestLoggingFilter.USER_ID, "42");
+            seen.set(MDC.get(RequestLoggingFilter.REQUEST_ID));
+        });
+
+        assertThat(seen.get()).isNotBlank().matches("[0-9a-f]+");
+        assertThat(response.getHeader("X-Request-Id")).isEqualTo(seen.get());
+        assertThat(MDC.get(RequestLoggingFilter.REQUEST_ID)).isNull();
+        assertThat(MDC.get(RequestLoggingFilter.USER_ID)).isNull();
+    }
+}
@@ -0,0 +1,49 @@
+package com.pdfprinting.controller;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.pdfprinting.controller.AdminController.ContainerInfo;
+import com.pdfprinting.model.PdfUpload;
+import com.pdfprinting.model.PdfUpload.PrintType;
+
+/**
+ * Dashboard cards: one per container, counted per print type, missing fields labelled, in
+ * year/branch/division/semester/batch order.
+ */
+class AdminControllerContainersTest {
+
+    @Test
+    void groupsAndCountsPerContainer() {
+        List<ContainerInfo> containers = AdminController.containers(List.of(
+            upload("2025-26", "IT", "A", PrintType.SINGLE_SIDE),
+            upload("2024-25", "CSE", "B", PrintType.COLOUR),
+            upload("2025-26", "IT", "A", PrintType.DOUBLE_SIDE),
+            upload("2025-26", "IT", "A", PrintType.SINGLE_SIDE),
+            upload("2025-26", "CSE", null, PrintType.DOUBLE_SIDE)));
+
+        assertThat(containers).extracting(ContainerInfo::getDisplayLabel).containsExactly(
+            "2024-25 | CSE | Div B | Sem 5 | B1",
+            "2025-26 | CSE | Div Unknown Division | Sem 5 | B1",
+            "2025-26 | IT | Div A | Sem 5 | B1");
+        ContainerInfo it = containers.get(2);
+        assertThat(it.getFileCount()).isEqualTo(3);
+        assertThat(it.getSingleSideCount()).isEqualTo(2);
+        assertThat(it.getDoubleSideCount()).isEqualTo(1);
+        assertThat(it.getColourCount()).isZero();
+    }
+
+    private static PdfUpload upload(String year, String branch, String division, PrintType printType) {
+        PdfUpload upload = new PdfUpload();
+        upload.setAcademicYear(year);
+        upload.setBranch(branch);
+        upload.setDivision(division);
+        upload.setSemester("5");
+        upload.setBatch("B1");
+        upload.setPrintType(printType);
+        return upload;
+    }
+}
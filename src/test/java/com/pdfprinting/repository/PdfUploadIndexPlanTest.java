@@ -0,0 +1,118 @@
+package com.pdfprinting.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.pdfprinting.model.PdfUpload;
+import com.pdfprinting.model.User;
+
+/**
+ * Checks that the hot pdf_uploads queries are planned on the indexes declared on PdfUpload.
+ * Runs against the embedded H2 database; the SQL mirrors what the repository finders generate.
+ * H2's ANALYZE commits, so the rows are seeded once outside the test transactions and removed after.
+ */
+@DataJpaTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PdfUploadIndexPlanTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PdfUploadRepository pdfUploadRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long userId;
+
+    @BeforeAll
+    void seed() {
+        User user = new User("Plan Student", "plan@example.com", "CSE", "1", "9999999999", "Batch 1", "secret123");
+        user.setDivision("A");
+        user.setAcademicYear("2023-2027");
+        user.setSemester("3");
+        userId = userRepository.save(user).getId();
+
+        // Spread rows over several containers and statuses so the optimizer has something to choose between
+        String[] branches = {"CSE", "IT", "ENTC", "MECH"};
+        List<PdfUpload> uploads = new ArrayList<>();
+        for (int i = 0; i < 400; i++) {
+            PdfUpload upload = new PdfUpload("file" + i + ".pdf", "file" + i + ".pdf", "path/" + i,
+                    branches[i % branches.length], i % 2 == 0 ? "A" : "B", "2023-2027", String.valueOf(1 + i % 8),
+                    "Batch " + (1 + i % 3), 1024, user);
+            upload.setPrintType(PdfUpload.PrintType.values()[i % PdfUpload.PrintType.values().length]);
+            upload.setStatus(i % 5 == 0 ? PdfUpload.Status.PENDING : PdfUpload.Status.PROCESSED);
+            uploads.add(upload);
+        }
+        pdfUploadRepository.saveAll(uploads);
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @AfterAll
+    void cleanUp() {
+        pdfUploadRepository.deleteAllInBatch();
+        userRepository.deleteAllInBatch();
+    }
+
+    @Test
+    void containerQueueUsesContainerStatusIndex() {
+        String plan = explain("SELECT * FROM pdf_uploads WHERE academic_year = '2023-2027' AND branch = 'CSE' "
+                + "AND division = 'A' AND semester = '1' AND batch = 'Batch 1' AND status = 'PENDING' "
+                + "ORDER BY uploaded_at");
+        assertThat(plan).containsIgnoringCase("IDX_UPLOAD_CONTAINER_STATUS");
+    }
+
+    @Test
+    void containerQueueByPrintTypeUsesContainerTypeStatusIndex() {
+        String plan = explain("SELECT * FROM pdf_uploads WHERE academic_year = '2023-2027' AND branch = 'CSE' "
+                + "AND division = 'A' AND semester = '1' AND batch = 'Batch 1' AND print_type = 'COLOUR' "
+                + "AND status = 'PENDING' ORDER BY uploaded_at");
+        assertThat(plan).containsIgnoringCase("IDX_UPLOAD_CONTAINER_TYPE_STATUS");
+    }
+
+    @Test
+    void studentPendingUploadsUseUserStatusIndex() {
+        String plan = explain("SELECT * FROM pdf_uploads WHERE user_id = " + userId
+                + " AND status = 'PENDING' ORDER BY uploaded_at DESC");
+        assertThat(plan).containsIgnoringCase("IDX_UPLOAD_USER_STATUS");
+    }
+
+    @Test
+    void pendingScanUsesStatusIndex() {
+        String plan = explain("SELECT * FROM pdf_uploads WHERE status = 'PENDING'");
+        assertThat(plan).containsIgnoringCase("IDX_UPLOAD_STATUS");
+    }
+
+    @Test
+    void batchKeysetPageUsesBatchIdIndex() {
+        String plan = explain("SELECT * FROM pdf_uploads WHERE batch = 'Batch 1' AND id < 300 ORDER BY id DESC LIMIT 51");
+        assertThat(plan).containsIgnoringCase("IDX_UPLOAD_BATCH_ID");
+    }
+
+    @Test
+    void batchStatusKeysetPageUsesBatchStatusIdIndex() {
+        String plan = explain("SELECT * FROM pdf_uploads WHERE batch = 'Batch 1' AND status = 'PENDING' AND id > 10 "
+                + "ORDER BY id LIMIT 51");
+        assertThat(plan).containsIgnoringCase("IDX_UPLOAD_BATCH_STATUS_ID");
+    }
+
+    private String explain(String sql) {
+        Object plan = entityManager.getEntityManager().createNativeQuery("EXPLAIN " + sql).getSingleResult();
+        return String.valueOf(plan);
+    }
+}
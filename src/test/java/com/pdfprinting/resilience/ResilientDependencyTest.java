@@ -0,0 +1,162 @@
+package com.pdfprinting.resilience;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * The guard fails fast instead of sleeping: an open circuit, a spent or paused rate limit and a
+ * full bulkhead all refuse calls without running them.
+ */
+class ResilientDependencyTest {
+
+    private static final IOException OUTAGE = new IOException("connection reset");
+
+    @Test
+    void circuitOpensAfterConsecutiveFailuresAndRefusesFast() throws Exception {
+        ResilientDependency dependency = new ResilientDependency("test", 3, 60_000, 1000, 1000, 4, 0);
+        AtomicInteger attempts = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            assertThatThrownBy(() -> dependency.call(() -> {
+                attempts.incrementAndGet();
+                throw OUTAGE;
+            })).isSameAs(OUTAGE);
+        }
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> dependency.call(() -> attempts.incrementAndGet()))
+                .isInstanceOf(DependencyUnavailableException.class)
+                .hasMessageContaining("circuit is open");
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(50);
+        assertThat(attempts.get()).isEqualTo(3);
+        assertThat(dependency.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(dependency.isHealthy()).isFalse();
+        assertThat(dependency.getRejectedOpen()).isEqualTo(1);
+    }
+
+    @Test
+    void halfOpenTrialClosesTheCircuitOnSuccess() throws Exception {
+        ResilientDependency dependency = new ResilientDependency("test", 1, 100, 1000, 1000, 4, 0);
+        assertThatThrownBy(() -> dependency.call(() -> { throw OUTAGE; })).isSameAs(OUTAGE);
+        assertThat(dependency.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+
+        Thread.sleep(150);
+
+        assertThat(dependency.call(() -> "ok")).isEqualTo("ok");
+        assertThat(dependency.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(dependency.getTimesOpened()).isEqualTo(1);
+    }
+
+    @Test
+    void failedTrialReopensTheCircuit() throws Exception {
+        ResilientDependency dependency = new ResilientDependency("test", 1, 100, 1000, 1000, 4, 0);
+        assertThatThrownBy(() -> dependency.call(() -> { throw OUTAGE; })).isSameAs(OUTAGE);
+        Thread.sleep(150);
+
+        assertThatThrownBy(() -> dependency.call(() -> { throw OUTAGE; })).isSameAs(OUTAGE);
+
+        assertThat(dependency.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> dependency.call(() -> "ok")).isInstanceOf(DependencyUnavailableException.class);
+    }
+
+    @Test
+    void clientErrorsDoNotTripTheCircuit() throws Exception {
+        ResilientDependency dependency = new ResilientDependency("test", 2, 60_000, 1000, 1000, 4, 0);
+
+        for (int i = 0; i < 5; i++) {
+            assertThatThrownBy(() -> dependency.call(() -> { throw new FileNotFoundException("404"); },
+                    result -> false, e -> !(e instanceof FileNotFoundException)))
+                    .isInstanceOf(FileNotFoundException.class);
+        }
+
+        assertThat(dependency.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(dependency.getFailures()).isZero();
+    }
+
+    @Test
+    void failedResultsCountAgainstTheCircuit() throws Exception {
+        ResilientDependency dependency = new ResilientDependency("test", 2, 60_000, 1000, 1000, 4, 0);
+
+        dependency.call(() -> 503, status -> status >= 500, e -> true);
+        dependency.call(() -> 503, status -> status >= 500, e -> true);
+
+        assertThat(dependency.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void rateLimitRefusesOnceTheBurstIsSpent() throws Exception {
+        ResilientDependency dependency = new ResilientDependency("test", 5, 60_000, 1, 3, 4, 0);
+
+        for (int i = 0; i < 3; i++) {
+            dependency.call(() -> "ok");
+        }
+
+        assertThatThrownBy(() -> dependency.call(() -> "ok"))
+                .isInstanceOf(DependencyUnavailableException.class)
+                .hasMessageContaining("rate limit");
+        assertThat(dependency.getRejectedRateLimited()).isEqualTo(1);
+        assertThat(dependency.isHealthy()).isTrue(); // throttled, not broken
+    }
+
+    @Test
+    void callersWaitBrieflyForTheNextToken() throws Exception {
+        ResilientDependency dependency = new ResilientDependency("test", 5, 60_000, 10, 1, 4, 500);
+        dependency.call(() -> "ok");
+
+        long started = System.nanoTime();
+        dependency.call(() -> "ok");
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isBetween(80L, 400L);
+    }
+
+    @Test
+    void serverRequestedPauseIsHonoured() throws Exception {
+        ResilientDependency dependency = new ResilientDependency("test", 5, 60_000, 1000, 1000, 4, 100);
+
+        dependency.pauseFor(5_000);
+        assertThatThrownBy(() -> dependency.call(() -> "ok"))
+                .isInstanceOf(DependencyUnavailableException.class)
+                .satisfies(e -> assertThat(((DependencyUnavailableException) e).getRetryAfterMs()).isGreaterThan(4_000));
+
+        ResilientDependency exhausted = new ResilientDependency("test", 5, 60_000, 1000, 1000, 4, 100);
+        exhausted.observeRemaining(0, System.currentTimeMillis() + 60_000);
+        assertThatThrownBy(() -> exhausted.call(() -> "ok")).isInstanceOf(DependencyUnavailableException.class);
+    }
+
+    @Test
+    void bulkheadCapsConcurrentCalls() throws Exception {
+        ResilientDependency dependency = new ResilientDependency("test", 5, 60_000, 1000, 1000, 2, 0);
+        CountDownLatch inside = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = pool.submit(() -> dependency.call(() -> { inside.countDown(); release.await(); return null; }));
+            Future<?> second = pool.submit(() -> dependency.call(() -> { inside.countDown(); release.await(); return null; }));
+            assertThat(inside.await(5, TimeUnit.SECONDS)).isTrue();
+
+            assertThat(dependency.getInFlight()).isEqualTo(2);
+            assertThatThrownBy(() -> dependency.call(() -> "ok"))
+                    .isInstanceOf(DependencyUnavailableException.class)
+                    .hasMessageContaining("in flight");
+
+            release.countDown();
+            first.get(5, TimeUnit.SECONDS);
+            second.get(5, TimeUnit.SECONDS);
+            assertThat(dependency.call(() -> "ok")).isEqualTo("ok");
+            assertThat(dependency.getRejectedBulkheadFull()).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.pdfprinting.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pdfprinting.repository.AuthAttemptWindowRepository;
+import com.pdfprinting.security.AttemptLimiter.Action;
+
+/**
+ * Attempts are limited per email and per address over a sliding window, locally and, with the
+ * jdbc store, across instances; the filter turns throttled form posts away before the chain.
+ */
+@DataJpaTest
+@Import(AttemptLimiter.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:auth-attempts;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+    "auth.rate-limit.window-ms=60000",
+    "auth.rate-limit.otp-verify.per-email=5",
+    "auth.rate-limit.otp-verify.per-ip=30"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // instances must see each other's commits
+class AttemptLimiterTest {
+
+    private static final long WINDOW = 60_000;
+    private static final long T0 = 1_000 * WINDOW; // start of a window
+
+    @Autowired
+    private AttemptLimiter limiter;
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    @Autowired
+    private AuthAttemptWindowRepository repository;
+
+    @AfterEach
+    void cleanUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void emailIsLimitedOverASlidingWindow() {
+        long blockedBefore = limiter.getBlocked(Action.OTP_VERIFY);
+        for (int i = 0; i < 5; i++) {
+            assertThat(limiter.tryAcquire(Action.OTP_VERIFY, "victim@example.com", "10.0.0." + i, T0)).isTrue();
+        }
+        // A sixth guess, even from a fresh address and with different case
+        assertThat(limiter.tryAcquire(Action.OTP_VERIFY, "Victim@Example.com ", "10.0.1.1", T0 + 1)).isFalse();
+        // Other emails and actions are unaffected
+        assertThat(limiter.tryAcquire(Action.OTP_VERIFY, "other@example.com", "10.0.0.1", T0 + 1)).isTrue();
+        assertThat(limiter.tryAcquire(Action.LOGIN, "victim@example.com", "10.0.0.1", T0 + 1)).isTrue();
+
+        // As the next window starts the previous five still weigh fully
+        assertThat(limiter.tryAcquire(Action.OTP_VERIFY, "victim@example.com", "10.0.1.1", T0 + WINDOW)).isFalse();
+        // Halfway through it they count for 2.5: three more attempts fit
+        long half = T0 + WINDOW + WINDOW / 2;
+        for (int i = 0; i < 3; i++) {
+            assertThat(limiter.tryAcquire(Action.OTP_VERIFY, "victim@example.com", "10.0.1.1", half)).isTrue();
+        }
+        assertThat(limiter.tryAcquire(Action.OTP_VERIFY, "victim@example.com", "10.0.1.1", half)).isFalse();
+
+        assertThat(limiter.getBlocked(Action.OTP_VERIFY) - blockedBefore).isEqualTo(3);
+    }
+
+    @Test
+    void addressIsLimitedAcrossEmails() {
+        for (int i = 0; i < 30; i++) {
+            assertThat(limiter.tryAcquire(Action.OTP_VERIFY, "student" + i + "@example.com", "10.9.9.9", T0)).isTrue();
+        }
+        assertThat(limiter.tryAcquire(Action.OTP_VERIFY, "student30@example.com", "10.9.9.9", T0)).isFalse();
+        assertThat(limiter.tryAcquire(Action.OTP_VERIFY, "student30@example.com", "10.9.9.10", T0)).isTrue();
+    }
+
+    @Test
+    void successClearsTheEmailsCount() {
+        for (int i = 0; i < 10; i++) {
+            assertThat(limiter.tryAcquire(Action.LOGIN, "student@example.com", "10.0.0.1")).isTrue();
+        }
+        limiter.reset(Action.LOGIN, "STUDENT@example.com");
+
+        assertThat(limiter.tryAcquire(Action.LOGIN, "student@example.com", "10.0.0.1")).isTrue();
+    }
+
+    @Test
+    void sharedStoreHoldsTheLimitAcrossInstances() {
+        AttemptLimiter instanceA = beanFactory.createBean(AttemptLimiter.class);
+        AttemptLimiter instanceB = beanFactory.createBean(AttemptLimiter.class);
+        ReflectionTestUtils.setField(instanceA, "store", "jdbc");
+        ReflectionTestUtils.setField(instanceB, "store", "jdbc");
+
+        // Guesses alternate between instances; each has seen only half of them locally
+        AtomicInteger allowed = new AtomicInteger();
+        for (int i = 0; i < 8; i++) {
+            AttemptLimiter instance = i % 2 == 0 ? instanceA : instanceB;
+            if (instance.tryAcquire(Action.OTP_VERIFY, "victim@example.com", null, T0 + i)) {
+                allowed.incrementAndGet();
+            }
+        }
+
+        assertThat(allowed.get()).isEqualTo(5);
+        assertThat(repository.count()).isEqualTo(1);
+        // Stored hashed, not as the email
+        assertThat(repository.findAll().get(0).getId()).doesNotContain("victim");
+        assertThat(instanceA.getSharedErrors()).isZero();
+    }
+
+    @Test
+    void filterRedirectsThrottledPostsWithoutRunningTheChain() throws Exception {
+        AuthRateLimitFilter filter = new AuthRateLimitFilter(limiter);
+        AtomicInteger reachedChain = new AtomicInteger();
+
+        MockHttpServletResponse last = null;
+        for (int i = 0; i < 6; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", "/verify-otp");
+            request.setServletPath("/verify-otp");
+            request.setParameter("email", "guess@example.com");
+            request.setParameter("otp", String.format("%06d", i));
+            last = new MockHttpServletResponse();
+            filter.doFilter(request, last, (req, res) -> reachedChain.incrementAndGet());
+        }
+
+        assertThat(reachedChain.get()).isEqualTo(5);
+        assertThat(last.getRedirectedUrl()).startsWith("/verify-otp?otpError=").contains("email=guess%40example.com");
+        assertThat(last.getHeader("Retry-After")).isNotNull();
+    }
+
+    @Test
+    void clientAddressIsTheHopTheTrustedProxyAdded() {
+        AttemptLimiter behindProxy = beanFactory.createBean(AttemptLimiter.class);
+        ReflectionTestUtils.setField(behindProxy, "trustForwardedFor", true);
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr("10.0.0.2");
+        // The client sent its own header; the proxy appended the address it saw
+        request.addHeader("X-Forwarded-For", "1.2.3.4, 203.0.113.7");
+
+        assertThat(behindProxy.clientIp(request)).isEqualTo("203.0.113.7");
+        assertThat(limiter.clientIp(request)).isEqualTo("10.0.0.2");
+    }
+}
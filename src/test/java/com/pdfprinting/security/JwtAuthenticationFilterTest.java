@@ -0,0 +1,121 @@
+package com.pdfprinting.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.context.TestPropertySource;
+
+import com.pdfprinting.model.User;
+import com.pdfprinting.repository.UserRepository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import jakarta.servlet.FilterChain;
+
+/**
+ * The filter authenticates from verified claims and reads the users table only on a principal
+ * cache miss; invalidation makes account changes visible immediately.
+ */
+@DataJpaTest
+@Import({JwtAuthenticationFilter.class, JwtUtil.class, PrincipalCache.class, SimpleMeterRegistry.class})
+@TestPropertySource(properties = "jwt.principal-cache.ttl-ms=600000")
+class JwtAuthenticationFilterTest {
+
+    @Autowired
+    private JwtAuthenticationFilter filter;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private User user;
+
+    @BeforeEach
+    void createUser() {
+        User u = new User("Token Student", "jwt@example.com", "CSE", "9", "9999999999", "Batch 1", "secret123");
+        u.setDivision("A");
+        u.setAcademicYear("2023-2027");
+        u.setSemester("3");
+        u.setEmailVerified(true);
+        user = userRepository.save(u);
+        principalCache.invalidateAll();
+    }
+
+    @AfterEach
+    void clearContext() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void authenticatesFromClaimsWithOneLookupPerCacheEntry() throws Exception {
+        String token = jwtUtil.generateToken(user.getEmail(), "STUDENT", user.getId());
+        long missesBefore = principalCache.getMisses();
+
+        for (int i = 0; i < 100; i++) {
+            Authentication auth = filter(token);
+            assertThat(auth).isNotNull();
+            assertThat(auth.getName()).isEqualTo("jwt@example.com");
+            assertThat(auth.getAuthorities()).extracting("authority").containsExactly("ROLE_STUDENT");
+            assertThat(((JwtPrincipal) auth.getPrincipal()).getId()).isEqualTo(user.getId());
+        }
+
+        assertThat(principalCache.getMisses() - missesBefore).isEqualTo(1);
+    }
+
+    @Test
+    void invalidationRejectsADisabledUser() throws Exception {
+        String token = jwtUtil.generateToken(user.getEmail(), "STUDENT", user.getId());
+        assertThat(filter(token)).isNotNull();
+
+        user.setEmailVerified(false);
+        userRepository.save(user);
+        assertThat(filter(token)).as("still cached").isNotNull();
+
+        principalCache.invalidate(user.getEmail());
+        assertThat(filter(token)).isNull();
+    }
+
+    @Test
+    void rejectsTokensThatDisagreeWithTheAccount() throws Exception {
+        long rejectedBefore = meterRegistry.timer("jwt.filter", "outcome", "rejected").count();
+        assertThat(filter(jwtUtil.generateToken(user.getEmail(), "ADMIN", user.getId()))).isNull();
+        assertThat(filter(jwtUtil.generateToken(user.getEmail(), "STUDENT", user.getId() + 1000))).isNull();
+        assertThat(filter(jwtUtil.generateToken("nobody@example.com", "STUDENT", 1L))).isNull();
+        assertThat(filter("not-a-jwt")).isNull();
+        // Tokens issued before the uid claim existed still work
+        assertThat(filter(jwtUtil.generateToken(user.getEmail(), "STUDENT"))).isNotNull();
+
+        assertThat(meterRegistry.timer("jwt.filter", "outcome", "rejected").count() - rejectedBefore).isEqualTo(4);
+    }
+
+    private Authentication filter(String token) throws Exception {
+        SecurityContextHolder.clearContext();
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/student/dashboard");
+        request.setServletPath("/student/dashboard");
+        request.addHeader("Authorization", "Bearer " + token);
+        AtomicReference<Authentication> seen = new AtomicReference<>();
+        FilterChain chain = (req, res) -> seen.set(SecurityContextHolder.getContext().getAuthentication());
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+        return seen.get();
+    }
+}
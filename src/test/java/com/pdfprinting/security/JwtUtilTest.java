@@ -0,0 +1,78 @@
+package com.pdfprinting.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+
+/**
+ * The verified-claims cache answers repeat tokens, but never past their expiry and never for a
+ * token that did not verify.
+ */
+class JwtUtilTest {
+
+    private static final String SECRET = "unit-test-secret-unit-test-secret-0123456789";
+
+    @Test
+    void repeatTokensAreAnsweredFromTheCache() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 3_600_000, 100);
+        String token = jwtUtil.generateToken("student@example.com", "STUDENT", 7L);
+
+        Claims first = jwtUtil.parseClaims(token);
+        for (int i = 0; i < 50; i++) {
+            assertThat(jwtUtil.parseClaims(token)).isSameAs(first);
+        }
+
+        assertThat(first.getSubject()).isEqualTo("student@example.com");
+        assertThat(first.get(JwtUtil.USER_ID_CLAIM, Number.class).longValue()).isEqualTo(7L);
+        assertThat(jwtUtil.getClaimsCacheMisses()).isEqualTo(1);
+        assertThat(jwtUtil.getClaimsCacheHits()).isEqualTo(50);
+    }
+
+    @Test
+    void cachedClaimsExpireWithTheirToken() throws Exception {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 1_000, 100);
+        String token = jwtUtil.generateToken("student@example.com", "STUDENT", 7L);
+        jwtUtil.parseClaims(token);
+
+        Thread.sleep(1_100);
+
+        assertThatThrownBy(() -> jwtUtil.parseClaims(token)).isInstanceOf(ExpiredJwtException.class);
+        assertThat(jwtUtil.getClaimsCacheSize()).isZero();
+    }
+
+    @Test
+    void tamperedTokensAreNeverCached() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 3_600_000, 100);
+        String token = jwtUtil.generateToken("student@example.com", "STUDENT", 7L);
+        String forged = new JwtUtil("another-secret-another-secret-0123456789", 3_600_000, 100)
+                .generateToken("student@example.com", "ADMIN", 7L);
+        jwtUtil.parseClaims(token);
+
+        assertThatThrownBy(() -> jwtUtil.parseClaims(forged)).isInstanceOf(JwtException.class);
+        assertThatThrownBy(() -> jwtUtil.parseClaims(forged)).isInstanceOf(JwtException.class);
+        assertThat(jwtUtil.getClaimsCacheSize()).isEqualTo(1);
+    }
+
+    @Test
+    void cacheIsBounded() {
+        JwtUtil jwtUtil = new JwtUtil(SECRET, 3_600_000, 10);
+        for (int i = 0; i < 100; i++) {
+            jwtUtil.parseClaims(jwtUtil.generateToken("student" + i + "@example.com", "STUDENT", (long) i));
+        }
+        assertThat(jwtUtil.getClaimsCacheSize()).isEqualTo(10);
+    }
+
+    @Test
+    void excludedPathsMatchByPrefix() {
+        assertThat(JwtAuthenticationFilter.isExcludedPath("/css/app.css")).isTrue();
+        assertThat(JwtAuthenticationFilter.isExcludedPath("/login")).isTrue();
+        assertThat(JwtAuthenticationFilter.isExcludedPath("/favicon.ico")).isTrue();
+        assertThat(JwtAuthenticationFilter.isExcludedPath("/student/dashboard")).isFalse();
+        assertThat(JwtAuthenticationFilter.isExcludedPath("/admin/dashboard")).isFalse();
+    }
+}
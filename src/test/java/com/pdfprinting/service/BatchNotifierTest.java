@@ -0,0 +1,183 @@
+package com.pdfprinting.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.pdfprinting.resilience.ResilientDependency;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.tracing.Tracer;
+
+/**
+ * BatchNotifier against a local Brevo stub: recipients are split into batch requests of the
+ * configured size, requests respect the concurrency and rate limits, and a failed request is
+ * reported against exactly its own recipients.
+ */
+class BatchNotifierTest {
+
+    // Recipients of each request, in arrival order
+    private static final List<List<String>> batches = new CopyOnWriteArrayList<>();
+    private static final List<Long> requestTimes = new CopyOnWriteArrayList<>();
+    private static final AtomicInteger active = new AtomicInteger();
+    private static final AtomicInteger maxActive = new AtomicInteger();
+    private static final AtomicInteger flakyFailures = new AtomicInteger();
+    private static volatile long responseDelayMs;
+    private static final HttpServer stub = startStub();
+
+    private BatchNotifier notifier;
+
+    private static HttpServer startStub() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/v3/smtp/email", BatchNotifierTest::send);
+            server.setExecutor(Executors.newFixedThreadPool(16));
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void send(HttpExchange exchange) throws IOException {
+        requestTimes.add(System.currentTimeMillis());
+        int now = active.incrementAndGet();
+        maxActive.accumulateAndGet(now, Math::max);
+        try {
+            JSONArray versions = new JSONObject(new String(exchange.getRequestBody().readAllBytes(),
+                    StandardCharsets.UTF_8)).getJSONArray("messageVersions");
+            List<String> recipients = new ArrayList<>();
+            for (int i = 0; i < versions.length(); i++) {
+                recipients.add(versions.getJSONObject(i).getJSONArray("to").getJSONObject(0).getString("email"));
+            }
+            batches.add(recipients);
+            Thread.sleep(responseDelayMs);
+
+            int code = 201;
+            if (recipients.stream().anyMatch(r -> r.startsWith("reject"))) {
+                code = 400;
+            } else if (recipients.stream().anyMatch(r -> r.startsWith("flaky")) && flakyFailures.getAndIncrement() == 0) {
+                code = 503;
+            }
+            JSONArray ids = new JSONArray();
+            recipients.forEach(r -> ids.put("<" + r + "@brevo>"));
+            String body = code == 201 ? new JSONObject().put("messageIds", ids).toString() : "{\"code\":\"error\"}";
+            byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(code, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            active.decrementAndGet();
+        }
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.stop(0);
+    }
+
+    @BeforeEach
+    void resetStub() {
+        batches.clear();
+        requestTimes.clear();
+        maxActive.set(0);
+        flakyFailures.set(0);
+        responseDelayMs = 0;
+    }
+
+    @AfterEach
+    void stopNotifier() {
+        if (notifier != null) {
+            notifier.stop();
+        }
+    }
+
+    private BatchNotifier notifier(int batchSize, int concurrency, double requestsPerSecond) {
+        BrevoClient client = new BrevoClient("http://127.0.0.1:" + stub.getAddress().getPort() + "/v3/smtp/email",
+                "test-key", "noreply@printforyou.test", "Print For You", 5000,
+                new ResilientDependency("brevo", 5, 30_000, 1000, 1000, 16, 2000), new Spans(Tracer.NOOP));
+        notifier = new BatchNotifier(client, batchSize, concurrency, requestsPerSecond, 3, 50);
+        return notifier;
+    }
+
+    @Test
+    void recipientsAreGroupedIntoBatchRequests() {
+        List<String> students = students("student", 250);
+        students.add("STUDENT0@example.com "); // duplicate once normalized
+
+        BatchNotifier.Report report = notifier(100, 4, 100).send(students, "Processed", "<p>Done</p>", null);
+
+        assertThat(report.getRequests()).isEqualTo(3);
+        assertThat(report.getSent()).isEqualTo(250);
+        assertThat(report.hasFailures()).isFalse();
+        assertThat(batches).extracting(List::size).containsExactlyInAnyOrder(100, 100, 50);
+        assertThat(batches.stream().flatMap(List::stream)).hasSize(250).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void concurrentBatchesStayUnderTheRateLimit() {
+        notifier(10, 4, 10).send(students("paced", 60), "Processed", "<p>Done</p>", null);
+
+        assertThat(requestTimes).hasSize(6);
+        long first = requestTimes.stream().mapToLong(Long::longValue).min().orElseThrow();
+        long last = requestTimes.stream().mapToLong(Long::longValue).max().orElseThrow();
+        assertThat(last - first).isGreaterThanOrEqualTo(450); // five 100 ms gaps, less timer slack
+    }
+
+    @Test
+    void noMoreRequestsInFlightThanTheConcurrency() {
+        responseDelayMs = 200;
+
+        notifier(5, 2, 1000).send(students("bulk", 40), "Processed", "<p>Done</p>", null);
+
+        assertThat(batches).hasSize(8);
+        assertThat(maxActive.get()).isEqualTo(2);
+    }
+
+    @Test
+    void failuresAreReportedPerRecipient() {
+        List<String> students = students("ok", 10);
+        students.add(5, "reject-me@example.com"); // poisons the first batch of 10
+        students.add("flaky@example.com");        // 503 once, then accepted
+        students.add("not-an-address");
+
+        BatchNotifier.Report report = notifier(10, 2, 1000).send(students, "Processed", "<p>Done</p>", null);
+
+        assertThat(report.getRecipients()).isEqualTo(13);
+        assertThat(report.getSent()).isEqualTo(2); // ok9 and flaky share the second batch
+        assertThat(report.getFailures()).hasSize(11)
+                .containsEntry("not-an-address", "Invalid email address")
+                .containsKey("reject-me@example.com")
+                .containsKey("ok0@example.com");
+        assertThat(report.getFailures().get("ok0@example.com")).contains("400");
+        assertThat(report.getFailures()).doesNotContainKeys("ok9@example.com", "flaky@example.com");
+        assertThat(batches).hasSize(3); // the rejected batch is not retried
+    }
+
+    private static List<String> students(String prefix, int count) {
+        List<String> emails = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            emails.add(prefix + i + "@example.com");
+        }
+        return emails;
+    }
+}
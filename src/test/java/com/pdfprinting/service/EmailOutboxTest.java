@@ -0,0 +1,289 @@
+package com.pdfprinting.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.pdfprinting.config.ResilienceConfig;
+import com.pdfprinting.model.OutboxEmail;
+import com.pdfprinting.model.User;
+import com.pdfprinting.repository.OutboxEmailRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * The outbox against a local Brevo stub: callers return without waiting for Brevo, transient
+ * failures are retried with backoff, rejections are not, and rolled-back work sends nothing.
+ */
+@DataJpaTest
+@Import({EmailService.class, EmailDispatcher.class, BrevoClient.class, BatchNotifier.class, OtpEmailRenderer.class,
+         ResilienceConfig.class, Spans.class, SimpleMeterRegistry.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:email-outbox;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+    "email.enabled=true",
+    "brevo.api.key=test-key",
+    "app.base-url=http://localhost:8080",
+    "app.mail.from-address=noreply@printforyou.test",
+    "email.outbox.backoff-base-ms=100",
+    "email.outbox.max-attempts=4",
+    "email.batch.max-attempts=1"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // dispatcher threads need committed rows
+class EmailOutboxTest {
+
+    // Scripted stub responses (status codes); 201 once the script runs out
+    private static final Queue<Integer> script = new ConcurrentLinkedQueue<>();
+    // The same for batch (fan-out) requests
+    private static final Queue<Integer> batchScript = new ConcurrentLinkedQueue<>();
+    private static final List<Long> callTimes = new CopyOnWriteArrayList<>();
+    private static final List<JSONObject> requests = new CopyOnWriteArrayList<>();
+    private static volatile long responseDelayMs;
+    private static final HttpServer stub = startStub();
+
+    @DynamicPropertySource
+    static void brevoUrl(DynamicPropertyRegistry registry) {
+        registry.add("brevo.api-url", () -> "http://127.0.0.1:" + stub.getAddress().getPort() + "/v3/smtp/email");
+    }
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private EmailDispatcher dispatcher;
+
+    @Autowired
+    private OutboxEmailRepository outboxRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private static HttpServer startStub() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/v3/smtp/email", EmailOutboxTest::send);
+            server.setExecutor(Executors.newFixedThreadPool(4));
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void send(HttpExchange exchange) throws IOException {
+        callTimes.add(System.currentTimeMillis());
+        JSONObject request = new JSONObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        requests.add(request);
+        try {
+            Thread.sleep(responseDelayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Integer status = request.has("messageVersions") ? batchScript.poll() : script.poll();
+        int code = status == null ? 201 : status;
+        String body = code == 201 ? new JSONObject().put("messageId", "<msg-" + callTimes.size() + "@brevo>").toString()
+                : "{\"code\":\"error\"}";
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(code, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.stop(0);
+    }
+
+    @BeforeEach
+    void resetStub() {
+        script.clear();
+        batchScript.clear();
+        callTimes.clear();
+        requests.clear();
+        responseDelayMs = 0;
+    }
+
+    @AfterEach
+    void cleanUp() throws Exception {
+        awaitUntil(() -> dispatcher.getInFlight() == 0);
+        outboxRepository.deleteAll();
+    }
+
+    @Test
+    void callerDoesNotWaitForASlowBrevo() throws Exception {
+        responseDelayMs = 1500;
+
+        long started = System.nanoTime();
+        emailService.sendWelcomeEmail(user("slow@example.com"));
+        long elapsedMs = (System.nanoTime() - started) / 1_000_000;
+
+        assertThat(elapsedMs).isLessThan(500);
+        OutboxEmail sent = awaitStatus("slow@example.com", OutboxEmail.Status.SENT);
+        assertThat(sent.getKind()).isEqualTo("WELCOME");
+        assertThat(sent.getProviderMessageId()).startsWith("<msg-");
+    }
+
+    @Test
+    void transientFailuresAreRetriedWithBackoff() throws Exception {
+        script.add(503);
+        script.add(429);
+
+        assertThat(emailService.sendOtpEmailForRegistration("retry@example.com", "123456")).isTrue();
+
+        OutboxEmail sent = awaitStatus("retry@example.com", OutboxEmail.Status.SENT);
+        assertThat(sent.getAttempts()).isEqualTo(3);
+        assertThat(callTimes).hasSize(3);
+        // Equal jitter: at least half of 100 ms, then half of 200 ms
+        assertThat(callTimes.get(1) - callTimes.get(0)).isGreaterThanOrEqualTo(50);
+        assertThat(callTimes.get(2) - callTimes.get(1)).isGreaterThanOrEqualTo(100);
+    }
+
+    @Test
+    void rejectionsFailWithoutRetrying() throws Exception {
+        script.add(400);
+
+        emailService.sendOtpEmailForRegistration("bad@example.com", "123456");
+
+        OutboxEmail failed = awaitStatus("bad@example.com", OutboxEmail.Status.FAILED);
+        assertThat(failed.getAttempts()).isEqualTo(1);
+        assertThat(failed.getLastError()).contains("400");
+    }
+
+    @Test
+    void retriesStopAtTheAttemptLimit() throws Exception {
+        for (int i = 0; i < 10; i++) {
+            script.add(500);
+        }
+
+        emailService.sendOtpEmailForRegistration("down@example.com", "123456");
+
+        OutboxEmail failed = awaitStatus("down@example.com", OutboxEmail.Status.FAILED);
+        assertThat(failed.getAttempts()).isEqualTo(4);
+        assertThat(failed.getLastError()).contains("500");
+    }
+
+    @Test
+    void rolledBackWorkSendsNothing() throws Exception {
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                emailService.sendWelcomeEmail(user("rollback@example.com"));
+                throw new IllegalStateException("registration failed");
+            });
+        } catch (IllegalStateException expected) {
+            // rolled back
+        }
+
+        dispatcher.drain();
+        Thread.sleep(200);
+
+        assertThat(emailService.getOutboxFor("rollback@example.com")).isEmpty();
+        assertThat(callTimes).isEmpty();
+    }
+
+    @Test
+    void processedBatchFansOutToStudentsAndSummarizesForTheAdmin() throws Exception {
+        List<String> students = List.of("s1@example.com", "S2@example.com ", "s3@example.com", "s1@example.com", "nobody");
+
+        int queued = emailService.sendBatchProcessedNotification("CSE A Batch 1", 5, students);
+
+        assertThat(queued).isEqualTo(3);
+        for (String student : List.of("s1@example.com", "s2@example.com", "s3@example.com")) {
+            assertThat(awaitStatus(student, OutboxEmail.Status.SENT).getKind()).isEqualTo("FILES_PROCESSED");
+        }
+        assertThat(requests).filteredOn(r -> r.has("messageVersions")).singleElement()
+            .satisfies(r -> assertThat(r.getJSONArray("messageVersions").length()).isEqualTo(3));
+        OutboxEmail summary = awaitStatus("noreply@printforyou.test", OutboxEmail.Status.SENT);
+        assertThat(summary.getKind()).isEqualTo("BATCH_PROCESSED");
+        assertThat(summary.getTextContent()).contains("Notifications queued: 3 of 5").contains("nobody");
+    }
+
+    @Test
+    void failedFanOutIsRetriedFromTheOutbox() throws Exception {
+        batchScript.add(503);
+
+        emailService.sendBatchProcessedNotification("IT B Batch 2", 2, List.of("t1@example.com", "t2@example.com"));
+
+        OutboxEmail first = awaitStatus("t1@example.com", OutboxEmail.Status.SENT);
+        OutboxEmail second = awaitStatus("t2@example.com", OutboxEmail.Status.SENT);
+        assertThat(first.getAttempts()).isEqualTo(2);
+        assertThat(second.getAttempts()).isEqualTo(2);
+        assertThat(requests).filteredOn(r -> r.has("messageVersions")).hasSize(2);
+    }
+
+    @Test
+    void rolledBackMergeQueuesNoNotifications() throws Exception {
+        try {
+            new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+                emailService.sendBatchProcessedNotification("CSE A Batch 3", 1, List.of("u1@example.com"));
+                throw new IllegalStateException("merge failed");
+            });
+        } catch (IllegalStateException expected) {
+            // rolled back
+        }
+
+        dispatcher.drain();
+        Thread.sleep(200);
+
+        assertThat(emailService.getOutboxFor("u1@example.com")).isEmpty();
+        assertThat(callTimes).isEmpty();
+    }
+
+    @Test
+    void backoffGrowsExponentiallyUpToTheCap() {
+        for (int attempt = 1; attempt <= 20; attempt++) {
+            long capped = Math.min(100L << (attempt - 1), 600_000L);
+            assertThat(dispatcher.backoffMs(attempt)).isBetween(capped / 2, capped);
+        }
+    }
+
+    private static User user(String email) {
+        User user = new User();
+        user.setName("Student");
+        user.setEmail(email);
+        return user;
+    }
+
+    private OutboxEmail awaitStatus(String toEmail, OutboxEmail.Status status) throws Exception {
+        awaitUntil(() -> emailService.getOutboxFor(toEmail).stream().anyMatch(e -> e.getStatus() == status));
+        return emailService.getOutboxFor(toEmail).get(0);
+    }
+
+    private static void awaitUntil(Supplier<Boolean> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 15_000;
+        while (!condition.get()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timed out waiting for the outbox");
+            }
+            Thread.sleep(20);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.pdfprinting.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.Optional;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import com.pdfprinting.config.EmailTemplateConfig;
+
+/**
+ * The prerendered OTP email must be exactly what a full Thymeleaf render of email/otp produces.
+ */
+class OtpEmailRendererTest {
+
+    private SpringTemplateEngine templateEngine;
+
+    @BeforeEach
+    void setUp() {
+        templateEngine = new SpringTemplateEngine();
+        templateEngine.setTemplateResolver(new EmailTemplateConfig().emailTemplateResolver(true));
+    }
+
+    @Test
+    void matchesAFullTemplateRender() {
+        OtpEmailRenderer renderer = new OtpEmailRenderer(Optional.of(templateEngine));
+
+        for (String otp : new String[] {"123456", "000000", "987654"}) {
+            assertThat(renderer.renderHtml(otp)).isEqualTo(thymeleaf(otp));
+        }
+        assertThat(renderer.renderHtml("123456")).contains(">123456</h1>").contains("10 minutes");
+    }
+
+    @Test
+    void escapesTheOtp() {
+        OtpEmailRenderer renderer = new OtpEmailRenderer(Optional.of(templateEngine));
+
+        assertThat(renderer.renderHtml("<b>&1")).isEqualTo(thymeleaf("<b>&1")).contains("&lt;b&gt;&amp;1");
+    }
+
+    @Test
+    void textVersionAndFallbackWithoutATemplateEngine() {
+        OtpEmailRenderer renderer = new OtpEmailRenderer(Optional.empty());
+
+        assertThat(renderer.renderText("424242")).contains("Your One-Time Password (OTP) is: 424242")
+                .contains("valid for 10 minutes");
+        assertThat(renderer.renderHtml("424242")).contains(">424242</h1>");
+    }
+
+    private String thymeleaf(String otp) {
+        Context context = new Context();
+        context.setVariable("otp", otp);
+        context.setVariable("validityMinutes", OtpEmailRenderer.VALIDITY_MINUTES);
+        return templateEngine.process(OtpEmailRenderer.TEMPLATE, context);
+    }
+}
@@ -0,0 +1,274 @@
+package com.pdfprinting.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pdfprinting.config.RazorpayConfig;
+import com.pdfprinting.model.PaymentOrder;
+import com.pdfprinting.model.User;
+import com.pdfprinting.repository.PaymentOrderRepository;
+import com.pdfprinting.repository.ProcessedPaymentRepository;
+import com.pdfprinting.repository.TransactionRepository;
+import com.pdfprinting.repository.UserRepository;
+import com.pdfprinting.repository.WalletRepository;
+import com.pdfprinting.repository.WalletSnapshotRepository;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Drives the webhook and the reconciliation sweep against a local stub of Razorpay's payments
+ * listing: stuck orders are credited once, from as few listing calls as the page size allows.
+ */
+@DataJpaTest
+@Import({PaymentReconciler.class, PaymentService.class, WalletService.class, PaymentReconcilerTest.StubGateway.class,
+         Spans.class, SimpleMeterRegistry.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:payment-reconcile;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+    "spring.datasource.hikari.maximum-pool-size=20",
+    "payment.reconcile.grace-ms=0",
+    "payment.reconcile.max-age-ms=3600000"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the reconciler commits its own transactions
+class PaymentReconcilerTest {
+
+    private static final String WEBHOOK_SECRET = "local-webhook-secret";
+
+    // Payments the stub lists, newest first like the real API
+    private static final List<JSONObject> payments = new CopyOnWriteArrayList<>();
+    private static final AtomicInteger listingCalls = new AtomicInteger();
+    private static final HttpServer stub = startStub();
+
+    @TestConfiguration
+    static class StubGateway {
+        @Bean
+        RazorpayGateway razorpayGateway() {
+            RazorpayConfig config = new RazorpayConfig();
+            config.getKey().setId("rzp_test_local");
+            config.getKey().setSecret("local-fake-secret");
+            config.setWebhookSecret(WEBHOOK_SECRET);
+            return new RazorpayGateway(config, "http://127.0.0.1:" + stub.getAddress().getPort(), 5000);
+        }
+    }
+
+    @Autowired
+    private PaymentReconciler reconciler;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private PaymentOrderRepository paymentOrderRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProcessedPaymentRepository processedPaymentRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private WalletSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    private User user;
+
+    private static HttpServer startStub() {
+        try {
+            HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+            server.createContext("/v1/payments", PaymentReconcilerTest::listPayments);
+            server.start();
+            return server;
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void listPayments(HttpExchange exchange) throws IOException {
+        listingCalls.incrementAndGet();
+        Map<String, String> query = new HashMap<>();
+        for (String pair : URI.create(exchange.getRequestURI().toString()).getQuery().split("&")) {
+            String[] kv = pair.split("=", 2);
+            query.put(kv[0], kv[1]);
+        }
+        int count = Integer.parseInt(query.get("count"));
+        int skip = Integer.parseInt(query.get("skip"));
+        JSONArray items = new JSONArray();
+        for (int i = skip; i < Math.min(skip + count, payments.size()); i++) {
+            items.put(payments.get(i));
+        }
+        byte[] body = new JSONObject().put("entity", "collection").put("count", items.length())
+                .put("items", items).toString().getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.stop(0);
+    }
+
+    @BeforeEach
+    void createUser() {
+        payments.clear();
+        listingCalls.set(0);
+        User u = new User("Paying Student", "reconcile@example.com", "CSE", "7", "9999999999", "Batch 1", "secret123");
+        u.setDivision("A");
+        u.setAcademicYear("2023-2027");
+        u.setSemester("3");
+        user = userRepository.save(u);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        processedPaymentRepository.deleteAll();
+        paymentOrderRepository.deleteAll();
+        transactionRepository.deleteAll();
+        snapshotRepository.deleteAll();
+        walletRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void sweepCreditsCapturedPaymentsOfStuckOrdersOnce() {
+        order("order_paid", "100.00", 10);
+        order("order_failed", "50.00", 10);
+        order("order_unpaid", "20.00", 10);
+        payments.add(payment("pay_paid", "order_paid", "captured"));
+        payments.add(payment("pay_failed", "order_failed", "failed"));
+        payments.add(payment("pay_other", "order_not_ours", "captured"));
+        long creditedBefore = reconciler.getCreditedBySweep();
+
+        assertThat(reconciler.reconcile()).isEqualTo(1);
+        assertThat(reconciler.reconcile()).isZero();
+
+        assertThat(walletService.getWalletBalance(user)).isEqualByComparingTo("100.00");
+        assertThat(status("order_paid")).isEqualTo(PaymentOrder.Status.PAID);
+        assertThat(paymentOrderRepository.findByOrderId("order_paid").orElseThrow().getPaymentId()).isEqualTo("pay_paid");
+        assertThat(status("order_failed")).isEqualTo(PaymentOrder.Status.CREATED);
+        assertThat(reconciler.getPendingOrders()).isEqualTo(2);
+        assertThat(reconciler.getOldestPendingAgeSeconds()).isGreaterThanOrEqualTo(600);
+        assertThat(reconciler.getCreditedBySweep() - creditedBefore).isEqualTo(1);
+    }
+
+    @Test
+    void oneListingCoversABatchOfOrdersAcrossPages() {
+        int orders = 250;
+        for (int i = 0; i < orders; i++) {
+            order("order_" + i, "10.00", 5);
+            payments.add(0, payment("pay_batch_" + i, "order_" + i, "captured")); // newest first
+        }
+
+        assertThat(reconciler.reconcile()).isEqualTo(200); // one batch per run
+        assertThat(listingCalls.get()).isEqualTo(3);       // 250 payments at 100 per page
+        assertThat(reconciler.reconcile()).isEqualTo(50);
+
+        assertThat(walletService.getWalletBalance(user)).isEqualByComparingTo("2500.00");
+        assertThat(reconciler.getPendingOrders()).isZero();
+        assertThat(reconciler.getOldestPendingAgeSeconds()).isZero();
+    }
+
+    @Test
+    void ordersPastTheMaximumAgeExpire() {
+        order("order_old", "10.00", 120);
+        order("order_recent", "10.00", 5);
+
+        reconciler.reconcile();
+
+        assertThat(status("order_old")).isEqualTo(PaymentOrder.Status.EXPIRED);
+        assertThat(status("order_recent")).isEqualTo(PaymentOrder.Status.CREATED);
+        assertThat(reconciler.getExpiredOrders()).isGreaterThanOrEqualTo(1);
+    }
+
+    @Test
+    void signedWebhookCreditsTheRecordedAmountOnce() throws Exception {
+        order("order_hook", "75.00", 0);
+        byte[] event = new JSONObject()
+                .put("event", "payment.captured")
+                .put("payload", new JSONObject().put("payment",
+                        new JSONObject().put("entity", payment("pay_hook", "order_hook", "captured"))))
+                .toString().getBytes(StandardCharsets.UTF_8);
+        String signature = hmacHex(WEBHOOK_SECRET, event);
+        long creditedBefore = reconciler.getCreditedByWebhook();
+
+        assertThat(reconciler.handleWebhook(event, signature)).isEqualTo(PaymentReconciler.WebhookResult.CREDITED);
+        assertThat(reconciler.handleWebhook(event, signature)).isEqualTo(PaymentReconciler.WebhookResult.IGNORED);
+        assertThat(reconciler.handleWebhook(event, hmacHex("wrong-secret", event)))
+                .isEqualTo(PaymentReconciler.WebhookResult.INVALID_SIGNATURE);
+        assertThat(reconciler.handleWebhook(event, null)).isEqualTo(PaymentReconciler.WebhookResult.INVALID_SIGNATURE);
+
+        // The sweep sees the same payment and leaves it alone
+        payments.add(payment("pay_hook", "order_hook", "captured"));
+        assertThat(reconciler.reconcile()).isZero();
+
+        assertThat(walletService.getWalletBalance(user)).isEqualByComparingTo("75.00");
+        assertThat(status("order_hook")).isEqualTo(PaymentOrder.Status.PAID);
+        assertThat(reconciler.getCreditedByWebhook() - creditedBefore).isEqualTo(1);
+    }
+
+    private void order(String orderId, String amount, int minutesAgo) {
+        BigDecimal walletAmount = new BigDecimal(amount);
+        PaymentOrder order = new PaymentOrder(orderId, user, walletAmount, walletAmount.movePointRight(2).longValue());
+        order.setCreatedAt(LocalDateTime.now().minusMinutes(minutesAgo));
+        paymentOrderRepository.save(order);
+    }
+
+    private PaymentOrder.Status status(String orderId) {
+        return paymentOrderRepository.findByOrderId(orderId).orElseThrow().getStatus();
+    }
+
+    private static JSONObject payment(String id, String orderId, String status) {
+        return new JSONObject().put("id", id).put("entity", "payment").put("order_id", orderId)
+                .put("status", status).put("amount", 1000).put("currency", "INR");
+    }
+
+    private static String hmacHex(String secret, byte[] data) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : mac.doFinal(data)) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
@@ -0,0 +1,147 @@
+package com.pdfprinting.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pdfprinting.model.User;
+import com.pdfprinting.repository.PaymentOrderRepository;
+import com.pdfprinting.repository.ProcessedPaymentRepository;
+import com.pdfprinting.repository.TransactionRepository;
+import com.pdfprinting.repository.UserRepository;
+import com.pdfprinting.repository.WalletRepository;
+import com.pdfprinting.repository.WalletSnapshotRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Replayed gateway callbacks must credit a payment once and report the original outcome, and only
+ * payments for orders we recorded are credited.
+ */
+@DataJpaTest
+@Import({PaymentService.class, WalletService.class, Spans.class, SimpleMeterRegistry.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:payment-replay;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+    "spring.datasource.hikari.maximum-pool-size=20"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // workers need committed data, not a test transaction
+class PaymentServiceTest {
+
+    @Autowired
+    private PaymentService paymentService;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ProcessedPaymentRepository processedPaymentRepository;
+
+    @Autowired
+    private PaymentOrderRepository paymentOrderRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private WalletSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    private User user;
+
+    @BeforeEach
+    void createUser() {
+        User u = new User("Paying Student", "pay@example.com", "CSE", "7", "9999999999", "Batch 1", "secret123");
+        u.setDivision("A");
+        u.setAcademicYear("2023-2027");
+        u.setSemester("3");
+        user = userRepository.save(u);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        processedPaymentRepository.deleteAll();
+        paymentOrderRepository.deleteAll();
+        transactionRepository.deleteAll();
+        snapshotRepository.deleteAll();
+        walletRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void replayReturnsTheOriginalOutcomeWithoutCreditingAgain() throws Exception {
+        paymentService.recordOrder("order_1", user, new BigDecimal("100.00"), 10_200);
+        PaymentService.CreditOutcome first = paymentService.creditOrder("order_1", "pay_1");
+        PaymentService.CreditOutcome replay = paymentService.creditOrder("order_1", "pay_1");
+
+        assertThat(first.isReplay()).isFalse();
+        assertThat(replay.isReplay()).isTrue();
+        assertThat(replay.getAmount()).isEqualByComparingTo("100.00");
+        assertThat(walletService.getWalletBalance(user)).isEqualByComparingTo("100.00");
+    }
+
+    @Test
+    void paymentsForUnknownOrdersAreRefused() {
+        assertThatThrownBy(() -> paymentService.creditOrder("order_forged", "pay_forged"))
+                .hasMessageContaining("Unknown order");
+
+        assertThat(processedPaymentRepository.findAll()).isEmpty();
+        assertThat(walletService.getWalletBalance(user)).isEqualByComparingTo("0");
+    }
+
+    @Test
+    void concurrentCallbacksCreditOnce() throws Exception {
+        paymentService.recordOrder("order_race", user, new BigDecimal("50.00"), 5_100);
+        int callbacks = 20;
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<PaymentService.CreditOutcome>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < callbacks; i++) {
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    return paymentService.creditOrder("order_race", "pay_race");
+                }));
+            }
+            start.countDown();
+            long credited = 0;
+            for (Future<PaymentService.CreditOutcome> f : futures) {
+                PaymentService.CreditOutcome outcome = f.get(60, TimeUnit.SECONDS);
+                assertThat(outcome.getAmount()).isEqualByComparingTo("50.00");
+                if (!outcome.isReplay()) {
+                    credited++;
+                }
+            }
+            assertThat(credited).isEqualTo(1);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertThat(processedPaymentRepository.findAll()).hasSize(1);
+        assertThat(walletService.getWalletBalance(user)).isEqualByComparingTo("50.00");
+    }
+}
@@ -0,0 +1,79 @@
+package com.pdfprinting.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pdfprinting.repository.PendingRegistrationRepository;
+
+/**
+ * JDBC store: two service instances (standing in for two app instances) share pending
+ * registrations, including resent OTPs, the cap and the expiry sweep.
+ */
+@DataJpaTest
+@Import(PendingRegistrationService.class)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:pending-registrations;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+    "registration.pending.store=jdbc",
+    "registration.pending.max-entries=20"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // instances must see each other's commits
+class PendingRegistrationJdbcStoreTest {
+
+    @Autowired
+    private PendingRegistrationService instanceA;
+
+    @Autowired
+    private AutowireCapableBeanFactory beanFactory;
+
+    @Autowired
+    private PendingRegistrationRepository repository;
+
+    @AfterEach
+    void cleanUp() {
+        repository.deleteAll();
+    }
+
+    @Test
+    void registrationsAndResentOtpsAreVisibleToEveryInstance() {
+        PendingRegistrationService instanceB = beanFactory.createBean(PendingRegistrationService.class);
+
+        instanceA.savePendingRegistration(PendingRegistrationServiceTest.pending("shared@example.com", 10));
+        assertThat(instanceB.hasPendingRegistration("shared@example.com")).isTrue();
+
+        instanceB.resendOtpForPendingRegistration("shared@example.com", "999999");
+        assertThat(instanceA.verifyOtpForPendingRegistration("shared@example.com", "123456")).isFalse();
+        assertThat(instanceA.verifyOtpForPendingRegistration("shared@example.com", "999999")).isTrue();
+
+        instanceA.removePendingRegistration("shared@example.com");
+        assertThat(instanceB.hasPendingRegistration("shared@example.com")).isFalse();
+    }
+
+    @Test
+    void capAndSweepApplyToTheSharedTable() {
+        for (int i = 0; i < 20; i++) {
+            instanceA.savePendingRegistration(PendingRegistrationServiceTest.pending("s" + i + "@example.com", i < 5 ? -1 : 10));
+        }
+
+        // Full, but five are expired: the sweep makes room
+        instanceA.savePendingRegistration(PendingRegistrationServiceTest.pending("new@example.com", 10));
+        assertThat(instanceA.getPendingRegistrationCount()).isEqualTo(16);
+
+        for (int i = 0; i < 4; i++) {
+            instanceA.savePendingRegistration(PendingRegistrationServiceTest.pending("more" + i + "@example.com", 10));
+        }
+        assertThatThrownBy(() -> instanceA.savePendingRegistration(PendingRegistrationServiceTest.pending("late@example.com", 10)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
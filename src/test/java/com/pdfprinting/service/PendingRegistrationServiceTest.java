@@ -0,0 +1,77 @@
+package com.pdfprinting.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.TestPropertySource;
+
+import com.pdfprinting.model.PendingRegistration;
+
+/**
+ * In-memory store: capped, swept by expiry order, and resends push an entry's expiry out.
+ */
+@DataJpaTest
+@Import(PendingRegistrationService.class)
+@TestPropertySource(properties = "registration.pending.max-entries=100")
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+class PendingRegistrationServiceTest {
+
+    @Autowired
+    private PendingRegistrationService service;
+
+    @Test
+    void fullStoreRefusesNewRegistrationsButKeepsLiveOnes() {
+        for (int i = 0; i < 100; i++) {
+            service.savePendingRegistration(pending("student" + i + "@example.com", 10));
+        }
+
+        assertThatThrownBy(() -> service.savePendingRegistration(pending("late@example.com", 10)))
+                .isInstanceOf(IllegalStateException.class);
+        // Re-registering an email already in the store is not a new entry
+        service.savePendingRegistration(pending("student0@example.com", 10));
+
+        assertThat(service.getPendingRegistrationCount()).isEqualTo(100);
+        assertThat(service.hasPendingRegistration("student99@example.com")).isTrue();
+        assertThat(service.getRejectedWhenFull()).isEqualTo(1);
+    }
+
+    @Test
+    void expiredEntriesMakeRoomForNewOnes() {
+        for (int i = 0; i < 100; i++) {
+            service.savePendingRegistration(pending("student" + i + "@example.com", i < 40 ? -1 : 10));
+        }
+
+        service.savePendingRegistration(pending("new@example.com", 10));
+
+        assertThat(service.getPendingRegistrationCount()).isEqualTo(61);
+        assertThat(service.getExpiredEvictions()).isEqualTo(40);
+        assertThat(service.hasPendingRegistration("new@example.com")).isTrue();
+    }
+
+    @Test
+    void sweepSkipsEntriesWhoseOtpWasResent() throws Exception {
+        PendingRegistration pending = pending("resend@example.com", 0);
+        pending.setOtpExpiry(LocalDateTime.now().plusNanos(200_000_000));
+        service.savePendingRegistration(pending);
+        service.resendOtpForPendingRegistration("resend@example.com", "654321");
+
+        Thread.sleep(300);
+
+        // The original expiry is due, but the entry now lives until the resent OTP expires
+        assertThat(service.evictExpired()).isZero();
+        assertThat(service.hasPendingRegistration("resend@example.com")).isTrue();
+        assertThat(service.verifyOtpForPendingRegistration("resend@example.com", "654321")).isTrue();
+    }
+
+    static PendingRegistration pending(String email, int minutesToLive) {
+        return new PendingRegistration(email, "Student", "CSE", "A", "2023-2027", "3", "1", "9999999999",
+                "Batch 1", "{bcrypt}hash", "123456", LocalDateTime.now().plusMinutes(minutesToLive));
+    }
+}
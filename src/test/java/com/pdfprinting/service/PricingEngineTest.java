@@ -0,0 +1,104 @@
+package com.pdfprinting.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.math.BigDecimal;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.pdfprinting.model.PdfUpload.PrintType;
+
+/**
+ * Property tests: over many random files the engine agrees with the BigDecimal formulas it
+ * replaced, and volume tiers behave the way the tariff says.
+ */
+class PricingEngineTest {
+
+    private static final int SAMPLES = 20_000;
+
+    private final PricingEngine engine = PricingEngine.defaults();
+
+    @Test
+    void defaultTariffMatchesLegacyPricing() {
+        Random random = new Random(42);
+        for (int i = 0; i < SAMPLES; i++) {
+            int pages = 1 + random.nextInt(2000);
+            int copies = 1 + random.nextInt(50);
+            PrintType type = PrintType.values()[random.nextInt(PrintType.values().length)];
+
+            assertThat(engine.price(pages, copies, type))
+                    .as("%d pages x %d copies %s", pages, copies, type)
+                    .isEqualByComparingTo(legacyCost(pages, copies, type));
+            assertThat(engine.billedPages(pages, type)).isEqualTo(legacyBilledPages(pages, type));
+        }
+    }
+
+    @Test
+    void uploadPriceIsTheSumOfItsFiles() {
+        Random random = new Random(7);
+        for (int i = 0; i < SAMPLES / 10; i++) {
+            PrintType type = PrintType.values()[random.nextInt(PrintType.values().length)];
+            int copies = 1 + random.nextInt(50);
+            long paise = 0;
+            BigDecimal legacy = BigDecimal.ZERO;
+            for (int f = 1 + random.nextInt(10); f > 0; f--) {
+                int pages = 1 + random.nextInt(300);
+                paise += engine.pricePaise(pages, copies, type);
+                legacy = legacy.add(legacyCost(pages, copies, type));
+            }
+            assertThat(PricingEngine.toRupees(paise)).isEqualByComparingTo(legacy);
+        }
+    }
+
+    @Test
+    void volumeTiersApplyFromTheirThresholdAndNeverRaiseTheRate() {
+        PricingEngine tiered = new PricingEngine("200,100:180,1000:150", "100", "700,200:650");
+        Random random = new Random(11);
+        for (int i = 0; i < SAMPLES; i++) {
+            int pages = 1 + random.nextInt(500);
+            int copies = 1 + random.nextInt(50);
+            long quantity = (long) pages * copies;
+            long expectedRate = quantity >= 1000 ? 150 : quantity >= 100 ? 180 : 200;
+
+            assertThat(tiered.pricePaise(pages, copies, PrintType.SINGLE_SIDE)).isEqualTo(quantity * expectedRate);
+            assertThat(tiered.paisePerPage(PrintType.SINGLE_SIDE, quantity + 1))
+                    .isLessThanOrEqualTo(tiered.paisePerPage(PrintType.SINGLE_SIDE, quantity));
+        }
+        assertThat(tiered.paisePerPage(PrintType.COLOUR, 199)).isEqualTo(700);
+        assertThat(tiered.paisePerPage(PrintType.COLOUR, 200)).isEqualTo(650);
+    }
+
+    @Test
+    void pricesAreInRupeesWithPaiseScale() {
+        assertThat(engine.price(3, 2, PrintType.DOUBLE_SIDE)).isEqualTo(new BigDecimal("8.00"));
+        assertThat(new PricingEngine("250", "100", "700").price(1, 1, PrintType.SINGLE_SIDE))
+                .isEqualTo(new BigDecimal("2.50"));
+    }
+
+    @Test
+    void malformedTariffsFailFast() {
+        assertThatThrownBy(() -> new PricingEngine("abc", "100", "700"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("SINGLE_SIDE");
+        assertThatThrownBy(() -> new PricingEngine("200,500:150,100:180", "100", "700"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("ascending");
+        assertThatThrownBy(() -> new PricingEngine("200", "-1", "700"))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("DOUBLE_SIDE");
+    }
+
+    // The formulas PricingEngine replaced (WalletService.calculateCost / PrintType.getPricePerPage)
+    private static BigDecimal legacyCost(int pageCount, int copyCount, PrintType printType) {
+        BigDecimal pricePerPage = switch (printType) {
+            case DOUBLE_SIDE -> new BigDecimal("1.00");
+            case COLOUR -> new BigDecimal("7.00");
+            default -> new BigDecimal("2.00");
+        };
+        return pricePerPage.multiply(new BigDecimal(legacyBilledPages(pageCount, printType)))
+                .multiply(new BigDecimal(copyCount));
+    }
+
+    private static int legacyBilledPages(int pageCount, PrintType printType) {
+        return printType == PrintType.DOUBLE_SIDE && pageCount % 2 != 0 ? pageCount + 1 : pageCount;
+    }
+}
@@ -0,0 +1,184 @@
+package com.pdfprinting.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.pdfprinting.config.RazorpayConfig;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Drives RazorpayGateway against a local stub of the orders API, and checks signature
+ * verification with a fake key secret.
+ */
+class RazorpayGatewayTest {
+
+    private static final String KEY_ID = "rzp_test_local";
+    private static final String KEY_SECRET = "local-fake-secret";
+
+    private HttpServer stub;
+    private ExecutorService stubThreads;
+    private final AtomicInteger ordersCreated = new AtomicInteger();
+    private final AtomicInteger unauthorized = new AtomicInteger();
+    private RazorpayGateway gateway;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.createContext("/v1/orders", this::createOrder);
+        stubThreads = Executors.newFixedThreadPool(8);
+        stub.setExecutor(stubThreads);
+        stub.start();
+        gateway = new RazorpayGateway(config(), "http://127.0.0.1:" + stub.getAddress().getPort(), 5000);
+    }
+
+    @AfterEach
+    void stopStub() {
+        stub.stop(0);
+        stubThreads.shutdownNow();
+    }
+
+    private void createOrder(HttpExchange exchange) throws IOException {
+        String expectedAuth = "Basic " + Base64.getEncoder()
+                .encodeToString((KEY_ID + ":" + KEY_SECRET).getBytes(StandardCharsets.UTF_8));
+        JSONObject request = new JSONObject(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        if (!expectedAuth.equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+            unauthorized.incrementAndGet();
+            respond(exchange, 401, "{\"error\":{\"code\":\"BAD_REQUEST_ERROR\"}}");
+            return;
+        }
+        JSONObject order = new JSONObject()
+                .put("id", "order_" + ordersCreated.incrementAndGet())
+                .put("amount", request.getLong("amount"))
+                .put("currency", request.getString("currency"))
+                .put("receipt", request.getString("receipt"))
+                .put("status", "created");
+        respond(exchange, 200, order.toString());
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    @Test
+    void createsOrdersUnderConcurrentLoadOverOneSharedClient() throws Exception {
+        int requests = 2_000;
+        ExecutorService pool = Executors.newFixedThreadPool(32);
+        Set<String> orderIds = ConcurrentHashMap.newKeySet();
+        List<Future<?>> futures = new ArrayList<>();
+        long started = System.nanoTime();
+        try {
+            for (int i = 0; i < requests; i++) {
+                int n = i;
+                futures.add(pool.submit(() -> {
+                    orderIds.add(gateway.createOrder(10_200, "INR", "receipt_" + n));
+                    return null;
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+        System.out.printf("RazorpayGateway: %d orders in %d ms (%.0f/s)%n", requests, elapsedMs, requests * 1000.0 / Math.max(elapsedMs, 1));
+
+        assertThat(unauthorized.get()).isZero();
+        assertThat(orderIds).hasSize(requests);
+    }
+
+    @Test
+    void gatewayErrorsSurfaceAsExceptions() {
+        RazorpayConfig wrongKeys = config();
+        wrongKeys.getKey().setSecret("not-the-secret");
+        RazorpayGateway misconfigured = new RazorpayGateway(wrongKeys, "http://127.0.0.1:" + stub.getAddress().getPort(), 5000);
+
+        assertThatThrownBy(() -> misconfigured.createOrder(1000, "INR", "r"))
+                .hasMessageContaining("401");
+    }
+
+    @Test
+    void verifiesCheckoutSignaturesWithTheKeySecret() throws Exception {
+        String signature = hmacHex(KEY_SECRET, "order_1|pay_1");
+
+        assertThat(gateway.verifyPaymentSignature("order_1", "pay_1", signature)).isTrue();
+        assertThat(gateway.verifyPaymentSignature("order_1", "pay_1", signature.toUpperCase())).isTrue();
+        assertThat(gateway.verifyPaymentSignature("order_1", "pay_2", signature)).isFalse();
+        assertThat(gateway.verifyPaymentSignature("order_1", "pay_1", hmacHex("other-secret", "order_1|pay_1"))).isFalse();
+        assertThat(gateway.verifyPaymentSignature("order_1", "pay_1", signature.substring(2))).isFalse();
+        assertThat(gateway.verifyPaymentSignature("order_1", "pay_1", "zz" + signature.substring(2))).isFalse();
+        assertThat(gateway.verifyPaymentSignature("order_1", "pay_1", null)).isFalse();
+    }
+
+    @Test
+    void perThreadMacsAgreeUnderConcurrency() throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 5_000; i++) {
+                String orderId = "order_" + i;
+                String signature = hmacHex(KEY_SECRET, orderId + "|pay_" + i);
+                int n = i;
+                results.add(pool.submit(() -> gateway.verifyPaymentSignature(orderId, "pay_" + n, signature)));
+            }
+            for (Future<Boolean> r : results) {
+                assertThat(r.get(60, TimeUnit.SECONDS)).isTrue();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void unconfiguredKeysRejectEverySignature() {
+        RazorpayGateway unconfigured = new RazorpayGateway(new RazorpayConfig(), "http://127.0.0.1:1", 1000);
+        assertThat(unconfigured.verifyPaymentSignature("order_1", "pay_1", "00")).isFalse();
+    }
+
+    private static RazorpayConfig config() {
+        RazorpayConfig config = new RazorpayConfig();
+        config.getKey().setId(KEY_ID);
+        config.getKey().setSecret(KEY_SECRET);
+        return config;
+    }
+
+    // Reference implementation, independent of HmacSha256Verifier
+    private static String hmacHex(String secret, String data) throws Exception {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+        StringBuilder hex = new StringBuilder();
+        for (byte b : mac.doFinal(data.getBytes(StandardCharsets.UTF_8))) {
+            hex.append(String.format("%02x", b));
+        }
+        return hex.toString();
+    }
+}
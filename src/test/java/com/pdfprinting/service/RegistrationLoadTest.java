@@ -0,0 +1,230 @@
+package com.pdfprinting.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pdfprinting.config.ResilienceConfig;
+import com.pdfprinting.model.PendingRegistration;
+import com.pdfprinting.model.User;
+import com.pdfprinting.repository.UserRepository;
+import com.pdfprinting.repository.WalletRepository;
+import com.pdfprinting.security.PrincipalCache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * 200 students register at once. BCrypt runs on the hashing pool, never on the request thread,
+ * and every hash still lands on the right registration in time for OTP entry.
+ */
+@DataJpaTest
+@Import({UserService.class, PendingRegistrationService.class, PasswordHashingService.class, PrincipalCache.class,
+         WalletService.class, EmailService.class, EmailDispatcher.class, BrevoClient.class, BatchNotifier.class,
+         OtpEmailRenderer.class, ResilienceConfig.class, Spans.class, SimpleMeterRegistry.class,
+         RegistrationLoadTest.Encoder.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:registration-load;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+    "spring.datasource.hikari.maximum-pool-size=50",
+    "admin.email=admin@printforyou.test",
+    "admin.password=admin-secret",
+    "app.base-url=http://localhost:8080",
+    "email.enabled=false",
+    "registration.hash-threads=4"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class RegistrationLoadTest {
+
+    private static final int USERS = 200;
+
+    @TestConfiguration
+    static class Encoder {
+        @Bean
+        RecordingEncoder passwordEncoder() {
+            return new RecordingEncoder();
+        }
+    }
+
+    /**
+     * BCrypt at the strength SecurityConfig uses, recording which threads encode and able to
+     * hold the encoding of chosen passwords until released.
+     */
+    static class RecordingEncoder implements PasswordEncoder {
+        private final PasswordEncoder bcrypt = new BCryptPasswordEncoder();
+        final Set<String> encodingThreads = ConcurrentHashMap.newKeySet();
+        final Map<String, CountDownLatch> held = new ConcurrentHashMap<>();
+
+        @Override
+        public String encode(CharSequence rawPassword) {
+            encodingThreads.add(Thread.currentThread().getName());
+            CountDownLatch gate = held.get(rawPassword.toString());
+            if (gate != null) {
+                try {
+                    gate.await(1, TimeUnit.MINUTES);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return bcrypt.encode(rawPassword);
+        }
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            return bcrypt.matches(rawPassword, encodedPassword);
+        }
+
+        CountDownLatch hold(String rawPassword) {
+            return held.computeIfAbsent(rawPassword, key -> new CountDownLatch(1));
+        }
+    }
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PendingRegistrationService pendingRegistrationService;
+
+    @Autowired
+    private PasswordHashingService passwordHashingService;
+
+    @Autowired
+    private RecordingEncoder passwordEncoder;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @AfterEach
+    void cleanUp() {
+        passwordEncoder.held.values().forEach(CountDownLatch::countDown);
+        passwordEncoder.held.clear();
+        passwordEncoder.encodingThreads.clear();
+        walletRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentRegistrationsHashOnThePoolNotTheRequestThread() throws Exception {
+        concurrently(i -> userService.registerUser(student("load" + i + "@example.com", "R" + i, "secret" + i)));
+
+        for (int i = 0; i < USERS; i++) {
+            String email = "load" + i + "@example.com";
+            PendingRegistration pending = awaitPasswordHash(email);
+            assertThat(passwordEncoder.matches("secret" + i, pending.getPassword())).as(email).isTrue();
+        }
+        assertThat(passwordEncoder.encodingThreads).isNotEmpty()
+            .allSatisfy(thread -> assertThat(thread).startsWith("password-hasher-"));
+    }
+
+    @Test
+    void otpEnteredRightAwayStillGetsTheHashedPassword() throws Exception {
+        User registered = userService.registerUser(student("quick@example.com", "Q1", "secret123"));
+
+        assertThat(userService.verifyOtp("quick@example.com", registered.getOtp())).isTrue();
+
+        User saved = userRepository.findByEmail("quick@example.com").orElseThrow();
+        assertThat(saved.isEmailVerified()).isTrue();
+        assertThat(passwordEncoder.matches("secret123", saved.getPassword())).isTrue();
+        assertThat(pendingRegistrationService.hasPendingRegistration("quick@example.com")).isFalse();
+    }
+
+    @Test
+    void lateHashFromAnEarlierRegistrationIsDropped() throws Exception {
+        CountDownLatch firstHash = passwordEncoder.hold("first-pass");
+        CountDownLatch secondHash = passwordEncoder.hold("second-pass");
+        long hashedBefore = passwordHashingService.getHashed();
+
+        userService.registerUser(student("again@example.com", "A1", "first-pass"));
+        // The first registration lapses while its hash is still being computed
+        pendingRegistrationService.removePendingRegistration("again@example.com");
+        User second = userService.registerUser(student("again@example.com", "A1", "second-pass"));
+
+        firstHash.countDown();
+        awaitUntil(() -> passwordHashingService.getHashed() == hashedBefore + 1);
+        assertThat(pendingRegistrationService.getPendingRegistration("again@example.com").getPassword()).isNull();
+        secondHash.countDown();
+
+        assertThat(userService.verifyOtp("again@example.com", second.getOtp())).isTrue();
+        User saved = userRepository.findByEmail("again@example.com").orElseThrow();
+        assertThat(passwordEncoder.matches("second-pass", saved.getPassword())).isTrue();
+    }
+
+    private interface Registration {
+        Object run(int i) throws Exception;
+    }
+
+    private static void concurrently(Registration registration) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(USERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < USERS; i++) {
+                int n = i;
+                Callable<Object> task = () -> {
+                    start.await();
+                    return registration.run(n);
+                };
+                futures.add(pool.submit(task));
+            }
+            start.countDown();
+            for (Future<Object> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private PendingRegistration awaitPasswordHash(String email) throws Exception {
+        awaitUntil(() -> {
+            PendingRegistration pending = pendingRegistrationService.getPendingRegistration(email);
+            return pending != null && pending.getPassword() != null;
+        });
+        return pendingRegistrationService.getPendingRegistration(email);
+    }
+
+    private static void awaitUntil(Supplier<Boolean> condition) throws Exception {
+        long deadline = System.currentTimeMillis() + 60_000;
+        while (!condition.get()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("Timed out waiting for the password hashes");
+            }
+            Thread.sleep(20);
+        }
+    }
+
+    private static User student(String email, String rollNumber, String password) {
+        User user = new User("Load Student", email, "CSE", rollNumber, "9999999999", "Batch 1", password);
+        user.setDivision("A");
+        user.setAcademicYear("2023-2027");
+        user.setSemester("3");
+        return user;
+    }
+}
@@ -0,0 +1,297 @@
+package com.pdfprinting.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.pdfprinting.model.PdfUpload;
+import com.pdfprinting.model.Transaction;
+import com.pdfprinting.model.User;
+import com.pdfprinting.model.WalletHold;
+import com.pdfprinting.repository.PdfUploadRepository;
+import com.pdfprinting.repository.TransactionRepository;
+import com.pdfprinting.repository.UserRepository;
+import com.pdfprinting.repository.WalletHoldRepository;
+import com.pdfprinting.repository.WalletRepository;
+import com.pdfprinting.repository.WalletSnapshotRepository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Hammers one wallet with hundreds of parallel debits and credits and checks the invariants:
+ * the balance never goes negative, and every successful operation is reflected exactly once.
+ */
+@DataJpaTest
+@Import({WalletService.class, Spans.class, SimpleMeterRegistry.class})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@TestPropertySource(properties = {
+    "spring.datasource.url=jdbc:h2:mem:wallet-stress;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000",
+    "spring.datasource.hikari.maximum-pool-size=20",
+    // Debits losing the sequence race retry; under this much contention allow plenty of rounds
+    "wallet.debit.max-attempts=1000",
+    "wallet.ledger.settle-lag-ms=1000",
+    "wallet.ledger.compact-min-entries=1",
+    "wallet.hold.ttl-ms=0"
+})
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // workers need committed data, not a test transaction
+class WalletServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    @Autowired
+    private WalletService walletService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private WalletRepository walletRepository;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private WalletSnapshotRepository snapshotRepository;
+
+    @Autowired
+    private WalletHoldRepository holdRepository;
+
+    @Autowired
+    private PdfUploadRepository pdfUploadRepository;
+
+    private User user;
+
+    @BeforeEach
+    void createUser() {
+        User u = new User("Stress Student", "stress@example.com", "CSE", "42", "9999999999", "Batch 1", "secret123");
+        u.setDivision("A");
+        u.setAcademicYear("2023-2027");
+        u.setSemester("3");
+        user = userRepository.save(u);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        pdfUploadRepository.deleteAll();
+        holdRepository.deleteAll();
+        transactionRepository.deleteAll();
+        snapshotRepository.deleteAll();
+        walletRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    @Test
+    void parallelDebitsNeverOverdraw() throws Exception {
+        walletService.addMoney(user, new BigDecimal("100.00"), "seed", "Seed balance");
+
+        int attempts = 300;
+        AtomicInteger succeeded = new AtomicInteger();
+        runConcurrently(attempts, i -> {
+            if (walletService.deductMoney(user, BigDecimal.ONE, "Stress debit " + i)) {
+                succeeded.incrementAndGet();
+            }
+        });
+
+        // Exactly the seeded amount can be spent, and not a rupee more
+        assertThat(succeeded.get()).isEqualTo(100);
+        assertThat(walletService.getWalletBalance(user)).isEqualByComparingTo("0.00");
+
+        // Each successful debit recorded its own distinct post-debit balance: no two debits saw the same row state
+        List<BigDecimal> balancesAfter = transactionRepository.findByUserIdOrderByCreatedAtDesc(user.getId()).stream()
+                .filter(t -> t.getType() == Transaction.TransactionType.PDF_BILLING)
+                .map(t -> t.getBalanceAfter().stripTrailingZeros())
+                .toList();
+        assertThat(balancesAfter).hasSize(100).doesNotHaveDuplicates();
+        assertThat(balancesAfter).allSatisfy(b -> assertThat(b.signum()).isGreaterThanOrEqualTo(0));
+    }
+
+    @Test
+    void parallelCreditsAndDebitsLoseNoUpdates() throws Exception {
+        walletService.addMoney(user, new BigDecimal("50.00"), "seed", "Seed balance");
+
+        int attempts = 400;
+        AtomicInteger debits = new AtomicInteger();
+        AtomicInteger credits = new AtomicInteger();
+        runConcurrently(attempts, i -> {
+            if (i % 2 == 0) {
+                if (walletService.refundMoney(user, new BigDecimal("2.00"), "Stress credit " + i)) {
+                    credits.incrementAndGet();
+                }
+            } else if (walletService.deductMoney(user, new BigDecimal("3.00"), "Stress debit " + i)) {
+                debits.incrementAndGet();
+            }
+        });
+
+        assertThat(credits.get()).isEqualTo(attempts / 2);
+        BigDecimal expected = new BigDecimal("50.00")
+                .add(new BigDecimal("2.00").multiply(BigDecimal.valueOf(credits.get())))
+                .subtract(new BigDecimal("3.00").multiply(BigDecimal.valueOf(debits.get())));
+        BigDecimal balance = walletService.getWalletBalance(user);
+        assertThat(balance).isEqualByComparingTo(expected);
+        assertThat(balance.signum()).isGreaterThanOrEqualTo(0);
+
+        // The balance is exactly the sum of the ledger
+        BigDecimal ledgerSum = transactionRepository.findByUserIdOrderByCreatedAtDesc(user.getId()).stream()
+                .map(Transaction::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        assertThat(ledgerSum).isEqualByComparingTo(balance);
+    }
+
+    @Test
+    void creditsRecordTheBalanceAfter() {
+        walletService.addMoney(user, new BigDecimal("20.00"), "seed", "Seed balance");
+        walletService.deductMoney(user, new BigDecimal("8.00"), "Upload");
+        walletService.refundMoney(user, new BigDecimal("3.00"), "Deleted upload");
+
+        List<BigDecimal> balancesAfter = transactionRepository.findByUserIdOrderByCreatedAtDesc(user.getId()).stream()
+                .map(Transaction::getBalanceAfter)
+                .toList();
+        assertThat(balancesAfter).usingElementComparator(BigDecimal::compareTo)
+                .containsExactly(new BigDecimal("15"), new BigDecimal("12"), new BigDecimal("20"));
+    }
+
+    @Test
+    void concurrentFirstCreditsCreateOneWallet() throws Exception {
+        runConcurrently(50, i -> walletService.addMoney(user, BigDecimal.ONE, "ref-" + i, "First credit " + i));
+
+        assertThat(walletRepository.findAll()).hasSize(1);
+        assertThat(snapshotRepository.findAll()).hasSize(1);
+        assertThat(walletService.getWalletBalance(user)).isEqualByComparingTo("50");
+    }
+
+    @Test
+    void compactionKeepsTheBalanceWhileDebitsRun() throws Exception {
+        walletService.addMoney(user, new BigDecimal("500.00"), "seed", "Seed balance");
+
+        AtomicInteger debits = new AtomicInteger();
+        runConcurrently(200, i -> {
+            if (i % 50 == 0) {
+                walletService.compactLedger();
+            } else if (walletService.deductMoney(user, BigDecimal.ONE, "Stress debit " + i)) {
+                debits.incrementAndGet();
+            }
+        });
+        Thread.sleep(1100); // past the settle lag, so everything is folded
+        walletService.compactLedger();
+
+        BigDecimal expected = new BigDecimal("500.00").subtract(BigDecimal.valueOf(debits.get()));
+        assertThat(walletService.getWalletBalance(user)).isEqualByComparingTo(expected);
+        // After the final compaction the latest snapshot alone carries the balance
+        assertThat(snapshotRepository.findTopByUserIdOrderByThroughTransactionIdDesc(user.getId()))
+                .hasValueSatisfying(s -> assertThat(s.getBalance()).isEqualByComparingTo(expected));
+    }
+
+    @Test
+    void parallelHoldsNeverOverdrawAndCaptureOnlyWhatWasUsed() throws Exception {
+        walletService.addMoney(user, new BigDecimal("100.00"), "seed", "Seed balance");
+
+        AtomicInteger captured = new AtomicInteger();
+        runConcurrently(50, i -> {
+            WalletHold hold = walletService.reserve(user, new BigDecimal("10.00"), "Stress upload " + i);
+            if (hold != null && walletService.capture(hold, new BigDecimal("4.00"))) {
+                captured.incrementAndGet();
+            }
+        });
+
+        // Reservations of 10 were limited by the balance at the time, but each only cost 4
+        assertThat(captured.get()).isGreaterThanOrEqualTo(10);
+        BigDecimal balance = walletService.getWalletBalance(user);
+        assertThat(balance).isEqualByComparingTo(new BigDecimal("100.00")
+                .subtract(new BigDecimal("4.00").multiply(BigDecimal.valueOf(captured.get()))));
+        assertThat(balance.signum()).isGreaterThanOrEqualTo(0);
+        assertThat(holdRepository.findAll()).allSatisfy(h -> assertThat(h.getStatus()).isEqualTo(WalletHold.Status.CAPTURED));
+    }
+
+    @Test
+    void holdSettlesExactlyOnce() {
+        walletService.addMoney(user, new BigDecimal("30.00"), "seed", "Seed balance");
+
+        WalletHold hold = walletService.reserve(user, new BigDecimal("30.00"), "Upload");
+        assertThat(hold).isNotNull();
+        assertThat(walletService.getWalletBalance(user)).isEqualByComparingTo("0");
+        assertThat(walletService.reserve(user, BigDecimal.ONE, "Second upload")).isNull();
+
+        assertThat(walletService.release(hold)).isTrue();
+        assertThat(walletService.capture(hold, new BigDecimal("30.00"))).isFalse();
+        assertThat(walletService.getWalletBalance(user)).isEqualByComparingTo("30");
+    }
+
+    @Test
+    void expiredHoldsAreReleased() throws Exception {
+        walletService.addMoney(user, new BigDecimal("20.00"), "seed", "Seed balance");
+        WalletHold hold = walletService.reserve(user, new BigDecimal("15.00"), "Abandoned upload");
+
+        Thread.sleep(5);
+        walletService.settleExpiredHolds();
+
+        assertThat(holdRepository.findById(hold.getId()))
+                .hasValueSatisfying(h -> assertThat(h.getStatus()).isEqualTo(WalletHold.Status.RELEASED));
+        assertThat(walletService.getWalletBalance(user)).isEqualByComparingTo("20");
+    }
+
+    @Test
+    void expiredHoldsCaptureWhatWasStored() throws Exception {
+        walletService.addMoney(user, new BigDecimal("20.00"), "seed", "Seed balance");
+        WalletHold hold = walletService.reserve(user, new BigDecimal("15.00"), "Upload whose capture failed");
+        PdfUpload upload = new PdfUpload("stored.pdf", "stored.pdf", "path/stored.pdf", "CSE", "A", "2023-2027", "3",
+                "Batch 1", 1024, user);
+        upload.setTotalCost(new BigDecimal("6.00"));
+        upload.setWalletHoldId(hold.getId());
+        pdfUploadRepository.save(upload);
+
+        Thread.sleep(5);
+        walletService.settleExpiredHolds();
+
+        assertThat(holdRepository.findById(hold.getId())).hasValueSatisfying(h -> {
+            assertThat(h.getStatus()).isEqualTo(WalletHold.Status.CAPTURED);
+            assertThat(h.getCapturedAmount()).isEqualByComparingTo("6");
+        });
+        assertThat(walletService.getWalletBalance(user)).isEqualByComparingTo("14");
+    }
+
+    private void runConcurrently(int tasks, IntTask task) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < tasks; i++) {
+                int n = i;
+                futures.add(pool.submit(() -> {
+                    start.await();
+                    task.run(n);
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : futures) {
+                f.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface IntTask {
+        void run(int i) throws Exception;
+    }
+}